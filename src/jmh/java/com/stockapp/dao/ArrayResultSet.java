@@ -0,0 +1,268 @@
+package com.stockapp.dao;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.sql.*;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Benchmark için bellek içi ResultSet: kolonlar düz diziler (int[] / String[] / double[]), kutulama yok.
+ * Sadece Rows'un ve isimle okuyan eski DAO kodunun kullandığı metotlar gerçek; gerisi desteklenmez.
+ *
+ * İsimle okuma (getInt("id")) pgjdbc gibi label -> index map'i üzerinden gider.
+ */
+final class ArrayResultSet implements ResultSet, ResultSetMetaData {
+
+    private final String[] labels;
+    private final Object[] columns;
+    private final int rowCount;
+    private final Map<String, Integer> indexByLabel = new HashMap<>();
+    private int cursor = -1;
+
+    /** @param columns her eleman bir kolon: int[], String[] veya double[] (hepsi rowCount uzunlukta) */
+    ArrayResultSet(String[] labels, Object[] columns, int rowCount) {
+        this.labels = labels;
+        this.columns = columns;
+        this.rowCount = rowCount;
+        for (int i = 0; i < labels.length; i++) indexByLabel.put(labels[i], i + 1);
+    }
+
+    /** Aynı veriyi baştan okumak için (her benchmark çağrısı). */
+    void reset() {
+        cursor = -1;
+    }
+
+    @Override public boolean next() { return ++cursor < rowCount; }
+    @Override public ResultSetMetaData getMetaData() { return this; }
+    @Override public boolean wasNull() { return false; }
+    @Override public void close() {}
+    @Override public boolean isClosed() { return false; }
+
+    @Override public int getInt(int column) { return ((int[]) columns[column - 1])[cursor]; }
+    @Override public String getString(int column) { return ((String[]) columns[column - 1])[cursor]; }
+    @Override public double getDouble(int column) { return ((double[]) columns[column - 1])[cursor]; }
+
+    @Override public int getInt(String label) throws SQLException { return getInt(findColumn(label)); }
+    @Override public String getString(String label) throws SQLException { return getString(findColumn(label)); }
+    @Override public double getDouble(String label) throws SQLException { return getDouble(findColumn(label)); }
+
+    @Override
+    public int findColumn(String label) throws SQLException {
+        Integer i = indexByLabel.get(label);
+        if (i == null) throw new SQLException("Kolon bulunamadı: " + label);
+        return i;
+    }
+
+    @Override public int getColumnCount() { return labels.length; }
+    @Override public String getColumnLabel(int column) { return labels[column - 1]; }
+    @Override public String getColumnName(int column) { return labels[column - 1]; }
+
+    @Override public <T> T unwrap(Class<T> iface) { throw unsupported(); }
+    @Override public boolean isWrapperFor(Class<?> iface) { return false; }
+
+    private static UnsupportedOperationException unsupported() {
+        return new UnsupportedOperationException("ArrayResultSet");
+    }
+
+    // --- kullanılmayan ResultSet / ResultSetMetaData metotları ---
+
+    @Override public boolean getBoolean(int a0) { throw unsupported(); }
+    @Override public byte getByte(int a0) { throw unsupported(); }
+    @Override public short getShort(int a0) { throw unsupported(); }
+    @Override public long getLong(int a0) { throw unsupported(); }
+    @Override public float getFloat(int a0) { throw unsupported(); }
+    @Deprecated @Override public BigDecimal getBigDecimal(int a0, int a1) { throw unsupported(); }
+    @Override public byte[] getBytes(int a0) { throw unsupported(); }
+    @Override public Date getDate(int a0) { throw unsupported(); }
+    @Override public Time getTime(int a0) { throw unsupported(); }
+    @Override public Timestamp getTimestamp(int a0) { throw unsupported(); }
+    @Override public InputStream getAsciiStream(int a0) { throw unsupported(); }
+    @Deprecated @Override public InputStream getUnicodeStream(int a0) { throw unsupported(); }
+    @Override public InputStream getBinaryStream(int a0) { throw unsupported(); }
+    @Override public boolean getBoolean(String a0) { throw unsupported(); }
+    @Override public byte getByte(String a0) { throw unsupported(); }
+    @Override public short getShort(String a0) { throw unsupported(); }
+    @Override public long getLong(String a0) { throw unsupported(); }
+    @Override public float getFloat(String a0) { throw unsupported(); }
+    @Deprecated @Override public BigDecimal getBigDecimal(String a0, int a1) { throw unsupported(); }
+    @Override public byte[] getBytes(String a0) { throw unsupported(); }
+    @Override public Date getDate(String a0) { throw unsupported(); }
+    @Override public Time getTime(String a0) { throw unsupported(); }
+    @Override public Timestamp getTimestamp(String a0) { throw unsupported(); }
+    @Override public InputStream getAsciiStream(String a0) { throw unsupported(); }
+    @Deprecated @Override public InputStream getUnicodeStream(String a0) { throw unsupported(); }
+    @Override public InputStream getBinaryStream(String a0) { throw unsupported(); }
+    @Override public SQLWarning getWarnings() { throw unsupported(); }
+    @Override public void clearWarnings() { throw unsupported(); }
+    @Override public String getCursorName() { throw unsupported(); }
+    @Override public Object getObject(int a0) { throw unsupported(); }
+    @Override public Object getObject(String a0) { throw unsupported(); }
+    @Override public Reader getCharacterStream(int a0) { throw unsupported(); }
+    @Override public Reader getCharacterStream(String a0) { throw unsupported(); }
+    @Override public BigDecimal getBigDecimal(int a0) { throw unsupported(); }
+    @Override public BigDecimal getBigDecimal(String a0) { throw unsupported(); }
+    @Override public boolean isBeforeFirst() { throw unsupported(); }
+    @Override public boolean isAfterLast() { throw unsupported(); }
+    @Override public boolean isFirst() { throw unsupported(); }
+    @Override public boolean isLast() { throw unsupported(); }
+    @Override public void beforeFirst() { throw unsupported(); }
+    @Override public void afterLast() { throw unsupported(); }
+    @Override public boolean first() { throw unsupported(); }
+    @Override public boolean last() { throw unsupported(); }
+    @Override public int getRow() { throw unsupported(); }
+    @Override public boolean absolute(int a0) { throw unsupported(); }
+    @Override public boolean relative(int a0) { throw unsupported(); }
+    @Override public boolean previous() { throw unsupported(); }
+    @Override public void setFetchDirection(int a0) { throw unsupported(); }
+    @Override public int getFetchDirection() { throw unsupported(); }
+    @Override public void setFetchSize(int a0) { throw unsupported(); }
+    @Override public int getFetchSize() { throw unsupported(); }
+    @Override public int getType() { throw unsupported(); }
+    @Override public int getConcurrency() { throw unsupported(); }
+    @Override public boolean rowUpdated() { throw unsupported(); }
+    @Override public boolean rowInserted() { throw unsupported(); }
+    @Override public boolean rowDeleted() { throw unsupported(); }
+    @Override public void updateNull(int a0) { throw unsupported(); }
+    @Override public void updateBoolean(int a0, boolean a1) { throw unsupported(); }
+    @Override public void updateByte(int a0, byte a1) { throw unsupported(); }
+    @Override public void updateShort(int a0, short a1) { throw unsupported(); }
+    @Override public void updateInt(int a0, int a1) { throw unsupported(); }
+    @Override public void updateLong(int a0, long a1) { throw unsupported(); }
+    @Override public void updateFloat(int a0, float a1) { throw unsupported(); }
+    @Override public void updateDouble(int a0, double a1) { throw unsupported(); }
+    @Override public void updateBigDecimal(int a0, BigDecimal a1) { throw unsupported(); }
+    @Override public void updateString(int a0, String a1) { throw unsupported(); }
+    @Override public void updateBytes(int a0, byte[] a1) { throw unsupported(); }
+    @Override public void updateDate(int a0, Date a1) { throw unsupported(); }
+    @Override public void updateTime(int a0, Time a1) { throw unsupported(); }
+    @Override public void updateTimestamp(int a0, Timestamp a1) { throw unsupported(); }
+    @Override public void updateAsciiStream(int a0, InputStream a1, int a2) { throw unsupported(); }
+    @Override public void updateBinaryStream(int a0, InputStream a1, int a2) { throw unsupported(); }
+    @Override public void updateCharacterStream(int a0, Reader a1, int a2) { throw unsupported(); }
+    @Override public void updateObject(int a0, Object a1, int a2) { throw unsupported(); }
+    @Override public void updateObject(int a0, Object a1) { throw unsupported(); }
+    @Override public void updateNull(String a0) { throw unsupported(); }
+    @Override public void updateBoolean(String a0, boolean a1) { throw unsupported(); }
+    @Override public void updateByte(String a0, byte a1) { throw unsupported(); }
+    @Override public void updateShort(String a0, short a1) { throw unsupported(); }
+    @Override public void updateInt(String a0, int a1) { throw unsupported(); }
+    @Override public void updateLong(String a0, long a1) { throw unsupported(); }
+    @Override public void updateFloat(String a0, float a1) { throw unsupported(); }
+    @Override public void updateDouble(String a0, double a1) { throw unsupported(); }
+    @Override public void updateBigDecimal(String a0, BigDecimal a1) { throw unsupported(); }
+    @Override public void updateString(String a0, String a1) { throw unsupported(); }
+    @Override public void updateBytes(String a0, byte[] a1) { throw unsupported(); }
+    @Override public void updateDate(String a0, Date a1) { throw unsupported(); }
+    @Override public void updateTime(String a0, Time a1) { throw unsupported(); }
+    @Override public void updateTimestamp(String a0, Timestamp a1) { throw unsupported(); }
+    @Override public void updateAsciiStream(String a0, InputStream a1, int a2) { throw unsupported(); }
+    @Override public void updateBinaryStream(String a0, InputStream a1, int a2) { throw unsupported(); }
+    @Override public void updateCharacterStream(String a0, Reader a1, int a2) { throw unsupported(); }
+    @Override public void updateObject(String a0, Object a1, int a2) { throw unsupported(); }
+    @Override public void updateObject(String a0, Object a1) { throw unsupported(); }
+    @Override public void insertRow() { throw unsupported(); }
+    @Override public void updateRow() { throw unsupported(); }
+    @Override public void deleteRow() { throw unsupported(); }
+    @Override public void refreshRow() { throw unsupported(); }
+    @Override public void cancelRowUpdates() { throw unsupported(); }
+    @Override public void moveToInsertRow() { throw unsupported(); }
+    @Override public void moveToCurrentRow() { throw unsupported(); }
+    @Override public Statement getStatement() { throw unsupported(); }
+    @Override public Object getObject(int a0, Map<String, Class<?>> a1) { throw unsupported(); }
+    @Override public Ref getRef(int a0) { throw unsupported(); }
+    @Override public Blob getBlob(int a0) { throw unsupported(); }
+    @Override public Clob getClob(int a0) { throw unsupported(); }
+    @Override public Array getArray(int a0) { throw unsupported(); }
+    @Override public Object getObject(String a0, Map<String, Class<?>> a1) { throw unsupported(); }
+    @Override public Ref getRef(String a0) { throw unsupported(); }
+    @Override public Blob getBlob(String a0) { throw unsupported(); }
+    @Override public Clob getClob(String a0) { throw unsupported(); }
+    @Override public Array getArray(String a0) { throw unsupported(); }
+    @Override public Date getDate(int a0, Calendar a1) { throw unsupported(); }
+    @Override public Date getDate(String a0, Calendar a1) { throw unsupported(); }
+    @Override public Time getTime(int a0, Calendar a1) { throw unsupported(); }
+    @Override public Time getTime(String a0, Calendar a1) { throw unsupported(); }
+    @Override public Timestamp getTimestamp(int a0, Calendar a1) { throw unsupported(); }
+    @Override public Timestamp getTimestamp(String a0, Calendar a1) { throw unsupported(); }
+    @Override public URL getURL(int a0) { throw unsupported(); }
+    @Override public URL getURL(String a0) { throw unsupported(); }
+    @Override public void updateRef(int a0, Ref a1) { throw unsupported(); }
+    @Override public void updateRef(String a0, Ref a1) { throw unsupported(); }
+    @Override public void updateBlob(int a0, Blob a1) { throw unsupported(); }
+    @Override public void updateBlob(String a0, Blob a1) { throw unsupported(); }
+    @Override public void updateClob(int a0, Clob a1) { throw unsupported(); }
+    @Override public void updateClob(String a0, Clob a1) { throw unsupported(); }
+    @Override public void updateArray(int a0, Array a1) { throw unsupported(); }
+    @Override public void updateArray(String a0, Array a1) { throw unsupported(); }
+    @Override public RowId getRowId(int a0) { throw unsupported(); }
+    @Override public RowId getRowId(String a0) { throw unsupported(); }
+    @Override public void updateRowId(int a0, RowId a1) { throw unsupported(); }
+    @Override public void updateRowId(String a0, RowId a1) { throw unsupported(); }
+    @Override public int getHoldability() { throw unsupported(); }
+    @Override public void updateNString(int a0, String a1) { throw unsupported(); }
+    @Override public void updateNString(String a0, String a1) { throw unsupported(); }
+    @Override public void updateNClob(int a0, NClob a1) { throw unsupported(); }
+    @Override public void updateNClob(String a0, NClob a1) { throw unsupported(); }
+    @Override public NClob getNClob(int a0) { throw unsupported(); }
+    @Override public NClob getNClob(String a0) { throw unsupported(); }
+    @Override public SQLXML getSQLXML(int a0) { throw unsupported(); }
+    @Override public SQLXML getSQLXML(String a0) { throw unsupported(); }
+    @Override public void updateSQLXML(int a0, SQLXML a1) { throw unsupported(); }
+    @Override public void updateSQLXML(String a0, SQLXML a1) { throw unsupported(); }
+    @Override public String getNString(int a0) { throw unsupported(); }
+    @Override public String getNString(String a0) { throw unsupported(); }
+    @Override public Reader getNCharacterStream(int a0) { throw unsupported(); }
+    @Override public Reader getNCharacterStream(String a0) { throw unsupported(); }
+    @Override public void updateNCharacterStream(int a0, Reader a1, long a2) { throw unsupported(); }
+    @Override public void updateNCharacterStream(String a0, Reader a1, long a2) { throw unsupported(); }
+    @Override public void updateAsciiStream(int a0, InputStream a1, long a2) { throw unsupported(); }
+    @Override public void updateBinaryStream(int a0, InputStream a1, long a2) { throw unsupported(); }
+    @Override public void updateCharacterStream(int a0, Reader a1, long a2) { throw unsupported(); }
+    @Override public void updateAsciiStream(String a0, InputStream a1, long a2) { throw unsupported(); }
+    @Override public void updateBinaryStream(String a0, InputStream a1, long a2) { throw unsupported(); }
+    @Override public void updateCharacterStream(String a0, Reader a1, long a2) { throw unsupported(); }
+    @Override public void updateBlob(int a0, InputStream a1, long a2) { throw unsupported(); }
+    @Override public void updateBlob(String a0, InputStream a1, long a2) { throw unsupported(); }
+    @Override public void updateClob(int a0, Reader a1, long a2) { throw unsupported(); }
+    @Override public void updateClob(String a0, Reader a1, long a2) { throw unsupported(); }
+    @Override public void updateNClob(int a0, Reader a1, long a2) { throw unsupported(); }
+    @Override public void updateNClob(String a0, Reader a1, long a2) { throw unsupported(); }
+    @Override public void updateNCharacterStream(int a0, Reader a1) { throw unsupported(); }
+    @Override public void updateNCharacterStream(String a0, Reader a1) { throw unsupported(); }
+    @Override public void updateAsciiStream(int a0, InputStream a1) { throw unsupported(); }
+    @Override public void updateBinaryStream(int a0, InputStream a1) { throw unsupported(); }
+    @Override public void updateCharacterStream(int a0, Reader a1) { throw unsupported(); }
+    @Override public void updateAsciiStream(String a0, InputStream a1) { throw unsupported(); }
+    @Override public void updateBinaryStream(String a0, InputStream a1) { throw unsupported(); }
+    @Override public void updateCharacterStream(String a0, Reader a1) { throw unsupported(); }
+    @Override public void updateBlob(int a0, InputStream a1) { throw unsupported(); }
+    @Override public void updateBlob(String a0, InputStream a1) { throw unsupported(); }
+    @Override public void updateClob(int a0, Reader a1) { throw unsupported(); }
+    @Override public void updateClob(String a0, Reader a1) { throw unsupported(); }
+    @Override public void updateNClob(int a0, Reader a1) { throw unsupported(); }
+    @Override public void updateNClob(String a0, Reader a1) { throw unsupported(); }
+    @Override public <T> T getObject(int a0, Class<T> a1) { throw unsupported(); }
+    @Override public <T> T getObject(String a0, Class<T> a1) { throw unsupported(); }
+    @Override public boolean isAutoIncrement(int a0) { throw unsupported(); }
+    @Override public boolean isCaseSensitive(int a0) { throw unsupported(); }
+    @Override public boolean isSearchable(int a0) { throw unsupported(); }
+    @Override public boolean isCurrency(int a0) { throw unsupported(); }
+    @Override public int isNullable(int a0) { throw unsupported(); }
+    @Override public boolean isSigned(int a0) { throw unsupported(); }
+    @Override public int getColumnDisplaySize(int a0) { throw unsupported(); }
+    @Override public String getSchemaName(int a0) { throw unsupported(); }
+    @Override public int getPrecision(int a0) { throw unsupported(); }
+    @Override public int getScale(int a0) { throw unsupported(); }
+    @Override public String getTableName(int a0) { throw unsupported(); }
+    @Override public String getCatalogName(int a0) { throw unsupported(); }
+    @Override public int getColumnType(int a0) { throw unsupported(); }
+    @Override public String getColumnTypeName(int a0) { throw unsupported(); }
+    @Override public boolean isReadOnly(int a0) { throw unsupported(); }
+    @Override public boolean isWritable(int a0) { throw unsupported(); }
+    @Override public boolean isDefinitelyWritable(int a0) { throw unsupported(); }
+    @Override public String getColumnClassName(int a0) { throw unsupported(); }
+}
@@ -0,0 +1,124 @@
+package com.stockapp.dao;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rows eşleme maliyeti (DB yok: dizi tabanlı bellek içi ResultSet, bkz. ArrayResultSet).
+ *
+ *   nameBased       : Rows öncesi DAO kodu, her satırda rs.getInt("id") gibi isimle okuma
+ *   compileEachTime : her çalıştırmada kolon index'leri metadata'dan çözülür
+ *   cachedReader    : (SQL, Mapper) başına saklanan okuyucu
+ *   forEachNoList   : saklanan okuyucu + ara liste yok
+ *
+ * rows=1 barkod aramasını (derleme maliyeti baskın), rows=1000 katalog/rapor okumasını,
+ * rows=100000 büyük rapor/yedek akışını temsil eder (satır başı maliyet = süre / rows).
+ * Çalıştır: mvn -Pjmh test-compile exec:exec -Djmh.args="RowsBenchmark"
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowsBenchmark {
+
+    record Item(int id, String name, String barcode, int categoryId, int stock, double price, double score) {}
+
+    // ProductDAO arama sonucu ile aynı kolonlar, aynı sırada değil (label taraması gerçekçi olsun)
+    private static final String[] LABELS = {"id", "name", "barcode", "stock", "price", "category_id", "score"};
+    private static final String SQL = "SELECT id, name, barcode, stock, price, category_id, score FROM bench";
+
+    private static final Rows.Mapper<Item> ITEM = cols -> {
+        int id = cols.of("id");
+        int name = cols.of("name");
+        int barcode = cols.of("barcode");
+        int categoryId = cols.of("category_id");
+        int stock = cols.of("stock");
+        int price = cols.of("price");
+        int score = cols.of("score");
+
+        return rs -> new Item(
+                rs.getInt(id),
+                rs.getString(name),
+                rs.getString(barcode),
+                rs.getInt(categoryId),
+                rs.getInt(stock),
+                rs.getDouble(price),
+                rs.getDouble(score)
+        );
+    };
+
+    @Param({"1", "1000", "100000"})
+    public int rows;
+
+    private ArrayResultSet rs;
+
+    @Setup
+    public void setup() {
+        int[] id = new int[rows], stock = new int[rows], categoryId = new int[rows];
+        String[] name = new String[rows], barcode = new String[rows];
+        double[] price = new double[rows], score = new double[rows];
+        for (int i = 0; i < rows; i++) {
+            id[i] = i + 1;
+            name[i] = "Ürün " + i;
+            barcode[i] = "869" + (1_000_000 + i);
+            stock[i] = i % 500;
+            price[i] = 10.0 + i % 90;
+            categoryId[i] = i % 40;
+            score[i] = 1.5;
+        }
+        rs = new ArrayResultSet(LABELS, new Object[]{id, name, barcode, stock, price, categoryId, score}, rows);
+    }
+
+    @Benchmark
+    public List<Item> nameBased() throws SQLException {
+        rs.reset();
+        List<Item> list = new ArrayList<>();
+        while (rs.next()) {
+            list.add(new Item(
+                    rs.getInt("id"),
+                    rs.getString("name"),
+                    rs.getString("barcode"),
+                    rs.getInt("category_id"),
+                    rs.getInt("stock"),
+                    rs.getDouble("price"),
+                    rs.getDouble("score")
+            ));
+        }
+        return list;
+    }
+
+    @Benchmark
+    public List<Item> compileEachTime() throws SQLException {
+        rs.reset();
+        return Rows.list(rs, ITEM);
+    }
+
+    @Benchmark
+    public List<Item> cachedReader() throws SQLException {
+        rs.reset();
+        return Rows.list(rs, SQL, ITEM);
+    }
+
+    @Benchmark
+    public int forEachNoList(Blackhole bh) throws SQLException {
+        rs.reset();
+        return Rows.forEach(rs, SQL, ITEM, bh::consume);
+    }
+}
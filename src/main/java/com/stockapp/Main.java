@@ -2,8 +2,14 @@ package com.stockapp;
 
 import atlantafx.base.theme.PrimerDark;
 import com.stockapp.config.DatabaseConfig;
-import com.stockapp.config.DbInitializer;
-import com.stockapp.controller.ProductsController;
+import com.stockapp.event.DomainEvent;
+import com.stockapp.event.EventBus;
+import com.stockapp.service.CatalogSnapshot;
+import com.stockapp.service.LedgerCompactor;
+import com.stockapp.service.ProductPrefetcher;
+import com.stockapp.service.StartupOrchestrator;
+import com.stockapp.service.StartupTimeline;
+import com.stockapp.service.StockEscrow;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
@@ -11,23 +17,46 @@ import javafx.stage.Stage;
 
 public class Main extends Application {
 
+    private static long mainEnteredMs;
+
     @Override
     public void start(Stage stage) throws Exception {
+        StartupTimeline.record(StartupTimeline.Phase.FX_TOOLKIT, mainEnteredMs);
 
         Application.setUserAgentStylesheet(new PrimerDark().getUserAgentStylesheet());
 
+        // ✅ lokal katalog kopyası: ürünler ekranı ve barkod cache'i DB'yi beklemeden dolu açılır
+        CatalogSnapshot.load();
+
+        // ✅ pencere DB'yi beklemeden kurulur; sayfalar veriyi arka planda ister
+        long fxmlStart = StartupTimeline.now();
         FXMLLoader loader = new FXMLLoader(getClass().getResource("/view/main.fxml"));
         Scene scene = new Scene(loader.load(), 1200, 750);
 
         scene.getStylesheets().add(getClass().getResource("/styles/app.css").toExternalForm());
+        StartupTimeline.record(StartupTimeline.Phase.FXML, fxmlStart);
 
         stage.setTitle("Stock Manager");
         stage.setScene(scene);
+
+        long showStart = StartupTimeline.now();
+        scene.addPostLayoutPulseListener(new Runnable() {
+            @Override
+            public void run() {
+                scene.removePostLayoutPulseListener(this);
+                StartupTimeline.record(StartupTimeline.Phase.FIRST_PAINT, showStart);
+            }
+        });
         stage.show();
+
+        // ✅ havuz + şema + önbellekler paralel, FX thread dışında
+        StartupOrchestrator.start();
+
         stage.focusedProperty().addListener((obs, oldV, focused) -> {
-            if (focused) {
-                // Uykudan dönünce genelde focus geri gelir
-                ProductsController.refreshIfOpen();
+            // açılıştaki ilk odak sayılmaz: veriler zaten yükleniyor
+            if (focused && StartupOrchestrator.isReady()) {
+                // Uykudan dönünce genelde focus geri gelir: açık ekranlar baştan yüklesin
+                EventBus.publish(new DomainEvent.CatalogInvalidated());
                 // istersen raporlar / kritik stok vs.
             }
         });
@@ -37,10 +66,19 @@ public class Main extends Application {
     @Override
     public void stop() {
         // ✅ Uygulama kapanırken pool’u kapat
+        ProductPrefetcher.stop();
+        StockEscrow.stop();
+        LedgerCompactor.stop();
+        DatabaseConfig.stopHealthMonitor();
+
+        // havuz başına bekleme özeti (hangi iş yükü bağlantı için bekledi?)
+        DatabaseConfig.poolStats().forEach(s -> System.out.println("POOL " + s));
         DatabaseConfig.shutdownPool();
     }
 
     public static void main(String[] args) {
+        mainEnteredMs = StartupTimeline.now();
+        StartupTimeline.record(StartupTimeline.Phase.JVM, 0);
         launch();
     }
 }
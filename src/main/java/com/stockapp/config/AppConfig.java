@@ -0,0 +1,52 @@
+package com.stockapp.config;
+
+import java.net.InetAddress;
+import java.nio.file.Path;
+
+/**
+ * Kasa (terminal) bazlı ayarlar.
+ * Önce -Dkey=value (JVM), yoksa ortam değişkeni okunur.
+ */
+public class AppConfig {
+
+    private static volatile String terminalId;
+
+    public static String get(String key, String def) {
+        String v = System.getProperty(key);
+        if (v == null || v.isBlank()) v = System.getenv(key);
+        return (v == null || v.isBlank()) ? def : v.trim();
+    }
+
+    public static boolean flag(String key) {
+        return Boolean.parseBoolean(get(key, "false"));
+    }
+
+    public static int getInt(String key, int def) {
+        try {
+            return Integer.parseInt(get(key, String.valueOf(def)));
+        } catch (NumberFormatException e) {
+            return def;
+        }
+    }
+
+    /** Lokal dosyalar (açık oturumlar, snapshot'lar): STOCKAPP_HOME, yoksa ~/.stockapp */
+    public static Path dataDir() {
+        return Path.of(get("STOCKAPP_HOME", System.getProperty("user.home") + "/.stockapp"));
+    }
+
+    /** TERMINAL_ID verilmezse bilgisayar adı kullanılır. */
+    public static String terminalId() {
+        if (terminalId == null) {
+            String id = get("TERMINAL_ID", null);
+            if (id == null) {
+                try {
+                    id = InetAddress.getLocalHost().getHostName();
+                } catch (Exception e) {
+                    id = "kasa-1";
+                }
+            }
+            terminalId = id.length() > 50 ? id.substring(0, 50) : id;
+        }
+        return terminalId;
+    }
+}
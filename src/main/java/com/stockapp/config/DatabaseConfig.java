@@ -1,10 +1,27 @@
 package com.stockapp.config;
 
+import com.stockapp.event.DomainEvent;
+import com.stockapp.event.EventBus;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.SQLExceptionOverride;
 
 import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class DatabaseConfig {
 
@@ -14,7 +31,7 @@ public class DatabaseConfig {
     private static final String PASS = ""; // şimdilik sabit
 
     // ⚠️ socketTimeout=10 çok düşük -> küçük gecikmede bile kopma hissi verir
-    private static final String URL =
+    private static final String DEFAULT_URL =
             "jdbc:postgresql://" + HOST + ":5432/" + DB
                     + "?sslmode=require"
                     + "&connectTimeout=10"
@@ -25,31 +42,123 @@ public class DatabaseConfig {
                     + "&preparedStatementCacheQueries=256"
                     + "&preparedStatementCacheSizeMiB=8";
 
-    private static HikariDataSource ds;
+    // ✅ Ortamdan ezilebilir (lokalde iki PostgreSQL ile denemek için)
+    private static final String URL = AppConfig.get("DB_URL", DEFAULT_URL);
+    private static final String DB_USER = AppConfig.get("DB_USER", USER);
+    private static final String DB_PASS = AppConfig.get("DB_PASS", PASS);
+
+    // ✅ Okuma replikası (opsiyonel). Verilmezse tüm okumalar primary'ye gider.
+    private static final String REPLICA_URL = AppConfig.get("DB_REPLICA_URL", null);
+    private static final long LAG_CHECK_INTERVAL_MS = 5_000;
+    private static final long REPLICA_RETRY_MS = 30_000;
+
+    /**
+     * Okumanın ne kadar bayat veriye dayanabileceği.
+     * Replika gecikmesi bu sınırı aşarsa okuma primary'ye döner.
+     */
+    public enum Freshness {
+        /** Az önce yazılanı görmesi gereken okumalar (fiş, stok düşümü sonrası): her zaman primary */
+        STRICT(0),
+        /** Gösterge paneli sayıları */
+        RECENT(5),
+        /** Raporlar / geçmiş aralıklar */
+        RELAXED(30);
+
+        private final long maxLagSeconds;
+
+        Freshness(long maxLagSeconds) {
+            this.maxLagSeconds = maxLagSeconds;
+        }
+    }
+
+    /**
+     * ✅ İş yükü sınıfları: her biri kendi havuzunda (bulkhead).
+     * Yavaş rapor ya da açılış temizliği kasanın satış bağlantısını bekletemez.
+     * Boyut / bekleme / statement timeout ortamdan ezilebilir: DB_POOL_&lt;AD&gt;_SIZE, _TIMEOUT_MS, _STATEMENT_TIMEOUT_MS
+     */
+    public enum Pool {
+        /** Satış + kasada barkod okutma */
+        CHECKOUT(2, 5_000, 10_000, 1),
+        /** Ekranlardan gelen okuma / tek tek yazma (varsayılan) */
+        INTERACTIVE(3, 10_000, 15_000, 1),
+        /** Raporlar, gösterge analizleri */
+        REPORTING(2, 15_000, 60_000, 0),
+        /** Arka plan işleri: temizlik, defter sıkıştırma, sayım, emanet, şema */
+        MAINTENANCE(1, 30_000, 300_000, 0);
+
+        private final int size;
+        private final long connectionTimeoutMs;
+        private final long statementTimeoutMs;
+        private final int minIdle;
+
+        Pool(int size, long connectionTimeoutMs, long statementTimeoutMs, int minIdle) {
+            this.size = size;
+            this.connectionTimeoutMs = connectionTimeoutMs;
+            this.statementTimeoutMs = statementTimeoutMs;
+            this.minIdle = minIdle;
+        }
+    }
+
+    /** Havuz başına bekleme ölçümü */
+    public record PoolStats(String pool, int active, int idle, int waiting,
+                            long acquires, double avgWaitMillis, double maxWaitMillis, long timeouts) {}
+
+    private static final class Meter {
+        final AtomicLong acquires = new AtomicLong();
+        final AtomicLong waitNanos = new AtomicLong();
+        final AtomicLong maxWaitNanos = new AtomicLong();
+        final AtomicLong timeouts = new AtomicLong();
+    }
+
+    private static final long SLOW_WAIT_LOG_MS = 500;
+
+    private static final Map<Pool, HikariDataSource> POOLS = new ConcurrentHashMap<>();
+    private static final Map<Pool, Meter> METERS = new EnumMap<>(Pool.class);
+    static {
+        for (Pool p : Pool.values()) METERS.put(p, new Meter());
+    }
+
+    private static HikariDataSource replicaDs;
+
+    private static volatile double replicaLagSeconds = Double.MAX_VALUE;
+    private static volatile long lagCheckedAt = 0;
+    private static volatile long replicaDownUntil = 0;
 
     /** Uygulama açılırken 1 kez çağır (istersen çağırma, ilk getConnection'da zaten init olur) */
     public static synchronized void initPool() {
-        if (ds != null) return;
+        pool(Pool.INTERACTIVE);
+        pool(Pool.CHECKOUT);
+    }
+
+    private static HikariDataSource pool(Pool p) {
+        HikariDataSource ds = POOLS.get(p);
+        return (ds != null) ? ds : createPool(p);
+    }
+
+    private static synchronized HikariDataSource createPool(Pool p) {
+        HikariDataSource ds = POOLS.get(p);
+        if (ds != null) return ds;
+
+        String key = "DB_POOL_" + p.name() + "_";
 
         HikariConfig cfg = new HikariConfig();
+        cfg.setPoolName(p.name().toLowerCase());
         cfg.setJdbcUrl(URL);
-        cfg.setUsername(USER);
-        cfg.setPassword(PASS);
+        cfg.setUsername(DB_USER);
+        cfg.setPassword(DB_PASS);
 
-        cfg.setConnectionInitSql("SET TIME ZONE 'Europe/Istanbul'");
-        // Masaüstü app için küçük pool yeterli
-        cfg.setMaximumPoolSize(5);
-        cfg.setMinimumIdle(1);
-
-        cfg.setConnectionTimeout(10_000);
-        cfg.setIdleTimeout(600_000);
-        cfg.setMaxLifetime(1_800_000);
+        long stmtTimeout = AppConfig.getInt(key + "STATEMENT_TIMEOUT_MS", (int) p.statementTimeoutMs);
+        cfg.setConnectionInitSql("SET TIME ZONE 'Europe/Istanbul'; SET statement_timeout = " + stmtTimeout);
+        // sorgu sırasında kopan bağlantı da devre kesiciye sayılsın
+        cfg.setExceptionOverrideClassName(ConnectionLossDetector.class.getName());
 
-        // Idle kalınca kopma/uyku hissini azaltır
-        cfg.setKeepaliveTime(300_000);
+        // Masaüstü app için küçük havuzlar yeterli
+        cfg.setMaximumPoolSize(AppConfig.getInt(key + "SIZE", p.size));
+        cfg.setMinimumIdle(p.minIdle);
+        cfg.setConnectionTimeout(AppConfig.getInt(key + "TIMEOUT_MS", (int) p.connectionTimeoutMs));
 
         // Uygulama açılışında havuzu hızlı hazırlar (hata varsa hızlı yakalar)
-        cfg.setInitializationFailTimeout(10_000);
+        cfg.setInitializationFailTimeout(p.minIdle > 0 ? 10_000 : -1);
 
         cfg.setConnectionTestQuery("SELECT 1");
         cfg.setValidationTimeout(3_000);
@@ -58,23 +167,275 @@ public class DatabaseConfig {
         cfg.setIdleTimeout(300_000);   // 5 dk
 
         ds = new HikariDataSource(cfg);
+        POOLS.put(p, ds);
+        return ds;
     }
 
-    public static Connection getAppConnection() {
+    /**
+     * ✅ Çağrı yeri kendi iş yükünü seçer. Devre açıksa (bağlantı yok) beklemeden hata verir.
+     * Açılışta şema göçü bitene kadar bekler (göçün kendisi getSchemaFreeConnection kullanır).
+     */
+    public static Connection getConnection(Pool p) {
+        Connection bound = UnitOfWork.bound(); // açık UnitOfWork: aynı bağlantı + transaction
+        if (bound != null) return bound;
+        DbInitializer.awaitSchema();
+        return getSchemaFreeConnection(p);
+    }
+
+    /** Şemaya dokunmayan sorgular için (SELECT 1 gibi): göçü beklemez. */
+    public static Connection getSchemaFreeConnection(Pool p) {
+        if (!online) throw new DatabaseUnavailableException();
+
+        Meter m = METERS.get(p);
+        long t0 = System.nanoTime();
         try {
-            if (ds == null) initPool();
-            return ds.getConnection();
+            Connection c = pool(p).getConnection();
+            record(p, m, System.nanoTime() - t0);
+            return c;
         } catch (SQLException e) {
-            throw new RuntimeException("Neon DB bağlantı hatası", e);
+            m.timeouts.incrementAndGet();
+            onFailure("pool " + p.name().toLowerCase() + ": " + e.getMessage());
+            throw new RuntimeException("Neon DB bağlantı hatası (" + p.name().toLowerCase() + ")", e);
         }
     }
 
+    private static void record(Pool p, Meter m, long waited) {
+        m.acquires.incrementAndGet();
+        m.waitNanos.addAndGet(waited);
+        m.maxWaitNanos.accumulateAndGet(waited, Math::max);
+
+        long ms = waited / 1_000_000;
+        if (ms >= SLOW_WAIT_LOG_MS) {
+            System.out.println("POOL ⚠ " + p.name().toLowerCase() + " bağlantı bekleme: " + ms + " ms");
+        }
+    }
+
+    public static Connection getAppConnection() {
+        return getConnection(Pool.INTERACTIVE);
+    }
+
     public static Connection getAdminConnection() {
-        return getAppConnection();
+        return getConnection(Pool.MAINTENANCE);
+    }
+
+    public static List<PoolStats> poolStats() {
+        List<PoolStats> list = new ArrayList<>();
+        for (Pool p : Pool.values()) {
+            Meter m = METERS.get(p);
+            HikariDataSource ds = POOLS.get(p);
+            HikariPoolMXBean mx = (ds == null) ? null : ds.getHikariPoolMXBean();
+
+            long n = m.acquires.get();
+            list.add(new PoolStats(
+                    p.name().toLowerCase(),
+                    mx == null ? 0 : mx.getActiveConnections(),
+                    mx == null ? 0 : mx.getIdleConnections(),
+                    mx == null ? 0 : mx.getThreadsAwaitingConnection(),
+                    n,
+                    n == 0 ? 0 : (m.waitNanos.get() / (double) n) / 1_000_000.0,
+                    m.maxWaitNanos.get() / 1_000_000.0,
+                    m.timeouts.get()
+            ));
+        }
+        return list;
+    }
+
+    /**
+     * ✅ Sadece okuma yapan sorgular için.
+     * Replika tanımlı, ayakta ve gecikmesi {@code freshness} sınırının altındaysa replikadan,
+     * değilse primary'deki {@code primaryPool} havuzundan bağlantı verir.
+     */
+    public static Connection getReadConnection(Pool primaryPool, Freshness freshness) {
+        Connection bound = UnitOfWork.bound(); // kapsam içinde kendi yazdığını görsün: replika yok
+        if (bound != null) return bound;
+        if (!online) throw new DatabaseUnavailableException();
+        DbInitializer.awaitSchema();
+        if (REPLICA_URL == null || freshness == Freshness.STRICT) return getConnection(primaryPool);
+        if (System.currentTimeMillis() < replicaDownUntil) return getConnection(primaryPool);
+
+        try {
+            if (replicaLagSeconds() > freshness.maxLagSeconds) return getConnection(primaryPool);
+            return replica().getConnection();
+        } catch (Exception e) {
+            // replika yoksa bir süre hiç deneme, primary ile devam
+            replicaDownUntil = System.currentTimeMillis() + REPLICA_RETRY_MS;
+            System.out.println("REPLICA ❌ primary'ye düşüldü: " + e.getMessage());
+            return getConnection(primaryPool);
+        }
+    }
+
+    private static synchronized HikariDataSource replica() {
+        if (replicaDs != null) return replicaDs;
+
+        HikariConfig cfg = new HikariConfig();
+        cfg.setPoolName("replica");
+        cfg.setJdbcUrl(REPLICA_URL);
+        cfg.setUsername(AppConfig.get("DB_REPLICA_USER", DB_USER));
+        cfg.setPassword(AppConfig.get("DB_REPLICA_PASS", DB_PASS));
+        cfg.setReadOnly(true);
+
+        cfg.setConnectionInitSql("SET TIME ZONE 'Europe/Istanbul'");
+        cfg.setMaximumPoolSize(3);
+        cfg.setMinimumIdle(0);
+        cfg.setConnectionTimeout(3_000);      // replika yavaşsa hızlıca primary'ye düşsün
+        cfg.setInitializationFailTimeout(-1); // açılışı engellemesin
+        cfg.setValidationTimeout(2_000);
+        cfg.setMaxLifetime(900_000);
+        cfg.setIdleTimeout(300_000);
+
+        replicaDs = new HikariDataSource(cfg);
+        return replicaDs;
+    }
+
+    /**
+     * Replikanın primary'nin ne kadar gerisinde olduğu (sn), 5 sn cache'li.
+     * Alınan WAL'in tamamı oynatıldıysa gecikme 0 sayılır (primary boşta iken
+     * son işlem zamanına bakmak yanlış alarm verir) — ama sadece WAL alıcısı şu an
+     * primary'den akış alıyorsa: bağlantı koptuysa "alınan" eski kalır, gecikme sonsuz sayılır.
+     * Replika değil de primary ise 0.
+     */
+    public static double replicaLagSeconds() throws SQLException {
+        long now = System.currentTimeMillis();
+        if (now - lagCheckedAt < LAG_CHECK_INTERVAL_MS) return replicaLagSeconds;
+
+        String sql = """
+            SELECT CASE
+                WHEN NOT pg_is_in_recovery() THEN 0
+                WHEN NOT EXISTS (SELECT 1 FROM pg_stat_wal_receiver WHERE status = 'streaming')
+                    THEN 'Infinity'::float8
+                WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp())::float8, 0)
+            END
+        """;
+
+        try (Connection c = replica().getConnection();
+             Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery(sql)) {
+            rs.next();
+            replicaLagSeconds = rs.getDouble(1);
+            lagCheckedAt = now;
+            return replicaLagSeconds;
+        }
+    }
+
+    // =========================
+    // ✅ DEVRE KESİCİ (circuit breaker)
+    // =========================
+    // Ağ kopunca her DAO çağrısı 10-30 sn beklemesin:
+    // - havuzdan bağlantı alınamaması, sorgu sırasında bağlantı hatası (SQLState 08xxx)
+    //   ve arka plan yoklaması (probe) hata sayar
+    // - art arda FAILURE_THRESHOLD hata -> devre AÇIK: getConnection anında DatabaseUnavailableException
+    // - açıkken yoklama arka planda sürer; ilk başarılı yoklamada devre kapanır
+    // - her durum değişikliği ConnectivityChanged olarak yayınlanır (ekranlar salt okunur moda geçer)
+
+    /** Devre açıkken fırlatılır (ağ beklenmez). */
+    public static class DatabaseUnavailableException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public DatabaseUnavailableException() {
+            super("Veritabanına ulaşılamıyor (çevrimdışı mod)");
+        }
+
+        public DatabaseUnavailableException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Havuz bağlantısında atılan her SQLException'ı Hikari buraya sorar: bağlantı sınıfı
+     * hatalar (08xxx: soket koptu, zaman aşımı...) devre kesiciye hata olarak yazılır.
+     * Hikari'nin kendi kararı (bağlantıyı havuzdan atma) değişmez.
+     */
+    public static final class ConnectionLossDetector implements SQLExceptionOverride {
+        @java.lang.Override
+        public SQLExceptionOverride.Override adjudicate(SQLException e) {
+            String state = e.getSQLState();
+            if (state != null && state.startsWith("08")) onFailure("sorgu: " + e.getMessage());
+            return SQLExceptionOverride.Override.CONTINUE_EVICT;
+        }
+    }
+
+    private static final int FAILURE_THRESHOLD = 2;
+    private static final long PROBE_INTERVAL_MS = 5_000;
+    private static final int PROBE_TIMEOUT_SECONDS = 3;
+
+    private static volatile boolean online = true;
+    private static final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private static ScheduledExecutorService healthMonitor;
+    private static Connection probeConnection; // sadece monitor thread'i kullanır
+
+    public static boolean isOnline() {
+        return online;
+    }
+
+    /** Uygulama açılırken 1 kez çağır. */
+    public static synchronized void startHealthMonitor() {
+        if (healthMonitor != null) return;
+
+        healthMonitor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-health-thread");
+            t.setDaemon(true);
+            return t;
+        });
+        healthMonitor.scheduleWithFixedDelay(DatabaseConfig::probe, PROBE_INTERVAL_MS, PROBE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    public static synchronized void stopHealthMonitor() {
+        if (healthMonitor != null) {
+            healthMonitor.shutdownNow();
+            healthMonitor = null;
+        }
+    }
+
+    /** Havuzlardan bağımsız tek bir bağlantıyla hafif yoklama (havuzlar takılı kalsa bile çalışır). */
+    private static void probe() {
+        try {
+            if (probeConnection == null || probeConnection.isClosed()) {
+                probeConnection = openDirectConnection();
+            }
+            if (probeConnection.isValid(PROBE_TIMEOUT_SECONDS)) {
+                onSuccess();
+                return;
+            }
+            onFailure("probe: bağlantı geçersiz");
+        } catch (Exception e) {
+            onFailure("probe: " + e.getMessage());
+        }
+
+        try {
+            if (probeConnection != null) probeConnection.close();
+        } catch (Exception ignored) {}
+        probeConnection = null;
+    }
+
+    private static void onSuccess() {
+        consecutiveFailures.set(0);
+        if (!online) {
+            online = true;
+            System.out.println("DB ✅ bağlantı geri geldi");
+            EventBus.publish(new DomainEvent.ConnectivityChanged(true));
+            DbInitializer.retryIfFailed(); // açılışta bağlantı yokken göç yapılamadıysa
+        }
+    }
+
+    private static void onFailure(String reason) {
+        if (consecutiveFailures.incrementAndGet() >= FAILURE_THRESHOLD && online) {
+            online = false;
+            System.out.println("DB ❌ devre açıldı (" + reason + ")");
+            EventBus.publish(new DomainEvent.ConnectivityChanged(false));
+        }
+    }
+
+    /**
+     * Havuz dışı tek bağlantı (çağıran kapatır). Yoklama ve havuzun statement timeout'una
+     * sığmayan uzun DDL (CONCURRENTLY index) için.
+     */
+    public static Connection openDirectConnection() throws SQLException {
+        return DriverManager.getConnection(URL, DB_USER, DB_PASS);
     }
 
     public static boolean canConnect() {
-        try (Connection c = getAppConnection()) {
+        try (Connection c = getSchemaFreeConnection(Pool.INTERACTIVE)) {
             return true;
         } catch (Exception e) {
             return false;
@@ -83,9 +444,11 @@ public class DatabaseConfig {
 
     /** Uygulama kapanırken çağır */
     public static synchronized void shutdownPool() {
-        if (ds != null) {
-            ds.close();
-            ds = null;
+        for (HikariDataSource ds : POOLS.values()) ds.close();
+        POOLS.clear();
+        if (replicaDs != null) {
+            replicaDs.close();
+            replicaDs = null;
         }
     }
 }
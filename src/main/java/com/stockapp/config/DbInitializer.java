@@ -1,35 +1,58 @@
 package com.stockapp.config;
 
+import javafx.application.Platform;
+
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Sürümlü şema göçü (migration):
+ * - schema_version tablosu hangi adımların uygulandığını tutar
+ * - olağan açılış = tek sorgu (en yüksek sürüm + bekleyen index var mı)
+ * - eksik adımlar sırayla, her biri kendi transaction'ında uygulanır (advisory lock ile tek kasa)
+ * - büyük index'ler transaction dışında, arka planda CONCURRENTLY kurulur (tabloyu kilitlemez)
+ *
+ * Yeni şema değişikliği = MIGRATIONS listesinin sonuna yeni sürüm. Eski adımlar değiştirilmez.
+ * İlk adımlar "IF NOT EXISTS" ile yazıldı: elle kurulmuş mevcut veritabanları da sorunsuz benimsenir.
+ */
 public class DbInitializer {
 
-    public static void init() {
-        ensureTablesExist();
-        System.out.println("DB INIT ✅");
+    /** CREATE INDEX CONCURRENTLY IF NOT EXISTS {name} {definition} */
+    record IndexSpec(String name, String definition) {}
 
-    }
+    record Migration(int version, String description, String sql, List<IndexSpec> indexes) {}
 
-    private static void ensureTablesExist() {
-        try (Connection conn = DatabaseConfig.getAppConnection();
-             Statement st = conn.createStatement()) {
+    // şema göçü bitmeden uygulama sorgusu çalışmasın (eski veritabanında v_products vb. henüz yok)
+    // attempt: o anki göç denemesi bitince (başarılı ya da değil) açılır; başarısızsa yeni deneme yeni latch
+    private static volatile boolean schemaReady = false;
+    private static volatile CountDownLatch attempt = new CountDownLatch(1);
+    private static volatile RuntimeException lastFailure;
+    private static final AtomicBoolean RUNNING = new AtomicBoolean(false);
+    private static final long SCHEMA_WAIT_SECONDS = 120;
 
+    private static final long MIGRATION_LOCK = 727_001L;
+    private static final long INDEX_LOCK = 727_002L;
 
-            st.execute("""
+    private static final List<Migration> MIGRATIONS = List.of(
+
+            new Migration(1, "temel tablolar", """
                 CREATE TABLE IF NOT EXISTS categories (
                     id SERIAL PRIMARY KEY,
                     name VARCHAR(100) UNIQUE NOT NULL
                 );
-            """);
 
-            st.execute("""
                 INSERT INTO categories(name)
                 VALUES ('Genel')
                 ON CONFLICT (name) DO NOTHING;
-            """);
 
-            st.execute("""
                 CREATE TABLE IF NOT EXISTS products (
                     id SERIAL PRIMARY KEY,
                     name VARCHAR(150) NOT NULL,
@@ -38,14 +61,10 @@ public class DbInitializer {
                     stock INT NOT NULL DEFAULT 0,
                     price NUMERIC(10,2) DEFAULT 0
                 );
-            """);
 
-            st.execute("""
                 ALTER TABLE products
                 ADD COLUMN IF NOT EXISTS category_id INT;
-            """);
 
-            st.execute("""
                 DO $$
                 BEGIN
                   IF NOT EXISTS (
@@ -56,43 +75,27 @@ public class DbInitializer {
                     FOREIGN KEY (category_id) REFERENCES categories(id);
                   END IF;
                 END $$;
-            """);
 
-            st.execute("""
                 DO $$
                 BEGIN
                   IF EXISTS (
                     SELECT 1
-                    FROM information_schema.tables
-                    WHERE table_schema='public' AND table_name='sales'
+                    FROM information_schema.columns
+                    WHERE table_schema='public' AND table_name='sales' AND column_name='product_id'
+                  ) AND NOT EXISTS (
+                    SELECT 1 FROM information_schema.tables
+                    WHERE table_schema='public' AND table_name='sales_old'
                   ) THEN
-
-                    IF EXISTS (
-                      SELECT 1
-                      FROM information_schema.columns
-                      WHERE table_schema='public' AND table_name='sales' AND column_name='product_id'
-                    ) THEN
-                      IF NOT EXISTS (
-                        SELECT 1 FROM information_schema.tables
-                        WHERE table_schema='public' AND table_name='sales_old'
-                      ) THEN
-                        ALTER TABLE sales RENAME TO sales_old;
-                      END IF;
-                    END IF;
-
+                    ALTER TABLE sales RENAME TO sales_old;
                   END IF;
                 END $$;
-            """);
 
-            st.execute("""
                 CREATE TABLE IF NOT EXISTS sales (
                     id SERIAL PRIMARY KEY,
                     sale_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
                     total_amount NUMERIC(12,2) NOT NULL DEFAULT 0
                 );
-            """);
 
-            st.execute("""
                 CREATE TABLE IF NOT EXISTS sale_items (
                     id SERIAL PRIMARY KEY,
                     sale_id INT NOT NULL REFERENCES sales(id) ON DELETE CASCADE,
@@ -101,23 +104,420 @@ public class DbInitializer {
                     unit_price NUMERIC(10,2) NOT NULL,
                     line_total NUMERIC(12,2) NOT NULL
                 );
-            """);
+            """, List.of(
+                    // barcode zaten UNIQUE -> index var
+                    new IndexSpec("idx_products_name", "ON products(name)"),
+                    new IndexSpec("idx_products_stock", "ON products(stock)"),
+                    new IndexSpec("idx_products_category_id", "ON products(category_id)"),
+                    new IndexSpec("idx_sales_sale_date", "ON sales(sale_date)"),
+                    new IndexSpec("idx_sale_items_sale_id", "ON sale_items(sale_id)"),
+                    new IndexSpec("idx_sale_items_product_id", "ON sale_items(product_id)")
+            )),
+
+            // ✅ Kasa bazlı stok emaneti (STOCK_ESCROW=true iken kullanılır).
+            // Kota toplam stoğun parçasıdır: products.stock'tan düşülmez, sadece burada tutulur
+            new Migration(2, "kasa stok emaneti", """
+                CREATE TABLE IF NOT EXISTS stock_escrow (
+                    terminal_id VARCHAR(50) NOT NULL,
+                    product_id INT NOT NULL REFERENCES products(id) ON DELETE CASCADE,
+                    quota INT NOT NULL DEFAULT 0 CHECK (quota >= 0),
+                    PRIMARY KEY (terminal_id, product_id)
+                );
+            """, List.of()),
+
+            // ✅ Stok hareket defteri (append-only). applied=false -> products.stock'a henüz katlanmamış artış
+            new Migration(3, "stok hareket defteri", """
+                CREATE TABLE IF NOT EXISTS stock_movements (
+                    id BIGSERIAL PRIMARY KEY,
+                    product_id INT NOT NULL REFERENCES products(id) ON DELETE CASCADE,
+                    delta INT NOT NULL,
+                    reason VARCHAR(20) NOT NULL,
+                    sale_id INT REFERENCES sales(id) ON DELETE SET NULL,
+                    terminal_id VARCHAR(50),
+                    applied BOOLEAN NOT NULL DEFAULT true,
+                    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+                );
+
+                -- bekleyen hareket view'i için küçük partial index: tablo yeniyken hemen kurulur
+                CREATE INDEX IF NOT EXISTS idx_stock_movements_pending ON stock_movements(product_id) WHERE NOT applied;
+
+                -- defter öncesi ürünlerin mevcut stoğu açılış hareketi olarak (bir kere)
+                INSERT INTO stock_movements(product_id, delta, reason, applied)
+                SELECT p.id, p.stock, 'OPENING', true
+                FROM products p
+                WHERE p.stock <> 0
+                  AND NOT EXISTS (SELECT 1 FROM stock_movements m WHERE m.product_id = p.id);
+
+                -- güncel stok = snapshot + bekleyen hareketler
+                CREATE OR REPLACE VIEW v_products AS
+                SELECT p.id, p.name, p.barcode, p.category_id, p.price,
+                       p.stock + COALESCE(pm.pending, 0) AS stock
+                FROM products p
+                LEFT JOIN LATERAL (
+                    SELECT SUM(m.delta)::int AS pending
+                    FROM stock_movements m
+                    WHERE m.product_id = p.id AND NOT m.applied
+                ) pm ON true;
+            """, List.of(
+                    new IndexSpec("idx_stock_movements_product_id", "ON stock_movements(product_id, id)")
+            )),
+
+            // ✅ Türkçe duyarlı katlama (SearchText.fold ile aynı) + trigram arama
+            new Migration(4, "trigram arama", """
+                CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+                CREATE OR REPLACE FUNCTION stockapp_fold(t text) RETURNS text
+                LANGUAGE sql IMMUTABLE PARALLEL SAFE AS $$
+                    SELECT lower(translate(t, 'İIıÇĞÖŞÜÂÎÛçğöşüâîû', 'iiicgosuaiucgosuaiu'))
+                $$;
+            """, List.of(
+                    new IndexSpec("idx_products_name_trgm", "ON products USING gin (name gin_trgm_ops)"),
+                    new IndexSpec("idx_products_barcode_trgm", "ON products USING gin (barcode gin_trgm_ops)"),
+                    new IndexSpec("idx_products_name_fold_trgm", "ON products USING gin (stockapp_fold(name) gin_trgm_ops)")
+            )),
+
+            // ✅ Lokal katalog kopyası için değişiklik izi: satırı son yazan transaction id'si + silinenler.
+            // row_xid'e bilerek index yok: stok güncellemeleri HOT kalsın (delta sorgusu katalog boyutunda tarama yapar)
+            new Migration(5, "katalog değişiklik izi", """
+                ALTER TABLE products ADD COLUMN IF NOT EXISTS row_xid BIGINT NOT NULL DEFAULT 0;
+                ALTER TABLE categories ADD COLUMN IF NOT EXISTS row_xid BIGINT NOT NULL DEFAULT 0;
+
+                CREATE OR REPLACE FUNCTION stockapp_touch() RETURNS trigger
+                LANGUAGE plpgsql AS $$
+                BEGIN
+                    NEW.row_xid := txid_current();
+                    RETURN NEW;
+                END $$;
+
+                DROP TRIGGER IF EXISTS trg_products_touch ON products;
+                CREATE TRIGGER trg_products_touch BEFORE INSERT OR UPDATE ON products
+                FOR EACH ROW EXECUTE FUNCTION stockapp_touch();
+
+                DROP TRIGGER IF EXISTS trg_categories_touch ON categories;
+                CREATE TRIGGER trg_categories_touch BEFORE INSERT OR UPDATE ON categories
+                FOR EACH ROW EXECUTE FUNCTION stockapp_touch();
+
+                CREATE TABLE IF NOT EXISTS catalog_tombstones (
+                    kind CHAR(1) NOT NULL,
+                    id INT NOT NULL,
+                    row_xid BIGINT NOT NULL DEFAULT txid_current()
+                );
+
+                CREATE OR REPLACE FUNCTION stockapp_tombstone() RETURNS trigger
+                LANGUAGE plpgsql AS $$
+                BEGIN
+                    INSERT INTO catalog_tombstones(kind, id) VALUES (TG_ARGV[0], OLD.id);
+                    RETURN OLD;
+                END $$;
+
+                DROP TRIGGER IF EXISTS trg_products_tombstone ON products;
+                CREATE TRIGGER trg_products_tombstone AFTER DELETE ON products
+                FOR EACH ROW EXECUTE FUNCTION stockapp_tombstone('P');
+
+                DROP TRIGGER IF EXISTS trg_categories_tombstone ON categories;
+                CREATE TRIGGER trg_categories_tombstone AFTER DELETE ON categories
+                FOR EACH ROW EXECUTE FUNCTION stockapp_tombstone('C');
+            """, List.of()),
+
+            // ✅ Satış hızı / sipariş noktası (ReorderEngine). products'a kolon değil ayrı tablo:
+            // her hesaplamada products satırı (row_xid -> katalog delta'sı) değişmesin
+            new Migration(6, "satış hızı ve sipariş noktası", """
+                CREATE TABLE IF NOT EXISTS product_velocity (
+                    product_id INT PRIMARY KEY REFERENCES products(id) ON DELETE CASCADE,
+                    velocity DOUBLE PRECISION NOT NULL DEFAULT 0,
+                    today_qty INT NOT NULL DEFAULT 0,
+                    day DATE NOT NULL DEFAULT CURRENT_DATE,
+                    reorder_point INT NOT NULL DEFAULT 0
+                );
+
+                CREATE TABLE IF NOT EXISTS velocity_state (
+                    id INT PRIMARY KEY CHECK (id = 1),
+                    last_sale_item_id INT NOT NULL DEFAULT 0
+                );
+                INSERT INTO velocity_state(id) VALUES (1) ON CONFLICT DO NOTHING;
+            """, List.of()),
+
+            // ✅ Referans verisi sürümü (CategoryCache): categories'e her yazan ifade sürümü 1 artırır,
+            // istemci tek satırlık PK okumasıyla önbelleğinin güncel olup olmadığını anlar
+            new Migration(7, "referans veri sürümü", """
+                CREATE TABLE IF NOT EXISTS ref_version (
+                    name VARCHAR(40) PRIMARY KEY,
+                    version BIGINT NOT NULL DEFAULT 1
+                );
+                INSERT INTO ref_version(name) VALUES ('categories') ON CONFLICT DO NOTHING;
+
+                CREATE OR REPLACE FUNCTION stockapp_bump_ref() RETURNS trigger
+                LANGUAGE plpgsql AS $$
+                BEGIN
+                    UPDATE ref_version SET version = version + 1 WHERE name = TG_ARGV[0];
+                    RETURN NULL;
+                END $$;
+
+                DROP TRIGGER IF EXISTS trg_categories_ref_version ON categories;
+                CREATE TRIGGER trg_categories_ref_version
+                AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON categories
+                FOR EACH STATEMENT EXECUTE FUNCTION stockapp_bump_ref('categories');
+            """, List.of()),
+
+            // ✅ Stoka işlenmiş mal kabul oturumları: aynı oturum (dosyadan geri yüklense bile) bir kez işlenir
+            new Migration(8, "mal kabul oturum kimlikleri", """
+                CREATE TABLE IF NOT EXISTS receiving_batches (
+                    id VARCHAR(64) PRIMARY KEY,
+                    terminal_id VARCHAR(50),
+                    applied_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+                );
+            """, List.of()),
+
+            // ✅ Silme kayıtları sınırsız büyümesin: tarih + budama sınırı. Sınırdan eski watermark'lı
+            // kopya silinenleri kaçırmasın diye tam yüklemeye döner (CatalogDAO.since)
+            new Migration(9, "katalog silme kayıtları budama", """
+                ALTER TABLE catalog_tombstones
+                    ADD COLUMN IF NOT EXISTS deleted_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP;
+
+                CREATE TABLE IF NOT EXISTS catalog_tombstone_horizon (
+                    id INT PRIMARY KEY DEFAULT 1 CHECK (id = 1),
+                    pruned_xid BIGINT NOT NULL DEFAULT 0
+                );
+                INSERT INTO catalog_tombstone_horizon(id) VALUES (1) ON CONFLICT DO NOTHING;
+            """, List.of(
+                    new IndexSpec("idx_catalog_tombstones_row_xid", "ON catalog_tombstones(row_xid)")
+            ))
+    );
+
+    /**
+     * DatabaseConfig çağırır: şema hazır değilse
+     * - UI thread'de beklemez, hemen DatabaseUnavailableException (ekran donmasın)
+     * - arka plan thread'inde o anki göç denemesini en fazla SCHEMA_WAIT_SECONDS bekler
+     * - göç başarısızsa ya da süre dolduysa DatabaseUnavailableException: göçsüz şemaya sorgu gitmez.
+     *   Başarısız göç bağlantı geri gelince (devre kesici kapanınca) yeniden denenir.
+     */
+    static void awaitSchema() {
+        if (schemaReady) return;
+
+        if (Platform.isFxApplicationThread()) {
+            throw new DatabaseConfig.DatabaseUnavailableException("Veritabanı hazırlanıyor, biraz sonra tekrar dene.");
+        }
+        if (lastFailure != null && !RUNNING.get()) {
+            // yeniden deneme bağlantı gelince başlar; o zamana kadar beklemenin anlamı yok
+            throw new DatabaseConfig.DatabaseUnavailableException("Veritabanı şeması güncellenemedi (bağlantı gelince tekrar denenecek).");
+        }
+
+        try {
+            if (!attempt.await(SCHEMA_WAIT_SECONDS, TimeUnit.SECONDS)) {
+                System.out.println("DB INIT ⚠ şema bekleme süresi doldu");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (!schemaReady) {
+            throw new DatabaseConfig.DatabaseUnavailableException(lastFailure != null
+                    ? "Veritabanı şeması güncellenemedi (bağlantı gelince tekrar denenecek)."
+                    : "Veritabanı hazırlanıyor, biraz sonra tekrar dene.");
+        }
+    }
+
+    public static int latestVersion() {
+        return MIGRATIONS.get(MIGRATIONS.size() - 1).version();
+    }
+
+    /**
+     * Açılışta çağır. Şema güncelse tek sorgu; değilse eksik adımları uygular.
+     * Bekleyen index'ler arka planda kurulur (bu metot onları beklemez).
+     */
+    public static void init() {
+        if (!RUNNING.compareAndSet(false, true)) return;
+        CountDownLatch current = attempt;
+        try {
+            migrate();
+            lastFailure = null;
+            schemaReady = true;
+        } catch (RuntimeException e) {
+            lastFailure = e;
+            attempt = new CountDownLatch(1); // sonraki bekleyenler yeni denemeyi bekler
+            throw e;
+        } finally {
+            RUNNING.set(false);
+            current.countDown();
+        }
+    }
+
+    /** Devre kesici kapanınca (DatabaseConfig): açılıştaki göç başarısız olduysa arka planda yeniden dener. */
+    static void retryIfFailed() {
+        if (schemaReady || lastFailure == null || RUNNING.get()) return;
+
+        Thread t = new Thread(() -> {
+            try {
+                init();
+                System.out.println("DB INIT ✅ göç yeniden denendi");
+            } catch (Exception e) {
+                System.out.println("DB INIT ❌ göç yeniden denenemedi: " + e.getMessage());
+            }
+        }, "schema-retry-thread");
+        t.setDaemon(true);
+        t.start();
+    }
 
-            // ✅ Performans indexleri
-            st.execute("CREATE INDEX IF NOT EXISTS idx_products_name ON products(name);");
-            st.execute("CREATE INDEX IF NOT EXISTS idx_products_stock ON products(stock);");
-            st.execute("CREATE INDEX IF NOT EXISTS idx_products_category_id ON products(category_id);");
-            // barcode zaten UNIQUE -> index var
+    private static void migrate() {
+        long t0 = System.nanoTime();
 
-            st.execute("CREATE INDEX IF NOT EXISTS idx_sales_sale_date ON sales(sale_date);");
-            st.execute("CREATE INDEX IF NOT EXISTS idx_sale_items_sale_id ON sale_items(sale_id);");
-            st.execute("CREATE INDEX IF NOT EXISTS idx_sale_items_product_id ON sale_items(product_id);");
+        int current;
+        boolean indexesPending;
+
+        try (Connection conn = DatabaseConfig.getSchemaFreeConnection(DatabaseConfig.Pool.MAINTENANCE)) {
+
+            int[] state = readState(conn);
+            current = state[0];
+            indexesPending = state[1] == 1;
+
+            if (current < latestVersion()) {
+                for (Migration m : MIGRATIONS) {
+                    if (m.version() > current) apply(conn, m);
+                }
+                indexesPending = true;
+            }
 
-            st.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm;");
-            st.execute("CREATE INDEX IF NOT EXISTS idx_products_name_trgm ON products USING gin (name gin_trgm_ops);");
-            st.execute("CREATE INDEX IF NOT EXISTS idx_products_barcode_trgm ON products USING gin (barcode gin_trgm_ops);");
         } catch (Exception e) {
-            throw new RuntimeException("Tablo init başarısız", e);
+            throw new RuntimeException("Şema güncellenemedi", e);
+        }
+
+        System.out.printf("DB INIT ✅ sürüm %d -> %d (%.0f ms)%n",
+                current, latestVersion(), (System.nanoTime() - t0) / 1_000_000.0);
+
+        if (indexesPending) buildIndexesAsync();
+    }
+
+    /** @return {en yüksek sürüm, bekleyen index var mı (1/0)}; tablo yoksa {0, 0} */
+    private static int[] readState(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery(
+                     "SELECT COALESCE(MAX(version), 0), COALESCE(bool_or(indexes_pending), false) FROM schema_version")) {
+            rs.next();
+            return new int[]{rs.getInt(1), rs.getBoolean(2) ? 1 : 0};
+        } catch (SQLException e) {
+            if ("42P01".equals(e.getSQLState())) return new int[]{0, 0}; // undefined_table: hiç göç yapılmamış
+            throw e;
+        }
+    }
+
+    private static void apply(Connection conn, Migration m) throws SQLException {
+        boolean oldAuto = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+
+        try {
+            try (Statement st = conn.createStatement()) {
+                // aynı anda açılan kasalar aynı adımı iki kez uygulamasın
+                st.execute("SELECT pg_advisory_xact_lock(" + MIGRATION_LOCK + ")");
+                st.execute("""
+                    CREATE TABLE IF NOT EXISTS schema_version (
+                        version INT PRIMARY KEY,
+                        description TEXT NOT NULL,
+                        indexes_pending BOOLEAN NOT NULL DEFAULT false,
+                        applied_at TIMESTAMPTZ NOT NULL DEFAULT now()
+                    )
+                """);
+            }
+
+            try (PreparedStatement ps = conn.prepareStatement("SELECT 1 FROM schema_version WHERE version = ?")) {
+                ps.setInt(1, m.version());
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) { // başka kasa bizden önce uyguladı
+                        conn.commit();
+                        return;
+                    }
+                }
+            }
+
+            // adımın tüm SQL'i tek round-trip
+            try (Statement st = conn.createStatement()) {
+                st.execute(m.sql());
+            }
+
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO schema_version(version, description, indexes_pending) VALUES (?, ?, ?)")) {
+                ps.setInt(1, m.version());
+                ps.setString(2, m.description());
+                ps.setBoolean(3, !m.indexes().isEmpty());
+                ps.executeUpdate();
+            }
+
+            conn.commit();
+            System.out.println("MIGRATION ✅ " + m.version() + " - " + m.description());
+
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(oldAuto);
+        }
+    }
+
+    // =========================
+    // ✅ ARKA PLAN INDEX KURULUMU
+    // =========================
+
+    private static void buildIndexesAsync() {
+        new Thread(DbInitializer::buildPendingIndexes, "schema-index-thread").start();
+    }
+
+    /**
+     * CONCURRENTLY transaction içinde çalışmaz ve büyük tabloda havuzun statement timeout'unu aşabilir:
+     * havuz dışı, timeout'suz tek bağlantı kullanılır. Yarıda kalmış (geçersiz) index silinip yeniden kurulur.
+     */
+    private static void buildPendingIndexes() {
+        try (Connection conn = DatabaseConfig.openDirectConnection();
+             Statement st = conn.createStatement()) {
+
+            st.execute("SET statement_timeout = 0");
+
+            // başka kasa zaten kuruyorsa bekleme, o bitirir
+            try (ResultSet rs = st.executeQuery("SELECT pg_try_advisory_lock(" + INDEX_LOCK + ")")) {
+                rs.next();
+                if (!rs.getBoolean(1)) return;
+            }
+
+            List<Integer> pending = new ArrayList<>();
+            try (ResultSet rs = st.executeQuery(
+                    "SELECT version FROM schema_version WHERE indexes_pending ORDER BY version")) {
+                while (rs.next()) pending.add(rs.getInt(1));
+            }
+
+            for (Migration m : MIGRATIONS) {
+                if (!pending.contains(m.version())) continue;
+
+                for (IndexSpec idx : m.indexes()) {
+                    long t0 = System.nanoTime();
+                    if (isInvalid(conn, idx.name())) st.execute("DROP INDEX CONCURRENTLY IF EXISTS " + idx.name());
+                    st.execute("CREATE INDEX CONCURRENTLY IF NOT EXISTS " + idx.name() + " " + idx.definition());
+                    System.out.printf("INDEX ✅ %s (%.0f ms)%n", idx.name(), (System.nanoTime() - t0) / 1_000_000.0);
+                }
+
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "UPDATE schema_version SET indexes_pending = false WHERE version = ?")) {
+                    ps.setInt(1, m.version());
+                    ps.executeUpdate();
+                }
+            }
+
+            st.execute("SELECT pg_advisory_unlock(" + INDEX_LOCK + ")");
+
+        } catch (Exception e) {
+            // index sadece hız içindir; sonraki açılışta tekrar denenir
+            System.out.println("INDEX ❌ " + e.getMessage());
+        }
+    }
+
+    private static boolean isInvalid(Connection conn, String indexName) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("""
+                SELECT NOT i.indisvalid
+                FROM pg_index i
+                JOIN pg_class c ON c.oid = i.indexrelid
+                WHERE c.relname = ?
+             """)) {
+            ps.setString(1, indexName);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
         }
     }
 }
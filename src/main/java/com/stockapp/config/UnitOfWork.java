@@ -0,0 +1,144 @@
+package com.stockapp.config;
+
+import com.stockapp.event.EventBus;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Birden çok DAO çağrısını tek bağlantı + tek transaction'da toplar:
+ *
+ *   UnitOfWork.run(() -> {
+ *       int genelId = CategoryDAO.findIdByName("Genel");
+ *       CategoryDAO.moveProductsToCategory(id, genelId);
+ *       CategoryDAO.deleteById(id);
+ *   });
+ *
+ * Kapsam boyunca bu thread'in DatabaseConfig.getConnection / getReadConnection çağrıları aynı
+ * bağlantıyı alır (havuzdan tek çekiş, replika yerine primary -> kendi yazdığını görür).
+ * DAO'ların close / commit / setAutoCommit çağrıları yutulur; kapsam sonunda tek COMMIT,
+ * hata olursa hepsi geri alınır. DAO'ların yayınladığı olaylar commit'ten sonra teslim edilir.
+ * İç içe çağrı dıştaki kapsama katılır.
+ *
+ * ❗ Kapsam içinde argümansız rollback() tüm işlemi geri alınacak diye işaretler: DAO'ların
+ * "yapacak iş yok" yolları (hiçbir şey yazmadan dönenler) rollback değil commit çağırmalı.
+ */
+public final class UnitOfWork {
+
+    public interface Work<T> {
+        T call() throws Exception;
+    }
+
+    public interface VoidWork {
+        void run() throws Exception;
+    }
+
+    private static final class Scope {
+        final Connection real;
+        final Connection shared;
+        boolean rollbackOnly = false;
+
+        Scope(Connection real) {
+            this.real = real;
+            this.shared = share(this);
+        }
+    }
+
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+
+    private UnitOfWork() {}
+
+    public static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    public static void run(VoidWork work) {
+        call(DatabaseConfig.Pool.INTERACTIVE, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    public static <T> T call(Work<T> work) {
+        return call(DatabaseConfig.Pool.INTERACTIVE, work);
+    }
+
+    public static <T> T call(DatabaseConfig.Pool pool, Work<T> work) {
+        Scope outer = CURRENT.get();
+        if (outer != null) return invoke(work); // dıştaki transaction'a katıl
+
+        try (Connection real = DatabaseConfig.getConnection(pool)) {
+            real.setAutoCommit(false);
+            Scope scope = new Scope(real);
+            CURRENT.set(scope);
+            EventBus.holdOnThisThread();
+
+            boolean committed = false;
+            try {
+                T result = invoke(work);
+                // bir DAO hatayı yakalayıp rollback dediyse ama çağıran devam ettiyse: commit etme
+                if (scope.rollbackOnly) throw new RuntimeException("İşlem geri alındı");
+                real.commit();
+                committed = true;
+                return result;
+            } catch (RuntimeException e) {
+                try { real.rollback(); } catch (Exception ignored) {}
+                throw e;
+            } finally {
+                CURRENT.remove();
+                EventBus.releaseOnThisThread(committed);
+                try { real.setAutoCommit(true); } catch (Exception ignored) {}
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("İşlem tamamlanamadı", e);
+        }
+    }
+
+    /** DatabaseConfig için: kapsam açıksa paylaşılan bağlantı, değilse null. */
+    static Connection bound() {
+        Scope s = CURRENT.get();
+        return s == null ? null : s.shared;
+    }
+
+    private static <T> T invoke(Work<T> work) {
+        try {
+            return work.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    /** DAO'lara verilen vekil: transaction kapsamın elinde kalır. */
+    private static Connection share(Scope scope) {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close", "commit", "setAutoCommit":
+                            return null;
+                        case "getAutoCommit":
+                            return false;
+                        case "rollback":
+                            if (args == null || args.length == 0) {
+                                scope.rollbackOnly = true;
+                                return null;
+                            }
+                            break; // savepoint'e dönüş: gerçek bağlantıya
+                        case "isClosed":
+                            return scope.real.isClosed() || CURRENT.get() != scope;
+                        default:
+                            break;
+                    }
+                    try {
+                        return method.invoke(scope.real, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+}
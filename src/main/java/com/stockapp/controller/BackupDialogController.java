@@ -0,0 +1,144 @@
+package com.stockapp.controller;
+
+import com.stockapp.event.DomainEvent;
+import com.stockapp.event.EventBus;
+import com.stockapp.service.BackupService;
+import javafx.application.Platform;
+import javafx.fxml.FXML;
+import javafx.scene.control.*;
+import javafx.stage.FileChooser;
+import javafx.stage.Stage;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Yedek al / geri yükle. İş arka planda yürür, ilerleme çubuğu en fazla pulse başına bir kez güncellenir.
+ */
+public class BackupDialogController {
+
+    @FXML private ProgressBar progressBar;
+    @FXML private Label statusLabel;
+    @FXML private Button backupBtn;
+    @FXML private Button restoreBtn;
+    @FXML private Button closeBtn;
+
+    private volatile boolean running = false;
+
+    // iş parçacıkları çok sık bildirir: son değeri tut, FX'e tek runLater
+    private volatile String pendingMessage;
+    private volatile double pendingFraction;
+    private final AtomicBoolean uiScheduled = new AtomicBoolean(false);
+
+    @FXML
+    private void backup() {
+        if (running) return;
+
+        FileChooser fc = chooser();
+        fc.setTitle("Yedeği Kaydet");
+        fc.setInitialFileName(BackupService.defaultFileName());
+        File f = fc.showSaveDialog(window());
+        if (f == null) return;
+
+        run("Yedek alınıyor...", "backup-main-thread", () -> {
+            BackupService.Summary s = BackupService.backup(f.toPath(), this::onProgress);
+            return String.format("✅ Yedek alındı: %s (%d satır, %.1f MB, %.1f sn)",
+                    s.file().getFileName(), s.rows(), s.fileBytes() / 1_048_576.0, s.millis() / 1000.0);
+        });
+    }
+
+    @FXML
+    private void restore() {
+        if (running) return;
+
+        FileChooser fc = chooser();
+        fc.setTitle("Yedek Dosyası Seç");
+        File f = fc.showOpenDialog(window());
+        if (f == null) return;
+
+        Alert a = new Alert(Alert.AlertType.CONFIRMATION,
+                "Mevcut kategoriler, ürünler ve satışlar silinip yerine bu yedek yüklenecek.\n"
+                        + "Diğer kasalar geri yüklemeden sonra yeniden başlatılmalı. Devam edilsin mi?");
+        a.setHeaderText(null);
+        if (a.showAndWait().orElse(ButtonType.CANCEL) != ButtonType.OK) return;
+
+        Path file = f.toPath();
+        run("Geri yükleniyor...", "restore-main-thread", () -> {
+            BackupService.Summary s = BackupService.restore(file, this::onProgress);
+            // tüm ekranlar / önbellekler yeni veriyle baştan yüklensin
+            EventBus.publish(new DomainEvent.CatalogInvalidated());
+            return String.format("✅ Geri yüklendi: %d satır (%.1f sn)", s.rows(), s.millis() / 1000.0);
+        });
+    }
+
+    private interface Job {
+        String call() throws Exception;
+    }
+
+    private void run(String startMessage, String threadName, Job job) {
+        running = true;
+        setBusy(true);
+        progressBar.setProgress(0);
+        statusLabel.setText("⏳ " + startMessage);
+
+        new Thread(() -> {
+            try {
+                String done = job.call();
+                Platform.runLater(() -> {
+                    progressBar.setProgress(1);
+                    statusLabel.setText(done);
+                });
+            } catch (Exception e) {
+                e.printStackTrace();
+                Throwable root = e;
+                while (root.getCause() != null) root = root.getCause();
+                String msg = root.getMessage();
+                Platform.runLater(() -> {
+                    progressBar.setProgress(0);
+                    statusLabel.setText("❌ İşlem başarısız (veri değişmedi): " + msg);
+                });
+            } finally {
+                Platform.runLater(() -> {
+                    running = false;
+                    setBusy(false);
+                });
+            }
+        }, threadName).start();
+    }
+
+    private void onProgress(String message, double fraction) {
+        pendingMessage = message;
+        pendingFraction = fraction;
+        if (uiScheduled.compareAndSet(false, true)) {
+            Platform.runLater(() -> {
+                uiScheduled.set(false);
+                if (!running) return;
+                statusLabel.setText("⏳ " + pendingMessage);
+                progressBar.setProgress(pendingFraction);
+            });
+        }
+    }
+
+    private void setBusy(boolean busy) {
+        backupBtn.setDisable(busy);
+        restoreBtn.setDisable(busy);
+        closeBtn.setDisable(busy);
+    }
+
+    private FileChooser chooser() {
+        FileChooser fc = new FileChooser();
+        fc.getExtensionFilters().add(new FileChooser.ExtensionFilter("Stock Manager yedeği (*.stkb)", "*.stkb"));
+        return fc;
+    }
+
+    private Stage window() {
+        return (Stage) statusLabel.getScene().getWindow();
+    }
+
+    @FXML
+    public void close() {
+        if (running) return;
+        window().close();
+    }
+}
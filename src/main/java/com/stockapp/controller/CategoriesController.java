@@ -1,7 +1,11 @@
 package com.stockapp.controller;
 
+import com.stockapp.config.UnitOfWork;
 import com.stockapp.dao.CategoryDAO;
+import com.stockapp.event.DomainEvent;
+import com.stockapp.event.EventBus;
 import com.stockapp.model.Category;
+import com.stockapp.service.CategoryCache;
 import javafx.application.Platform;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
@@ -24,6 +28,7 @@ public class CategoriesController {
 
     private volatile boolean busy = false;
     private volatile boolean loading = false;
+    private boolean reloadRequested = false;
 
 
 //    private volatile boolean loading = false;
@@ -34,6 +39,9 @@ public class CategoriesController {
 
         refreshAsync();
 
+        // ✅ kategori değişince (bu ekrandan ya da başka yerden) listeyi yenile
+        EventBus.subscribeWhileShowing(table, DomainEvent.CategoryChanged.class, e -> refreshAsync());
+
         // Enter ile ekleme
         nameField.setOnAction(e -> add());
     }
@@ -60,10 +68,7 @@ public class CategoriesController {
                     nameField.clear();
                     nameField.requestFocus();
 
-                    invalidateCategoryCacheSafely();
-
-                    setBusy(false);      // ✅ önce kilidi kaldır
-                    refreshAsync();      // ✅ sonra yenile
+                    setBusy(false);      // liste CategoryChanged ile yenilenir
                 });
 
 
@@ -104,25 +109,24 @@ public class CategoriesController {
 
         new Thread(() -> {
             try {
-                int genelId = CategoryDAO.findIdByName("Genel");
-                if (genelId <= 0) throw new RuntimeException("'Genel' kategorisi bulunamadı.");
+                // ✅ tek bağlantı + tek transaction: taşıma ve silme ya birlikte olur ya hiç
+                UnitOfWork.run(() -> {
+                    int genelId = CategoryDAO.findIdByName("Genel");
+                    if (genelId <= 0) throw new RuntimeException("'Genel' kategorisi bulunamadı.");
 
-                // 1) ürünleri Genel'e taşı
-                CategoryDAO.moveProductsToCategory(selected.getId(), genelId);
+                    // 1) ürünleri Genel'e taşı
+                    CategoryDAO.moveProductsToCategory(selected.getId(), genelId);
 
-                // 2) kategoriyi sil
-                CategoryDAO.deleteById(selected.getId());
+                    // 2) kategoriyi sil
+                    CategoryDAO.deleteById(selected.getId());
+                });
 
                 Platform.runLater(() -> {
                     statusLabel.setText("🗑️ Silindi: " + selected.getName() + " (Ürünler Genel'e taşındı)");
                     showSuccess("🗑️ Kategori silindi: " + selected.getName() +
                             "\nBağlı ürünler 'Genel'e taşındı.");
 
-                    invalidateCategoryCacheSafely();
-
                     setBusy(false);
-                    refreshAsync();
-                    ProductsController.refreshIfOpen();
                 });
 
 
@@ -137,7 +141,7 @@ public class CategoriesController {
     }
 
     private void refreshAsync() {
-        if (loading) return;
+        if (loading) { reloadRequested = true; return; }
 
         loading = true;
         table.setDisable(true);
@@ -145,7 +149,7 @@ public class CategoriesController {
         new Thread(() -> {
             List<Category> list;
             try {
-                list = CategoryDAO.findAll();
+                list = CategoryCache.all(); // değişiklik olayı sürüm kontrolünü zorlar
             } catch (Exception e) {
                 list = List.of();
             }
@@ -155,6 +159,12 @@ public class CategoriesController {
                 table.setItems(FXCollections.observableArrayList(finalList));
                 table.setDisable(busy);  // ✅ busy true ise tablo kilitli kalsın
                 loading = false;
+
+                // yükleme sırasında yeni değişiklik geldiyse bir tur daha
+                if (reloadRequested) {
+                    reloadRequested = false;
+                    refreshAsync();
+                }
             });
         }, "category-refresh-thread").start();
     }
@@ -171,22 +181,6 @@ public class CategoriesController {
     }
 
 
-    /**
-     * ✅ 2 seçenek:
-     * A) ProductDialogController.CACHED_CATEGORIES public ise direkt null'la
-     * B) Daha temiz: ProductDialogController içinde public static void invalidateCategoryCache() yap
-     */
-    private void invalidateCategoryCacheSafely() {
-        try {
-            // Seçenek A (Eğer erişilebiliyorsa)
-            // ProductDialogController.CACHED_CATEGORIES = null;
-
-            // Seçenek B (Önerilen - aşağıda nasıl yapılacağını yazdım)
-            ProductDialogController.invalidateCategoryCache();
-
-        } catch (Exception ignored) { }
-    }
-
     private void showSuccess(String msg) {
         Alert a = new Alert(Alert.AlertType.INFORMATION);
         a.setTitle("Başarılı");
@@ -1,33 +1,44 @@
 package com.stockapp.controller;
 
 import com.stockapp.dao.ProductDAO;
-import com.stockapp.model.Product;
 import javafx.application.Platform;
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.beans.property.SimpleIntegerProperty;
+import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.fxml.FXML;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
-import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.stage.Stage;
 
 import java.util.List;
 
 public class CriticalStockDialogController {
 
-    @FXML private TableView<Product> table;
-    @FXML private TableColumn<Product, String> colName;
-    @FXML private TableColumn<Product, String> colBarcode;
-    @FXML private TableColumn<Product, Integer> colStock;
-    @FXML private TableColumn<Product, Double> colPrice;
+    @FXML private TableView<ProductDAO.CriticalRow> table;
+    @FXML private TableColumn<ProductDAO.CriticalRow, String> colName;
+    @FXML private TableColumn<ProductDAO.CriticalRow, String> colBarcode;
+    @FXML private TableColumn<ProductDAO.CriticalRow, Number> colStock;
+    @FXML private TableColumn<ProductDAO.CriticalRow, Number> colReorder;
+    @FXML private TableColumn<ProductDAO.CriticalRow, String> colVelocity;
+    @FXML private TableColumn<ProductDAO.CriticalRow, String> colCover;
+    @FXML private TableColumn<ProductDAO.CriticalRow, Number> colPrice;
 
     private volatile boolean loading = false;
 
     @FXML
     public void initialize() {
-        colName.setCellValueFactory(new PropertyValueFactory<>("name"));
-        colBarcode.setCellValueFactory(new PropertyValueFactory<>("barcode"));
-        colStock.setCellValueFactory(new PropertyValueFactory<>("stock"));
-        colPrice.setCellValueFactory(new PropertyValueFactory<>("price"));
+        colName.setCellValueFactory(c -> new SimpleStringProperty(c.getValue().name()));
+        colBarcode.setCellValueFactory(c -> new SimpleStringProperty(c.getValue().barcode()));
+        colStock.setCellValueFactory(c -> new SimpleIntegerProperty(c.getValue().stock()));
+        colReorder.setCellValueFactory(c -> new SimpleIntegerProperty(c.getValue().reorderPoint()));
+        colVelocity.setCellValueFactory(c -> new SimpleStringProperty(
+                String.format("%.1f", c.getValue().velocity())));
+        colCover.setCellValueFactory(c -> {
+            Double d = c.getValue().daysOfCover();
+            return new SimpleStringProperty(d == null ? "-" : String.format("%.1f gün", d));
+        });
+        colPrice.setCellValueFactory(c -> new SimpleDoubleProperty(c.getValue().price()));
 
         refresh();
     }
@@ -41,14 +52,14 @@ public class CriticalStockDialogController {
         table.setItems(FXCollections.observableArrayList());
 
         new Thread(() -> {
-            List<Product> list;
+            List<ProductDAO.CriticalRow> list;
             try {
                 list = ProductDAO.getCriticalProducts();
             } catch (Exception e) {
                 list = List.of();
             }
 
-            List<Product> finalList = list;
+            List<ProductDAO.CriticalRow> finalList = list;
             Platform.runLater(() -> {
                 table.setItems(FXCollections.observableArrayList(finalList));
                 table.setDisable(false);
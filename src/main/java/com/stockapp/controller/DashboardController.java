@@ -2,9 +2,23 @@ package com.stockapp.controller;
 
 import com.stockapp.dao.ProductDAO;
 import com.stockapp.dao.SalesDAO;
+import com.stockapp.event.DomainEvent;
+import com.stockapp.event.EventBus;
+import com.stockapp.service.LiveSalesStats;
+import com.stockapp.service.TrendingTracker;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
 import javafx.application.Platform;
 import javafx.fxml.FXML;
+import javafx.scene.chart.BarChart;
+import javafx.scene.chart.XYChart;
+import javafx.scene.control.ChoiceBox;
 import javafx.scene.control.Label;
+import javafx.scene.layout.VBox;
+import javafx.util.Duration;
+
+import java.time.LocalTime;
+import java.util.List;
 
 public class DashboardController {
 
@@ -12,11 +26,83 @@ public class DashboardController {
     @FXML private Label monthlySalesLabel;
     @FXML private Label criticalCountLabel;
 
+    @FXML private Label todayRevenueLabel;
+    @FXML private Label todayReceiptsLabel;
+    @FXML private Label todayItemsLabel;
+    @FXML private Label avgBasketLabel;
+    @FXML private BarChart<String, Number> hourlyChart;
+
+    @FXML private ChoiceBox<TrendingTracker.Window> trendWindowBox;
+    @FXML private VBox trendList;
+
+    private static final int TREND_K = 5;
+
     private volatile boolean loading = false;
 
     @FXML
     public void initialize() {
         refreshDashboard();
+
+        // ✅ bugünün canlı toplamları: olay gelince bellekten oku (bu kasa + NOTIFY ile diğerleri)
+        refreshLiveStats();
+        EventBus.subscribeWhileShowing(todayRevenueLabel, DomainEvent.SalesStatsChanged.class, e -> refreshLiveStats());
+
+        // ✅ trend kartı: bellekten okunur, DB'ye gitmez
+        trendWindowBox.getItems().setAll(TrendingTracker.Window.values());
+        trendWindowBox.setValue(TrendingTracker.Window.LAST_HOUR);
+        trendWindowBox.valueProperty().addListener((obs, o, n) -> refreshTrends());
+        refreshTrends(); // tracker burada yüklenir -> satış olayına bizden önce abone olur
+
+        // kayan pencere: satış olmasa da eski dilimler düşsün, saat/gün dönümü görünsün
+        Timeline tick = new Timeline(new KeyFrame(Duration.seconds(30), e -> {
+            refreshTrends();
+            refreshLiveStats();
+        }));
+        tick.setCycleCount(Timeline.INDEFINITE);
+        trendList.sceneProperty().addListener((obs, o, n) -> {
+            if (n == null) tick.stop(); else tick.play();
+        });
+        tick.play();
+        EventBus.subscribeWhileShowing(trendList, DomainEvent.SaleCommitted.class, e -> refreshTrends());
+
+        // ✅ satış / stok / ürün değişince sayılar güncellensin (pulse başına birleşik)
+        EventBus.subscribeWhileShowing(totalProductsLabel, DomainEvent.SaleCommitted.class, e -> refreshDashboard());
+        EventBus.subscribeWhileShowing(totalProductsLabel, DomainEvent.StockChanged.class, e -> refreshDashboard());
+        EventBus.subscribeWhileShowing(totalProductsLabel, DomainEvent.ProductChanged.class, e -> refreshDashboard());
+        EventBus.subscribeWhileShowing(totalProductsLabel, DomainEvent.ReorderPointsChanged.class, e -> refreshDashboard());
+    }
+
+    private void refreshLiveStats() {
+        if (!LiveSalesStats.isSeeded()) return; // açılış bitmedi: "..." kalsın, seed olayı gelecek
+
+        LiveSalesStats.Stats st = LiveSalesStats.snapshot();
+        todayRevenueLabel.setText(String.format("%.2f ₺", st.revenueCents() / 100.0));
+        todayReceiptsLabel.setText(String.valueOf(st.receipts()));
+        todayItemsLabel.setText(String.valueOf(st.items()));
+        avgBasketLabel.setText(String.format("%.2f ₺", st.avgBasketCents() / 100.0));
+
+        // 00'dan şu anki saate kadar (satış olmayan saatler 0)
+        XYChart.Series<String, Number> s = new XYChart.Series<>();
+        int lastHour = LocalTime.now().getHour();
+        for (int h = 0; h <= lastHour; h++) {
+            s.getData().add(new XYChart.Data<>(String.format("%02d", h), st.hourlyCents()[h] / 100.0));
+        }
+        hourlyChart.getData().setAll(List.of(s));
+    }
+
+    private void refreshTrends() {
+        TrendingTracker.Window w = trendWindowBox.getValue();
+        List<TrendingTracker.Trend> top = TrendingTracker.top(w, TREND_K);
+
+        trendList.getChildren().clear();
+        if (top.isEmpty()) {
+            trendList.getChildren().add(new Label("Henüz satış yok."));
+            return;
+        }
+        int rank = 1;
+        for (TrendingTracker.Trend t : top) {
+            trendList.getChildren().add(new Label(rank++ + ". " + t.name() + " — " + t.qty() + " adet"));
+        }
     }
 
     public void refreshDashboard() {
@@ -2,8 +2,11 @@ package com.stockapp.controller;
 
 import com.stockapp.config.DatabaseConfig;
 import com.stockapp.dao.ProductDAO;
-import com.stockapp.dao.ReportsDAO;
+import com.stockapp.event.DomainEvent;
+import com.stockapp.event.EventBus;
 import com.stockapp.model.Product;
+import com.stockapp.service.StartupOrchestrator;
+import com.stockapp.service.TypeaheadService;
 import javafx.animation.PauseTransition;
 import javafx.application.Platform;
 import javafx.fxml.FXML;
@@ -13,10 +16,12 @@ import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.StackPane;
 import javafx.stage.Modality;
+import javafx.geometry.Side;
 import javafx.stage.Stage;
 import javafx.util.Duration;
 
 import java.io.IOException;
+import java.util.List;
 
 public class MainController {
 
@@ -30,34 +35,72 @@ public class MainController {
     @FXML
     private Label bellBadge;
 
+    // 📴 DB devre kesici açıkken görünür
+    @FXML
+    private Label offlineBadge;
+
+    // ⏳ açılış adımları bitene kadar görünür
+    @FXML
+    private Label readinessLabel;
+
     // ✅ Cache: products sayfasını her seferinde yeniden yüklemeyelim
     private Parent productsPage;
     private ProductsController productsController;
 
-    // ✅ Debounce (kullanıcı yazmayı bırakınca çalışır) - istersen kapatırız
-    private PauseTransition searchDebounce;
+    // ✅ Yazarken öneri popup'ı (typeahead)
+    private final ContextMenu suggestionsPopup = new ContextMenu();
 
     @FXML
     public void initialize() {
-        // Main.java artık initPool + DbInitializer + canConnect yapıyor.
+        // Havuz + şema + önbellekler Main'de StartupOrchestrator ile arka planda başlıyor.
         // Burada sadece sayfayı açıp UI tarafını başlatalım.
         startUI();
 
         // Global search: Enter ile arama zaten var.
-        // Ekstra olarak yazarken debounce istersen:
-        setupDebouncedSearch();
+        // Ekstra olarak yazarken öneriler:
+        setupTypeahead();
     }
 
     private void startUI() {
+        // ✅ bağlantı koparsa DAO çağrıları beklemeden hata versin, ekranlar salt okunur moda geçsin
+        DatabaseConfig.startHealthMonitor();
+        EventBus.subscribe(DomainEvent.ConnectivityChanged.class, e -> {
+            offlineBadge.setVisible(!e.online());
+            offlineBadge.setManaged(!e.online());
+            if (e.online()) {
+                // kopukken kaçırılan değişiklikler için açık ekranlar tazelensin
+                EventBus.publish(new DomainEvent.CatalogInvalidated());
+                refreshBellBadge();
+            }
+        });
+
+        // ✅ havuz / şema / önbellekler StartupOrchestrator'da (Main); burada sadece ilerleme gösterilir
+        EventBus.subscribe(DomainEvent.StartupProgress.class, this::onStartupProgress);
+        EventBus.subscribe(DomainEvent.ReorderPointsChanged.class, e -> refreshBellBadge());
+
         loadPage("/view/pages/dashboard.fxml");
+    }
+
+    private void onStartupProgress(DomainEvent.StartupProgress p) {
+        if (!p.ready()) {
+            readinessLabel.setText("⏳ Hazırlanıyor: " + p.step() + " (" + p.done() + "/" + p.total() + ")");
+            return;
+        }
+
         refreshBellBadge();
 
-        // ✅ otomatik temizlik (3 yıldan eski fişler) - bunu arka planda yapalım ki UI donmasın
-        new Thread(() -> {
-            try {
-                ReportsDAO.deleteSalesOlderThanYears(3);
-            } catch (Exception ignored) {}
-        }, "cleanup-thread").start();
+        if (p.failed()) {
+            readinessLabel.setText("❗ Açılışta bazı adımlar tamamlanamadı");
+            return;
+        }
+        readinessLabel.setText("✅ Hazır");
+
+        PauseTransition hide = new PauseTransition(Duration.seconds(3));
+        hide.setOnFinished(e -> {
+            readinessLabel.setVisible(false);
+            readinessLabel.setManaged(false);
+        });
+        hide.play();
     }
 
     /**
@@ -117,10 +160,25 @@ public class MainController {
 
     @FXML
     private void onBackupNow() {
-        Alert a = new Alert(Alert.AlertType.INFORMATION);
-        a.setHeaderText("Yedekleme");
-        a.setContentText("Yedekleme özelliğini biraz sonra bağlayacağız.");
-        a.showAndWait();
+        try {
+            FXMLLoader loader = new FXMLLoader(getClass().getResource("/view/dialogs/backup_dialog.fxml"));
+            Parent root = loader.load();
+            BackupDialogController controller = loader.getController();
+
+            Stage stage = new Stage();
+            stage.setTitle("Yedekleme");
+            stage.initModality(Modality.APPLICATION_MODAL);
+            stage.setScene(new Scene(root));
+            // iş sürerken pencere kapanmasın (yarım yedek / geri yükleme arka planda sürer)
+            stage.setOnCloseRequest(e -> {
+                e.consume();
+                controller.close();
+            });
+            stage.showAndWait();
+
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
     }
 
     private void loadPage(String fxmlPath) {
@@ -134,7 +192,8 @@ public class MainController {
             Parent page = FXMLLoader.load(getClass().getResource(fxmlPath));
             contentPane.getChildren().setAll(page);
 
-            refreshBellBadge();
+            // açılışta rozet StartupOrchestrator bitince tazelenir (havuz yarışına girmesin)
+            if (StartupOrchestrator.isReady()) refreshBellBadge();
 
         } catch (IOException e) {
             throw new RuntimeException("Sayfa yüklenemedi: " + fxmlPath, e);
@@ -154,21 +213,24 @@ public class MainController {
         }
     }
 
-    // ✅ Kritik stok badge
+    // ✅ Kritik stok badge (sorgu FX thread'i bekletmesin)
     private void refreshBellBadge() {
-        try {
-            int criticalCount = ProductDAO.countCriticalProducts();
-            if (bellBadge != null) {
-                boolean show = criticalCount > 0;
-                bellBadge.setVisible(show);
-                bellBadge.setManaged(show);
-            }
-        } catch (Exception e) {
-            if (bellBadge != null) {
-                bellBadge.setVisible(false);
-                bellBadge.setManaged(false);
+        if (bellBadge == null || !DatabaseConfig.isOnline()) return;
+
+        new Thread(() -> {
+            boolean show;
+            try {
+                show = ProductDAO.countCriticalProducts() > 0;
+            } catch (Exception e) {
+                show = false;
             }
-        }
+
+            boolean finalShow = show;
+            Platform.runLater(() -> {
+                bellBadge.setVisible(finalShow);
+                bellBadge.setManaged(finalShow);
+            });
+        }, "bell-badge-thread").start();
     }
 
     @FXML
@@ -196,6 +258,8 @@ public class MainController {
         String q = (globalSearchField.getText() == null) ? "" : globalSearchField.getText().trim();
         if (q.isEmpty()) return;
 
+        suggestionsPopup.hide();
+
         try {
             showProductsPageIfNeeded();
             productsController.applyGlobalSearch(q);
@@ -209,25 +273,43 @@ public class MainController {
     }
 
     /**
-     * ✅ Kullanıcı yazmayı bırakınca arama (isteğe bağlı)
-     * Eğer istemiyorsan bu fonksiyonu çağırma.
+     * ✅ Her tuş vuruşunda öneri: TypeaheadService bellekten cevaplar, debounce gerekmez.
+     * Öneri seçilince ürünler sayfası o barkodla filtrelenir.
      */
-    private void setupDebouncedSearch() {
-        searchDebounce = new PauseTransition(Duration.millis(300));
-
+    private void setupTypeahead() {
         globalSearchField.textProperty().addListener((obs, oldV, newV) -> {
             String q = (newV == null) ? "" : newV.trim();
-            if (q.isEmpty()) return;
-
-            searchDebounce.stop();
-            searchDebounce.setOnFinished(e -> {
-                // yazarken otomatik products’a atlamasın istemiyorsan bu kısmı kaldır:
-                // sadece Enter ile arama kalsın
-                // showProductsPageIfNeeded();
-                // productsController.applyGlobalSearch(q);
-            });
-            searchDebounce.playFromStart();
+            if (q.isEmpty() || !TypeaheadService.isLoaded()) {
+                suggestionsPopup.hide();
+                return;
+            }
+
+            List<TypeaheadService.Suggestion> list = TypeaheadService.suggest(q, TypeaheadService.TOP_K);
+            if (list.isEmpty()) {
+                suggestionsPopup.hide();
+                return;
+            }
+
+            suggestionsPopup.getItems().setAll(list.stream().map(this::suggestionItem).toList());
+            if (!suggestionsPopup.isShowing()) {
+                suggestionsPopup.show(globalSearchField, Side.BOTTOM, 0, 0);
+            }
+        });
+
+        globalSearchField.focusedProperty().addListener((obs, o, focused) -> {
+            if (!focused) suggestionsPopup.hide();
+        });
+    }
+
+    private MenuItem suggestionItem(TypeaheadService.Suggestion s) {
+        MenuItem item = new MenuItem(s.name() + "  —  " + s.barcode());
+        item.setOnAction(e -> {
+            suggestionsPopup.hide();
+            showProductsPageIfNeeded();
+            productsController.applyGlobalSearch(s.barcode());
+            globalSearchField.clear();
         });
+        return item;
     }
 
     // ✅ Barkod bulunduysa direkt ürün düzenleme popup'ı (şu an kullanılmıyor gibi)
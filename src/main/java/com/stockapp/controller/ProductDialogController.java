@@ -1,9 +1,10 @@
 package com.stockapp.controller;
 
-import com.stockapp.dao.CategoryDAO;
+import com.stockapp.config.UnitOfWork;
 import com.stockapp.dao.ProductDAO;
 import com.stockapp.model.Category;
 import com.stockapp.model.Product;
+import com.stockapp.service.CategoryCache;
 import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
@@ -32,12 +33,13 @@ public class ProductDialogController {
     private Product existing;
     private boolean success = false;
     private String successMessage = null;
+    private Product saved = null;
 
     public boolean isSuccess() { return success; }
     public String getSuccessMessage() { return successMessage; }
 
-    // ✅ Kategori cache (uygulama boyunca 1 kere DB)
-    private static volatile List<Category> CACHED_CATEGORIES = null;
+    /** İşlem sonrası ürünün güncel hali (yazma ile aynı transaction'da okundu); iptal/hata -> null. */
+    public Product getSavedProduct() { return saved; }
 
     public void setStage(Stage stage) { this.stage = stage; }
 
@@ -106,10 +108,11 @@ public class ProductDialogController {
         msgLabel.setText("⏳ Kategoriler yükleniyor...");
         setButtonsBusy(true);
 
-        // cache varsa direkt bas
-        if (CACHED_CATEGORIES != null) {
-            categoryBox.getItems().setAll(CACHED_CATEGORIES);
-            if (!CACHED_CATEGORIES.isEmpty()) categoryBox.getSelectionModel().selectFirst();
+        // ✅ ortak önbellek tazeyse direkt bas (sürüm kontrolü gerekiyorsa arka planda)
+        List<Category> cached = CategoryCache.cachedIfFresh();
+        if (cached != null) {
+            categoryBox.getItems().setAll(cached);
+            if (!cached.isEmpty()) categoryBox.getSelectionModel().selectFirst();
             msgLabel.setText("");
             setButtonsBusy(false);
             if (afterLoad != null) afterLoad.run();
@@ -119,15 +122,13 @@ public class ProductDialogController {
         new Thread(() -> {
             List<Category> categories;
             try {
-                categories = CategoryDAO.findAll();
-                if (categories == null) categories = new ArrayList<>();
+                categories = CategoryCache.all();
             } catch (Exception e) {
                 categories = new ArrayList<>();
             }
 
             List<Category> finalCategories = categories;
             Platform.runLater(() -> {
-                CACHED_CATEGORIES = finalCategories; // ✅ cache’e koy
                 categoryBox.getItems().setAll(finalCategories);
                 if (!finalCategories.isEmpty()) categoryBox.getSelectionModel().selectFirst();
 
@@ -177,17 +178,18 @@ public class ProductDialogController {
 
         new Thread(() -> {
             try {
-                ProductDAO.insert(newP);
+                // ✅ yazma + güncel hali okuma tek bağlantı/transaction: çağıran ekran ayrıca sorgulamaz
+                Product fresh = UnitOfWork.call(() -> {
+                    ProductDAO.insert(newP);
+                    return ProductDAO.findByBarcode(barcode).orElse(null);
+                });
 
                 Platform.runLater(() -> {
+                    saved = fresh;
                     success = true;
                     successMessage = "✅ Ürün eklendi: " + newP.getName();
 
                     showInfo(successMessage);
-
-                    // ürünler ekranı açıksa listeyi güncelle
-                    ProductsController.refreshIfOpen();
-
                     stage.close();
                 });
 
@@ -213,14 +215,17 @@ public class ProductDialogController {
 
         new Thread(() -> {
             try {
-                ProductDAO.increaseStock(barcode, delta);
+                Product fresh = UnitOfWork.call(() -> {
+                    ProductDAO.increaseStock(barcode, delta);
+                    return ProductDAO.findByBarcode(barcode).orElse(null);
+                });
 
                 Platform.runLater(() -> {
+                    saved = fresh;
                     success = true;
                     successMessage = "✅ Stok arttı (+" + delta + ")\nÜrün: " + existing.getName();
 
                     showInfo(successMessage);
-                    ProductsController.refreshIfOpen();
                     stage.close();
                 });
 
@@ -246,14 +251,17 @@ public class ProductDialogController {
 
         new Thread(() -> {
             try {
-                ProductDAO.decreaseStock(barcode, delta);
+                Product fresh = UnitOfWork.call(() -> {
+                    ProductDAO.decreaseStock(barcode, delta);
+                    return ProductDAO.findByBarcode(barcode).orElse(null);
+                });
 
                 Platform.runLater(() -> {
+                    saved = fresh;
                     success = true;
                     successMessage = "✅ Stok düştü (-" + delta + ")\nÜrün: " + existing.getName();
 
                     showInfo(successMessage);
-                    ProductsController.refreshIfOpen();
                     stage.close();
                 });
 
@@ -317,10 +325,6 @@ public class ProductDialogController {
         }
     }
 
-    public static void invalidateCategoryCache() {
-        CACHED_CATEGORIES = null;
-    }
-
     private void showInfo(String msg) {
         Alert a = new Alert(Alert.AlertType.INFORMATION);
         a.setTitle("Başarılı");
@@ -1,8 +1,8 @@
 package com.stockapp.controller;
 
-import com.stockapp.dao.CategoryDAO;
 import com.stockapp.model.Category;
 import com.stockapp.model.Product;
+import com.stockapp.service.CategoryCache;
 import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.scene.control.Alert;
@@ -30,9 +30,6 @@ public class ProductEditDialogController {
     private int newCategoryId;
     private String newCategoryName; // ✅ eklendi
 
-    // ✅ cache
-    private static volatile List<Category> CACHED_CATEGORIES = null;
-
     public void setStage(Stage stage) { this.stage = stage; }
 
     public void setup(Product product) {
@@ -48,24 +45,25 @@ public class ProductEditDialogController {
         loadCategoriesAsync();
     }
 
-    // ✅ gerçekten async + cache set
+    // ✅ gerçekten async
     private void loadCategoriesAsync() {
-        if (CACHED_CATEGORIES != null) {
-            applyCategories(CACHED_CATEGORIES);
+        // ✅ ortak önbellek tazeyse direkt bas
+        List<Category> cached = CategoryCache.cachedIfFresh();
+        if (cached != null) {
+            applyCategories(cached);
             return;
         }
 
         new Thread(() -> {
             List<Category> categories;
             try {
-                categories = CategoryDAO.findAll();
+                categories = CategoryCache.all();
             } catch (Exception e) {
                 categories = new ArrayList<>();
             }
 
             List<Category> finalCats = categories;
             Platform.runLater(() -> {
-                CACHED_CATEGORIES = finalCats;  // ✅ cache’e yaz
                 applyCategories(finalCats);
             });
         }, "edit-categories-thread").start();
@@ -133,10 +131,6 @@ public class ProductEditDialogController {
         }
     }
 
-    public static void invalidateCategoryCache() {
-        CACHED_CATEGORIES = null;
-    }
-
     // getters
     public boolean isSaved() { return saved; }
     public String getNewName() { return newName; }
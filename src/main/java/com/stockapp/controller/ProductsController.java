@@ -1,24 +1,33 @@
 package com.stockapp.controller;
 
+import com.stockapp.config.DatabaseConfig;
 import com.stockapp.dao.ProductDAO;
+import com.stockapp.dao.StockLedgerDAO;
+import com.stockapp.event.DomainEvent;
+import com.stockapp.event.EventBus;
 import com.stockapp.model.Product;
+import com.stockapp.model.ProductRow;
+import com.stockapp.service.CatalogSnapshot;
+import com.stockapp.service.ReorderEngine;
 import javafx.animation.PauseTransition;
 import javafx.application.Platform;
-import javafx.beans.property.SimpleDoubleProperty;
-import javafx.beans.property.SimpleIntegerProperty;
-import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.value.ChangeListener;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
+import javafx.scene.layout.HBox;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 import javafx.util.Duration;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public class ProductsController {
@@ -26,28 +35,27 @@ public class ProductsController {
     @FXML private TextField searchField;
     @FXML private Label statusLabel;
 
-    @FXML private TableView<Product> table;
-    @FXML private TableColumn<Product, String> nameCol, barcodeCol, categoryCol;
-    @FXML private TableColumn<Product, Number> stockCol, priceCol;
+    @FXML private TableView<ProductRow> table;
+    @FXML private HBox writeActions;
+    @FXML private TableColumn<ProductRow, String> nameCol, barcodeCol, categoryCol;
+    @FXML private TableColumn<ProductRow, Number> stockCol, priceCol;
 
-    // ✅ Cache
-    private final ObservableList<Product> masterList = FXCollections.observableArrayList();
-    private final ObservableList<Product> filteredList = FXCollections.observableArrayList();
-    private static ProductsController INSTANCE;  // ✅ ekle
+    // ✅ Cache: gözlemlenebilir satırlar + üstünde canlı filtre (setAll kopyası yok)
+    private final ObservableList<ProductRow> masterList = FXCollections.observableArrayList(ProductRow.EXTRACTOR);
+    private final FilteredList<ProductRow> filteredList = new FilteredList<>(masterList);
+    private final Map<Integer, ProductRow> byId = new HashMap<>();
 
     // ✅ Debounce
     private PauseTransition searchDebounce;
 
     @FXML
     public void initialize() {
-        INSTANCE = this;
-        nameCol.setCellValueFactory(c -> new SimpleStringProperty(c.getValue().getName()));
-        barcodeCol.setCellValueFactory(c -> new SimpleStringProperty(c.getValue().getBarcode()));
-        categoryCol.setCellValueFactory(c -> new SimpleStringProperty(
-                c.getValue().getCategoryName() == null ? "-" : c.getValue().getCategoryName()
-        ));
-        stockCol.setCellValueFactory(c -> new SimpleIntegerProperty(c.getValue().getStock()));
-        priceCol.setCellValueFactory(c -> new SimpleDoubleProperty(c.getValue().getPrice()));
+        // ✅ hücreler satırın kendi property'sine bağlanır (render başına yeni obje yok)
+        nameCol.setCellValueFactory(c -> c.getValue().nameProperty());
+        barcodeCol.setCellValueFactory(c -> c.getValue().barcodeProperty());
+        categoryCol.setCellValueFactory(c -> c.getValue().categoryNameProperty());
+        stockCol.setCellValueFactory(c -> c.getValue().stockProperty());
+        priceCol.setCellValueFactory(c -> c.getValue().priceProperty());
 
         setupRowColors();
 
@@ -71,40 +79,151 @@ public class ProductsController {
             searchDebounce.stop();
             applyLocalFilter();
         });
+
+        // ✅ başka ekranlardaki değişiklikler: sadece ilgili ürünü güncelle
+        EventBus.subscribe(DomainEvent.StockChanged.class, this::onStockChanged);
+        EventBus.subscribe(DomainEvent.ProductChanged.class, this::onProductChanged);
+        EventBus.subscribe(DomainEvent.CategoryChanged.class, e -> {
+            if (e.kind() != DomainEvent.Kind.CREATED) loadAllProductsAsync(); // ürünlerin kategori adı değişmiş olabilir
+        });
+        EventBus.subscribe(DomainEvent.CatalogInvalidated.class, e -> loadAllProductsAsync());
+        EventBus.subscribe(DomainEvent.ReorderPointsChanged.class, e -> {
+            // sadece noktası değişen satırlar yeniden boyanır
+            for (ProductRow r : byId.values()) r.setReorderPoint(ReorderEngine.reorderPoint(r.getId()));
+        });
+
+        // ✅ bağlantı yoksa: liste önbellekten okunur, yazma butonları kapanır
+        EventBus.subscribe(DomainEvent.ConnectivityChanged.class, e -> applyOnlineState(e.online()));
+        applyOnlineState(DatabaseConfig.isOnline());
+    }
+
+    private void applyOnlineState(boolean online) {
+        writeActions.setDisable(!online);
+        if (!online) statusLabel.setText("📴 Çevrimdışı: salt okunur (son yüklenen liste).");
+    }
+
+    private void onStockChanged(DomainEvent.StockChanged e) {
+        ProductRow row = byId.get(e.productId());
+        if (row != null) row.setStock(e.newStock()); // sadece stok hücresi boyanır
+    }
+
+    private void onProductChanged(DomainEvent.ProductChanged e) {
+        if (e.kind() == DomainEvent.Kind.DELETED) {
+            removeFromLists(e.productId());
+            return;
+        }
+
+        new Thread(() -> {
+            Optional<Product> fresh;
+            try {
+                fresh = ProductDAO.findById(e.productId());
+            } catch (Exception ex) {
+                return;
+            }
+            Platform.runLater(() -> fresh.ifPresent(this::upsert));
+        }, "product-refresh-thread").start();
+    }
+
+    private void upsert(Product fresh) {
+        ProductRow row = byId.get(fresh.getId());
+        if (row != null) {
+            row.update(fresh);
+            return;
+        }
+        row = new ProductRow(fresh);
+        row.setReorderPoint(ReorderEngine.reorderPoint(row.getId()));
+        byId.put(row.getId(), row);
+        masterList.add(0, row); // findAll: id DESC -> yeni ürün başa
+    }
+
+    private void removeFromLists(int id) {
+        ProductRow row = byId.remove(id);
+        if (row != null) masterList.remove(row);
     }
 
     private void loadAllProductsAsync() {
-        statusLabel.setText("⏳ Ürünler yükleniyor...");
+        // ✅ lokal katalog kopyası varsa liste anında dolar, DB'den sadece değişenler çekilir
+        boolean fromSnapshot = CatalogSnapshot.isLoaded();
+        if (fromSnapshot && masterList.isEmpty()) {
+            showRows(CatalogSnapshot.products());
+            statusLabel.setText("📦 Yerel kopyadan yüklendi: " + masterList.size() + " (güncelleniyor...)");
+        } else {
+            statusLabel.setText("⏳ Ürünler yükleniyor...");
+        }
 
         new Thread(() -> {
-            List<Product> all;
+            List<Product> products;
             try {
-                all = ProductDAO.findAll(); // DB'ye 1 kere
+                if (fromSnapshot) {
+                    CatalogSnapshot.sync();
+                    products = CatalogSnapshot.products();
+                } else {
+                    products = ProductDAO.findAll(); // DB'ye 1 kere
+                }
             } catch (Exception e) {
-                all = new ArrayList<>();
+                // bağlantı yoksa eldeki listeyi silme: salt okunur önbellek olarak kalsın
+                Platform.runLater(() -> statusLabel.setText("📴 Ürünler yenilenemedi, son yüklenen liste gösteriliyor."));
+                return;
             }
 
-            List<Product> finalAll = all;
             Platform.runLater(() -> {
-                masterList.setAll(finalAll);
-                filteredList.setAll(finalAll);
-                statusLabel.setText("✅ Ürünler yüklendi: " + finalAll.size());
+                showRows(products);
+                statusLabel.setText("✅ Ürünler yüklendi: " + products.size());
             });
         }, "products-load-thread").start();
     }
 
+    private void showRows(List<Product> products) {
+        List<ProductRow> rows = new ArrayList<>(products.size());
+        for (Product p : products) {
+            ProductRow r = new ProductRow(p);
+            r.setReorderPoint(ReorderEngine.reorderPoint(p.getId()));
+            rows.add(r);
+        }
+
+        masterList.setAll(rows);
+        byId.clear();
+        for (ProductRow r : rows) byId.put(r.getId(), r);
+    }
+
     private void setupRowColors() {
         table.setRowFactory(tv -> new TableRow<>() {
+            // ✅ satır başına tek listener: stok / sipariş noktası değişince sadece bu satırın rengi güncellenir
+            private final ChangeListener<Number> stockListener = (obs, o, n) -> applyStyle();
+            private ProductRow watched;
+
             @Override
-            protected void updateItem(Product item, boolean empty) {
+            protected void updateItem(ProductRow item, boolean empty) {
                 super.updateItem(item, empty);
 
-                if (item == null || empty) {
+                if (watched != item) {
+                    if (watched != null) {
+                        watched.stockProperty().removeListener(stockListener);
+                        watched.reorderPointProperty().removeListener(stockListener);
+                    }
+                    watched = empty ? null : item;
+                    if (watched != null) {
+                        watched.stockProperty().addListener(stockListener);
+                        watched.reorderPointProperty().addListener(stockListener);
+                    }
+                }
+                applyStyle();
+            }
+
+            @Override
+            public void updateSelected(boolean selected) {
+                super.updateSelected(selected);
+                applyStyle();
+            }
+
+            private void applyStyle() {
+                ProductRow item = watched;
+                if (item == null || isEmpty()) {
                     setStyle("");
                     return;
                 }
 
-                if (item.getStock() < 10) {
+                if (ReorderEngine.isCritical(item.getStock(), item.getReorderPoint())) {
                     if (isSelected()) {
                         setStyle("-fx-background-color: rgba(255, 80, 80, 0.35);");
                     } else {
@@ -122,8 +241,7 @@ public class ProductsController {
     public void refresh() {
         // Büyük listede DB’ye tekrar gitmek yerine, sadece filtreyi sıfırla
 
-        table.refresh();
-        filteredList.setAll(masterList);
+        filteredList.setPredicate(null);
         statusLabel.setText("✅ Liste yenilendi: " + masterList.size());
         searchField.clear();
     }
@@ -132,7 +250,7 @@ public class ProductsController {
     private void applyLocalFilter() {
         String q = (searchField.getText() == null) ? "" : searchField.getText().trim();
         if (q.isEmpty()) {
-            filteredList.setAll(masterList);
+            filteredList.setPredicate(null);
             statusLabel.setText("✅ Ürünler: " + masterList.size());
             return;
         }
@@ -141,18 +259,13 @@ public class ProductsController {
 
         // Barkod hızlı: prefix match
         // İsim: contains
-        List<Product> out = new ArrayList<>(512);
-        for (Product p : masterList) {
+        filteredList.setPredicate(p -> {
             String name = p.getName() == null ? "" : p.getName().toLowerCase();
             String barcode = p.getBarcode() == null ? "" : p.getBarcode();
+            return barcode.startsWith(q) || name.contains(qq);
+        });
 
-            if (barcode.startsWith(q) || name.contains(qq)) {
-                out.add(p);
-            }
-        }
-
-        filteredList.setAll(out);
-        statusLabel.setText("🔎 Arama sonucu: " + out.size());
+        statusLabel.setText("🔎 Arama sonucu: " + filteredList.size());
     }
 
     // MainController global search burayı çağıracak
@@ -171,72 +284,111 @@ public class ProductsController {
 
     @FXML
     public void incStockSelected() {
-        Product p = table.getSelectionModel().getSelectedItem();
+        ProductRow p = table.getSelectionModel().getSelectedItem();
         if (p == null) { statusLabel.setText("❗ Ürün seç."); return; }
 
         int delta = askInt("Stok Artır", "Kaç adet eklenecek?", "Boş=1");
         if (delta < 0) return;
 
-        ProductDAO.increaseStock(p.getBarcode(), delta);
+        statusLabel.setText("⏳ Stok güncelleniyor...");
 
-        // ✅ Cache güncelle
-        p.setStock(p.getStock() + delta);
-        table.refresh();
-
-        statusLabel.setText("✅ Stok arttı: +" + delta);
-        showSuccess("✅ Stok arttı: +" + delta + "\nÜrün: " + p.getName() + "\nYeni stok: " + p.getStock());
+        // ✅ DB UI thread'de beklenmez (ağ yavaş / kopuksa ekran donmasın)
+        new Thread(() -> {
+            try {
+                int newStock = ProductDAO.increaseStock(p.getBarcode(), delta, StockLedgerDAO.Reason.MANUAL_INC);
 
+                Platform.runLater(() -> {
+                    // ✅ Cache güncelle (sadece stok hücresi); DB'nin döndürdüğü mutlak değer:
+                    // StockChanged zaten uygulanmış olabilir, +delta iki kez sayardı
+                    if (newStock >= 0) p.setStock(newStock);
 
+                    statusLabel.setText("✅ Stok arttı: +" + delta);
+                    showSuccess("✅ Stok arttı: +" + delta + "\nÜrün: " + p.getName() + "\nYeni stok: " + p.getStock());
+                });
+            } catch (Exception ex) {
+                Platform.runLater(() -> statusLabel.setText("❗ Stok artırılamadı: " + ex.getMessage()));
+            }
+        }, "stock-update-thread").start();
     }
 
     @FXML
     public void decStockSelected() {
-        Product p = table.getSelectionModel().getSelectedItem();
+        ProductRow p = table.getSelectionModel().getSelectedItem();
         if (p == null) { statusLabel.setText("❗ Ürün seç."); return; }
 
         int delta = askInt("Stok Düş", "Kaç adet düşülecek?", "Boş=1");
         if (delta < 0) return;
 
-        try {
-            ProductDAO.decreaseStock(p.getBarcode(), delta);
+        statusLabel.setText("⏳ Stok güncelleniyor...");
 
-            // ✅ Cache güncelle
-            p.setStock(p.getStock() - delta);
-            table.refresh();
+        new Thread(() -> {
+            try {
+                int newStock = ProductDAO.decreaseStock(p.getBarcode(), delta);
 
-            statusLabel.setText("✅ Stok düştü: -" + delta);
-            showSuccess("✅ Stok düştü: -" + delta + "\nÜrün: " + p.getName() + "\nYeni stok: " + p.getStock());
+                Platform.runLater(() -> {
+                    // ✅ Cache güncelle (mutlak değer, olayla aynı)
+                    p.setStock(newStock);
 
-        } catch (RuntimeException e) {
-            statusLabel.setText("❗ Stok yetersiz.");
-        }
+                    statusLabel.setText("✅ Stok düştü: -" + delta);
+                    showSuccess("✅ Stok düştü: -" + delta + "\nÜrün: " + p.getName() + "\nYeni stok: " + p.getStock());
+                });
+            } catch (DatabaseConfig.DatabaseUnavailableException e) {
+                // bağlantı yokken "stok yetersiz" yanıltıcı olur
+                Platform.runLater(() -> statusLabel.setText("📴 Çevrimdışı: stok düşülemedi, bağlantı gelince tekrar dene."));
+            } catch (RuntimeException e) {
+                Platform.runLater(() -> statusLabel.setText("❗ " + e.getMessage()));
+            }
+        }, "stock-update-thread").start();
     }
 
     @FXML
     public void setStockSelected() {
-        Product p = table.getSelectionModel().getSelectedItem();
+        ProductRow p = table.getSelectionModel().getSelectedItem();
         if (p == null) { statusLabel.setText("❗ Ürün seç."); return; }
 
         int value = askIntExact("Stok = Yap", "Yeni stok kaç olsun?", "örn 120");
         if (value < 0) return;
 
-        ProductDAO.setStock(p.getBarcode(), value);
+        statusLabel.setText("⏳ Stok güncelleniyor...");
 
-        // ✅ Cache güncelle
-        p.setStock(value);
-        table.refresh();
+        new Thread(() -> {
+            try {
+                ProductDAO.setStock(p.getBarcode(), value);
 
-        statusLabel.setText("✅ Stok güncellendi: " + value);
-        showSuccess("✅ Stok güncellendi\nÜrün: " + p.getName() + "\nYeni stok: " + p.getStock());
+                Platform.runLater(() -> {
+                    // ✅ Cache güncelle
+                    p.setStock(value);
 
+                    statusLabel.setText("✅ Stok güncellendi: " + value);
+                    showSuccess("✅ Stok güncellendi\nÜrün: " + p.getName() + "\nYeni stok: " + p.getStock());
+                });
+            } catch (Exception ex) {
+                Platform.runLater(() -> statusLabel.setText("❗ Stok güncellenemedi: " + ex.getMessage()));
+            }
+        }, "stock-update-thread").start();
+    }
+
+    /** ✅ Toplu sayım: ürün ürün "Stok = Yap" yerine */
+    @FXML
+    public void openStocktake() {
+        try {
+            FXMLLoader loader = new FXMLLoader(getClass().getResource("/view/dialogs/stocktake_dialog.fxml"));
+            Stage dialog = new Stage();
+            dialog.setTitle("Stok Sayımı");
+            dialog.initModality(Modality.APPLICATION_MODAL);
+            dialog.setScene(new Scene(loader.load()));
+            dialog.showAndWait();
+        } catch (Exception e) {
+            throw new RuntimeException("Sayım ekranı açılamadı", e);
+        }
     }
 
     @FXML
     public void editSelected() {
-        Product selected = table.getSelectionModel().getSelectedItem();
+        ProductRow selected = table.getSelectionModel().getSelectedItem();
         if (selected == null) { statusLabel.setText("❗ Ürün seç."); return; }
 
-        ProductEditDialogController.Result r = openEditDialog(selected);
+        ProductEditDialogController.Result r = openEditDialog(selected.toProduct());
         if (r == null) { statusLabel.setText("İptal edildi."); return; }
 
         statusLabel.setText("⏳ Güncelleniyor...");
@@ -247,31 +399,14 @@ public class ProductsController {
                 // 1) DB update
                 ProductDAO.updateBasics(selected.getId(), r.name, r.price, r.categoryId);
 
-                // 2) UI update (gecikmeli)
+                // 2) UI update: property'ler değişir, ilgili hücreler kendiliğinden boyanır
                 Platform.runLater(() -> {
-
-                    // Model update (seçili objeyi güncelle)
                     selected.setName(r.name);
                     selected.setPrice(r.price);
                     selected.setCategoryId(r.categoryId);
                     selected.setCategoryName(r.categoryName);
 
-                    // ✅ 1sn sonra TableView'i zorla güncelle
-                    PauseTransition delay = new PauseTransition(Duration.millis(500));
-                    delay.setOnFinished(ev -> {
-                        replaceInListById(masterList, selected);
-                        replaceInListById(filteredList, selected);
-
-                        // TableView bazen cache tutuyor -> items resetle
-                        table.setItems(null);
-                        table.setItems(filteredList);
-
-                        table.getSelectionModel().select(selected);
-                        table.refresh();
-
-                        statusLabel.setText("✅ Güncellendi.");
-                    });
-                    delay.play();
+                    statusLabel.setText("✅ Güncellendi.");
                 });
 
             } catch (Exception ex) {
@@ -279,19 +414,6 @@ public class ProductsController {
             }
         }, "product-edit-thread").start();
     }
-    private void replaceInListById(ObservableList<Product> list, Product updated) {
-        if (list == null || updated == null) return;
-
-        for (int i = 0; i < list.size(); i++) {
-            Product p = list.get(i);
-            if (p != null && p.getId() == updated.getId()) {
-                // ✅ SET ile replace: TableView kesin "change" görür
-                list.set(i, updated);
-                return;
-            }
-        }
-    }
-
 
     private int askInt(String title, String header, String prompt) {
         TextInputDialog d = new TextInputDialog("");
@@ -369,10 +491,27 @@ public class ProductsController {
 
     @FXML
     public void deleteSelected() {
-        Product p = table.getSelectionModel().getSelectedItem();
+        ProductRow p = table.getSelectionModel().getSelectedItem();
         if (p == null) { statusLabel.setText("❗ Silmek için ürün seç."); return; }
 
-        if (ProductDAO.hasSales(p.getId())) {
+        statusLabel.setText("⏳ Kontrol ediliyor...");
+
+        // ✅ DB UI thread'de beklenmez (açılışta şema göçü / bağlantı yavaşsa ekran donmasın)
+        new Thread(() -> {
+            boolean sold;
+            try {
+                sold = ProductDAO.hasSales(p.getId());
+            } catch (Exception e) {
+                Platform.runLater(() -> statusLabel.setText("❗ Silinemedi: " + e.getMessage()));
+                return;
+            }
+            Platform.runLater(() -> confirmDelete(p, sold));
+        }, "product-delete-thread").start();
+    }
+
+    private void confirmDelete(ProductRow p, boolean sold) {
+        if (sold) {
+            statusLabel.setText("❗ Satışı olan ürün silinemez.");
             Alert a = new Alert(Alert.AlertType.WARNING);
             a.setHeaderText("Silme Engellendi");
             a.setContentText("Bu ürün daha önce satılmış.\nSatışı olan ürünler silinemez.");
@@ -390,41 +529,36 @@ public class ProductsController {
         );
         confirm.getDialogPane().getStylesheets().add(getClass().getResource("/styles/app.css").toExternalForm());
 
-        if (confirm.showAndWait().orElse(ButtonType.CANCEL) != ButtonType.OK) return;
-
-        // ✅ DB’den sil
-        ProductDAO.deleteById(p.getId());
-
-        // ✅ Her listeden güvenli kaldır (id ile)
-        int id = p.getId();
-
-        masterList.removeIf(x -> x != null && x.getId() == id);
-        filteredList.removeIf(x -> x != null && x.getId() == id);
-
-        // ✅ TableView bazen kendi items referansını tutar -> onu da temizle
-        if (table.getItems() != null) {
-            table.getItems().removeIf(x -> x != null && x.getId() == id);
+        if (confirm.showAndWait().orElse(ButtonType.CANCEL) != ButtonType.OK) {
+            statusLabel.setText("İptal edildi.");
+            return;
         }
 
-        // ✅ UI zorla yenile (bazı JavaFX cache bug’larını kırar)
-        table.getSelectionModel().clearSelection();
-        table.setItems(null);
-        table.setItems(filteredList);
-        table.refresh();
+        statusLabel.setText("⏳ Siliniyor...");
 
-        statusLabel.setText("🗑 Ürün silindi: " + p.getName());
+        new Thread(() -> {
+            try {
+                // ✅ DB’den sil
+                ProductDAO.deleteById(p.getId());
+            } catch (Exception e) {
+                Platform.runLater(() -> statusLabel.setText("❗ Silinemedi: " + e.getMessage()));
+                return;
+            }
 
-        // ✅ popup
-        showSuccess("🗑 Ürün silindi:\n" + p.getName());
-    }
+            Platform.runLater(() -> {
+                // ✅ master'dan kaldır; FilteredList ve tablo kendiliğinden güncellenir
+                table.getSelectionModel().clearSelection();
+                removeFromLists(p.getId());
 
+                statusLabel.setText("🗑 Ürün silindi: " + p.getName());
 
-    public static void refreshIfOpen() {
-        if (INSTANCE != null) {
-            INSTANCE.loadAllProductsAsync(); // DB'den tekrar çek
-        }
+                // ✅ popup
+                showSuccess("🗑 Ürün silindi:\n" + p.getName());
+            });
+        }, "product-delete-thread").start();
     }
 
+
     private void showSuccess(String msg) {
         Alert a = new Alert(Alert.AlertType.INFORMATION);
         a.setTitle("Başarılı");
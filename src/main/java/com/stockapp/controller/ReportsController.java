@@ -1,6 +1,8 @@
 package com.stockapp.controller;
 
 import com.stockapp.dao.ReportsDAO;
+import com.stockapp.service.ChartDownsampler;
+import javafx.animation.PauseTransition;
 import javafx.application.Platform;
 import javafx.beans.property.SimpleDoubleProperty;
 import javafx.beans.property.SimpleIntegerProperty;
@@ -9,18 +11,24 @@ import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
+import javafx.geometry.Point2D;
 import javafx.scene.Scene;
 import javafx.scene.chart.CategoryAxis;
 import javafx.scene.chart.LineChart;
 import javafx.scene.chart.NumberAxis;
 import javafx.scene.chart.XYChart;
 import javafx.scene.control.*;
+import javafx.scene.input.MouseEvent;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -62,6 +70,15 @@ public class ReportsController {
     private static final DateTimeFormatter DT =
             DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
 
+    private static final DateTimeFormatter MONTH_LABEL =
+            DateTimeFormatter.ofPattern("yyyy-MM");
+
+    // grafikteki etiket -> kova (tooltip ve tıklama için)
+    private final Map<String, ReportsDAO.RevenuePoint> chartPoints = new HashMap<>();
+    private final Tooltip chartTip = new Tooltip();
+    private ReportsDAO.RevenueSeries lastSeries;
+    private int renderedBudget;
+
     private LocalDateTime lastFrom;
     private LocalDateTime lastToExclusive;
 
@@ -102,6 +119,8 @@ public class ReportsController {
             return row;
         });
 
+        installChartHandlers();
+
         // ✅ Top products search (local filter)
         topProductSearchField.textProperty().addListener((obs, oldV, newV) -> {
             if (allTopProducts == null) return;
@@ -151,8 +170,7 @@ public class ReportsController {
                 List<ReportsDAO.TopProductRow> topProducts = ReportsDAO.getTopProducts(from, toExclusive);
                 List<ReportsDAO.CategorySummaryRow> categories = ReportsDAO.getCategorySummary(from, toExclusive);
 
-                List<ReportsDAO.DailyRevenueRow> daily = ReportsDAO.getDailyRevenue(from, toExclusive);
-                Map<LocalDate, Integer> receiptCountMap = ReportsDAO.getReceiptCountsByDay(from, toExclusive);
+                ReportsDAO.RevenueSeries series = ReportsDAO.getRevenueSeries(from, toExclusive);
 
                 List<ReportsDAO.SaleRow> sales = ReportsDAO.getSales(from, toExclusive, 200);
 
@@ -165,7 +183,7 @@ public class ReportsController {
                     categoryTable.setItems(FXCollections.observableArrayList(categories));
                     salesTable.setItems(FXCollections.observableArrayList(sales));
 
-                    fillChartWithData(daily, receiptCountMap);
+                    fillChartWithData(series);
 
                     statusLabel.setText("✅ Rapor güncellendi.");
                     loading = false;
@@ -181,50 +199,102 @@ public class ReportsController {
     }
 
     // ✅ Artık DB çağrısı yok: hazır data ile chart bas
-    private void fillChartWithData(List<ReportsDAO.DailyRevenueRow> daily,
-                                   Map<LocalDate, Integer> receiptCountMap) {
-
+    // Nokta sayısı grafik genişliğiyle sınırlı (LTTB); tooltip/tıklama nokta başına değil, grafik başına tek
+    private void fillChartWithData(ReportsDAO.RevenueSeries series) {
+        lastSeries = series;
         revenueChart.getData().clear();
+        chartPoints.clear();
+
+        List<ReportsDAO.RevenuePoint> all = series.points();
+        int budget = ChartDownsampler.budgetForWidth(plotWidth());
+        List<ReportsDAO.RevenuePoint> shown = ChartDownsampler.lttb(all, budget,
+                p -> p.start().toEpochSecond(ZoneOffset.UTC), ReportsDAO.RevenuePoint::revenue);
+        renderedBudget = budget;
 
         XYChart.Series<String, Number> s = new XYChart.Series<>();
-        s.setName("Ciro");
+        s.setName(switch (series.bucket()) {
+            case DAY -> "Ciro (günlük)";
+            case WEEK -> "Ciro (haftalık)";
+            case MONTH -> "Ciro (aylık)";
+        });
 
-        for (ReportsDAO.DailyRevenueRow row : daily) {
-            s.getData().add(new XYChart.Data<>(row.day().toString(), row.revenue()));
+        List<XYChart.Data<String, Number>> data = new ArrayList<>(shown.size());
+        for (ReportsDAO.RevenuePoint p : shown) {
+            String label = bucketLabel(series.bucket(), p);
+            chartPoints.put(label, p);
+            data.add(new XYChart.Data<>(label, p.revenue()));
         }
+        s.getData().setAll(data);
 
         revenueChart.getData().add(s);
+    }
 
-        // Node’lar sonra oluşur: runLater doğru
-        Platform.runLater(() -> {
-            for (XYChart.Data<String, Number> d : s.getData()) {
-                if (d.getNode() == null) continue;
+    private double plotWidth() {
+        double w = revenueChart.getWidth() - yAxis.getWidth();
+        return w > 0 ? w : 800; // ilk açılışta henüz layout yok
+    }
 
-                String dayStr = d.getXValue();
-                LocalDate day = LocalDate.parse(dayStr);
-                int receiptCount = receiptCountMap.getOrDefault(day, 0);
+    private static String bucketLabel(ReportsDAO.Bucket bucket, ReportsDAO.RevenuePoint p) {
+        return bucket == ReportsDAO.Bucket.MONTH
+                ? p.start().format(MONTH_LABEL)
+                : p.start().toLocalDate().toString();
+    }
 
-                Tooltip t = new Tooltip(String.format("Ciro: %.2f ₺\nFiş: %d",
-                        d.getYValue().doubleValue(), receiptCount));
+    /** İmlecin altındaki kategori (x) -> nokta; grafik dışında null. */
+    private ReportsDAO.RevenuePoint pointAt(MouseEvent e) {
+        Point2D local = xAxis.sceneToLocal(e.getSceneX(), e.getSceneY());
+        if (local == null || local.getX() < 0 || local.getX() > xAxis.getWidth()) return null;
+        String label = xAxis.getValueForDisplay(local.getX()); // kategori dışı -> null
+        return label == null ? null : chartPoints.get(label);
+    }
+
+    private void installChartHandlers() {
+        chartTip.setShowDelay(Duration.millis(10));
+        chartTip.setHideDelay(Duration.millis(50));
 
-                t.setShowDelay(javafx.util.Duration.millis(10));
-                t.setHideDelay(javafx.util.Duration.millis(50));
-                t.setShowDuration(javafx.util.Duration.seconds(10));
+        revenueChart.setOnMouseMoved(e -> {
+            ReportsDAO.RevenuePoint p = pointAt(e);
+            if (p == null) {
+                chartTip.hide();
+                return;
+            }
+            chartTip.setText(String.format("%s\nCiro: %.2f ₺\nFiş: %d",
+                    rangeText(p), p.revenue(), p.receipts()));
+            chartTip.show(revenueChart, e.getScreenX() + 14, e.getScreenY() + 14);
+        });
+        revenueChart.setOnMouseExited(e -> chartTip.hide());
 
-                Tooltip.install(d.getNode(), t);
+        revenueChart.setOnMouseClicked(e -> {
+            ReportsDAO.RevenuePoint p = pointAt(e);
+            if (p != null) loadSalesOfBucketAsync(p, rangeText(p));
+        });
 
-                d.getNode().setOnMouseClicked(e -> loadSalesOfDayAsync(day, dayStr));
+        // boyut değişince nokta bütçesini yeniden hesapla (sürüklerken değil, durunca)
+        PauseTransition resize = new PauseTransition(Duration.millis(250));
+        resize.setOnFinished(e -> {
+            if (lastSeries == null) return;
+            int budget = ChartDownsampler.budgetForWidth(plotWidth());
+            // seri iki bütçeye de sığıyorsa çizim aynı kalır
+            if (budget != renderedBudget && lastSeries.points().size() > Math.min(budget, renderedBudget)) {
+                fillChartWithData(lastSeries);
             }
         });
+        revenueChart.widthProperty().addListener((obs, o, n) -> resize.playFromStart());
+    }
+
+    private static String rangeText(ReportsDAO.RevenuePoint p) {
+        LocalDate first = p.start().toLocalDate();
+        LocalDate last = p.end().minusNanos(1).toLocalDate();
+        return first.equals(last) ? first.toString() : first + " – " + last;
     }
 
-    // ✅ Noktaya tıklayınca: sadece o günün fişlerini async yükle (UI donmasın)
-    private void loadSalesOfDayAsync(LocalDate day, String dayStr) {
-        statusLabel.setText("⏳ " + dayStr + " fişleri yükleniyor...");
+    // ✅ Noktaya tıklayınca: sadece o kovanın fişlerini async yükle (UI donmasın)
+    private void loadSalesOfBucketAsync(ReportsDAO.RevenuePoint p, String rangeStr) {
+        statusLabel.setText("⏳ " + rangeStr + " fişleri yükleniyor...");
 
         new Thread(() -> {
             try {
-                var list = ReportsDAO.getSalesByDay(day, 200);
+                var list = ReportsDAO.getSales(p.start(), p.end(), 200);
                 Platform.runLater(() -> {
                     salesTable.setItems(FXCollections.observableArrayList(list));
 
@@ -233,10 +303,10 @@ public class ReportsController {
                     }
                     salesTable.requestFocus();
 
-                    statusLabel.setText("📌 " + dayStr + " fişleri yüklendi. (Fiş: " + list.size() + ")");
+                    statusLabel.setText("📌 " + rangeStr + " fişleri yüklendi. (Fiş: " + list.size() + ")");
                 });
             } catch (Exception e) {
-                Platform.runLater(() -> statusLabel.setText("❗ Gün fişleri alınamadı."));
+                Platform.runLater(() -> statusLabel.setText("❗ Dönem fişleri alınamadı."));
             }
         }, "sales-by-day-thread").start();
     }
@@ -1,11 +1,15 @@
 package com.stockapp.controller;
 
+import com.stockapp.config.DatabaseConfig;
 import com.stockapp.dao.ProductDAO;
 import com.stockapp.dao.SalesDAO;
+import com.stockapp.event.DomainEvent;
+import com.stockapp.event.EventBus;
+import com.stockapp.model.CartEngine;
 import com.stockapp.model.CartItem;
 import com.stockapp.model.Product;
+import com.stockapp.service.ScanPipeline;
 import javafx.application.Platform;
-import javafx.beans.property.SimpleDoubleProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
@@ -39,11 +43,21 @@ public class SalesController {
     @FXML private Button deleteBtn;
     @FXML private Button setQtyBtn;
 
+    // ✅ Sepetin asıl sahibi motor; tablo sadece onu izler
+    private final CartEngine engine = new CartEngine();
+
     private final ObservableList<CartItem> cart = FXCollections.observableArrayList();
     private final Map<String, CartItem> byBarcode = new HashMap<>();
 
-    // ✅ Barkod -> Product cache
-    private final Map<String, Product> productCache = new HashMap<>();
+    // ✅ Okutma hattı: ürün çözümü arka planda, sepete sırayla düşer
+    private final ScanPipeline pipeline = new ScanPipeline(ProductDAO::findByBarcode, Platform::runLater, new ScanPipeline.Listener() {
+        @Override public void onPending(ScanPipeline.Ticket t) { showPendingRow(t); }
+        @Override public void onPendingMerged(ScanPipeline.Ticket t) { updatePendingRow(t); }
+        @Override public void onResult(ScanPipeline.Result r) { onScanResolved(r); }
+    });
+
+    // ✅ Henüz çözülmemiş okutmalar için geçici satırlar (bilet no -> satır)
+    private final Map<Long, CartItem> pendingRows = new HashMap<>();
 
     @FXML
     public void initialize() {
@@ -51,9 +65,10 @@ public class SalesController {
         barcodeCol.setCellValueFactory(c -> c.getValue().barcodeProperty());
         qtyCol.setCellValueFactory(c -> c.getValue().qtyProperty().asObject());
         unitPriceCol.setCellValueFactory(c -> c.getValue().unitPriceProperty());
-        lineTotalCol.setCellValueFactory(c -> new SimpleDoubleProperty(c.getValue().getLineTotal()));
+        lineTotalCol.setCellValueFactory(c -> c.getValue().lineTotalProperty());
 
         table.setItems(cart);
+        engine.addListener(this::onCartChanged);
 
         // ✅ Barkod okutunca direkt ekle (Enter gönderiyorsa)
         barcodeField.setOnAction(e -> onScanAdd());
@@ -68,12 +83,29 @@ public class SalesController {
             }
         });
 
+        // Ctrl+Z: son okutmayı geri al
+        barcodeField.setOnKeyPressed(e -> {
+            if (e.isShortcutDown() && e.getCode() == javafx.scene.input.KeyCode.Z) {
+                undoLastScan();
+                e.consume();
+            }
+        });
+
         table.setOnMouseClicked(e -> barcodeField.requestFocus());
 
         Platform.runLater(() -> barcodeField.requestFocus());
 
         updateGrandTotal();
         statusLabel.setText("Barkod okut.");
+
+        // ✅ bağlantı yoksa satış kapatılamaz; önbellekteki ürünlerle sepet kurulmaya devam edebilir
+        EventBus.subscribeWhileShowing(table, DomainEvent.ConnectivityChanged.class, e -> applyOnlineState(e.online()));
+        applyOnlineState(DatabaseConfig.isOnline());
+    }
+
+    private void applyOnlineState(boolean online) {
+        finishSaleBtn.setDisable(!online);
+        statusLabel.setText(online ? "Barkod okut." : "📴 Çevrimdışı: satış bitirilemez, bağlantı bekleniyor.");
     }
 
     // =========================
@@ -95,64 +127,102 @@ public class SalesController {
             return;
         }
 
-        Product pr = resolveProduct(barcode);
-        if (pr == null) {
-            clearInputs();
-            return;
-        }
-
-        addToCart(pr, qty);
-
-        statusLabel.setText("✅ Sepete eklendi: " + pr.getName() + " (+" + qty + ")");
+        // ✅ UI beklemez: kuyruğa at, sonuç sırayla gelir
+        pipeline.submit(barcode, qty);
         clearInputs();
     }
 
-    private Product resolveProduct(String barcode) {
-        Product pr = productCache.get(barcode);
-        if (pr != null) return pr;
+    private void showPendingRow(ScanPipeline.Ticket t) {
+        CartItem row = new CartItem(0, "⏳ Aranıyor...", t.getBarcode(), 0, t.getQty());
+        pendingRows.put(t.getSeq(), row);
+        cart.add(row);
+    }
 
-        Optional<Product> p = ProductDAO.findByBarcode(barcode);
+    private void updatePendingRow(ScanPipeline.Ticket t) {
+        CartItem row = pendingRows.get(t.getSeq());
+        if (row != null) row.setQty(t.getQty());
+    }
 
-        if (p.isEmpty()) {
-            statusLabel.setText("⚠️ Ürün yok. Tanıtma ekranı açıldı...");
-            beep();
+    private void removePendingRow(ScanPipeline.Ticket t) {
+        CartItem row = pendingRows.remove(t.getSeq());
+        if (row != null) cart.remove(row);
+    }
 
-            openProductDialog(barcode, null);
+    private void onScanResolved(ScanPipeline.Result r) {
+        ScanPipeline.Ticket t = r.ticket();
+        removePendingRow(t);
 
-            p = ProductDAO.findByBarcode(barcode);
-            if (p.isEmpty()) {
-                statusLabel.setText("❗ Ürün eklenmedi (iptal edilmiş olabilir).");
-                return null;
+        switch (r.status()) {
+            case RESOLVED -> {
+                addToCart(r.product(), t.getQty());
+                statusLabel.setText(String.format("✅ Sepete eklendi: %s (+%d)  [%.0f ms]",
+                        r.product().getName(), t.getQty(), r.latencyMillis()));
+            }
+            case NOT_FOUND -> introduceUnknownProduct(t.getBarcode(), t.getQty());
+            case FAILED -> {
+                statusLabel.setText("❗ Ürün aranamadı (" + t.getBarcode() + "): " + r.error().getMessage());
+                beep();
             }
         }
-
-        pr = p.get();
-        productCache.put(barcode, pr);
-        return pr;
     }
 
-    private void addToCart(Product pr, int qty) {
-        if (qty <= 0) qty = 1;
+    /** Bilinmeyen barkod: tanıtma ekranı açılır, bu sırada sonraki okutmalar sırasını bekler. */
+    private void introduceUnknownProduct(String barcode, int qty) {
+        pipeline.pause();
 
-        CartItem existing = byBarcode.get(pr.getBarcode());
-        if (existing != null) {
-            existing.incQty(qty); // ✅ ÜSTÜNE EKLE
-            table.refresh();
+        statusLabel.setText("⚠️ Ürün yok. Tanıtma ekranı açıldı...");
+        beep();
+        // ✅ dialog kaydı ve güncel hali tek transaction'da okur: ayrıca sorgu yok
+        Product saved = openProductDialog(barcode, null);
+
+        if (saved != null) {
+            ScanPipeline.cache().put(barcode, saved);
+            addToCart(saved, qty);
+            statusLabel.setText("✅ Sepete eklendi: " + saved.getName() + " (+" + qty + ")");
         } else {
-            CartItem newItem = new CartItem(
-                    pr.getId(),
-                    pr.getName(),
-                    pr.getBarcode(),
-                    pr.getPrice(),
-                    qty
-            );
-            cart.add(newItem);
-            byBarcode.put(pr.getBarcode(), newItem);
+            statusLabel.setText("❗ Ürün eklenmedi (iptal edilmiş olabilir).");
         }
+        pipeline.resume();
+    }
 
+    private void addToCart(Product pr, int qty) {
+        engine.scan(pr, qty); // ✅ varsa ÜSTÜNE EKLER
+    }
+
+    /** Motordaki değişikliği tek satıra uygular (table.refresh yok, toplam döngüsü yok). */
+    private void onCartChanged(CartEngine.ChangeType type, CartEngine.Line line) {
+        switch (type) {
+            case ADDED -> {
+                CartItem item = new CartItem(line);
+                // bekleyen satırlar hep sonda durur: yeni satır onlardan önce girer
+                cart.add(cart.size() - pendingRows.size(), item);
+                byBarcode.put(line.barcode(), item);
+            }
+            case UPDATED -> {
+                CartItem item = byBarcode.get(line.barcode());
+                if (item != null) item.setQty(line.qty());
+            }
+            case REMOVED -> {
+                CartItem item = byBarcode.remove(line.barcode());
+                if (item != null) cart.remove(item);
+            }
+            case CLEARED -> {
+                cart.removeAll(byBarcode.values());
+                byBarcode.clear();
+            }
+        }
         updateGrandTotal();
     }
 
+    private void undoLastScan() {
+        CartEngine.Line undone = engine.undoLastScan();
+        if (undone == null) {
+            statusLabel.setText("❗ Geri alınacak okutma yok.");
+            return;
+        }
+        statusLabel.setText("↩️ Geri alındı: " + undone.name() + " (adet: " + undone.qty() + ")");
+    }
+
     private int parseQtyDefaultOneOrFromField() {
         String t = (qtyField == null) ? "" : qtyField.getText();
         t = (t == null) ? "" : t.trim();
@@ -184,9 +254,7 @@ public class SalesController {
         CartItem selected = table.getSelectionModel().getSelectedItem();
         if (selected == null) return;
 
-        selected.incQty(1);
-        table.refresh();
-        updateGrandTotal();
+        engine.increment(selected.getBarcode(), 1);
         barcodeField.requestFocus();
     }
 
@@ -195,17 +263,11 @@ public class SalesController {
         CartItem selected = table.getSelectionModel().getSelectedItem();
         if (selected == null) return;
 
-        int newQty = selected.getQty() - 1;
-        if (newQty <= 0) {
-            cart.remove(selected);
-            byBarcode.remove(selected.getBarcode());
+        CartEngine.Line line = engine.increment(selected.getBarcode(), -1);
+        if (line != null && line.qty() == 0) {
             statusLabel.setText("🗑️ Silindi: " + selected.getName());
-        } else {
-            selected.incQty(-1);
         }
 
-        table.refresh();
-        updateGrandTotal();
         barcodeField.requestFocus();
     }
 
@@ -225,10 +287,7 @@ public class SalesController {
 
         if (confirm.showAndWait().orElse(ButtonType.CANCEL) != ButtonType.OK) return;
 
-        cart.remove(selected);
-        byBarcode.remove(selected.getBarcode());
-        table.refresh();
-        updateGrandTotal();
+        engine.remove(selected.getBarcode());
         statusLabel.setText("🗑️ Sepetten silindi: " + selected.getName());
         barcodeField.requestFocus();
     }
@@ -263,27 +322,22 @@ public class SalesController {
             return;
         }
 
+        engine.setQty(selected.getBarcode(), v);
         if (v == 0) {
-            cart.remove(selected);
-            byBarcode.remove(selected.getBarcode());
             statusLabel.setText("🗑️ Silindi: " + selected.getName());
         } else {
-            // CartItem’da setQty yoksa eklemen gerekebilir.
-            // Ama çoğu CartItem’da qtyProperty().set(...) yapılabilir:
-            selected.qtyProperty().set(v);
             statusLabel.setText("✅ Güncellendi: " + selected.getName() + " (= " + v + ")");
         }
 
-        table.refresh();
-        updateGrandTotal();
         barcodeField.requestFocus();
     }
 
     @FXML
     public void clearCart() {
-        cart.clear();
-        byBarcode.clear();
-        updateGrandTotal();
+        pipeline.clearPending();
+        cart.removeAll(pendingRows.values());
+        pendingRows.clear();
+        engine.clear();
         statusLabel.setText("Sepet temizlendi.");
         clearInputs();
     }
@@ -294,7 +348,11 @@ public class SalesController {
 
     @FXML
     public void finishSale() {
-        if (cart.isEmpty()) {
+        if (pipeline.pendingCount() > 0) {
+            statusLabel.setText("⏳ Okutulan ürünler hâlâ aranıyor, birazdan tekrar dene.");
+            return;
+        }
+        if (engine.isEmpty()) {
             statusLabel.setText("❗ Sepet boş.");
             return;
         }
@@ -302,15 +360,14 @@ public class SalesController {
         setCheckoutBusy(true);
         statusLabel.setText("⏳ Satış yapılıyor...");
 
-        var snapshot = FXCollections.observableArrayList(cart);
+        CartEngine.Snapshot snapshot = engine.snapshot();
 
         new Thread(() -> {
             try {
                 int saleId = SalesDAO.createSale(snapshot);
-                ProductsController.refreshIfOpen();
 
                 Platform.runLater(() -> {
-                    String totalTxt = grandTotalLabel.getText();
+                    String totalTxt = String.format("%.2f", snapshot.total());
 
                     showInfo(
                             "Satış Tamamlandı",
@@ -334,7 +391,7 @@ public class SalesController {
     }
 
     private void setCheckoutBusy(boolean busy) {
-        if (finishSaleBtn != null) finishSaleBtn.setDisable(busy);
+        if (finishSaleBtn != null) finishSaleBtn.setDisable(busy || !DatabaseConfig.isOnline());
         if (clearCartBtn != null) clearCartBtn.setDisable(busy);
         if (incBtn != null) incBtn.setDisable(busy);
         if (decBtn != null) decBtn.setDisable(busy);
@@ -347,16 +404,15 @@ public class SalesController {
     }
 
     private void updateGrandTotal() {
-        double total = 0.0;
-        for (CartItem item : cart) total += item.getLineTotal();
-        grandTotalLabel.setText(String.format("%.2f", total));
+        grandTotalLabel.setText(String.format("%.2f", engine.getTotal()));
     }
 
     private void beep() {
         try { java.awt.Toolkit.getDefaultToolkit().beep(); } catch (Exception ignored) {}
     }
 
-    private void openProductDialog(String barcode, Product existing) {
+    /** @return kaydedilen ürünün güncel hali; iptal edildiyse null */
+    private Product openProductDialog(String barcode, Product existing) {
         try {
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/view/dialogs/product_dialog.fxml"));
             Scene scene = new Scene(loader.load());
@@ -371,9 +427,7 @@ public class SalesController {
             controller.setStage(dialog);
 
             dialog.showAndWait();
-
-            // Dialog sonrası cache güncelle
-            ProductDAO.findByBarcode(barcode).ifPresent(p -> productCache.put(barcode, p));
+            return controller.getSavedProduct();
 
         } catch (Exception e) {
             throw new RuntimeException("Popup açılamadı", e);
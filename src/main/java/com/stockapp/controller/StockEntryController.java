@@ -1,27 +1,71 @@
 package com.stockapp.controller;
 
+import com.stockapp.config.AppConfig;
 import com.stockapp.dao.ProductDAO;
+import com.stockapp.dao.StockLedgerDAO;
+import com.stockapp.event.DomainEvent;
+import com.stockapp.event.EventBus;
 import com.stockapp.model.Product;
+import com.stockapp.model.ReceivingSession;
+import com.stockapp.service.ScanPipeline;
 import javafx.animation.PauseTransition;
 import javafx.application.Platform;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
-import javafx.scene.control.Label;
-import javafx.scene.control.TextField;
+import javafx.scene.control.*;
+import javafx.scene.control.cell.TextFieldTableCell;
+import javafx.scene.layout.VBox;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 import javafx.util.Duration;
+import javafx.util.StringConverter;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class StockEntryController {
 
     @FXML private TextField barcodeField;
     @FXML private Label statusLabel;
 
+    // ✅ Mal kabul modu
+    @FXML private CheckBox receivingModeBox;
+    @FXML private VBox receivingPane;
+    @FXML private TableView<ReceivingSession.Line> sessionTable;
+    @FXML private TableColumn<ReceivingSession.Line, String> nameCol;
+    @FXML private TableColumn<ReceivingSession.Line, String> barcodeCol;
+    @FXML private TableColumn<ReceivingSession.Line, Integer> qtyCol;
+    @FXML private Label sessionSummaryLabel;
+    @FXML private Button commitBtn;
+
+    // ✅ açık oturum dosyası (kasa başına)
+    private static final Path SESSION_FILE =
+            AppConfig.dataDir().resolve("receiving-" + AppConfig.terminalId() + ".tsv");
+
+    // ✅ diske yazmalar sırayla ve FX thread dışında
+    private static final ExecutorService SAVER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "receiving-save-thread");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private ReceivingSession session = new ReceivingSession();
+    private final ObservableList<ReceivingSession.Line> sessionRows = FXCollections.observableArrayList();
+    private ScanPipeline receivingPipeline;
+    private volatile boolean committing = false;
+
     // ✅ barkod cache
     private final Map<String, Product> cache = new HashMap<>();
     private volatile boolean loading = false;
@@ -35,24 +79,38 @@ public class StockEntryController {
         // ✅ Sadece ENTER gelirse çalışır
         barcodeField.setOnAction(e -> onScan());
 
+        // ✅ ürün/stok başka yerde değişirse cache'ten at
+        EventBus.subscribeWhileShowing(barcodeField, DomainEvent.ProductChanged.class, e -> cache.remove(e.barcode()));
+        EventBus.subscribeWhileShowing(barcodeField, DomainEvent.StockChanged.class, e -> cache.remove(e.barcode()));
+
         Platform.runLater(() -> {
             barcodeField.requestFocus();
             barcodeField.positionCaret(barcodeField.getText().length());
         });
 
         statusLabel.setText("Barkod okut.");
+
+        setupReceiving();
     }
 
     @FXML
     public void onScan() {
-        if (loading) return;
-
         String barcode = (barcodeField.getText() == null) ? "" : barcodeField.getText().trim();
         if (barcode.isEmpty()) {
             statusLabel.setText("❗ Barkod boş olamaz.");
             return;
         }
 
+        // ✅ mal kabul: dialog yok, sadece lokal sayım
+        if (receivingModeBox.isSelected()) {
+            if (committing) return;
+            barcodeField.clear();
+            receivingPipeline.submit(barcode, 1);
+            return;
+        }
+
+        if (loading) return;
+
         // cache varsa direkt aç
         Product cached = cache.get(barcode);
         if (cached != null) {
@@ -107,26 +165,265 @@ public class StockEntryController {
             controller.setStage(dialog);
 
             dialog.showAndWait();
+
+            // ✅ Dialog sonrası güncel ürün: dialog yazmayla aynı transaction'da okudu (UI thread'de sorgu yok)
+            Optional<Product> fresh = Optional.ofNullable(controller.getSavedProduct());
+            fresh.ifPresent(p -> cache.put(barcode, p));
+
             if (controller.isSuccess()) {
                 String msg = controller.getSuccessMessage();
-
-                // Ürünü tekrar çekip stok bilgisi de yazalım
-                ProductDAO.findByBarcode(barcode).ifPresentOrElse(p -> {
-                    statusLabel.setText(msg + " | Stok: " + p.getStock());
-                    cache.put(barcode, p);
-                }, () -> statusLabel.setText(msg));
+                statusLabel.setText(fresh.map(p -> msg + " | Stok: " + p.getStock()).orElse(msg));
             } else {
                 // işlem yapılmadı / iptal edildi
                 statusLabel.setText("İptal edildi.");
             }
 
-            ProductsController.refreshIfOpen();
+        } catch (Exception e) {
+            throw new RuntimeException("Popup açılamadı", e);
+        }
+    }
+
+    // =========================
+    // ✅ MAL KABUL OTURUMU
+    // =========================
 
-            // ✅ Dialog sonrası ürün değişmiş olabilir -> cache’i güncelle
-            ProductDAO.findByBarcode(barcode).ifPresent(p -> cache.put(barcode, p));
+    private void setupReceiving() {
+        nameCol.setCellValueFactory(c -> new SimpleStringProperty(c.getValue().name()));
+        barcodeCol.setCellValueFactory(c -> new SimpleStringProperty(c.getValue().barcode()));
+        qtyCol.setCellValueFactory(c -> new SimpleObjectProperty<>(c.getValue().qty()));
 
+        // adet hücresi düzenlenebilir (sayı değilse değişiklik yok sayılır)
+        qtyCol.setCellFactory(TextFieldTableCell.forTableColumn(new StringConverter<>() {
+            @Override public String toString(Integer v) { return v == null ? "" : String.valueOf(v); }
+            @Override public Integer fromString(String s) {
+                try {
+                    return Integer.parseInt(s.trim());
+                } catch (Exception e) {
+                    return null;
+                }
+            }
+        }));
+        qtyCol.setOnEditCommit(e -> {
+            // stoka işlenirken düzenleme yok: işlenen adetle ekrandaki ayrışmasın
+            if (committing || e.getNewValue() == null) {
+                sessionTable.refresh();
+                return;
+            }
+            setLineQty(e.getRowValue().barcode(), e.getNewValue());
+        });
+
+        sessionTable.setItems(sessionRows);
+
+        receivingPane.visibleProperty().bind(receivingModeBox.selectedProperty());
+        receivingPane.managedProperty().bind(receivingModeBox.selectedProperty());
+        receivingModeBox.selectedProperty().addListener((obs, o, on) -> {
+            statusLabel.setText(on ? "Mal kabul: barkodları okut, en sonda 'Stoka İşle'." : "Barkod okut.");
+            barcodeField.requestFocus();
+        });
+
+        receivingPipeline = new ScanPipeline(ProductDAO::findByBarcode, Platform::runLater, new ScanPipeline.Listener() {
+            @Override public void onPending(ScanPipeline.Ticket t) {
+                statusLabel.setText("⏳ " + t.getBarcode() + " aranıyor...");
+            }
+            @Override public void onPendingMerged(ScanPipeline.Ticket t) {}
+            @Override public void onResult(ScanPipeline.Result r) { onReceivingResult(r); }
+        });
+
+        // ✅ yarım kalan oturum varsa geri yükle.
+        // SAVER üzerinde: sonradan kuyruğa girecek her kayıttan önce okunur, dosya ezilmez.
+        SAVER.execute(() -> {
+            try {
+                ReceivingSession restored = ReceivingSession.load(SESSION_FILE);
+                if (restored.isEmpty()) return;
+
+                if (isAlreadyApplied(restored.id())) {
+                    // stoka işlenmiş ama dosyası silinememiş oturum: tekrar işlenmesin
+                    Files.deleteIfExists(SESSION_FILE);
+                    return;
+                }
+
+                Platform.runLater(() -> {
+                    // bu arada okutulanlar kaybolmasın: geri yüklenenin üstüne eklenir
+                    restored.merge(session);
+                    session = restored;
+                    sessionRows.setAll(session.lines());
+                    receivingModeBox.setSelected(true);
+                    sessionChanged();
+                    statusLabel.setText("↩ Açık mal kabul oturumu geri yüklendi (" + session.lineCount() + " satır).");
+                });
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    /** DB'ye ulaşılamazsa false: oturum geri yüklenir, tekrar işlenmeyi zaten DB engeller. */
+    private static boolean isAlreadyApplied(String sessionId) {
+        try {
+            return StockLedgerDAO.isBatchApplied(sessionId);
         } catch (Exception e) {
-            throw new RuntimeException("Popup açılamadı", e);
+            return false;
         }
     }
+
+    private void onReceivingResult(ScanPipeline.Result r) {
+        String barcode = r.ticket().getBarcode();
+
+        switch (r.status()) {
+            case RESOLVED -> {
+                Product p = r.product();
+                ReceivingSession.Line line = session.add(p.getId(), p.getName(), barcode, r.ticket().getQty());
+                upsertRow(line);
+                statusLabel.setText("✅ " + p.getName() + " x" + line.qty());
+                sessionChanged();
+            }
+            case NOT_FOUND -> {
+                // yeni ürün: dialog'da başlangıç stoğuyla birlikte kaydedilir, oturuma girmez
+                receivingPipeline.pause();
+                try {
+                    openProductDialog(barcode, null);
+                } finally {
+                    receivingPipeline.resume();
+                }
+            }
+            case FAILED -> statusLabel.setText("❌ Ürün aranamadı: " + barcode);
+        }
+    }
+
+    private void upsertRow(ReceivingSession.Line line) {
+        for (int i = 0; i < sessionRows.size(); i++) {
+            if (sessionRows.get(i).barcode().equals(line.barcode())) {
+                sessionRows.set(i, line);
+                return;
+            }
+        }
+        sessionRows.add(line);
+    }
+
+    private void setLineQty(String barcode, int qty) {
+        ReceivingSession.Line line = session.setQty(barcode, qty);
+        if (line == null) sessionRows.removeIf(l -> l.barcode().equals(barcode));
+        else upsertRow(line);
+        sessionChanged();
+    }
+
+    @FXML
+    private void decSelected() {
+        ReceivingSession.Line sel = sessionTable.getSelectionModel().getSelectedItem();
+        if (sel == null || committing) return;
+        setLineQty(sel.barcode(), sel.qty() - 1);
+    }
+
+    @FXML
+    private void deleteSelected() {
+        ReceivingSession.Line sel = sessionTable.getSelectionModel().getSelectedItem();
+        if (sel == null || committing) return;
+        setLineQty(sel.barcode(), 0);
+    }
+
+    @FXML
+    private void discardSession() {
+        if (session.isEmpty() || committing) return;
+
+        Alert a = new Alert(Alert.AlertType.CONFIRMATION, "Oturumdaki " + session.lineCount() + " satır silinsin mi?");
+        a.setHeaderText(null);
+        if (a.showAndWait().orElse(ButtonType.CANCEL) != ButtonType.OK) return;
+
+        session.clear();
+        sessionRows.clear();
+        receivingPipeline.clearPending();
+        sessionChanged();
+        statusLabel.setText("Oturum iptal edildi.");
+    }
+
+    /** ✅ Tüm oturum tek statement, tek transaction ile stoka işlenir. */
+    @FXML
+    private void commitSession() {
+        if (committing) return;
+        if (receivingPipeline.pendingCount() > 0) {
+            statusLabel.setText("⏳ Okutmalar hâlâ çözülüyor, biraz bekle.");
+            return;
+        }
+        if (session.isEmpty()) {
+            statusLabel.setText("❗ Oturum boş.");
+            return;
+        }
+
+        String sessionId = session.id();
+        List<ReceivingSession.Line> lines = session.lines();
+        List<String> barcodes = new ArrayList<>(lines.size());
+        List<Integer> qtys = new ArrayList<>(lines.size());
+        for (ReceivingSession.Line l : lines) {
+            barcodes.add(l.barcode());
+            qtys.add(l.qty());
+        }
+        int totalQty = session.totalQty();
+
+        committing = true;
+        commitBtn.setDisable(true);
+        sessionTable.setEditable(false);
+        statusLabel.setText("⏳ Stoka işleniyor...");
+
+        new Thread(() -> {
+            try {
+                int applied = ProductDAO.increaseStockBatch(sessionId, barcodes, qtys);
+                Platform.runLater(() -> {
+                    keepScannedDuringCommit(lines);
+                    if (applied < 0) {
+                        statusLabel.setText("ℹ Bu oturum zaten stoka işlenmiş.");
+                        return;
+                    }
+                    statusLabel.setText("✅ " + applied + " ürün, toplam " + totalQty + " adet stoka işlendi."
+                            + (applied < lines.size() ? " (" + (lines.size() - applied) + " barkod bulunamadı)" : ""));
+                });
+            } catch (Exception e) {
+                e.printStackTrace();
+                Platform.runLater(() -> statusLabel.setText("❌ Stoka işlenemedi, oturum korunuyor: " + e.getMessage()));
+            } finally {
+                Platform.runLater(() -> {
+                    committing = false;
+                    commitBtn.setDisable(false);
+                    sessionTable.setEditable(true);
+                    barcodeField.requestFocus();
+                });
+            }
+        }, "receiving-commit-thread").start();
+    }
+
+    /**
+     * İşlenen oturum kapanır (yeni kimlik); işlem sürerken okutulan adetler yeni oturumda kalır.
+     */
+    private void keepScannedDuringCommit(List<ReceivingSession.Line> committed) {
+        Map<String, Integer> done = new HashMap<>();
+        for (ReceivingSession.Line l : committed) done.put(l.barcode(), l.qty());
+
+        List<ReceivingSession.Line> current = session.lines();
+        session.clear();
+        for (ReceivingSession.Line l : current) {
+            int left = l.qty() - done.getOrDefault(l.barcode(), 0);
+            if (left > 0) session.add(l.productId(), l.name(), l.barcode(), left);
+        }
+        sessionRows.setAll(session.lines());
+        sessionChanged();
+    }
+
+    /** Her değişiklikte özet + diske yaz (boşsa dosyayı sil). */
+    private void sessionChanged() {
+        updateSummary();
+
+        String id = session.id();
+        List<ReceivingSession.Line> snapshot = session.lines();
+        SAVER.execute(() -> {
+            try {
+                if (snapshot.isEmpty()) Files.deleteIfExists(SESSION_FILE);
+                else ReceivingSession.save(SESSION_FILE, id, snapshot);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    private void updateSummary() {
+        sessionSummaryLabel.setText(session.lineCount() + " satır / " + session.totalQty() + " adet");
+    }
 }
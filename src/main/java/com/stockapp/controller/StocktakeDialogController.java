@@ -0,0 +1,302 @@
+package com.stockapp.controller;
+
+import com.stockapp.config.AppConfig;
+import com.stockapp.dao.StocktakeDAO;
+import com.stockapp.model.Product;
+import com.stockapp.model.ReceivingSession;
+import com.stockapp.service.ScanPipeline;
+import javafx.application.Platform;
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.beans.property.SimpleIntegerProperty;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.fxml.FXML;
+import javafx.scene.control.*;
+import javafx.scene.control.cell.TextFieldTableCell;
+import javafx.stage.Stage;
+import javafx.util.StringConverter;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Stok sayımı: okutmalar DB'ye gitmeden lokal toplanır (diske de yazılır),
+ * "Sayımı Uygula" ile tek seferde StocktakeDAO.reconcile'a gider.
+ */
+public class StocktakeDialogController {
+
+    @FXML private TabPane tabs;
+    @FXML private Tab reportTab;
+
+    @FXML private TextField barcodeField;
+    @FXML private TextField qtyField;
+
+    @FXML private TableView<ReceivingSession.Line> countTable;
+    @FXML private TableColumn<ReceivingSession.Line, String> cNameCol;
+    @FXML private TableColumn<ReceivingSession.Line, String> cBarcodeCol;
+    @FXML private TableColumn<ReceivingSession.Line, Integer> cQtyCol;
+
+    @FXML private TableView<StocktakeDAO.VarianceRow> reportTable;
+    @FXML private TableColumn<StocktakeDAO.VarianceRow, String> rCategoryCol;
+    @FXML private TableColumn<StocktakeDAO.VarianceRow, String> rNameCol;
+    @FXML private TableColumn<StocktakeDAO.VarianceRow, String> rBarcodeCol;
+    @FXML private TableColumn<StocktakeDAO.VarianceRow, Number> rExpectedCol;
+    @FXML private TableColumn<StocktakeDAO.VarianceRow, Number> rCountedCol;
+    @FXML private TableColumn<StocktakeDAO.VarianceRow, Number> rDiffCol;
+    @FXML private TableColumn<StocktakeDAO.VarianceRow, Number> rValueCol;
+
+    @FXML private Label statusLabel;
+    @FXML private Label summaryLabel;
+    @FXML private Button applyBtn;
+
+    private static final Path SESSION_FILE =
+            AppConfig.dataDir().resolve("stocktake-" + AppConfig.terminalId() + ".tsv");
+
+    private static final ExecutorService SAVER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "stocktake-save-thread");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private ReceivingSession session = new ReceivingSession();
+    private final ObservableList<ReceivingSession.Line> rows = FXCollections.observableArrayList();
+    private volatile boolean applying = false;
+
+    @FXML
+    public void initialize() {
+        cNameCol.setCellValueFactory(c -> new SimpleStringProperty(c.getValue().name()));
+        cBarcodeCol.setCellValueFactory(c -> new SimpleStringProperty(c.getValue().barcode()));
+        cQtyCol.setCellValueFactory(c -> new SimpleObjectProperty<>(c.getValue().qty()));
+        cQtyCol.setCellFactory(TextFieldTableCell.forTableColumn(new StringConverter<>() {
+            @Override public String toString(Integer v) { return v == null ? "" : String.valueOf(v); }
+            @Override public Integer fromString(String s) {
+                try {
+                    int v = Integer.parseInt(s.trim());
+                    return v < 0 ? null : v;
+                } catch (Exception e) {
+                    return null;
+                }
+            }
+        }));
+        cQtyCol.setOnEditCommit(e -> {
+            if (e.getNewValue() == null) {
+                countTable.refresh();
+                return;
+            }
+            ReceivingSession.Line l = e.getRowValue();
+            upsertRow(session.put(l.productId(), l.name(), l.barcode(), e.getNewValue()));
+            sessionChanged();
+        });
+        countTable.setItems(rows);
+
+        rCategoryCol.setCellValueFactory(c -> new SimpleStringProperty(
+                c.getValue().isGrandTotal() ? "GENEL TOPLAM" : c.getValue().category()));
+        rNameCol.setCellValueFactory(c -> new SimpleStringProperty(
+                c.getValue().productId() == null ? "" : c.getValue().name()));
+        rBarcodeCol.setCellValueFactory(c -> new SimpleStringProperty(
+                c.getValue().productId() == null ? "" : c.getValue().barcode()));
+        rExpectedCol.setCellValueFactory(c -> new SimpleIntegerProperty(c.getValue().expected()));
+        rCountedCol.setCellValueFactory(c -> new SimpleIntegerProperty(c.getValue().counted()));
+        rDiffCol.setCellValueFactory(c -> new SimpleIntegerProperty(c.getValue().diff()));
+        rValueCol.setCellValueFactory(c -> new SimpleDoubleProperty(c.getValue().diffValue()));
+
+        // ✅ ara toplamlar kalın, fire kırmızı
+        reportTable.setRowFactory(tv -> new TableRow<>() {
+            @Override
+            protected void updateItem(StocktakeDAO.VarianceRow r, boolean empty) {
+                super.updateItem(r, empty);
+                if (empty || r == null) { setStyle(""); return; }
+
+                String style = (r.productId() == null) ? "-fx-font-weight:800;" : "";
+                if (r.productId() != null && r.diff() < 0) style += "-fx-text-background-color:#c62828;";
+                setStyle(style);
+            }
+        });
+
+        barcodeField.setOnAction(e -> onScan());
+        qtyField.setOnAction(e -> onScan());
+
+        restoreSession();
+        Platform.runLater(() -> barcodeField.requestFocus());
+    }
+
+    private void restoreSession() {
+        new Thread(() -> {
+            try {
+                ReceivingSession restored = ReceivingSession.load(SESSION_FILE);
+                if (restored.isEmpty()) return;
+                Platform.runLater(() -> {
+                    session = restored;
+                    rows.setAll(session.lines());
+                    updateSummary();
+                    statusLabel.setText("↩ Yarım kalan sayım geri yüklendi (" + session.lineCount() + " satır).");
+                });
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }, "stocktake-restore-thread").start();
+    }
+
+    /** Boş adet = +1 (tek tek okutma), dolu adet = o barkodun sayılan değeri. */
+    private void onScan() {
+        if (applying) return;
+
+        String barcode = (barcodeField.getText() == null) ? "" : barcodeField.getText().trim();
+        if (barcode.isEmpty()) {
+            statusLabel.setText("❗ Barkod boş olamaz.");
+            return;
+        }
+
+        String qtyText = (qtyField.getText() == null) ? "" : qtyField.getText().trim();
+        Integer exact = null;
+        if (!qtyText.isEmpty()) {
+            try {
+                exact = Integer.parseInt(qtyText);
+                if (exact < 0) throw new NumberFormatException();
+            } catch (NumberFormatException e) {
+                statusLabel.setText("❗ Adet sayı olmalı (0 ve üzeri).");
+                return;
+            }
+        }
+
+        // isim sadece gösterim için: cache'te varsa (çevrimdışı çalışır)
+        Product known = ScanPipeline.cache().get(barcode);
+        String name = (known != null) ? known.getName() : "(sayım sonrası eşleşecek)";
+        int productId = (known != null) ? known.getId() : 0;
+
+        ReceivingSession.Line line = (exact != null)
+                ? session.put(productId, name, barcode, exact)
+                : session.add(productId, name, barcode, 1);
+
+        upsertRow(line);
+        sessionChanged();
+
+        statusLabel.setText("✅ " + barcode + " = " + line.qty());
+        barcodeField.clear();
+        qtyField.clear();
+        barcodeField.requestFocus();
+    }
+
+    private void upsertRow(ReceivingSession.Line line) {
+        for (int i = 0; i < rows.size(); i++) {
+            if (rows.get(i).barcode().equals(line.barcode())) {
+                rows.set(i, line);
+                return;
+            }
+        }
+        rows.add(line);
+    }
+
+    @FXML
+    private void deleteSelected() {
+        ReceivingSession.Line sel = countTable.getSelectionModel().getSelectedItem();
+        if (sel == null || applying) return;
+
+        session.remove(sel.barcode());
+        rows.remove(sel);
+        sessionChanged();
+    }
+
+    @FXML
+    private void clearCounts() {
+        if (session.isEmpty() || applying) return;
+
+        Alert a = new Alert(Alert.AlertType.CONFIRMATION, "Sayımdaki " + session.lineCount() + " satır silinsin mi?");
+        a.setHeaderText(null);
+        if (a.showAndWait().orElse(ButtonType.CANCEL) != ButtonType.OK) return;
+
+        session.clear();
+        rows.clear();
+        sessionChanged();
+        statusLabel.setText("Sayım temizlendi.");
+    }
+
+    @FXML
+    private void applyStocktake() {
+        if (applying) return;
+        if (session.isEmpty()) {
+            statusLabel.setText("❗ Sayım boş.");
+            return;
+        }
+
+        Alert a = new Alert(Alert.AlertType.CONFIRMATION,
+                session.lineCount() + " ürünün stoğu sayılan değerlere eşitlenecek. Devam edilsin mi?");
+        a.setHeaderText(null);
+        if (a.showAndWait().orElse(ButtonType.CANCEL) != ButtonType.OK) return;
+
+        Map<String, Integer> counted = new LinkedHashMap<>();
+        for (ReceivingSession.Line l : session.lines()) counted.put(l.barcode(), l.qty());
+
+        applying = true;
+        applyBtn.setDisable(true);
+        statusLabel.setText("⏳ Sayım uygulanıyor...");
+
+        new Thread(() -> {
+            try {
+                StocktakeDAO.Result result = StocktakeDAO.reconcile(counted);
+
+                Platform.runLater(() -> {
+                    reportTable.setItems(FXCollections.observableArrayList(result.rows()));
+                    tabs.getSelectionModel().select(reportTab);
+
+                    // bilinmeyen barkodlar sayımda kalır (ürün tanıtılıp tekrar uygulanabilir)
+                    session.clear();
+                    rows.clear();
+                    for (String b : result.unknownBarcodes()) {
+                        upsertRow(session.put(0, "(bilinmeyen barkod)", b, counted.get(b)));
+                    }
+                    sessionChanged();
+
+                    StocktakeDAO.VarianceRow total = result.rows().isEmpty()
+                            ? null : result.rows().get(result.rows().size() - 1);
+                    String msg = (total == null)
+                            ? "Eşleşen ürün yok."
+                            : String.format("✅ Sayım uygulandı. Net fark: %d adet / %.2f TL", total.diff(), total.diffValue());
+                    if (!result.unknownBarcodes().isEmpty()) {
+                        msg += " | ❗ " + result.unknownBarcodes().size() + " barkod bulunamadı (sayımda bırakıldı)";
+                    }
+                    statusLabel.setText(msg);
+                });
+            } catch (Exception e) {
+                e.printStackTrace();
+                Platform.runLater(() -> statusLabel.setText("❌ Sayım uygulanamadı, sayım korunuyor: " + e.getMessage()));
+            } finally {
+                Platform.runLater(() -> {
+                    applying = false;
+                    applyBtn.setDisable(false);
+                });
+            }
+        }, "stocktake-apply-thread").start();
+    }
+
+    private void sessionChanged() {
+        updateSummary();
+
+        List<ReceivingSession.Line> snapshot = session.lines();
+        SAVER.execute(() -> {
+            try {
+                if (snapshot.isEmpty()) Files.deleteIfExists(SESSION_FILE);
+                else ReceivingSession.save(SESSION_FILE, snapshot);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    private void updateSummary() {
+        summaryLabel.setText(session.lineCount() + " satır / " + session.totalQty() + " adet");
+    }
+
+    @FXML
+    public void close() {
+        Stage stage = (Stage) countTable.getScene().getWindow();
+        stage.close();
+    }
+}
@@ -0,0 +1,185 @@
+package com.stockapp.dao;
+
+import com.stockapp.config.DatabaseConfig;
+import com.stockapp.model.Category;
+import com.stockapp.model.Product;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lokal katalog kopyası (CatalogSnapshot) için delta okuma.
+ *
+ * Watermark = önceki okumadaki snapshot xmin'i: ondan küçük xid'li her transaction o an bitmişti
+ * (gördük), büyük-eşit olanlar ya sürüyordu ya sonra başladı -> bir sonraki okumada "row_xid >= watermark"
+ * ile yakalanır. Sıralı sayaçlardaki "geç commit eden kaçar" sorunu yok; en fazla birkaç satır tekrar gelir.
+ *
+ * Bekleyen (henüz katlanmamış) stok artışı products satırına dokunmaz: bu ürünler her delta'da yeniden gönderilir.
+ *
+ * Silme kayıtları (catalog_tombstones) TOMBSTONE_RETENTION_DAYS sonra budanır; budanan en büyük xid'den
+ * eski watermark ile gelen kopya silinenleri göremeyeceği için tam yüklemeye çevrilir.
+ */
+public class CatalogDAO {
+
+    public static final int TOMBSTONE_RETENTION_DAYS = 30;
+
+    // tam senkronda tüm katalog: kolon adları satır başına değil, SQL başına bir kez çözülür
+    private static final Rows.Mapper<Product> CATALOG_PRODUCT = cols -> {
+        int id = cols.of("id");
+        int name = cols.of("name");
+        int barcode = cols.of("barcode");
+        int categoryId = cols.of("category_id");
+        int categoryName = cols.of("category_name");
+        int stock = cols.of("stock");
+        int price = cols.of("price");
+
+        return rs -> new Product(
+                rs.getInt(id),
+                rs.getString(name),
+                rs.getString(barcode),
+                rs.getInt(categoryId),
+                rs.getString(categoryName),
+                rs.getInt(stock),
+                rs.getDouble(price)
+        );
+    };
+
+    private record Tombstone(boolean category, int id) {}
+
+    private static final String TOMBSTONES_SQL = "SELECT kind, id FROM catalog_tombstones WHERE row_xid >= ?";
+
+    private static final Rows.Mapper<Tombstone> TOMBSTONE = cols -> {
+        int kind = cols.of("kind"), id = cols.of("id");
+        return rs -> new Tombstone("C".equals(rs.getString(kind)), rs.getInt(id));
+    };
+
+    public record Delta(long watermark, boolean full,
+                        List<Category> categories, List<Product> products,
+                        List<Integer> deletedCategories, List<Integer> deletedProducts) {
+        public boolean isEmpty() {
+            return categories.isEmpty() && products.isEmpty()
+                    && deletedCategories.isEmpty() && deletedProducts.isEmpty();
+        }
+    }
+
+    private static final String CATEGORIES_SQL =
+            "SELECT id, name FROM categories WHERE ? = 0 OR row_xid >= ? ORDER BY name ASC";
+
+    private static final String PRODUCTS_SQL = """
+        SELECT v.id, v.name, v.barcode, v.stock, v.price, v.category_id, c.name AS category_name
+        FROM v_products v
+        LEFT JOIN categories c ON c.id = v.category_id
+        WHERE ? = 0
+           OR v.id IN (
+                SELECT id FROM products WHERE row_xid >= ?
+                UNION
+                SELECT product_id FROM stock_movements WHERE NOT applied
+           )
+    """;
+
+    /** @param watermark 0 -> tam yükleme (budanmış silme kayıtlarından eskiyse de tam yükleme) */
+    public static Delta since(long watermark) {
+        boolean full = watermark <= 0;
+
+        List<Category> categories = new ArrayList<>();
+        List<Product> products = new ArrayList<>();
+        List<Integer> deletedCategories = new ArrayList<>();
+        List<Integer> deletedProducts = new ArrayList<>();
+
+        try (Connection c = DatabaseConfig.getAppConnection()) {
+            boolean oldAuto = c.getAutoCommit();
+            int oldIso = c.getTransactionIsolation();
+
+            // tüm sorgular + watermark aynı snapshot'tan
+            c.setAutoCommit(false);
+            c.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+
+            try {
+                long next;
+                try (Statement st = c.createStatement();
+                     ResultSet rs = st.executeQuery("SELECT txid_snapshot_xmin(txid_current_snapshot())")) {
+                    rs.next();
+                    next = rs.getLong(1);
+                }
+
+                if (!full) {
+                    try (Statement st = c.createStatement();
+                         ResultSet rs = st.executeQuery("SELECT pruned_xid FROM catalog_tombstone_horizon")) {
+                        if (rs.next() && watermark < rs.getLong(1)) full = true;
+                    }
+                }
+
+                try (PreparedStatement ps = c.prepareStatement(CATEGORIES_SQL)) {
+                    ps.setLong(1, full ? 0 : 1);
+                    ps.setLong(2, watermark);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        Rows.forEach(rs, CATEGORIES_SQL, CategoryDAO.CATEGORY, categories::add);
+                    }
+                }
+
+                try (PreparedStatement ps = c.prepareStatement(PRODUCTS_SQL)) {
+                    ps.setFetchSize(Rows.FETCH_SIZE); // tam yüklemede sürücü tüm kataloğu tek seferde tutmasın
+                    ps.setLong(1, full ? 0 : 1);
+                    ps.setLong(2, watermark);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        Rows.forEach(rs, PRODUCTS_SQL, CATALOG_PRODUCT, products::add);
+                    }
+                }
+
+                if (!full) {
+                    try (PreparedStatement ps = c.prepareStatement(TOMBSTONES_SQL)) {
+                        ps.setLong(1, watermark);
+                        try (ResultSet rs = ps.executeQuery()) {
+                            Rows.forEach(rs, TOMBSTONES_SQL, TOMBSTONE, t -> {
+                                if (t.category()) deletedCategories.add(t.id());
+                                else deletedProducts.add(t.id());
+                            });
+                        }
+                    }
+                }
+
+                c.commit();
+                return new Delta(next, full, categories, products, deletedCategories, deletedProducts);
+
+            } catch (SQLException e) {
+                c.rollback();
+                throw e;
+            } finally {
+                c.setTransactionIsolation(oldIso);
+                c.setAutoCommit(oldAuto);
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Katalog değişiklikleri alınamadı", e);
+        }
+    }
+
+    /**
+     * {@code days} günden eski silme kayıtlarını siler, budama sınırını (silinen en büyük xid + 1) ilerletir.
+     * @return silinen kayıt sayısı
+     */
+    public static int pruneTombstones(int days) {
+        String sql = """
+            WITH gone AS (
+                DELETE FROM catalog_tombstones
+                WHERE deleted_at < now() - make_interval(days => ?)
+                RETURNING row_xid
+            )
+            UPDATE catalog_tombstone_horizon
+            SET pruned_xid = GREATEST(pruned_xid, (SELECT MAX(row_xid) + 1 FROM gone))
+            WHERE id = 1
+            RETURNING (SELECT COUNT(*) FROM gone)
+        """;
+
+        try (Connection c = DatabaseConfig.getConnection(DatabaseConfig.Pool.MAINTENANCE);
+             PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setInt(1, days);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Silme kayıtları budanamadı", e);
+        }
+    }
+}
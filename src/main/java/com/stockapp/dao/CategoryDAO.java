@@ -1,40 +1,61 @@
 package com.stockapp.dao;
 
 import com.stockapp.config.DatabaseConfig;
+import com.stockapp.event.DomainEvent;
+import com.stockapp.event.EventBus;
 import com.stockapp.model.Category;
 
 import java.sql.ResultSet;
 import java.sql.*;
-import java.util.ArrayList;
 import java.util.List;
 
 public class CategoryDAO {
 
+    // CatalogDAO da kullanır
+    static final Rows.Mapper<Category> CATEGORY = cols -> {
+        int id = cols.of("id"), name = cols.of("name");
+        return rs -> new Category(rs.getInt(id), rs.getString(name));
+    };
+
     public static List<Category> findAll() {
-        List<Category> list = new ArrayList<>();
         String sql = "SELECT id, name FROM categories ORDER BY name ASC";
 
         try (Connection c = DatabaseConfig.getAppConnection();
              Statement st = c.createStatement();
              ResultSet rs = st.executeQuery(sql)) {
 
-            while (rs.next()) {
-                list.add(new Category(rs.getInt("id"), rs.getString("name")));
-            }
-            return list;
+            return Rows.list(rs, sql, CATEGORY);
 
         } catch (SQLException e) {
             throw new RuntimeException("Kategoriler alınamadı", e);
         }
     }
 
+    /** Kategorilerin sürüm damgası (her yazma ifadesinde +1, bkz. migration 7). Tek satır PK okuması. */
+    public static long version() {
+        String sql = "SELECT version FROM ref_version WHERE name = 'categories'";
+
+        try (Connection c = DatabaseConfig.getAppConnection();
+             Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery(sql)) {
+
+            return rs.next() ? rs.getLong(1) : 0;
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Kategori sürümü alınamadı", e);
+        }
+    }
+
     public static void insert(String name) {
-        String sql = "INSERT INTO categories(name) VALUES (?)";
+        String sql = "INSERT INTO categories(name) VALUES (?) RETURNING id";
         try (Connection c = DatabaseConfig.getAppConnection();
              PreparedStatement ps = c.prepareStatement(sql)) {
 
             ps.setString(1, name);
-            ps.executeUpdate();
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                EventBus.publish(new DomainEvent.CategoryChanged(rs.getInt(1), DomainEvent.Kind.CREATED));
+            }
 
         } catch (SQLException e) {
             throw new RuntimeException("Kategori eklenemedi (aynı isim olabilir)", e);
@@ -47,7 +68,9 @@ public class CategoryDAO {
              PreparedStatement ps = c.prepareStatement(sql)) {
 
             ps.setInt(1, id);
-            ps.executeUpdate();
+            if (ps.executeUpdate() > 0) {
+                EventBus.publish(new DomainEvent.CategoryChanged(id, DomainEvent.Kind.DELETED));
+            }
 
         } catch (SQLException e) {
             throw new RuntimeException("Kategori silinemedi (ürün bağlı olabilir)", e);
@@ -61,7 +84,9 @@ public class CategoryDAO {
 
             ps.setInt(1, toCategoryId);
             ps.setInt(2, fromCategoryId);
-            ps.executeUpdate();
+            if (ps.executeUpdate() > 0) {
+                EventBus.publish(new DomainEvent.CategoryChanged(fromCategoryId, DomainEvent.Kind.UPDATED));
+            }
 
         } catch (SQLException e) {
             throw new RuntimeException("Ürünler başka kategoriye taşınamadı", e);
@@ -0,0 +1,212 @@
+package com.stockapp.dao;
+
+import com.stockapp.config.DatabaseConfig;
+
+import java.sql.*;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Kasa bazlı stok emaneti (stock_escrow).
+ * products.stock / v_products.stock her zaman GERÇEK toplam stoktur; kota sadece stock_escrow'da tutulur
+ * (ayırma/iade products'a dokunmaz, okuyan hiçbir ekran emaneti düşük stok olarak görmez).
+ *
+ *   serbest stok = toplam - SUM(quota)   (kotasız düşüşler bunu aşamaz -> toplam >= kotalar >= 0)
+ *
+ * Kotadan satış products satırını kilitlemez: kotayı düşer ve deftere bekleyen (applied=false) -adet yazar.
+ */
+public class EscrowDAO {
+
+    /** UPDATE products ... WHERE'de kullanılır: kotalar düşülmüş güncel stok. */
+    static final String FREE_STOCK_SQL = "(products.stock + " + StockLedgerDAO.PENDING_SQL
+            + " - COALESCE((SELECT SUM(e.quota) FROM stock_escrow e WHERE e.product_id = products.id), 0))";
+
+    // {product_id, adet}
+    private static final Rows.Mapper<int[]> PRODUCT_QUOTA = cols -> {
+        int id = cols.of("product_id"), quota = cols.of("quota");
+        return rs -> new int[]{rs.getInt(id), rs.getInt(quota)};
+    };
+
+    private static final Rows.Mapper<int[]> PRODUCT_TAKEN = cols -> {
+        int id = cols.of("product_id"), taken = cols.of("taken");
+        return rs -> new int[]{rs.getInt(id), rs.getInt(taken)};
+    };
+
+    /** Bu kasanın DB'de kalmış kotaları (önceki çalışmadan kalanlar dahil). */
+    public static Map<Integer, Integer> loadQuotas(String terminalId) {
+        String sql = "SELECT product_id, quota FROM stock_escrow WHERE terminal_id = ? AND quota > 0";
+        Map<Integer, Integer> map = new HashMap<>();
+
+        try (Connection c = DatabaseConfig.getConnection(DatabaseConfig.Pool.MAINTENANCE);
+             PreparedStatement ps = c.prepareStatement(sql)) {
+
+            ps.setString(1, terminalId);
+            try (ResultSet rs = ps.executeQuery()) {
+                Rows.forEach(rs, sql, PRODUCT_QUOTA, r -> map.put(r[0], r[1]));
+            }
+            return map;
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Emanet kotaları alınamadı", e);
+        }
+    }
+
+    /**
+     * Serbest stoktan kotaya aktarır. Ürün satırları id sırasıyla kilitlenir (düşüşlerle yarışmasın,
+     * kilit sırası sabit -> deadlock yok), sonra tek statement ile kota yazılır. products değişmez.
+     * Stok yetmezse kalan kadarını alır.
+     *
+     * @param want product_id -> istenen adet
+     * @return product_id -> gerçekten alınan adet
+     */
+    public static Map<Integer, Integer> reserve(String terminalId, Map<Integer, Integer> want) {
+        Map<Integer, Integer> taken = new HashMap<>();
+        if (want.isEmpty()) return taken;
+
+        // kilitten sonra ayrı statement: READ COMMITTED'da yeni snapshot, kilit bekleyen güncel stoğu görür
+        String sql = """
+            WITH req AS (
+                SELECT * FROM unnest(?::int[], ?::int[]) AS r(product_id, want)
+            ), grab AS (
+                SELECT v.id AS product_id,
+                       LEAST(v.stock - COALESCE(e.reserved, 0), req.want) AS taken
+                FROM req
+                JOIN v_products v ON v.id = req.product_id
+                LEFT JOIN (
+                    SELECT product_id, SUM(quota)::int AS reserved
+                    FROM stock_escrow WHERE product_id = ANY(?::int[]) GROUP BY product_id
+                ) e ON e.product_id = v.id
+                WHERE v.stock - COALESCE(e.reserved, 0) > 0
+            ), ins AS (
+                INSERT INTO stock_escrow(terminal_id, product_id, quota)
+                SELECT ?, product_id, taken FROM grab
+                ON CONFLICT (terminal_id, product_id)
+                DO UPDATE SET quota = stock_escrow.quota + EXCLUDED.quota
+            )
+            SELECT product_id, taken FROM grab
+        """;
+
+        Integer[] ids = new Integer[want.size()];
+        Integer[] qty = new Integer[want.size()];
+        int i = 0;
+        for (Map.Entry<Integer, Integer> e : want.entrySet()) {
+            ids[i] = e.getKey();
+            qty[i] = e.getValue();
+            i++;
+        }
+
+        try (Connection c = DatabaseConfig.getConnection(DatabaseConfig.Pool.MAINTENANCE)) {
+            c.setAutoCommit(false);
+            try {
+                Array idArr = c.createArrayOf("int4", ids);
+                StockLedgerDAO.lockProducts(c, idArr);
+
+                try (PreparedStatement ps = c.prepareStatement(sql)) {
+                    ps.setArray(1, idArr);
+                    ps.setArray(2, c.createArrayOf("int4", qty));
+                    ps.setArray(3, idArr);
+                    ps.setString(4, terminalId);
+
+                    try (ResultSet rs = ps.executeQuery()) {
+                        Rows.forEach(rs, sql, PRODUCT_TAKEN, r -> taken.put(r[0], r[1]));
+                    }
+                }
+                c.commit();
+                return taken;
+
+            } catch (SQLException e) {
+                try { c.rollback(); } catch (Exception ignored) {}
+                throw e;
+            } finally {
+                try { c.setAutoCommit(true); } catch (Exception ignored) {}
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Stok emaneti ayrılamadı", e);
+        }
+    }
+
+    /** Kotaları serbest stoğa geri verir (sadece kota silinir; toplam stok değişmez). @return product_id -> iade edilen adet */
+    public static Map<Integer, Integer> release(String terminalId, Integer[] productIds) {
+        Map<Integer, Integer> released = new HashMap<>();
+        if (productIds.length == 0) return released;
+
+        String sql = """
+            DELETE FROM stock_escrow
+            WHERE terminal_id = ? AND product_id = ANY(?)
+            RETURNING product_id, quota
+        """;
+
+        try (Connection c = DatabaseConfig.getConnection(DatabaseConfig.Pool.MAINTENANCE);
+             PreparedStatement ps = c.prepareStatement(sql)) {
+
+            ps.setString(1, terminalId);
+            ps.setArray(2, c.createArrayOf("int4", productIds));
+
+            try (ResultSet rs = ps.executeQuery()) {
+                Rows.forEach(rs, sql, PRODUCT_QUOTA, r -> released.put(r[0], r[1]));
+            }
+            return released;
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Stok emaneti iade edilemedi", e);
+        }
+    }
+
+    /** Bu kasanın tüm kotalarını iade eder (kapanışta). */
+    public static void releaseAll(String terminalId) {
+        String sql = "DELETE FROM stock_escrow WHERE terminal_id = ?";
+
+        try (Connection c = DatabaseConfig.getConnection(DatabaseConfig.Pool.MAINTENANCE);
+             PreparedStatement ps = c.prepareStatement(sql)) {
+
+            ps.setString(1, terminalId);
+            ps.executeUpdate();
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Stok emaneti iade edilemedi", e);
+        }
+    }
+
+    /**
+     * Stok elle/sayımla kotaların altına indirildiyse o ürünlerin kotaları bırakılır
+     * (aksi halde kotadan satış toplam stoğu eksiye götürebilir). Aynı transaction içinde çağrılır.
+     */
+    static void dropExcessQuotas(Connection c, Integer[] productIds) throws SQLException {
+        String sql = """
+            DELETE FROM stock_escrow e
+            USING (
+                SELECT r.product_id
+                FROM (
+                    SELECT product_id, SUM(quota) AS reserved
+                    FROM stock_escrow WHERE product_id = ANY(?) GROUP BY product_id
+                ) r
+                JOIN v_products v ON v.id = r.product_id
+                WHERE v.stock < r.reserved
+            ) x
+            WHERE e.product_id = x.product_id
+        """;
+
+        try (PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setArray(1, c.createArrayOf("int4", productIds));
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Satış transaction'ı içinde kasanın kendi kotasından düşer.
+     * Sadece bu kasanın satırına dokunur -> diğer kasalarla kilit yarışı yok.
+     * Çağıran aynı transaction'da deftere bekleyen -adet yazar (StockLedgerDAO.INSERT_PENDING_SQL).
+     *
+     * @return true: kotadan düşüldü, false: kota yetmedi (products'tan düşülmeli)
+     */
+    public static boolean consume(PreparedStatement psConsume, String terminalId, int productId, int qty) throws SQLException {
+        psConsume.setInt(1, qty);
+        psConsume.setString(2, terminalId);
+        psConsume.setInt(3, productId);
+        psConsume.setInt(4, qty);
+        return psConsume.executeUpdate() > 0;
+    }
+
+    public static final String CONSUME_SQL =
+            "UPDATE stock_escrow SET quota = quota - ? WHERE terminal_id = ? AND product_id = ? AND quota >= ?";
+}
@@ -1,42 +1,39 @@
 package com.stockapp.dao;
 
+import com.stockapp.config.AppConfig;
 import com.stockapp.config.DatabaseConfig;
+import com.stockapp.event.DomainEvent;
+import com.stockapp.event.EventBus;
 import com.stockapp.model.Product;
+import com.stockapp.service.CategoryCache;
+import com.stockapp.service.ReorderEngine;
+import com.stockapp.service.SearchText;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public class ProductDAO {
 
     public static Optional<Product> findByBarcode(String barcode) {
         String sql = """
-            SELECT p.id, p.name, p.barcode, p.stock, p.price,
-                   p.category_id, c.name AS category_name
-            FROM products p
-            LEFT JOIN categories c ON c.id = p.category_id
+            SELECT p.id, p.name, p.barcode, p.stock, p.price, p.category_id
+            FROM v_products p
             WHERE p.barcode = ?
         """;
 
-        try (Connection c = DatabaseConfig.getAppConnection();
+        Map<Integer, String> categoryNames = CategoryCache.names(); // join yerine lokal
+
+        try (Connection c = DatabaseConfig.getConnection(DatabaseConfig.Pool.CHECKOUT);
              PreparedStatement ps = c.prepareStatement(sql)) {
 
             ps.setString(1, barcode);
 
             try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    return Optional.of(new Product(
-                            rs.getInt("id"),
-                            rs.getString("name"),
-                            rs.getString("barcode"),
-                            rs.getInt("category_id"),
-                            rs.getString("category_name"),
-                            rs.getInt("stock"),
-                            rs.getDouble("price")
-                    ));
-                }
-                return Optional.empty();
+                return Rows.first(rs, sql, PRODUCT).map(p -> named(p, categoryNames));
             }
 
         } catch (SQLException e) {
@@ -44,34 +41,43 @@ public class ProductDAO {
         }
     }
 
+    public static Optional<Product> findById(int id) {
+        String sql = """
+            SELECT p.id, p.name, p.barcode, p.stock, p.price, p.category_id
+            FROM v_products p
+            WHERE p.id = ?
+        """;
+
+        Map<Integer, String> categoryNames = CategoryCache.names(); // join yerine lokal
+
+        try (Connection c = DatabaseConfig.getAppConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+
+            ps.setInt(1, id);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                return Rows.first(rs, sql, PRODUCT).map(p -> named(p, categoryNames));
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Ürün bulunamadı: " + id, e);
+        }
+    }
+
     public static List<Product> findAll() {
         String sql = """
-        SELECT
-          p.id, p.name, p.barcode, p.stock, p.price, p.category_id,
-          c.name AS category_name
-        FROM products p
-        LEFT JOIN categories c ON c.id = p.category_id
+        SELECT p.id, p.name, p.barcode, p.stock, p.price, p.category_id
+        FROM v_products p
         ORDER BY p.id DESC
     """;
 
-        List<Product> list = new ArrayList<>();
+        Map<Integer, String> categoryNames = CategoryCache.names(); // join yerine lokal
 
         try (Connection c = DatabaseConfig.getAppConnection();
              PreparedStatement ps = c.prepareStatement(sql);
              ResultSet rs = ps.executeQuery()) {
 
-            while (rs.next()) {
-                list.add(new Product(
-                        rs.getInt("id"),
-                        rs.getString("name"),
-                        rs.getString("barcode"),
-                        rs.getInt("category_id"),
-                        rs.getString("category_name"),
-                        rs.getInt("stock"),
-                        rs.getDouble("price")
-                ));
-            }
-            return list;
+            return named(Rows.list(rs, sql, PRODUCT), categoryNames);
 
         } catch (SQLException e) {
             throw new RuntimeException("Ürünler getirilemedi", e);
@@ -79,105 +85,239 @@ public class ProductDAO {
     }
 
 
-    /**
-     * ✅ Daha hızlı arama:
-     * - barcode araması ayrı
-     * - name araması ayrı (ILIKE)
-     * Böylece barcode UNIQUE index ile direkt hızlanır.
-     *
-     * Not: %...% içeren LIKE için en iyi çözüm pg_trgm index (aşağıda not).
-     */
+    public record SearchHit(Product product, double score) {}
+
+    /** "Daha fazla yükle" için kaldığı yer: son satırın (skor, id) ikilisi. */
+    public record SearchCursor(double score, int id) {}
+
+    public record SearchPage(List<SearchHit> hits, SearchCursor next) {
+        public boolean hasMore() { return next != null; }
+    }
+
+    // Skor: tam barkod > barkod öneki > isim öneki, üstüne trigram benzerliği.
+    // WHERE'deki her koşul trigram / unique index'lerinden birini kullanabilir.
+    private static final String SEARCH_SQL = """
+        SELECT * FROM (
+            SELECT p.id, p.name, p.barcode, p.stock, p.price, p.category_id,
+                   (CASE WHEN p.barcode = ? THEN 3
+                         WHEN p.barcode LIKE ? THEN 2
+                         ELSE 0 END
+                    + CASE WHEN stockapp_fold(p.name) LIKE ? THEN 1 ELSE 0 END
+                    + GREATEST(word_similarity(?, stockapp_fold(p.name)), similarity(?, p.barcode))
+                   )::float8 AS score
+            FROM v_products p
+            WHERE p.barcode = ?
+               OR p.barcode LIKE ?
+               OR stockapp_fold(p.name) LIKE ?
+               OR ? <% stockapp_fold(p.name)
+        ) s
+        WHERE (?::float8 IS NULL OR (s.score, s.id) < (?::float8, ?::int))
+        ORDER BY s.score DESC, s.id DESC
+        LIMIT ?
+    """;
+
+    /** Eski imza: tek sayfa, en alakalı 200 sonuç. */
     public static List<Product> search(String q) {
         String trimmed = (q == null) ? "" : q.trim();
         if (trimmed.isEmpty()) {
             return findAll();
         }
 
-        // Eğer kullanıcı sadece sayı/uzun barkod yazdıysa önce barcode araması
-        boolean maybeBarcode = trimmed.length() >= 6;
-
         List<Product> list = new ArrayList<>();
+        for (SearchHit h : searchRanked(trimmed, 200, null).hits()) list.add(h.product());
+        return list;
+    }
 
-        // 1) barcode exact / prefix araması (çok hızlı)
-        if (maybeBarcode) {
-            String sqlBarcode = """
-                SELECT p.id, p.name, p.barcode, p.stock, p.price,
-                       p.category_id, c.name AS category_name
-                FROM products p
-                LEFT JOIN categories c ON c.id = p.category_id
-                WHERE p.barcode LIKE ?
-                ORDER BY p.id DESC
-                LIMIT 100
-            """;
+    /**
+     * ✅ Sıralı arama: barkod + isim tek sorguda, alaka skoruna göre ilk {@code limit} sonuç.
+     * Sonraki sayfa için dönen {@code next} cursor'ı {@code after} olarak ver.
+     */
+    public static SearchPage searchRanked(String q, int limit, SearchCursor after) {
+        String raw = (q == null) ? "" : q.trim();
+        if (raw.isEmpty()) return new SearchPage(List.of(), null);
 
-            try (Connection c = DatabaseConfig.getAppConnection();
-                 PreparedStatement ps = c.prepareStatement(sqlBarcode)) {
+        String folded = SearchText.fold(raw);
+        String barcodePrefix = escapeLike(raw) + "%";
+        String namePrefix = escapeLike(folded) + "%";
+        String nameContains = "%" + escapeLike(folded) + "%";
 
-                ps.setString(1, trimmed + "%");
+        List<SearchHit> hits;
 
-                try (ResultSet rs = ps.executeQuery()) {
-                    while (rs.next()) {
-                        list.add(new Product(
-                                rs.getInt("id"),
-                                rs.getString("name"),
-                                rs.getString("barcode"),
-                                rs.getInt("category_id"),
-                                rs.getString("category_name"),
-                                rs.getInt("stock"),
-                                rs.getDouble("price")
-                        ));
-                    }
-                }
+        Map<Integer, String> categoryNames = CategoryCache.names(); // join yerine lokal
 
-                // barcode sonuç geldiyse direkt dön (UI hızlı hisseder)
-                if (!list.isEmpty()) return list;
+        try (Connection c = DatabaseConfig.getAppConnection();
+             PreparedStatement ps = c.prepareStatement(SEARCH_SQL)) {
+
+            int i = 1;
+            ps.setString(i++, raw);
+            ps.setString(i++, barcodePrefix);
+            ps.setString(i++, namePrefix);
+            ps.setString(i++, folded);
+            ps.setString(i++, raw);
+
+            ps.setString(i++, raw);
+            ps.setString(i++, barcodePrefix);
+            ps.setString(i++, nameContains);
+            ps.setString(i++, folded);
+
+            if (after == null) {
+                ps.setNull(i++, Types.DOUBLE);
+                ps.setNull(i++, Types.DOUBLE);
+                ps.setNull(i++, Types.INTEGER);
+            } else {
+                ps.setDouble(i++, after.score());
+                ps.setDouble(i++, after.score());
+                ps.setInt(i++, after.id());
+            }
+            ps.setInt(i, limit + 1); // +1: devamı var mı?
 
-            } catch (SQLException e) {
-                throw new RuntimeException("Barkod arama hatası", e);
+            try (ResultSet rs = ps.executeQuery()) {
+                hits = Rows.list(rs, SEARCH_SQL, SEARCH_HIT);
             }
+            for (SearchHit h : hits) named(h.product(), categoryNames);
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Arama hatası", e);
         }
 
-        // 2) isim araması
-        String sqlName = """
-            SELECT p.id, p.name, p.barcode, p.stock, p.price,
-                   p.category_id, c.name AS category_name
-            FROM products p
-            LEFT JOIN categories c ON c.id = p.category_id
-            WHERE p.name ILIKE ?
-            ORDER BY p.id DESC
-            LIMIT 200
+        SearchCursor next = null;
+        if (hits.size() > limit) {
+            hits.remove(hits.size() - 1);
+            SearchHit last = hits.get(hits.size() - 1);
+            next = new SearchCursor(last.score(), last.product().getId());
+        }
+        return new SearchPage(hits, next);
+    }
+
+    /**
+     * Durumsuz: derlenen okuyucu SQL başına saklanabilir (Rows). Kategori adı JOIN ile değil,
+     * okumadan sonra CategoryCache'ten (named) -> hot sorgular categories'e dokunmaz.
+     */
+    private static final Rows.Mapper<Product> PRODUCT = cols -> {
+        int id = cols.of("id");
+        int name = cols.of("name");
+        int barcode = cols.of("barcode");
+        int categoryId = cols.of("category_id");
+        int stock = cols.of("stock");
+        int price = cols.of("price");
+
+        return rs -> new Product(
+                rs.getInt(id),
+                rs.getString(name),
+                rs.getString(barcode),
+                rs.getInt(categoryId),
+                null,
+                rs.getInt(stock),
+                rs.getDouble(price)
+        );
+    };
+
+    private static final Rows.Mapper<SearchHit> SEARCH_HIT = cols -> {
+        Rows.RowReader<Product> p = PRODUCT.compile(cols);
+        int score = cols.of("score");
+        return r -> new SearchHit(p.read(r), r.getDouble(score));
+    };
+
+    private static Product named(Product p, Map<Integer, String> categoryNames) {
+        p.setCategoryName(categoryNames.get(p.getCategoryId()));
+        return p;
+    }
+
+    private static List<Product> named(List<Product> list, Map<Integer, String> categoryNames) {
+        for (Product p : list) named(p, categoryNames);
+        return list;
+    }
+
+    private static String escapeLike(String s) {
+        return s.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private static final Rows.Mapper<int[]> PRODUCT_QTY = cols -> {
+        int id = cols.of("product_id"), qty = cols.of("qty");
+        return rs -> new int[]{rs.getInt(id), rs.getInt(qty)};
+    };
+
+    /** ✅ Son {@code days} günde ürün başına satılan adet (typeahead sıralaması için). */
+    public static Map<Integer, Integer> salesPopularity(int days) {
+        String sql = """
+            SELECT si.product_id, SUM(si.quantity)::int AS qty
+            FROM sale_items si
+            JOIN sales s ON s.id = si.sale_id
+            WHERE s.sale_date >= NOW() - (? || ' days')::interval
+            GROUP BY si.product_id
         """;
 
-        try (Connection c = DatabaseConfig.getAppConnection();
-             PreparedStatement ps = c.prepareStatement(sqlName)) {
+        Map<Integer, Integer> map = new HashMap<>();
 
-            ps.setString(1, "%" + trimmed + "%");
+        try (Connection c = DatabaseConfig.getReadConnection(DatabaseConfig.Pool.REPORTING, DatabaseConfig.Freshness.RELAXED);
+             PreparedStatement ps = c.prepareStatement(sql)) {
+
+            ps.setInt(1, days);
 
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    list.add(new Product(
-                            rs.getInt("id"),
-                            rs.getString("name"),
-                            rs.getString("barcode"),
-                            rs.getInt("category_id"),
-                            rs.getString("category_name"),
-                            rs.getInt("stock"),
-                            rs.getDouble("price")
-                    ));
-                }
+                Rows.forEach(rs, sql, PRODUCT_QTY, r -> map.put(r[0], r[1]));
             }
+            return map;
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Satış popülerliği alınamadı", e);
+        }
+    }
+
+    /**
+     * ✅ Prefetch için: son {@code days} günde en sık satılan ilk {@code limit} ürün.
+     * Şu anki saat dilimindeki satışlar (hours) ekstra ağırlık alır.
+     * Tek sorgu; tüm kataloğu çekmez.
+     */
+    public static List<Product> findTopSelling(int limit, int days, Integer[] hours) {
+        String sql = """
+            SELECT p.id, p.name, p.barcode, p.stock, p.price, p.category_id
+            FROM (
+                SELECT si.product_id,
+                       COUNT(*) AS freq,
+                       COUNT(*) FILTER (WHERE EXTRACT(HOUR FROM s.sale_date)::int = ANY(?)) AS hour_freq
+                FROM sale_items si
+                JOIN sales s ON s.id = si.sale_id
+                WHERE s.sale_date >= NOW() - (? || ' days')::interval
+                GROUP BY si.product_id
+                ORDER BY 2 * COUNT(*) FILTER (WHERE EXTRACT(HOUR FROM s.sale_date)::int = ANY(?)) + COUNT(*) DESC
+                LIMIT ?
+            ) t
+            JOIN v_products p ON p.id = t.product_id
+        """;
+
+        Map<Integer, String> categoryNames = CategoryCache.names(); // join yerine lokal
 
-            return list;
+        try (Connection c = DatabaseConfig.getReadConnection(DatabaseConfig.Pool.REPORTING, DatabaseConfig.Freshness.RELAXED);
+             PreparedStatement ps = c.prepareStatement(sql)) {
+
+            Array hourArr = c.createArrayOf("int4", hours);
+            ps.setArray(1, hourArr);
+            ps.setInt(2, days);
+            ps.setArray(3, hourArr);
+            ps.setInt(4, limit);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                return named(Rows.list(rs, sql, PRODUCT), categoryNames);
+            }
 
         } catch (SQLException e) {
-            throw new RuntimeException("Arama hatası", e);
+            throw new RuntimeException("Çok satan ürünler alınamadı", e);
         }
     }
 
     public static void insert(Product p) {
         String sql = """
-            INSERT INTO products (name, barcode, category_id, stock, price)
-            VALUES (?, ?, ?, ?, ?)
+            WITH np AS (
+                INSERT INTO products (name, barcode, category_id, stock, price)
+                VALUES (?, ?, ?, ?, ?)
+                RETURNING id, stock
+            ), mv AS (
+                -- açılış stoğu deftere (replay'de toplam tutsun)
+                INSERT INTO stock_movements(product_id, delta, reason, terminal_id, applied)
+                SELECT id, stock, 'OPENING', ?, true FROM np WHERE stock <> 0
+            )
+            SELECT id FROM np
         """;
 
         try (Connection c = DatabaseConfig.getAppConnection();
@@ -188,8 +328,14 @@ public class ProductDAO {
             ps.setInt(3, p.getCategoryId());
             ps.setInt(4, p.getStock());
             ps.setDouble(5, p.getPrice());
+            ps.setString(6, AppConfig.terminalId());
+
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                p.setId(rs.getInt(1));
+            }
 
-            ps.executeUpdate();
+            EventBus.publish(new DomainEvent.ProductChanged(p.getId(), p.getBarcode(), DomainEvent.Kind.CREATED));
 
         } catch (SQLException e) {
             throw new RuntimeException("Ürün eklenemedi", e);
@@ -201,6 +347,7 @@ public class ProductDAO {
             UPDATE products
             SET name = ?, price = ?, category_id = ?
             WHERE id = ?
+            RETURNING barcode
         """;
 
         try (Connection c = DatabaseConfig.getAppConnection();
@@ -211,7 +358,11 @@ public class ProductDAO {
             ps.setInt(3, categoryId);
             ps.setInt(4, id);
 
-            ps.executeUpdate();
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    EventBus.publish(new DomainEvent.ProductChanged(id, rs.getString(1), DomainEvent.Kind.UPDATED));
+                }
+            }
 
         } catch (SQLException e) {
             throw new RuntimeException("Ürün güncellenemedi", e);
@@ -219,87 +370,182 @@ public class ProductDAO {
     }
 
     public static void increaseStock(String barcode, int delta) {
-        String sql = "UPDATE products SET stock = stock + ? WHERE barcode = ?";
+        increaseStock(barcode, delta, StockLedgerDAO.Reason.ENTRY);
+    }
 
-        try (Connection c = DatabaseConfig.getAppConnection();
-             PreparedStatement ps = c.prepareStatement(sql)) {
+    /**
+     * ✅ Artış products satırını kilitlemez: deftere bekleyen hareket olarak eklenir,
+     * güncel stok v_products'ta hemen görünür, snapshot'a arka planda katlanır.
+     * @return yeni güncel stok; barkod yoksa -1
+     */
+    public static int increaseStock(String barcode, int delta, StockLedgerDAO.Reason reason) {
+        int[] r = StockLedgerDAO.appendPending(barcode, delta, reason);
+        if (r == null) return -1;
 
-            ps.setInt(1, delta);
-            ps.setString(2, barcode);
-            ps.executeUpdate();
+        EventBus.publish(new DomainEvent.StockChanged(r[0], barcode, r[1]));
+        return r[1];
+    }
 
-        } catch (SQLException e) {
-            throw new RuntimeException("Stok artırma hatası", e);
+    /**
+     * ✅ Mal kabul: tüm satırlar tek statement, tek transaction (satır başına round-trip yok).
+     * Aynı oturum kimliği ikinci kez işlenmez.
+     * @return stoka işlenen ürün sayısı; oturum daha önce işlenmişse -1
+     */
+    public static int increaseStockBatch(String sessionId, List<String> barcodes, List<Integer> deltas) {
+        List<StockLedgerDAO.StockLevel> levels = StockLedgerDAO.appendPendingBatch(sessionId,
+                barcodes.toArray(new String[0]), deltas.toArray(new Integer[0]), StockLedgerDAO.Reason.ENTRY);
+        if (levels == null) return -1;
+
+        for (StockLedgerDAO.StockLevel l : levels) {
+            EventBus.publish(new DomainEvent.StockChanged(l.productId(), l.barcode(), l.stock()));
         }
+        return levels.size();
     }
 
     public static void setStock(String barcode, int newStock) {
-        String sql = "UPDATE products SET stock = ? WHERE barcode = ?";
+        setStock(barcode, newStock, StockLedgerDAO.Reason.SET);
+    }
 
-        try (Connection c = DatabaseConfig.getAppConnection();
-             PreparedStatement ps = c.prepareStatement(sql)) {
+    public static void setStock(String barcode, int newStock, StockLedgerDAO.Reason reason) {
+        String sql = """
+            UPDATE products p
+            SET stock = ?
+            FROM (SELECT id, stock AS old_stock FROM products WHERE barcode = ? FOR UPDATE) o
+            WHERE p.id = o.id
+            RETURNING p.id, p.stock, o.old_stock
+        """;
 
-            ps.setInt(1, newStock);
-            ps.setString(2, barcode);
-            ps.executeUpdate();
+        inTransaction("Stok set hatası", c -> {
+            StockLedgerDAO.foldPendingByBarcode(c, barcode);
 
-        } catch (SQLException e) {
-            throw new RuntimeException("Stok set hatası", e);
-        }
+            try (PreparedStatement ps = c.prepareStatement(sql)) {
+                ps.setInt(1, newStock);
+                ps.setString(2, barcode);
+
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next()) return null;
+                    int id = rs.getInt("id");
+                    int delta = newStock - rs.getInt("old_stock");
+                    if (delta != 0) StockLedgerDAO.appendApplied(c, id, delta, reason, null);
+                    // kasaların ayırdığı kota yeni stoğa sığmıyorsa bırakılır
+                    EscrowDAO.dropExcessQuotas(c, new Integer[]{id});
+                    return new DomainEvent.StockChanged(id, barcode, newStock);
+                }
+            }
+        });
     }
 
-    public static void decreaseStock(String barcode, int delta) {
+    /** @return yeni güncel stok */
+    public static int decreaseStock(String barcode, int delta) {
+        // kasalara ayrılmış emanet kotası elle düşülemez (serbest stok = toplam - kotalar)
         String sql = """
             UPDATE products
             SET stock = stock - ?
-            WHERE barcode = ? AND stock >= ?
-        """;
+            WHERE barcode = ? AND %s >= ?
+            RETURNING id, stock
+        """.formatted(EscrowDAO.FREE_STOCK_SQL);
 
-        try (Connection c = DatabaseConfig.getAppConnection();
-             PreparedStatement ps = c.prepareStatement(sql)) {
+        DomainEvent.StockChanged ev = inTransaction("Stok düşme hatası", c -> {
+            // bekleyen artışlar guard'dan önce snapshot'a katlanır
+            StockLedgerDAO.foldPendingByBarcode(c, barcode);
 
-            ps.setInt(1, delta);
-            ps.setString(2, barcode);
-            ps.setInt(3, delta);
+            try (PreparedStatement ps = c.prepareStatement(sql)) {
+                ps.setInt(1, delta);
+                ps.setString(2, barcode);
+                ps.setInt(3, delta);
 
-            int affected = ps.executeUpdate();
-            if (affected == 0) {
-                throw new RuntimeException("Stok yetersiz, düşülemedi.");
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next()) return null;
+                    int id = rs.getInt("id");
+                    StockLedgerDAO.appendApplied(c, id, -delta, StockLedgerDAO.Reason.MANUAL_DEC, null);
+                    return new DomainEvent.StockChanged(id, barcode, rs.getInt("stock"));
+                }
             }
+        });
 
+        if (ev == null) {
+            throw new RuntimeException("Stok yetersiz, düşülemedi.");
+        }
+        return ev.newStock();
+    }
+
+    private interface TxWork<T> {
+        T run(Connection c) throws SQLException;
+    }
+
+    /** Tek transaction; commit sonrası sonuç bir olaysa yayınlar. */
+    private static <T> T inTransaction(String errorMsg, TxWork<T> work) {
+        try (Connection c = DatabaseConfig.getAppConnection()) {
+            c.setAutoCommit(false);
+            try {
+                T result = work.run(c);
+                c.commit();
+                if (result instanceof DomainEvent ev) EventBus.publish(ev);
+                return result;
+            } catch (Exception e) {
+                try { c.rollback(); } catch (Exception ignored) {}
+                throw e;
+            } finally {
+                try { c.setAutoCommit(true); } catch (Exception ignored) {}
+            }
         } catch (SQLException e) {
-            throw new RuntimeException("Stok düşme hatası", e);
+            throw new RuntimeException(errorMsg, e);
         }
     }
 
-    public static List<Product> getCriticalProducts() {
+    /** Kritik stok satırı: günlük hız ve sipariş noktası product_velocity'den (ReorderEngine). */
+    public record CriticalRow(int id, String name, String barcode, int stock, double price,
+                              double velocity, int reorderPoint) {
+        /** Stok kaç gün yeter (hız yoksa null). */
+        public Double daysOfCover() {
+            return velocity > 0 ? Math.max(stock, 0) / velocity : null;
+        }
+    }
+
+    // ReorderEngine.isCritical ile aynı kural; geçmişi olmayan ürün varsayılan noktayı kullanır
+    private static final String CRITICAL_WHERE =
+            "p.stock <= 0 OR p.stock < COALESCE(v.reorder_point, ?)";
+
+    private static final Rows.Mapper<CriticalRow> CRITICAL_ROW = cols -> {
+        int id = cols.of("id");
+        int name = cols.of("name");
+        int barcode = cols.of("barcode");
+        int stock = cols.of("stock");
+        int price = cols.of("price");
+        int velocity = cols.of("velocity");
+        int reorderPoint = cols.of("reorder_point");
+
+        return rs -> new CriticalRow(
+                rs.getInt(id),
+                rs.getString(name),
+                rs.getString(barcode),
+                rs.getInt(stock),
+                rs.getDouble(price),
+                rs.getDouble(velocity),
+                rs.getInt(reorderPoint)
+        );
+    };
+
+    public static List<CriticalRow> getCriticalProducts() {
         String sql = """
             SELECT p.id, p.name, p.barcode, p.stock, p.price,
-                   p.category_id, c.name AS category_name
-            FROM products p
-            LEFT JOIN categories c ON c.id = p.category_id
-            WHERE p.stock < 10
-            ORDER BY p.stock ASC
-        """;
-
-        List<Product> list = new ArrayList<>();
+                   COALESCE(v.velocity, 0) AS velocity,
+                   COALESCE(v.reorder_point, ?) AS reorder_point
+            FROM v_products p
+            LEFT JOIN product_velocity v ON v.product_id = p.id
+            WHERE %s
+            ORDER BY p.stock / NULLIF(v.velocity, 0) ASC NULLS LAST, p.stock ASC
+        """.formatted(CRITICAL_WHERE);
 
         try (Connection c = DatabaseConfig.getAppConnection();
-             PreparedStatement ps = c.prepareStatement(sql);
-             ResultSet rs = ps.executeQuery()) {
+             PreparedStatement ps = c.prepareStatement(sql)) {
 
-            while (rs.next()) {
-                list.add(new Product(
-                        rs.getInt("id"),
-                        rs.getString("name"),
-                        rs.getString("barcode"),
-                        rs.getInt("category_id"),
-                        rs.getString("category_name"),
-                        rs.getInt("stock"),
-                        rs.getDouble("price")
-                ));
+            ps.setInt(1, ReorderEngine.defaultPoint());
+            ps.setInt(2, ReorderEngine.defaultPoint());
+
+            try (ResultSet rs = ps.executeQuery()) {
+                return Rows.list(rs, sql, CRITICAL_ROW);
             }
-            return list;
 
         } catch (SQLException e) {
             throw new RuntimeException("Kritik ürünler alınamadı", e);
@@ -307,14 +553,22 @@ public class ProductDAO {
     }
 
     public static int countCriticalProducts() {
-        String sql = "SELECT COUNT(*) FROM products WHERE stock < 10";
+        String sql = """
+            SELECT COUNT(*)
+            FROM v_products p
+            LEFT JOIN product_velocity v ON v.product_id = p.id
+            WHERE %s
+        """.formatted(CRITICAL_WHERE);
 
-        try (Connection c = DatabaseConfig.getAppConnection();
-             PreparedStatement ps = c.prepareStatement(sql);
-             ResultSet rs = ps.executeQuery()) {
+        try (Connection c = DatabaseConfig.getReadConnection(DatabaseConfig.Pool.INTERACTIVE, DatabaseConfig.Freshness.RECENT);
+             PreparedStatement ps = c.prepareStatement(sql)) {
 
-            if (rs.next()) return rs.getInt(1);
-            return 0;
+            ps.setInt(1, ReorderEngine.defaultPoint());
+
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) return rs.getInt(1);
+                return 0;
+            }
 
         } catch (Exception e) {
             throw new RuntimeException("Kritik ürün sayısı alınamadı", e);
@@ -324,7 +578,7 @@ public class ProductDAO {
     public static int countAllProducts() {
         String sql = "SELECT COUNT(*) FROM products";
 
-        try (Connection c = DatabaseConfig.getAppConnection();
+        try (Connection c = DatabaseConfig.getReadConnection(DatabaseConfig.Pool.INTERACTIVE, DatabaseConfig.Freshness.RECENT);
              PreparedStatement ps = c.prepareStatement(sql);
              ResultSet rs = ps.executeQuery()) {
 
@@ -337,13 +591,17 @@ public class ProductDAO {
     }
 
     public static void deleteById(int productId) {
-        String sql = "DELETE FROM products WHERE id = ?";
+        String sql = "DELETE FROM products WHERE id = ? RETURNING barcode";
 
         try (Connection c = DatabaseConfig.getAppConnection();
              PreparedStatement ps = c.prepareStatement(sql)) {
 
             ps.setInt(1, productId);
-            ps.executeUpdate();
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    EventBus.publish(new DomainEvent.ProductChanged(productId, rs.getString(1), DomainEvent.Kind.DELETED));
+                }
+            }
 
         } catch (Exception e) {
             throw new RuntimeException("Ürün silinemedi", e);
@@ -7,18 +7,105 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
 
 public class ReportsDAO {
 
     public record TopProductRow(String name, String barcode, int totalQty) {}
     public record CategorySummaryRow(String category, int totalQty, double revenue) {}
-    public record DailyRevenueRow(LocalDate day, double revenue) {}
+
+    /**
+     * Grafik kovası. DAY/WEEK date_bin ile (hafta pazartesi başlar), MONTH date_trunc ile;
+     * date_bin ay/yıl aralığını desteklemiyor.
+     */
+    public enum Bucket {
+        DAY("date_bin(INTERVAL '1 day', sale_date, TIMESTAMP '2001-01-01')"),
+        WEEK("date_bin(INTERVAL '7 days', sale_date, TIMESTAMP '2001-01-01')"),
+        MONTH("date_trunc('month', sale_date)");
+
+        private final String expr;
+
+        Bucket(String expr) {
+            this.expr = expr;
+        }
+
+        public LocalDateTime next(LocalDateTime start) {
+            return switch (this) {
+                case DAY -> start.plusDays(1);
+                case WEEK -> start.plusWeeks(1);
+                case MONTH -> start.plusMonths(1);
+            };
+        }
+
+        /** Aralık uzunluğuna göre: 3 aya kadar gün, 2 yıla kadar hafta, sonrası ay. */
+        public static Bucket forRange(LocalDateTime from, LocalDateTime toExclusive) {
+            long days = ChronoUnit.DAYS.between(from, toExclusive);
+            if (days <= 92) return DAY;
+            if (days <= 731) return WEEK;
+            return MONTH;
+        }
+    }
+
+    /** [start, end) aralığındaki ciro ve fiş sayısı; end rapor sonunu aşmaz. */
+    public record RevenuePoint(LocalDateTime start, LocalDateTime end, double revenue, int receipts) {}
+    public record RevenueSeries(Bucket bucket, List<RevenuePoint> points) {}
+
+    public record HourlySalesRow(int hour, long revenueCents, int receipts, long items, Integer[] saleIds) {}
+    public record ProductQtyRow(LocalDateTime at, int productId, int qty) {}
 
     public record SaleRow(int saleId, LocalDateTime saleDate, double totalAmount) {}
     public record ReceiptItemRow(String name, String barcode, int qty, double unitPrice, double lineTotal) {}
     public record ReceiptRow(int saleId, LocalDateTime saleDate, double totalAmount, List<ReceiptItemRow> items) {}
 
+    // =========================
+    // ✅ SATIR EŞLEYİCİLER (kolon index'leri SQL başına 1 kez, Rows saklar)
+    // =========================
+
+    private static final Rows.Mapper<TopProductRow> TOP_PRODUCT = cols -> {
+        int name = cols.of("name"), barcode = cols.of("barcode"), qty = cols.of("total_qty");
+        return rs -> new TopProductRow(rs.getString(name), rs.getString(barcode), rs.getInt(qty));
+    };
+
+    private static final Rows.Mapper<CategorySummaryRow> CATEGORY_SUMMARY = cols -> {
+        int name = cols.of("category_name"), qty = cols.of("total_qty"), revenue = cols.of("revenue");
+        return rs -> new CategorySummaryRow(rs.getString(name), rs.getInt(qty), rs.getDouble(revenue));
+    };
+
+    private static final Rows.Mapper<ProductQtyRow> PRODUCT_QTY = cols -> {
+        int at = cols.of("at"), productId = cols.of("product_id"), qty = cols.of("qty");
+        return rs -> new ProductQtyRow(rs.getObject(at, LocalDateTime.class), rs.getInt(productId), rs.getInt(qty));
+    };
+
+    private static final Rows.Mapper<HourlySalesRow> HOURLY = cols -> {
+        int h = cols.of("h"), revenue = cols.of("revenue"), receipts = cols.of("receipts"),
+                items = cols.of("items"), saleIds = cols.of("sale_ids");
+        return rs -> new HourlySalesRow(
+                rs.getInt(h),
+                rs.getBigDecimal(revenue).movePointRight(2).longValue(),
+                rs.getInt(receipts),
+                rs.getLong(items),
+                (Integer[]) rs.getArray(saleIds).getArray()
+        );
+    };
+
+    private static final Rows.Mapper<SaleRow> SALE = cols -> {
+        int id = cols.of("id"), date = cols.of("sale_date"), total = cols.of("total_amount");
+        return rs -> new SaleRow(rs.getInt(id), rs.getObject(date, LocalDateTime.class), rs.getDouble(total));
+    };
+
+    private static final Rows.Mapper<ReceiptItemRow> RECEIPT_ITEM = cols -> {
+        int name = cols.of("name"), barcode = cols.of("barcode"), qty = cols.of("quantity"),
+                unitPrice = cols.of("unit_price"), lineTotal = cols.of("line_total");
+        return rs -> new ReceiptItemRow(
+                rs.getString(name),
+                rs.getString(barcode),
+                rs.getInt(qty),
+                rs.getDouble(unitPrice),
+                rs.getDouble(lineTotal)
+        );
+    };
+
     public static double getRevenue(LocalDateTime from, LocalDateTime toExclusive) {
         String sql = """
             SELECT COALESCE(SUM(total_amount), 0) AS revenue
@@ -26,7 +113,7 @@ public class ReportsDAO {
             WHERE sale_date >= ? AND sale_date < ?
         """;
 
-        try (Connection c = DatabaseConfig.getAppConnection();
+        try (Connection c = DatabaseConfig.getReadConnection(DatabaseConfig.Pool.REPORTING, DatabaseConfig.Freshness.RELAXED);
              PreparedStatement ps = c.prepareStatement(sql)) {
 
             ps.setObject(1, from);
@@ -53,30 +140,86 @@ public class ReportsDAO {
             ORDER BY total_qty DESC
         """;
 
-        List<TopProductRow> list = new ArrayList<>();
-
-        try (Connection c = DatabaseConfig.getAppConnection();
+        try (Connection c = DatabaseConfig.getReadConnection(DatabaseConfig.Pool.REPORTING, DatabaseConfig.Freshness.RELAXED);
              PreparedStatement ps = c.prepareStatement(sql)) {
 
             ps.setObject(1, from);
             ps.setObject(2, toExclusive);
 
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    list.add(new TopProductRow(
-                            rs.getString("name"),
-                            rs.getString("barcode"),
-                            rs.getInt("total_qty")
-                    ));
-                }
+                return Rows.list(rs, sql, TOP_PRODUCT);
             }
-            return list;
 
         } catch (Exception e) {
             throw new RuntimeException("Top products alınamadı", e);
         }
     }
 
+    /**
+     * Ürün bazında satılan adet, zaman kovalarına bölünmüş (TrendingTracker'ı doldurmak için):
+     * recentFrom'dan sonrası dakika, öncesi saat çözünürlüğünde. Satırlar liste kurulmadan akıtılır.
+     * Aynı snapshot'ta recentFrom sonrası fişlerin id'leri {@code recentSaleIds}'e yazılır: çağıran,
+     * bu sırada gelen satış olaylarından hangilerinin zaten sayıldığını bilir.
+     * @return satır sayısı
+     */
+    public static int forEachProductQtyBucket(LocalDateTime from, LocalDateTime recentFrom, LocalDateTime toExclusive,
+                                              Set<Integer> recentSaleIds, Rows.RowCallback<ProductQtyRow> callback) {
+        String sql = """
+            SELECT CASE WHEN s.sale_date >= ? THEN date_trunc('minute', s.sale_date)
+                        ELSE date_trunc('hour', s.sale_date) END AS at,
+                   si.product_id,
+                   SUM(si.quantity) AS qty
+            FROM sale_items si
+            JOIN sales s ON s.id = si.sale_id
+            WHERE s.sale_date >= ? AND s.sale_date < ?
+            GROUP BY 1, 2
+        """;
+
+        try (Connection c = DatabaseConfig.getReadConnection(DatabaseConfig.Pool.REPORTING, DatabaseConfig.Freshness.RELAXED)) {
+            boolean oldAuto = c.getAutoCommit();
+            int oldIso = c.getTransactionIsolation();
+
+            // id listesi ve kovalar aynı snapshot'tan
+            c.setAutoCommit(false);
+            c.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+
+            try {
+                try (PreparedStatement ps = c.prepareStatement(
+                        "SELECT id FROM sales WHERE sale_date >= ? AND sale_date < ?")) {
+                    ps.setObject(1, recentFrom);
+                    ps.setObject(2, toExclusive);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) recentSaleIds.add(rs.getInt(1));
+                    }
+                }
+
+                int n;
+                try (PreparedStatement ps = c.prepareStatement(sql)) {
+                    ps.setFetchSize(Rows.FETCH_SIZE); // autoCommit kapalı: sürücü cursor'la parça parça çeker
+                    ps.setObject(1, recentFrom);
+                    ps.setObject(2, from);
+                    ps.setObject(3, toExclusive);
+
+                    try (ResultSet rs = ps.executeQuery()) {
+                        n = Rows.forEach(rs, sql, PRODUCT_QTY, callback);
+                    }
+                }
+                c.commit();
+                return n;
+
+            } catch (Exception e) {
+                c.rollback();
+                throw e;
+            } finally {
+                c.setTransactionIsolation(oldIso);
+                c.setAutoCommit(oldAuto);
+            }
+
+        } catch (Exception e) {
+            throw new RuntimeException("Ürün satış kovaları alınamadı", e);
+        }
+    }
+
     public static List<CategorySummaryRow> getCategorySummary(LocalDateTime from, LocalDateTime toExclusive) {
         String sql = """
             SELECT COALESCE(c.name, 'Genel') AS category_name,
@@ -91,58 +234,86 @@ public class ReportsDAO {
             ORDER BY revenue DESC
         """;
 
-        List<CategorySummaryRow> list = new ArrayList<>();
-
-        try (Connection c = DatabaseConfig.getAppConnection();
+        try (Connection c = DatabaseConfig.getReadConnection(DatabaseConfig.Pool.REPORTING, DatabaseConfig.Freshness.RELAXED);
              PreparedStatement ps = c.prepareStatement(sql)) {
 
             ps.setObject(1, from);
             ps.setObject(2, toExclusive);
 
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    list.add(new CategorySummaryRow(
-                            rs.getString("category_name"),
-                            rs.getInt("total_qty"),
-                            rs.getDouble("revenue")
-                    ));
-                }
+                return Rows.list(rs, sql, CATEGORY_SUMMARY);
             }
-            return list;
 
         } catch (Exception e) {
             throw new RuntimeException("Kategori raporu alınamadı", e);
         }
     }
 
-    public static List<DailyRevenueRow> getDailyRevenue(LocalDateTime from, LocalDateTime toExclusive) {
+    /** Ciro + fiş sayısı tek sorguda, kova boyu aralığa göre otomatik seçilir. */
+    public static RevenueSeries getRevenueSeries(LocalDateTime from, LocalDateTime toExclusive) {
+        Bucket bucket = Bucket.forRange(from, toExclusive);
+
         String sql = """
-            SELECT DATE(sale_date) AS day, COALESCE(SUM(total_amount), 0) AS revenue
+            SELECT %s AS bucket,
+                   COALESCE(SUM(total_amount), 0) AS revenue,
+                   COUNT(*) AS receipts
             FROM sales
             WHERE sale_date >= ? AND sale_date < ?
-            GROUP BY DATE(sale_date)
-            ORDER BY day ASC
-        """;
+            GROUP BY 1
+            ORDER BY 1 ASC
+        """.formatted(bucket.expr);
 
-        List<DailyRevenueRow> list = new ArrayList<>();
-
-        try (Connection c = DatabaseConfig.getAppConnection();
+        try (Connection c = DatabaseConfig.getReadConnection(DatabaseConfig.Pool.REPORTING, DatabaseConfig.Freshness.RELAXED);
              PreparedStatement ps = c.prepareStatement(sql)) {
 
             ps.setObject(1, from);
             ps.setObject(2, toExclusive);
 
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    LocalDate day = rs.getDate("day").toLocalDate();
-                    double rev = rs.getDouble("revenue");
-                    list.add(new DailyRevenueRow(day, rev));
-                }
+                List<RevenuePoint> list = Rows.list(rs, cols -> {
+                    int b = cols.of("bucket"), revenue = cols.of("revenue"), receipts = cols.of("receipts");
+                    return r -> {
+                        LocalDateTime start = r.getObject(b, LocalDateTime.class);
+                        // ilk/son kova rapor sınırlarını aşmasın (ör. hafta ayın ortasında başlar)
+                        LocalDateTime s0 = start.isBefore(from) ? from : start;
+                        LocalDateTime e0 = bucket.next(start);
+                        if (e0.isAfter(toExclusive)) e0 = toExclusive;
+
+                        return new RevenuePoint(s0, e0, r.getDouble(revenue), r.getInt(receipts));
+                    };
+                });
+                return new RevenueSeries(bucket, list);
             }
-            return list;
 
         } catch (Exception e) {
-            throw new RuntimeException("Günlük ciro alınamadı", e);
+            throw new RuntimeException("Ciro serisi alınamadı", e);
+        }
+    }
+
+    /** Bugünün saatlik toplamları (LiveSalesStats seed'i). NOTIFY primary'den geldiği için primary'den okunur. */
+    public static List<HourlySalesRow> getTodayHourly() {
+        String sql = """
+            SELECT EXTRACT(HOUR FROM s.sale_date)::int AS h,
+                   COALESCE(SUM(s.total_amount), 0) AS revenue,
+                   COUNT(*) AS receipts,
+                   COALESCE(SUM(x.items), 0) AS items,
+                   array_agg(s.id) AS sale_ids
+            FROM sales s
+            LEFT JOIN LATERAL (
+                SELECT SUM(si.quantity) AS items FROM sale_items si WHERE si.sale_id = s.id
+            ) x ON true
+            WHERE s.sale_date >= CURRENT_DATE AND s.sale_date < CURRENT_DATE + 1
+            GROUP BY 1
+        """;
+
+        try (Connection c = DatabaseConfig.getReadConnection(DatabaseConfig.Pool.INTERACTIVE, DatabaseConfig.Freshness.STRICT);
+             PreparedStatement ps = c.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+
+            return Rows.list(rs, sql, HOURLY);
+
+        } catch (Exception e) {
+            throw new RuntimeException("Bugünün satışları alınamadı", e);
         }
     }
 
@@ -155,9 +326,7 @@ public class ReportsDAO {
             LIMIT ?
         """;
 
-        List<SaleRow> list = new ArrayList<>();
-
-        try (Connection c = DatabaseConfig.getAppConnection();
+        try (Connection c = DatabaseConfig.getReadConnection(DatabaseConfig.Pool.REPORTING, DatabaseConfig.Freshness.RELAXED);
              PreparedStatement ps = c.prepareStatement(sql)) {
 
             ps.setObject(1, from);
@@ -165,15 +334,8 @@ public class ReportsDAO {
             ps.setInt(3, limit);
 
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    list.add(new SaleRow(
-                            rs.getInt("id"),
-                            rs.getTimestamp("sale_date").toLocalDateTime(),
-                            rs.getDouble("total_amount")
-                    ));
-                }
+                return Rows.list(rs, sql, SALE);
             }
-            return list;
 
         } catch (Exception e) {
             throw new RuntimeException("Fiş listesi alınamadı", e);
@@ -181,7 +343,8 @@ public class ReportsDAO {
     }
 
     public static ReceiptRow getReceipt(int saleId) {
-        try (Connection c = DatabaseConfig.getAppConnection()) {
+        // fiş satıştan hemen sonra açılabilir: primary
+        try (Connection c = DatabaseConfig.getReadConnection(DatabaseConfig.Pool.INTERACTIVE, DatabaseConfig.Freshness.STRICT)) {
 
             LocalDateTime saleDate;
             double total;
@@ -192,30 +355,24 @@ public class ReportsDAO {
                 ps.setInt(1, saleId);
                 try (ResultSet rs = ps.executeQuery()) {
                     if (!rs.next()) throw new RuntimeException("Fiş bulunamadı: " + saleId);
-                    saleDate = rs.getTimestamp("sale_date").toLocalDateTime();
+                    saleDate = rs.getObject("sale_date", LocalDateTime.class);
                     total = rs.getDouble("total_amount");
                 }
             }
 
-            List<ReceiptItemRow> items = new ArrayList<>();
-            try (PreparedStatement ps = c.prepareStatement("""
+            String itemsSql = """
                 SELECT p.name, p.barcode, si.quantity, si.unit_price, si.line_total
                 FROM sale_items si
                 JOIN products p ON p.id = si.product_id
                 WHERE si.sale_id = ?
                 ORDER BY si.id ASC
-            """)) {
+            """;
+
+            List<ReceiptItemRow> items;
+            try (PreparedStatement ps = c.prepareStatement(itemsSql)) {
                 ps.setInt(1, saleId);
                 try (ResultSet rs = ps.executeQuery()) {
-                    while (rs.next()) {
-                        items.add(new ReceiptItemRow(
-                                rs.getString("name"),
-                                rs.getString("barcode"),
-                                rs.getInt("quantity"),
-                                rs.getDouble("unit_price"),
-                                rs.getDouble("line_total")
-                        ));
-                    }
+                    items = Rows.list(rs, itemsSql, RECEIPT_ITEM);
                 }
             }
 
@@ -236,7 +393,7 @@ public class ReportsDAO {
         LocalDateTime from = day.atStartOfDay();
         LocalDateTime toExclusive = day.plusDays(1).atStartOfDay();
 
-        try (Connection c = DatabaseConfig.getAppConnection();
+        try (Connection c = DatabaseConfig.getReadConnection(DatabaseConfig.Pool.REPORTING, DatabaseConfig.Freshness.RELAXED);
              PreparedStatement ps = c.prepareStatement(sql)) {
 
             ps.setObject(1, from);
@@ -258,38 +415,9 @@ public class ReportsDAO {
         return getSales(from, toExclusive, limit);
     }
 
-    public static Map<LocalDate, Integer> getReceiptCountsByDay(LocalDateTime from, LocalDateTime toExclusive) {
-        String sql = """
-            SELECT DATE(sale_date) AS day, COUNT(*) AS cnt
-            FROM sales
-            WHERE sale_date >= ? AND sale_date < ?
-            GROUP BY DATE(sale_date)
-        """;
-
-        Map<LocalDate, Integer> map = new HashMap<>();
-
-        try (Connection c = DatabaseConfig.getAppConnection();
-             PreparedStatement ps = c.prepareStatement(sql)) {
-
-            ps.setObject(1, from);
-            ps.setObject(2, toExclusive);
-
-            try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    map.put(rs.getDate("day").toLocalDate(), rs.getInt("cnt"));
-                }
-            }
-
-            return map;
-
-        } catch (Exception e) {
-            throw new RuntimeException("Günlük fiş sayıları alınamadı", e);
-        }
-    }
-
     public static int deleteSalesOlderThanYears(int years) {
         String sql = "DELETE FROM sales WHERE sale_date < NOW() - (? || ' years')::interval";
-        try (var c = DatabaseConfig.getAppConnection();
+        try (var c = DatabaseConfig.getConnection(DatabaseConfig.Pool.MAINTENANCE);
              var ps = c.prepareStatement(sql)) {
             ps.setInt(1, years);
             return ps.executeUpdate();
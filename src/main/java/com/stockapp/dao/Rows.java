@@ -0,0 +1,141 @@
+package com.stockapp.dao;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ortak satır eşleme: kolon adları satır başına değil, sorgu başına bir kez index'e çevrilir.
+ *
+ *   static final Rows.Mapper<SaleRow> SALE = cols -> {
+ *       int id = cols.of("id"), total = cols.of("total_amount");
+ *       return rs -> new SaleRow(rs.getInt(id), ..., rs.getDouble(total));
+ *   };
+ *   List<SaleRow> list = Rows.list(rs, sql, SALE);
+ *
+ * Mapper, ResultSet'in kolon yapısına (metadata) göre bir RowReader "derler"; aynı SQL her
+ * çalıştığında aynı index'ler çıkar -> SQL'i de veren çağrılarda derlenen okuyucu (SQL, Mapper)
+ * başına saklanır, sonraki çalıştırmalarda metadata'ya hiç bakılmaz. Büyük sonuçlar için
+ * forEach ara liste kurmadan akıtır.
+ *
+ * ❗ pgjdbc varsayılan olarak sonucun TAMAMINI belleğe alır; gerçekten akıtmak için sorgu
+ * autoCommit kapalı bir transaction'da ve {@code ps.setFetchSize(Rows.FETCH_SIZE)} ile çalışmalı
+ * (sürücü o zaman cursor ile FETCH_SIZE'lık parçalar çeker).
+ */
+public final class Rows {
+
+    /** Akıtılan sorgularda sürücünün bir seferde çektiği satır sayısı. */
+    public static final int FETCH_SIZE = 1_000;
+
+    /** Derlenmiş okuyucu: sadece index ile okur. */
+    @FunctionalInterface
+    public interface RowReader<T> {
+        T read(ResultSet rs) throws SQLException;
+    }
+
+    /** Kolon index'lerini çözüp okuyucu üretir (sorgu başına 1 kez). */
+    @FunctionalInterface
+    public interface Mapper<T> {
+        RowReader<T> compile(Columns cols) throws SQLException;
+    }
+
+    @FunctionalInterface
+    public interface RowCallback<T> {
+        void accept(T row) throws SQLException;
+    }
+
+    /** Kolon adı -> index (1 tabanlı). Map kurmaz; birkaç kolonda düz tarama yeterli. */
+    public static final class Columns {
+        private final ResultSetMetaData md;
+        private final int count;
+
+        private Columns(ResultSet rs) throws SQLException {
+            this.md = rs.getMetaData();
+            this.count = md.getColumnCount();
+        }
+
+        public int of(String label) throws SQLException {
+            for (int i = 1; i <= count; i++) {
+                if (md.getColumnLabel(i).equalsIgnoreCase(label)) return i;
+            }
+            throw new SQLException("Kolon bulunamadı: " + label);
+        }
+    }
+
+    private record Shape(String sql, Mapper<?> mapper) {}
+
+    // SQL metni kolon listesini sabitler: aynı (SQL, Mapper) hep aynı index'leri verir
+    private static final Map<Shape, RowReader<?>> READERS = new ConcurrentHashMap<>();
+
+    private Rows() {}
+
+    public static <T> RowReader<T> compile(ResultSet rs, Mapper<T> mapper) throws SQLException {
+        return mapper.compile(new Columns(rs));
+    }
+
+    /**
+     * Bu SQL için daha önce derlenmiş okuyucu, yoksa derleyip saklar.
+     * ❗ Sadece durumsuz (static final) Mapper'larla: çağrı başına değer yakalayan Mapper saklanırsa
+     * eski değerlerle okur. SQL'in de sonlu sayıda farklı hali olmalı (parametreler ? ile).
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> RowReader<T> compile(ResultSet rs, String sql, Mapper<T> mapper) throws SQLException {
+        Shape key = new Shape(sql, mapper);
+        RowReader<T> reader = (RowReader<T>) READERS.get(key);
+        if (reader == null) {
+            reader = compile(rs, mapper);
+            READERS.putIfAbsent(key, reader);
+        }
+        return reader;
+    }
+
+    public static <T> List<T> list(ResultSet rs, Mapper<T> mapper) throws SQLException {
+        return readAll(rs, compile(rs, mapper));
+    }
+
+    public static <T> List<T> list(ResultSet rs, String sql, Mapper<T> mapper) throws SQLException {
+        return readAll(rs, compile(rs, sql, mapper));
+    }
+
+    private static <T> List<T> readAll(ResultSet rs, RowReader<T> reader) throws SQLException {
+        List<T> list = new ArrayList<>();
+        while (rs.next()) list.add(reader.read(rs));
+        return list;
+    }
+
+    public static <T> Optional<T> first(ResultSet rs, Mapper<T> mapper) throws SQLException {
+        if (!rs.next()) return Optional.empty();
+        return Optional.of(compile(rs, mapper).read(rs));
+    }
+
+    public static <T> Optional<T> first(ResultSet rs, String sql, Mapper<T> mapper) throws SQLException {
+        if (!rs.next()) return Optional.empty();
+        return Optional.of(compile(rs, sql, mapper).read(rs));
+    }
+
+    /**
+     * ✅ Ara liste yok: her satır okunduğu anda callback'e verilir (bellek sabit kalması için
+     * yukarıdaki autoCommit/FETCH_SIZE şartı). @return satır sayısı
+     */
+    public static <T> int forEach(ResultSet rs, Mapper<T> mapper, RowCallback<T> callback) throws SQLException {
+        return drain(rs, compile(rs, mapper), callback);
+    }
+
+    public static <T> int forEach(ResultSet rs, String sql, Mapper<T> mapper, RowCallback<T> callback) throws SQLException {
+        return drain(rs, compile(rs, sql, mapper), callback);
+    }
+
+    private static <T> int drain(ResultSet rs, RowReader<T> reader, RowCallback<T> callback) throws SQLException {
+        int n = 0;
+        while (rs.next()) {
+            callback.accept(reader.read(rs));
+            n++;
+        }
+        return n;
+    }
+}
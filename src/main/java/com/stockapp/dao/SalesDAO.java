@@ -1,41 +1,62 @@
 package com.stockapp.dao;
 
 import com.stockapp.config.DatabaseConfig;
-import com.stockapp.model.CartItem;
+import com.stockapp.event.DomainEvent;
+import com.stockapp.event.EventBus;
+import com.stockapp.model.CartEngine;
+import com.stockapp.service.LiveSalesStats;
+import com.stockapp.service.StockEscrow;
 
 import java.math.BigDecimal;
 import java.sql.*;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 public class SalesDAO {
 
-    private record ProductInfo(int id, BigDecimal price) {}
+    private record ProductInfo(int id, String barcode, BigDecimal price) {}
+
+    private static final Rows.Mapper<ProductInfo> PRODUCT_INFO = cols -> {
+        int id = cols.of("id"), barcode = cols.of("barcode"), price = cols.of("price");
+        return rs -> new ProductInfo(rs.getInt(id), rs.getString(barcode), rs.getBigDecimal(price));
+    };
 
     /**
      * Sepeti tek satış (fiş) olarak kaydeder:
      * 1) sales kaydı oluşturur (total)
      * 2) her item için stok düşer (atomik)
-     * 3) sale_items'a satırları yazar
+     * 3) sale_items'a satırları ve stok defterine SALE hareketlerini yazar
      * Hepsi tek transaction.
      *
+     * Emanet modu açıksa stok önce kasanın kendi kotasından düşülür
+     * (products satırına dokunmaz, deftere bekleyen hareket yazılır), kota yetmezse products'tan;
+     * products'tan düşüş kasalara ayrılmış kotaya dokunamaz. Satış bekleyen hareketleri katlamaz.
+     *
+     * @param snapshot CartEngine'den alınan değişmez sepet
      * @return saleId (fiş no)
      */
-    public static int createSale(List<CartItem> cart) {
-        if (cart == null || cart.isEmpty()) {
+    public static int createSale(CartEngine.Snapshot snapshot) {
+        if (snapshot == null || snapshot.isEmpty()) {
             throw new RuntimeException("Sepet boş.");
         }
 
-        try (Connection c = DatabaseConfig.getAppConnection()) {
+        // lokal kotadan ayrılanlar (rollback olursa geri konur)
+        List<int[]> escrowed = new ArrayList<>();
+
+        // commit sonrası yayınlanacak olaylar
+        List<DomainEvent.StockChanged> stockEvents = new ArrayList<>();
+        List<DomainEvent.SaleLine> saleLines = new ArrayList<>();
+
+        try (Connection c = DatabaseConfig.getConnection(DatabaseConfig.Pool.CHECKOUT)) {
             c.setAutoCommit(false);
 
             try {
-                // ✅ toplam
-                BigDecimal total = BigDecimal.ZERO;
-                for (CartItem item : cart) {
-                    total = total.add(BigDecimal.valueOf(item.getLineTotal()));
-                }
+                List<CartEngine.Line> cart = snapshot.lines();
+
+                // ✅ toplam (sepet motorunda kuruş olarak hazır)
+                BigDecimal total = BigDecimal.valueOf(snapshot.totalCents(), 2);
 
                 // ✅ 1) sales insert -> id
                 int saleId;
@@ -52,31 +73,64 @@ public class SalesDAO {
                 // ✅ 2) ürün bilgilerini tek seferde çek (N+1 SELECT kalktı)
                 Map<String, ProductInfo> infoByBarcode = fetchProductInfoByBarcodes(c, cart);
 
+                // ✅ sadece products'tan düşülecek satırlar id sırasıyla kilitlenir (çakışan sepetler deadlock'a girmez).
+                // Kotadan karşılanacaklar (lokal aynaya göre) products'a hiç dokunmaz. Bekleyen artışlar burada
+                // katlanmaz: guard (FREE_STOCK_SQL) onları zaten sayar, katlamayı LedgerCompactor yapar.
+                List<Integer> lockIds = new ArrayList<>();
+                for (CartEngine.Line item : cart) {
+                    ProductInfo pi = infoByBarcode.get(item.barcode());
+                    if (pi == null) {
+                        throw new RuntimeException("Ürün bulunamadı: " + item.barcode());
+                    }
+                    if (!StockEscrow.hasQuota(pi.id(), Math.max(1, item.qty()))) lockIds.add(pi.id());
+                }
+                if (!lockIds.isEmpty()) {
+                    StockLedgerDAO.lockProducts(c, c.createArrayOf("int4", lockIds.toArray(new Integer[0])));
+                }
+
                 // ✅ 3) statement'ları bir kere hazırla
+                // RETURNING: snapshot + bekleyen hareketler = güncel stok (v_products ile aynı)
                 try (PreparedStatement psUpdateStock = c.prepareStatement(
-                        "UPDATE products SET stock = stock - ? WHERE id = ? AND stock >= ?"
+                        "UPDATE products SET stock = stock - ? WHERE id = ? AND " + EscrowDAO.FREE_STOCK_SQL + " >= ?"
+                                + " RETURNING stock + " + StockLedgerDAO.PENDING_SQL
                 );
                      PreparedStatement psInsertItem = c.prepareStatement(
                              "INSERT INTO sale_items(sale_id, product_id, quantity, unit_price, line_total) VALUES(?,?,?,?,?)"
-                     )) {
+                     );
+                     PreparedStatement psConsume = c.prepareStatement(EscrowDAO.CONSUME_SQL);
+                     PreparedStatement psLedger = c.prepareStatement(StockLedgerDAO.INSERT_APPLIED_SQL);
+                     PreparedStatement psPending = c.prepareStatement(StockLedgerDAO.INSERT_PENDING_SQL)) {
+
+                    List<Integer> escrowIds = new ArrayList<>();
 
-                    for (CartItem item : cart) {
-                        int qty = item.getQty();
+                    for (CartEngine.Line item : cart) {
+                        int qty = item.qty();
                         if (qty <= 0) qty = 1;
 
-                        ProductInfo pi = infoByBarcode.get(item.getBarcode());
-                        if (pi == null) {
-                            throw new RuntimeException("Ürün bulunamadı: " + item.getBarcode());
+                        ProductInfo pi = infoByBarcode.get(item.barcode());
+
+                        // ✅ emanet modu: kasanın kotasından düş (sıcak satır kilidi yok)
+                        // lokal kota sadece DB'deki düşüş başarılı olursa azaltılır (yoksa ayna kayar);
+                        // ayna yanıldıysa satır products'tan düşülür (tek satır kilidi, nadir)
+                        boolean fromEscrow = StockEscrow.hasQuota(pi.id(), qty)
+                                && EscrowDAO.consume(psConsume, StockEscrow.terminalId(), pi.id(), qty);
+                        if (fromEscrow) {
+                            StockEscrow.consumed(pi.id(), qty);
+                            escrowed.add(new int[]{pi.id(), qty});
                         }
 
                         // ✅ stok düş (atomik)
-                        psUpdateStock.setInt(1, qty);
-                        psUpdateStock.setInt(2, pi.id());
-                        psUpdateStock.setInt(3, qty);
-
-                        int updated = psUpdateStock.executeUpdate();
-                        if (updated == 0) {
-                            throw new RuntimeException("Stok yetersiz: " + item.getName());
+                        if (!fromEscrow) {
+                            psUpdateStock.setInt(1, qty);
+                            psUpdateStock.setInt(2, pi.id());
+                            psUpdateStock.setInt(3, qty);
+
+                            try (ResultSet rs = psUpdateStock.executeQuery()) {
+                                if (!rs.next()) {
+                                    throw new RuntimeException("Stok yetersiz: " + item.name());
+                                }
+                                stockEvents.add(new DomainEvent.StockChanged(pi.id(), item.barcode(), rs.getInt(1)));
+                            }
                         }
 
                         BigDecimal unitPrice = pi.price() == null ? BigDecimal.ZERO : pi.price();
@@ -89,14 +143,52 @@ public class SalesDAO {
                         psInsertItem.setBigDecimal(4, unitPrice);
                         psInsertItem.setBigDecimal(5, lineTotal);
                         psInsertItem.executeUpdate();
+
+                        // ✅ stok defteri: kotadan düşüş products'a işlenmedi -> bekleyen hareket
+                        if (fromEscrow) {
+                            StockLedgerDAO.bindApplied(psPending, pi.id(), -qty, StockLedgerDAO.Reason.SALE, saleId);
+                            psPending.addBatch();
+                            escrowIds.add(pi.id());
+                        } else {
+                            StockLedgerDAO.bindApplied(psLedger, pi.id(), -qty, StockLedgerDAO.Reason.SALE, saleId);
+                            psLedger.addBatch();
+                        }
+
+                        saleLines.add(new DomainEvent.SaleLine(pi.id(), qty, lineTotal.movePointRight(2).longValue()));
                     }
+                    psLedger.executeBatch();
+                    psPending.executeBatch();
+
+                    // kotadan düşülenlerin güncel toplamı (ekranlar stok değişimini görsün)
+                    if (!escrowIds.isEmpty()) {
+                        try (PreparedStatement ps = c.prepareStatement(
+                                "SELECT id, barcode, stock FROM v_products WHERE id = ANY(?)")) {
+                            ps.setArray(1, c.createArrayOf("int4", escrowIds.toArray(new Integer[0])));
+                            try (ResultSet rs = ps.executeQuery()) {
+                                while (rs.next()) {
+                                    stockEvents.add(new DomainEvent.StockChanged(rs.getInt(1), rs.getString(2), rs.getInt(3)));
+                                }
+                            }
+                        }
+                    }
+                }
+
+                // ✅ diğer kasaların canlı paneli: NOTIFY commit'le birlikte gider, rollback'te hiç gitmez
+                try (PreparedStatement psNotify = c.prepareStatement("SELECT pg_notify(?, ?)")) {
+                    psNotify.setString(1, LiveSalesStats.CHANNEL);
+                    psNotify.setString(2, LiveSalesStats.payload(saleId, snapshot.totalCents(), snapshot.itemCount(), saleLines));
+                    psNotify.execute();
                 }
 
                 c.commit();
+
+                stockEvents.forEach(EventBus::publish);
+                EventBus.publish(new DomainEvent.SaleCommitted(saleId, snapshot.totalCents(), snapshot.itemCount(), saleLines));
                 return saleId;
 
             } catch (Exception e) {
                 try { c.rollback(); } catch (Exception ignored) {}
+                for (int[] x : escrowed) StockEscrow.restore(x[0], x[1]);
                 throw new RuntimeException(e.getMessage(), e);
             } finally {
                 try { c.setAutoCommit(true); } catch (Exception ignored) {}
@@ -107,7 +199,7 @@ public class SalesDAO {
         }
     }
 
-    private static Map<String, ProductInfo> fetchProductInfoByBarcodes(Connection c, List<CartItem> cart) throws SQLException {
+    private static Map<String, ProductInfo> fetchProductInfoByBarcodes(Connection c, List<CartEngine.Line> cart) throws SQLException {
         Map<String, ProductInfo> map = new HashMap<>();
 
         // IN (?, ?, ?)
@@ -120,15 +212,12 @@ public class SalesDAO {
 
         try (PreparedStatement ps = c.prepareStatement(sb.toString())) {
             for (int i = 0; i < cart.size(); i++) {
-                ps.setString(i + 1, cart.get(i).getBarcode());
+                ps.setString(i + 1, cart.get(i).barcode());
             }
 
+            // SQL sepet boyuna göre değişir -> okuyucu saklanmaz (sınırsız farklı SQL birikmesin)
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    String barcode = rs.getString("barcode");
-                    BigDecimal price = rs.getBigDecimal("price");
-                    map.put(barcode, new ProductInfo(rs.getInt("id"), price));
-                }
+                Rows.forEach(rs, PRODUCT_INFO, pi -> map.put(pi.barcode(), pi));
             }
         }
 
@@ -143,7 +232,7 @@ public class SalesDAO {
             WHERE date_trunc('month', s.sale_date) = date_trunc('month', CURRENT_DATE)
         """;
 
-        try (Connection c = DatabaseConfig.getAppConnection();
+        try (Connection c = DatabaseConfig.getReadConnection(DatabaseConfig.Pool.INTERACTIVE, DatabaseConfig.Freshness.RECENT);
              PreparedStatement ps = c.prepareStatement(sql);
              ResultSet rs = ps.executeQuery()) {
 
@@ -0,0 +1,362 @@
+package com.stockapp.dao;
+
+import com.stockapp.config.AppConfig;
+import com.stockapp.config.DatabaseConfig;
+
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stok hareket defteri (stock_movements) - sadece ekleme yapılır, hiç güncellenmez/silinmez
+ * (tek istisna: compaction'ın "applied" bayrağı).
+ *
+ * - applied = true  : hareket products.stock'a zaten işlenmiş (düşüşler, set, satış)
+ * - applied = false : bekleyen hareket; products satırına dokunmadan sadece INSERT (kilit yarışı yok).
+ *                     Artışlar ve emanet kotasından yapılan satışlar (kota ayrıldığı için eksiye düşemez)
+ *
+ * Güncel stok = products.stock (sıkıştırılmış snapshot) + bekleyen hareketler -> v_products view'i.
+ * Bekleyenler periyodik olarak (LedgerCompactor) ve elle düşüş/set/sayımda snapshot'a katlanır;
+ * satış katlamaz (guard bekleyenleri zaten sayar).
+ */
+public class StockLedgerDAO {
+
+    public enum Reason { OPENING, ENTRY, MANUAL_INC, MANUAL_DEC, SET, SALE, STOCKTAKE }
+
+    public record MovementRow(long id, int productId, int delta, String reason, Integer saleId,
+                              String terminalId, LocalDateTime createdAt) {}
+
+    static final String INSERT_APPLIED_SQL = """
+        INSERT INTO stock_movements(product_id, delta, reason, sale_id, terminal_id, applied)
+        VALUES (?, ?, ?, ?, ?, true)
+    """;
+
+    /** Emanet kotasından satış: products'a dokunmaz, v_products bekleyen olarak görür. bindApplied ile bağlanır. */
+    static final String INSERT_PENDING_SQL = """
+        INSERT INTO stock_movements(product_id, delta, reason, sale_id, terminal_id, applied)
+        VALUES (?, ?, ?, ?, ?, false)
+    """;
+
+    /** UPDATE products ... içinde kullanılır: o ürünün henüz katlanmamış hareketlerinin toplamı. */
+    static final String PENDING_SQL =
+            "COALESCE((SELECT SUM(m.delta) FROM stock_movements m WHERE m.product_id = products.id AND NOT m.applied), 0)";
+
+    /**
+     * Verilen ürün satırlarını id sırasıyla kilitler. Birden çok ürün satırı kilitleyen her transaction
+     * önce bunu çağırır: herkes aynı sırayla kilitlediği için çakışan sepetler birbirini deadlock'a sokmaz.
+     */
+    static void lockProducts(Connection c, Array productIds) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(
+                "SELECT id FROM products WHERE id = ANY(?) ORDER BY id FOR UPDATE")) {
+            ps.setArray(1, productIds);
+            ps.executeQuery().close();
+        }
+    }
+
+    /**
+     * Bekleyen artış ekler (products'a dokunmaz).
+     * @return {product_id, yeni güncel stok} veya barkod yoksa null
+     */
+    public static int[] appendPending(String barcode, int delta, Reason reason) {
+        String sql = """
+            WITH ins AS (
+                INSERT INTO stock_movements(product_id, delta, reason, terminal_id, applied)
+                SELECT id, ?, ?, ?, false FROM products WHERE barcode = ?
+                RETURNING product_id
+            )
+            SELECT v.id, v.stock + ? AS stock
+            FROM ins JOIN v_products v ON v.id = ins.product_id
+        """;
+
+        try (Connection c = DatabaseConfig.getAppConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+
+            ps.setInt(1, delta);
+            ps.setString(2, reason.name());
+            ps.setString(3, AppConfig.terminalId());
+            ps.setString(4, barcode);
+            ps.setInt(5, delta); // aynı statement içindeki INSERT view'de görünmez
+
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) return null;
+                return new int[]{rs.getInt("id"), rs.getInt("stock")};
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Stok hareketi yazılamadı", e);
+        }
+    }
+
+    public record StockLevel(int productId, String barcode, int stock) {}
+
+    private static final Rows.Mapper<StockLevel> STOCK_LEVEL = cols -> {
+        int id = cols.of("id"), barcode = cols.of("barcode"), stock = cols.of("stock");
+        return rs -> new StockLevel(rs.getInt(id), rs.getString(barcode), rs.getInt(stock));
+    };
+
+    private static final Rows.Mapper<MovementRow> MOVEMENT = cols -> {
+        int id = cols.of("id"), productId = cols.of("product_id"), delta = cols.of("delta"),
+                reason = cols.of("reason"), saleId = cols.of("sale_id"), terminalId = cols.of("terminal_id"),
+                createdAt = cols.of("created_at");
+        return rs -> new MovementRow(
+                rs.getLong(id),
+                rs.getInt(productId),
+                rs.getInt(delta),
+                rs.getString(reason),
+                rs.getObject(saleId, Integer.class),
+                rs.getString(terminalId),
+                rs.getObject(createdAt, LocalDateTime.class)
+        );
+    };
+
+    /**
+     * Toplu bekleyen artış: tüm satırlar tek set-based statement (unnest) ile, tek transaction'da.
+     * Bilinmeyen barkodlar atlanır.
+     *
+     * @param batchId null değilse aynı kimlik sadece bir kez işlenir (receiving_batches)
+     * @return ürün başına yeni güncel stok; bu kimlik daha önce işlenmişse null
+     */
+    public static List<StockLevel> appendPendingBatch(String batchId, String[] barcodes, Integer[] deltas, Reason reason) {
+        String sql = """
+            WITH req AS (
+                SELECT barcode, SUM(qty)::int AS qty
+                FROM unnest(?::text[], ?::int[]) AS r(barcode, qty)
+                GROUP BY barcode
+            ), ins AS (
+                INSERT INTO stock_movements(product_id, delta, reason, terminal_id, applied)
+                SELECT p.id, req.qty, ?, ?, false
+                FROM req JOIN products p ON p.barcode = req.barcode
+                WHERE req.qty <> 0
+                RETURNING product_id, delta
+            )
+            SELECT v.id, v.barcode, v.stock + ins.delta AS stock
+            FROM ins JOIN v_products v ON v.id = ins.product_id
+        """;
+
+        try (Connection c = DatabaseConfig.getAppConnection()) {
+            c.setAutoCommit(false);
+            try {
+                if (batchId != null) {
+                    try (PreparedStatement ps = c.prepareStatement("""
+                            INSERT INTO receiving_batches(id, terminal_id) VALUES (?, ?)
+                            ON CONFLICT (id) DO NOTHING
+                         """)) {
+                        ps.setString(1, batchId);
+                        ps.setString(2, AppConfig.terminalId());
+                        if (ps.executeUpdate() == 0) { // daha önce (belki başka açılışta) işlenmiş
+                            // hiçbir şey yazılmadı: rollback değil commit (UnitOfWork içinde yutulur,
+                            // rollback dıştaki işlemi de geri aldırırdı)
+                            c.commit();
+                            return null;
+                        }
+                    }
+                }
+
+                List<StockLevel> out;
+                try (PreparedStatement ps = c.prepareStatement(sql)) {
+                    ps.setArray(1, c.createArrayOf("text", barcodes));
+                    ps.setArray(2, c.createArrayOf("int4", deltas));
+                    ps.setString(3, reason.name());
+                    ps.setString(4, AppConfig.terminalId());
+
+                    try (ResultSet rs = ps.executeQuery()) {
+                        out = Rows.list(rs, sql, STOCK_LEVEL);
+                    }
+                }
+                c.commit();
+                return out;
+
+            } catch (SQLException e) {
+                try { c.rollback(); } catch (Exception ignored) {}
+                throw e;
+            } finally {
+                try { c.setAutoCommit(true); } catch (Exception ignored) {}
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Toplu stok girişi yazılamadı", e);
+        }
+    }
+
+    /** Bu kimlikli toplu giriş daha önce işlendi mi (geri yüklenen mal kabul oturumu için). */
+    public static boolean isBatchApplied(String batchId) {
+        try (Connection c = DatabaseConfig.getAppConnection();
+             PreparedStatement ps = c.prepareStatement("SELECT 1 FROM receiving_batches WHERE id = ?")) {
+            ps.setString(1, batchId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Mal kabul oturumu kontrol edilemedi", e);
+        }
+    }
+
+    /** Transaction içinde, products'a zaten işlenmiş hareketi deftere yazar. */
+    static void appendApplied(Connection c, int productId, int delta, Reason reason, Integer saleId) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(INSERT_APPLIED_SQL)) {
+            bindApplied(ps, productId, delta, reason, saleId);
+            ps.executeUpdate();
+        }
+    }
+
+    static void bindApplied(PreparedStatement ps, int productId, int delta, Reason reason, Integer saleId) throws SQLException {
+        ps.setInt(1, productId);
+        ps.setInt(2, delta);
+        ps.setString(3, reason.name());
+        if (saleId == null) ps.setNull(4, Types.INTEGER); else ps.setInt(4, saleId);
+        ps.setString(5, AppConfig.terminalId());
+    }
+
+    /**
+     * Verilen ürünlerin bekleyen hareketlerini snapshot'a katlar (products satırlarını kilitler).
+     * Elle düşüş/set/sayım transaction'ları çağırır (satış çağırmaz). Satırlar önce id sırasıyla kilitlenir:
+     * çakışan sepetler ve compaction aynı sırayla kilitlediği için birbirini deadlock'a sokmaz.
+     */
+    static void foldPending(Connection c, Integer[] productIds) throws SQLException {
+        if (productIds.length == 0) return;
+        Array ids = c.createArrayOf("int4", productIds);
+        lockProducts(c, ids);
+        fold(c, ids);
+    }
+
+    private static int fold(Connection c, Array productIds) throws SQLException {
+        String sql = """
+            WITH d AS (
+                UPDATE stock_movements
+                SET applied = true
+                WHERE NOT applied AND product_id = ANY(?)
+                RETURNING product_id, delta
+            ), agg AS (
+                SELECT product_id, SUM(delta) AS delta, COUNT(*) AS n FROM d GROUP BY product_id
+            ), upd AS (
+                UPDATE products p
+                SET stock = p.stock + agg.delta
+                FROM agg
+                WHERE p.id = agg.product_id
+                RETURNING agg.n
+            )
+            SELECT COALESCE(SUM(n), 0) FROM upd
+        """;
+
+        try (PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setArray(1, productIds);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    static void foldPendingByBarcode(Connection c, String barcode) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement("SELECT id FROM products WHERE barcode = ?")) {
+            ps.setString(1, barcode);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) foldPending(c, new Integer[]{rs.getInt(1)});
+            }
+        }
+    }
+
+    private static final int COMPACT_BATCH = 50;
+
+    /**
+     * Tüm bekleyen hareketleri snapshot'a katlar (arka plan işi).
+     * Küçük partiler halinde, product_id sırasıyla: her parti kısa bir transaction, satış yapan
+     * kasaları uzun süre bekletmez ve onlarla aynı kilit sırasını kullanır.
+     *
+     * @return katlanan hareket sayısı
+     */
+    public static int compact() {
+        String nextBatch = """
+            SELECT DISTINCT product_id FROM stock_movements
+            WHERE NOT applied AND product_id > ?
+            ORDER BY product_id
+            LIMIT ?
+        """;
+
+        int total = 0;
+        int after = 0;
+
+        try (Connection c = DatabaseConfig.getConnection(DatabaseConfig.Pool.MAINTENANCE)) {
+            while (true) {
+                List<Integer> ids = new ArrayList<>();
+                try (PreparedStatement ps = c.prepareStatement(nextBatch)) {
+                    ps.setInt(1, after);
+                    ps.setInt(2, COMPACT_BATCH);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) ids.add(rs.getInt(1));
+                    }
+                }
+                if (ids.isEmpty()) return total;
+                after = ids.get(ids.size() - 1);
+
+                c.setAutoCommit(false);
+                try {
+                    Array arr = c.createArrayOf("int4", ids.toArray(new Integer[0]));
+                    lockProducts(c, arr);
+                    total += fold(c, arr);
+                    c.commit();
+                } catch (SQLException e) {
+                    try { c.rollback(); } catch (Exception ignored) {}
+                    throw e;
+                } finally {
+                    try { c.setAutoCommit(true); } catch (Exception ignored) {}
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Stok defteri sıkıştırılamadı", e);
+        }
+    }
+
+    public static List<MovementRow> history(int productId, int limit) {
+        String sql = """
+            SELECT id, product_id, delta, reason, sale_id, terminal_id, created_at
+            FROM stock_movements
+            WHERE product_id = ?
+            ORDER BY id DESC
+            LIMIT ?
+        """;
+
+        try (Connection c = DatabaseConfig.getAppConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+
+            ps.setInt(1, productId);
+            ps.setInt(2, limit);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                return Rows.list(rs, sql, MOVEMENT);
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Stok hareketleri alınamadı", e);
+        }
+    }
+
+    /**
+     * Defteri baştan oynatır: SUM(delta) = olması gereken toplam stok.
+     * (Emanet kotaları toplam stoğun parçasıdır, ayrıca eklenmez.)
+     *
+     * @return {defterden hesaplanan, güncel (view)}
+     */
+    public static int[] replay(int productId) {
+        String sql = """
+            SELECT
+              (SELECT COALESCE(SUM(delta), 0) FROM stock_movements WHERE product_id = ?) AS replayed,
+              (SELECT stock FROM v_products WHERE id = ?) AS current
+        """;
+
+        try (Connection c = DatabaseConfig.getAppConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+
+            ps.setInt(1, productId);
+            ps.setInt(2, productId);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return new int[]{rs.getInt("replayed"), rs.getInt("current")};
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Stok defteri oynatılamadı", e);
+        }
+    }
+}
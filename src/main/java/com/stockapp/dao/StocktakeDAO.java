@@ -0,0 +1,191 @@
+package com.stockapp.dao;
+
+import com.stockapp.config.AppConfig;
+import com.stockapp.config.DatabaseConfig;
+import com.stockapp.event.DomainEvent;
+import com.stockapp.event.EventBus;
+import org.postgresql.PGConnection;
+
+import java.io.StringReader;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stok sayımı (stocktake):
+ * sayılan adetler COPY ile geçici tabloya akıtılır, products ile tek set-based merge'de eşitlenir
+ * ve aynı statement ürün + kategori bazlı fark (fire) raporunu döner.
+ *
+ * Sadece sayılan ürünler etkilenir (kısmi sayım desteklenir).
+ * Beklenen stok = güncel toplam stok (emanet kotaları zaten dahil). Sayım kotaların altına inerse
+ * o ürünlerin kotaları bırakılır.
+ */
+public class StocktakeDAO {
+
+    /**
+     * Rapor satırı. productId == null -> kategori ara toplamı, category de null -> genel toplam.
+     */
+    public record VarianceRow(String category, Integer productId, String name, String barcode,
+                              int expected, int counted, int diff, double diffValue, int newStock) {
+        public boolean isCategoryTotal() { return productId == null && category != null; }
+        public boolean isGrandTotal() { return productId == null && category == null; }
+    }
+
+    public record Result(List<VarianceRow> rows, List<String> unknownBarcodes) {}
+
+    // g_cat = 1 -> genel toplam, g_prod = 1 -> kategori ara toplamı (GROUPING)
+    private static final Rows.Mapper<VarianceRow> VARIANCE = cols -> {
+        int gCat = cols.of("g_cat"), gProd = cols.of("g_prod"), category = cols.of("category"),
+                id = cols.of("id"), name = cols.of("name"), barcode = cols.of("barcode"),
+                expected = cols.of("expected"), counted = cols.of("counted"), diff = cols.of("diff"),
+                diffValue = cols.of("diff_value"), newStock = cols.of("new_stock");
+        return rs -> {
+            boolean grand = rs.getInt(gCat) == 1;
+            boolean catTotal = rs.getInt(gProd) == 1;
+            return new VarianceRow(
+                    grand ? null : rs.getString(category),
+                    catTotal ? null : rs.getInt(id),
+                    catTotal ? null : rs.getString(name),
+                    catTotal ? null : rs.getString(barcode),
+                    rs.getInt(expected),
+                    rs.getInt(counted),
+                    rs.getInt(diff),
+                    rs.getDouble(diffValue),
+                    rs.getInt(newStock)
+            );
+        };
+    };
+
+    private static final String MERGE_SQL = """
+        WITH s AS (
+            SELECT barcode, SUM(counted)::int AS counted
+            FROM stocktake_stage
+            GROUP BY barcode
+        ), cur AS (
+            SELECT p.id, p.name, p.barcode, p.category_id, p.price, p.stock, s.counted
+            FROM s
+            JOIN products p ON p.barcode = s.barcode
+            FOR UPDATE OF p
+        ), tgt AS (
+            SELECT cur.*, GREATEST(counted, 0) AS new_stock FROM cur
+        ), upd AS (
+            UPDATE products p
+            SET stock = tgt.new_stock
+            FROM tgt
+            WHERE p.id = tgt.id AND tgt.new_stock <> tgt.stock
+            RETURNING p.id
+        ), led AS (
+            INSERT INTO stock_movements(product_id, delta, reason, terminal_id, applied)
+            SELECT id, new_stock - stock, 'STOCKTAKE', ?, true
+            FROM tgt
+            WHERE new_stock <> stock
+        )
+        SELECT
+            GROUPING(c.name) AS g_cat,
+            GROUPING(tgt.id) AS g_prod,
+            COALESCE(c.name, '-') AS category,
+            tgt.id, tgt.name, tgt.barcode,
+            SUM(tgt.stock)::int AS expected,
+            SUM(tgt.counted)::int AS counted,
+            SUM(tgt.new_stock)::int AS new_stock,
+            SUM(tgt.counted - tgt.stock)::int AS diff,
+            COALESCE(SUM((tgt.counted - tgt.stock) * tgt.price), 0) AS diff_value
+        FROM tgt
+        LEFT JOIN categories c ON c.id = tgt.category_id
+        GROUP BY GROUPING SETS ((c.name, tgt.id, tgt.name, tgt.barcode), (c.name), ())
+        ORDER BY GROUPING(c.name), c.name, GROUPING(tgt.id), diff
+    """;
+
+    /**
+     * Sayımı uygular ve fark raporunu döner (tek transaction).
+     *
+     * @param counted barkod -> sayılan adet
+     */
+    public static Result reconcile(Map<String, Integer> counted) {
+        StringBuilder csv = new StringBuilder(counted.size() * 24);
+        for (Map.Entry<String, Integer> e : counted.entrySet()) {
+            csv.append('"').append(e.getKey().replace("\"", "\"\"")).append('"')
+               .append(',').append(e.getValue()).append('\n');
+        }
+
+        List<VarianceRow> rows = new ArrayList<>();
+        List<String> unknown = new ArrayList<>();
+        List<DomainEvent> events = new ArrayList<>();
+
+        try (Connection c = DatabaseConfig.getConnection(DatabaseConfig.Pool.MAINTENANCE)) {
+            boolean oldAuto = c.getAutoCommit();
+            c.setAutoCommit(false);
+
+            try {
+                try (Statement st = c.createStatement()) {
+                    st.execute("""
+                        CREATE TEMP TABLE stocktake_stage (
+                            barcode TEXT NOT NULL,
+                            counted INT NOT NULL
+                        ) ON COMMIT DROP
+                    """);
+                }
+
+                // 1) sayımı tek akışta yükle
+                c.unwrap(PGConnection.class).getCopyAPI().copyIn(
+                        "COPY stocktake_stage(barcode, counted) FROM STDIN WITH (FORMAT csv)",
+                        new StringReader(csv.toString()));
+
+                // 2) bekleyen artışlar snapshot'a katlanmadan beklenen stok eksik görünür
+                Integer[] ids;
+                try (PreparedStatement ps = c.prepareStatement("""
+                        SELECT p.id FROM (SELECT DISTINCT barcode FROM stocktake_stage) s
+                        JOIN products p ON p.barcode = s.barcode
+                     """);
+                     ResultSet rs = ps.executeQuery()) {
+                    List<Integer> list = new ArrayList<>();
+                    while (rs.next()) list.add(rs.getInt(1));
+                    ids = list.toArray(new Integer[0]);
+                    if (ids.length > 0) StockLedgerDAO.foldPending(c, ids);
+                }
+
+                // 3) merge + defter + rapor
+                try (PreparedStatement ps = c.prepareStatement(MERGE_SQL)) {
+                    ps.setString(1, AppConfig.terminalId());
+
+                    try (ResultSet rs = ps.executeQuery()) {
+                        Rows.forEach(rs, MERGE_SQL, VARIANCE, r -> {
+                            rows.add(r);
+                            if (r.productId() != null && r.diff() != 0) {
+                                events.add(new DomainEvent.StockChanged(r.productId(), r.barcode(), r.newStock()));
+                            }
+                        });
+                    }
+                }
+
+                // sayım kasalardaki kotaların altına indiyse o kotalar bırakılır
+                if (ids.length > 0) EscrowDAO.dropExcessQuotas(c, ids);
+
+                // 4) eşleşmeyen barkodlar
+                try (PreparedStatement ps = c.prepareStatement("""
+                        SELECT DISTINCT s.barcode FROM stocktake_stage s
+                        WHERE NOT EXISTS (SELECT 1 FROM products p WHERE p.barcode = s.barcode)
+                        ORDER BY s.barcode
+                     """);
+                     ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) unknown.add(rs.getString(1));
+                }
+
+                c.commit();
+
+            } catch (Exception e) {
+                c.rollback();
+                throw e;
+            } finally {
+                c.setAutoCommit(oldAuto);
+            }
+
+        } catch (Exception e) {
+            throw new RuntimeException("Sayım uygulanamadı", e);
+        }
+
+        events.forEach(EventBus::publish);
+        return new Result(rows, unknown);
+    }
+}
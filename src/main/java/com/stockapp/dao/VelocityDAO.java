@@ -0,0 +1,174 @@
+package com.stockapp.dao;
+
+import com.stockapp.config.DatabaseConfig;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * product_velocity: ürün başına üstel düzeltilmiş (EWMA) günlük satış hızı ve sipariş noktası.
+ *
+ *   velocity      = dün dahil günlük adetlerin EWMA'sı (v = a*gün + (1-a)*v)
+ *   today_qty     = "day" gününün (bugün) şu ana kadarki adedi
+ *   reorder_point = ceil(max(velocity, today_qty) * kapsama günü)
+ *
+ * Sadece velocity_state.last_sale_item_id'den sonraki sale_items işlenir (tam tarama yok).
+ * EWMA doğrusal olduğu için geç gelen eski günlü satır da doğrudan katkısıyla eklenir.
+ */
+public class VelocityDAO {
+
+    // diğer kasalar aynı anda çalıştırmasın (biri yapar, öbürleri atlar)
+    private static final long LOCK_KEY = 727003;
+
+    // işlem süren satışların id'si atlanmasın: son 1 dakikada açılan fişlerden sonrasına dokunma
+    private static final String HIGH_WATER_SQL = """
+        SELECT COALESCE(MAX(si.id), ?)
+        FROM sale_items si
+        JOIN sales s ON s.id = si.sale_id
+        WHERE si.id > ? AND s.sale_date < now() - INTERVAL '1 minute'
+    """;
+
+    // gün dönümü: açık günü EWMA'ya kat, satışsız geçen günler için sönümle
+    private static final String ROLL_SQL = """
+        UPDATE product_velocity v
+        SET velocity = x.nv,
+            today_qty = 0,
+            day = CURRENT_DATE,
+            reorder_point = CEIL(x.nv * ?)::int
+        FROM (
+            SELECT product_id,
+                   (? * today_qty + (1 - ?) * velocity) * power(1 - ?, CURRENT_DATE - day - 1) AS nv
+            FROM product_velocity
+            WHERE day < CURRENT_DATE
+        ) x
+        WHERE v.product_id = x.product_id
+    """;
+
+    private static final String UPSERT_SQL = """
+        INSERT INTO product_velocity AS v (product_id, velocity, today_qty, day, reorder_point)
+        SELECT product_id, vel, tq, CURRENT_DATE, CEIL(GREATEST(vel, tq) * ?)::int
+        FROM (
+            SELECT n.product_id,
+                   SUM(CASE WHEN n.d < CURRENT_DATE
+                            THEN ? * power(1 - ?, CURRENT_DATE - 1 - n.d) * n.qty ELSE 0 END) AS vel,
+                   SUM(CASE WHEN n.d >= CURRENT_DATE THEN n.qty ELSE 0 END)::int AS tq
+            FROM (
+                SELECT si.product_id, s.sale_date::date AS d, SUM(si.quantity) AS qty
+                FROM sale_items si
+                JOIN sales s ON s.id = si.sale_id
+                WHERE si.id > ? AND si.id <= ? AND s.sale_date >= CURRENT_DATE - ?
+                GROUP BY 1, 2
+            ) n
+            GROUP BY n.product_id
+        ) agg
+        ON CONFLICT (product_id) DO UPDATE
+        SET velocity = v.velocity + EXCLUDED.velocity,
+            today_qty = v.today_qty + EXCLUDED.today_qty,
+            reorder_point = CEIL(GREATEST(v.velocity + EXCLUDED.velocity, v.today_qty + EXCLUDED.today_qty) * ?)::int
+    """;
+
+    /**
+     * Yeni satış satırlarını işler.
+     * @return güncellenen ürün sayısı; başka kasa çalıştırıyorsa -1
+     */
+    public static int runIncremental(double alpha, int coverDays, int historyDays) {
+        try (Connection c = DatabaseConfig.getConnection(DatabaseConfig.Pool.MAINTENANCE)) {
+            c.setAutoCommit(false);
+            try {
+                try (Statement st = c.createStatement();
+                     ResultSet rs = st.executeQuery("SELECT pg_try_advisory_xact_lock(" + LOCK_KEY + ")")) {
+                    rs.next();
+                    if (!rs.getBoolean(1)) {
+                        c.commit(); // hiçbir şey yazılmadı; rollback UnitOfWork içinde tüm işlemi bozardı
+                        return -1;
+                    }
+                }
+
+                int wm;
+                int maxId;
+                try (Statement st = c.createStatement()) {
+                    try (ResultSet rs = st.executeQuery("SELECT last_sale_item_id FROM velocity_state WHERE id = 1")) {
+                        wm = rs.next() ? rs.getInt(1) : 0;
+                    }
+                    try (ResultSet rs = st.executeQuery("SELECT COALESCE(MAX(id), 0) FROM sale_items")) {
+                        rs.next();
+                        maxId = rs.getInt(1);
+                    }
+                    // geri yükleme / silme sonrası id'ler geriye gitti: baştan hesapla
+                    if (maxId < wm) {
+                        st.executeUpdate("DELETE FROM product_velocity");
+                        wm = 0;
+                    }
+                }
+
+                int hi;
+                try (PreparedStatement ps = c.prepareStatement(HIGH_WATER_SQL)) {
+                    ps.setInt(1, wm);
+                    ps.setInt(2, wm);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        rs.next();
+                        hi = rs.getInt(1);
+                    }
+                }
+
+                try (PreparedStatement ps = c.prepareStatement(ROLL_SQL)) {
+                    ps.setInt(1, coverDays);
+                    ps.setDouble(2, alpha);
+                    ps.setDouble(3, alpha);
+                    ps.setDouble(4, alpha);
+                    ps.executeUpdate();
+                }
+
+                int updated = 0;
+                if (hi > wm) {
+                    try (PreparedStatement ps = c.prepareStatement(UPSERT_SQL)) {
+                        ps.setInt(1, coverDays);
+                        ps.setDouble(2, alpha);
+                        ps.setDouble(3, alpha);
+                        ps.setInt(4, wm);
+                        ps.setInt(5, hi);
+                        ps.setInt(6, historyDays);
+                        ps.setInt(7, coverDays);
+                        updated = ps.executeUpdate();
+                    }
+                    try (PreparedStatement ps = c.prepareStatement(
+                            "UPDATE velocity_state SET last_sale_item_id = ? WHERE id = 1")) {
+                        ps.setInt(1, hi);
+                        ps.executeUpdate();
+                    }
+                }
+
+                c.commit();
+                return updated;
+
+            } catch (Exception e) {
+                try { c.rollback(); } catch (Exception ignored) {}
+                throw e;
+            } finally {
+                try { c.setAutoCommit(true); } catch (Exception ignored) {}
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("Satış hızı hesaplanamadı", e);
+        }
+    }
+
+    /** product_id -> reorder_point (satır renkleri için bellekte tutulur). */
+    public static Map<Integer, Integer> getReorderPoints() {
+        Map<Integer, Integer> map = new HashMap<>();
+
+        try (Connection c = DatabaseConfig.getReadConnection(DatabaseConfig.Pool.INTERACTIVE, DatabaseConfig.Freshness.RECENT);
+             Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery("SELECT product_id, reorder_point FROM product_velocity")) {
+
+            while (rs.next()) map.put(rs.getInt(1), rs.getInt(2));
+            return map;
+
+        } catch (Exception e) {
+            throw new RuntimeException("Sipariş noktaları alınamadı", e);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.stockapp.event;
+
+import java.util.List;
+
+/**
+ * DAO yazma yollarından yayınlanan olaylar.
+ * coalesceKey aynı olan olaylardan bir pulse içinde sadece sonuncusu teslim edilir.
+ */
+public sealed interface DomainEvent {
+
+    enum Kind { CREATED, UPDATED, DELETED }
+
+    /** null -> birleştirilmez (her olay ayrı teslim edilir) */
+    default Object coalesceKey() { return null; }
+
+    /** Ürünün adı / fiyatı / kategorisi değişti, ürün eklendi veya silindi. */
+    record ProductChanged(int productId, String barcode, Kind kind) implements DomainEvent {
+        @Override public Object coalesceKey() { return "P" + productId; }
+    }
+
+    /** products.stock değişti (newStock: DB'deki yeni değer). */
+    record StockChanged(int productId, String barcode, int newStock) implements DomainEvent {
+        @Override public Object coalesceKey() { return "S" + productId; }
+    }
+
+    record SaleLine(int productId, int qty, long lineTotalCents) {}
+
+    /** Satış commit edildi. */
+    record SaleCommitted(int saleId, long totalCents, int itemCount, List<SaleLine> lines) implements DomainEvent {
+        public SaleCommitted {
+            lines = List.copyOf(lines);
+        }
+    }
+
+    /** Başka kasada satış commit edildi (LISTEN/NOTIFY ile, LiveSalesStats yayınlar). */
+    record RemoteSaleCommitted(int saleId, String terminalId, List<SaleLine> lines) implements DomainEvent {
+        public RemoteSaleCommitted {
+            lines = List.copyOf(lines);
+        }
+    }
+
+    /** Bugünün canlı satış toplamları değişti (bu kasa veya NOTIFY ile başka kasa). */
+    record SalesStatsChanged() implements DomainEvent {
+        @Override public Object coalesceKey() { return "STATS"; }
+    }
+
+    /** ReorderEngine yeni sipariş noktaları yükledi (kritik stok renkleri / sayıları). */
+    record ReorderPointsChanged() implements DomainEvent {
+        @Override public Object coalesceKey() { return "REORDER"; }
+    }
+
+    /** Kategori eklendi / silindi / ürünleri taşındı. */
+    record CategoryChanged(int categoryId, Kind kind) implements DomainEvent {
+        @Override public Object coalesceKey() { return "C" + categoryId; }
+    }
+
+    /** Veritabanı bağlantısı koptu / geri geldi (devre kesici). */
+    record ConnectivityChanged(boolean online) implements DomainEvent {
+        @Override public Object coalesceKey() { return "DB"; }
+    }
+
+    /** Açılış adımı bitti (done/total). ready=true -> tüm adımlar bitti, failed -> en az biri hata verdi. */
+    record StartupProgress(String step, int done, int total, boolean ready, boolean failed) implements DomainEvent {
+        @Override public Object coalesceKey() { return "STARTUP"; }
+    }
+
+    /** Katalog başka kasalarda değişmiş olabilir (uyku dönüşü vb.): ekranlar baştan yüklesin. */
+    record CatalogInvalidated() implements DomainEvent {
+        @Override public Object coalesceKey() { return "ALL"; }
+    }
+}
@@ -0,0 +1,128 @@
+package com.stockapp.event;
+
+import javafx.application.Platform;
+import javafx.scene.Node;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Uygulama içi olay yolu.
+ * - publish() her thread'den çağrılabilir, hiç beklemez
+ * - olaylar biriktirilir ve FX thread'de tek seferde (pulse başına) teslim edilir
+ * - aynı anahtarlı olaylar birleştirilir (ör. aynı ürüne 5 stok değişimi -> 1 teslim)
+ */
+public class EventBus {
+
+    public interface Subscription {
+        void cancel();
+    }
+
+    private record Handler<T extends DomainEvent>(Class<T> type, Consumer<? super T> consumer) {
+        void offer(DomainEvent e) {
+            if (type.isInstance(e)) consumer.accept(type.cast(e));
+        }
+    }
+
+    private static final Queue<DomainEvent> PENDING = new ConcurrentLinkedQueue<>();
+    private static final AtomicBoolean SCHEDULED = new AtomicBoolean(false);
+    private static final List<Handler<?>> HANDLERS = new CopyOnWriteArrayList<>();
+
+    private static volatile Executor deliveryExecutor = Platform::runLater;
+
+    // UnitOfWork açıkken bu thread'in olayları commit'e kadar bekler
+    private static final ThreadLocal<List<DomainEvent>> HELD = new ThreadLocal<>();
+
+    /** Testler / FX dışı kullanım için teslim thread'ini değiştir. */
+    public static void setDeliveryExecutor(Executor executor) {
+        deliveryExecutor = executor;
+    }
+
+    public static void publish(DomainEvent event) {
+        List<DomainEvent> held = HELD.get();
+        if (held != null) {
+            held.add(event);
+            return;
+        }
+
+        PENDING.add(event);
+        if (SCHEDULED.compareAndSet(false, true)) {
+            try {
+                deliveryExecutor.execute(EventBus::drain);
+            } catch (IllegalStateException e) {
+                // FX toolkit yok (ör. kapanış) -> teslim edilecek kimse yok
+                PENDING.clear();
+                SCHEDULED.set(false);
+            }
+        }
+    }
+
+    /** Bu thread'den yayınlananları tut (transaction başı). */
+    public static void holdOnThisThread() {
+        if (HELD.get() == null) HELD.set(new ArrayList<>());
+    }
+
+    /** Tutulanları commit olduysa yayınla, rollback olduysa at. */
+    public static void releaseOnThisThread(boolean deliver) {
+        List<DomainEvent> held = HELD.get();
+        HELD.remove();
+        if (deliver && held != null) held.forEach(EventBus::publish);
+    }
+
+    public static <T extends DomainEvent> Subscription subscribe(Class<T> type, Consumer<? super T> consumer) {
+        Handler<T> h = new Handler<>(type, consumer);
+        HANDLERS.add(h);
+        return () -> HANDLERS.remove(h);
+    }
+
+    /**
+     * Sayfa controller'ları için: node sahnede olduğu sürece abone kalır.
+     * Sayfa kapanınca (scene=null) abonelik biter, tekrar açılınca yenilenir -> sızıntı yok.
+     */
+    public static <T extends DomainEvent> void subscribeWhileShowing(Node node, Class<T> type, Consumer<? super T> consumer) {
+        Subscription[] current = new Subscription[1];
+        if (node.getScene() != null) current[0] = subscribe(type, consumer);
+
+        node.sceneProperty().addListener((obs, oldScene, newScene) -> {
+            if (newScene == null && current[0] != null) {
+                current[0].cancel();
+                current[0] = null;
+            } else if (newScene != null && current[0] == null) {
+                current[0] = subscribe(type, consumer);
+            }
+        });
+    }
+
+    private static void drain() {
+        SCHEDULED.set(false);
+
+        // ✅ birleştir: aynı anahtar -> son olay (sırası son olayın yerine taşınır)
+        Map<Object, DomainEvent> batch = new LinkedHashMap<>();
+        DomainEvent e;
+        while ((e = PENDING.poll()) != null) {
+            Object key = e.coalesceKey();
+            if (key == null) key = new Object();
+            batch.remove(key);
+            batch.put(key, e);
+        }
+
+        List<Handler<?>> handlers = new ArrayList<>(HANDLERS);
+        for (DomainEvent ev : batch.values()) {
+            for (Handler<?> h : handlers) {
+                try {
+                    h.offer(ev);
+                } catch (Exception ex) {
+                    ex.printStackTrace(); // bir abone diğerlerini bozmasın
+                }
+            }
+        }
+    }
+}
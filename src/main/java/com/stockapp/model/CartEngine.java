@@ -0,0 +1,191 @@
+package com.stockapp.model;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * UI'dan bağımsız sepet motoru.
+ * - barkod / ürün id index'i (O(1) ekleme, güncelleme, silme)
+ * - aynı ürün tekrar okutulunca adet birleşir
+ * - toplam tutar ve toplam adet artımlı tutulur (her değişimde döngü yok)
+ * - son okutmayı geri alma
+ * - satış için değişmez snapshot
+ *
+ * JavaFX'e bağımlı değildir; controller sadece Listener ile izler.
+ * Tek thread'den (FX thread) kullanılmak üzere tasarlandı.
+ */
+public class CartEngine {
+
+    /** Sepet satırının değişmez görüntüsü. Fiyat kuruş cinsinden tutulur. */
+    public record Line(int productId, String name, String barcode, long unitPriceCents, int qty) {
+        public long lineTotalCents() { return unitPriceCents * qty; }
+        public double unitPrice() { return unitPriceCents / 100.0; }
+        public double lineTotal() { return lineTotalCents() / 100.0; }
+    }
+
+    /** Satışa gönderilecek değişmez sepet. */
+    public record Snapshot(List<Line> lines, long totalCents, int itemCount) {
+        public Snapshot {
+            lines = List.copyOf(lines);
+        }
+        public double total() { return totalCents / 100.0; }
+        public boolean isEmpty() { return lines.isEmpty(); }
+    }
+
+    public enum ChangeType { ADDED, UPDATED, REMOVED, CLEARED }
+
+    public interface Listener {
+        /** line: CLEARED için null */
+        void onCartChanged(ChangeType type, Line line);
+    }
+
+    private record ScanOp(String barcode, int qty) {}
+
+    private static final int MAX_UNDO = 100;
+
+    // ✅ ekleme sırası korunur, barkod ile O(1) erişim
+    private final LinkedHashMap<String, Line> byBarcode = new LinkedHashMap<>();
+    private final Map<Integer, String> barcodeByProductId = new HashMap<>();
+
+    private final Deque<ScanOp> undoStack = new ArrayDeque<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    private long totalCents = 0;
+    private int itemCount = 0;
+
+    public static long toCents(double price) {
+        return Math.round(price * 100.0);
+    }
+
+    public void addListener(Listener l) { listeners.add(l); }
+    public void removeListener(Listener l) { listeners.remove(l); }
+
+    // =========================
+    // ✅ OKUTMA
+    // =========================
+
+    /** Barkod okutması: varsa adedi üstüne ekler, yoksa yeni satır açar. Geri alınabilir. */
+    public Line scan(Product p, int qty) {
+        Line line = add(p.getId(), p.getName(), p.getBarcode(), toCents(p.getPrice()), qty);
+        undoStack.push(new ScanOp(line.barcode(), Math.max(qty, 1)));
+        if (undoStack.size() > MAX_UNDO) undoStack.removeLast();
+        return line;
+    }
+
+    public Line add(int productId, String name, String barcode, long unitPriceCents, int qty) {
+        if (qty <= 0) qty = 1;
+
+        Line existing = byBarcode.get(barcode);
+        if (existing != null) {
+            return replace(existing, existing.qty() + qty);
+        }
+
+        Line line = new Line(productId, name, barcode, unitPriceCents, qty);
+        byBarcode.put(barcode, line);
+        barcodeByProductId.put(productId, barcode);
+        totalCents += line.lineTotalCents();
+        itemCount += qty;
+        fire(ChangeType.ADDED, line);
+        return line;
+    }
+
+    /** Son okutmayı geri alır. @return geri alınan satırın son hali (silindiyse qty=0), yoksa null */
+    public Line undoLastScan() {
+        while (!undoStack.isEmpty()) {
+            ScanOp op = undoStack.pop();
+            Line line = byBarcode.get(op.barcode());
+            if (line == null) continue; // satır sonradan silinmiş
+
+            int newQty = line.qty() - Math.min(op.qty(), line.qty());
+            return setQty(op.barcode(), newQty);
+        }
+        return null;
+    }
+
+    public boolean canUndo() {
+        return !undoStack.isEmpty();
+    }
+
+    // =========================
+    // ✅ DÜZENLEME
+    // =========================
+
+    public Line increment(String barcode, int delta) {
+        Line line = byBarcode.get(barcode);
+        if (line == null) return null;
+        return setQty(barcode, line.qty() + delta);
+    }
+
+    /** Adedi SET eder; 0 veya altı satırı siler. */
+    public Line setQty(String barcode, int newQty) {
+        Line line = byBarcode.get(barcode);
+        if (line == null) return null;
+
+        if (newQty <= 0) {
+            remove(barcode);
+            return new Line(line.productId(), line.name(), line.barcode(), line.unitPriceCents(), 0);
+        }
+        return replace(line, newQty);
+    }
+
+    public Line remove(String barcode) {
+        Line line = byBarcode.remove(barcode);
+        if (line == null) return null;
+
+        barcodeByProductId.remove(line.productId());
+        totalCents -= line.lineTotalCents();
+        itemCount -= line.qty();
+        fire(ChangeType.REMOVED, line);
+        return line;
+    }
+
+    public void clear() {
+        byBarcode.clear();
+        barcodeByProductId.clear();
+        undoStack.clear();
+        totalCents = 0;
+        itemCount = 0;
+        fire(ChangeType.CLEARED, null);
+    }
+
+    private Line replace(Line old, int newQty) {
+        Line line = new Line(old.productId(), old.name(), old.barcode(), old.unitPriceCents(), newQty);
+        byBarcode.put(old.barcode(), line); // LinkedHashMap: mevcut anahtar sırasını korur
+
+        totalCents += line.lineTotalCents() - old.lineTotalCents();
+        itemCount += newQty - old.qty();
+        fire(ChangeType.UPDATED, line);
+        return line;
+    }
+
+    // =========================
+    // ✅ OKUMA
+    // =========================
+
+    public Line getByBarcode(String barcode) { return byBarcode.get(barcode); }
+
+    public Line getByProductId(int productId) {
+        String barcode = barcodeByProductId.get(productId);
+        return barcode == null ? null : byBarcode.get(barcode);
+    }
+
+    public long getTotalCents() { return totalCents; }
+    public double getTotal() { return totalCents / 100.0; }
+    public int getItemCount() { return itemCount; }
+    public int getLineCount() { return byBarcode.size(); }
+    public boolean isEmpty() { return byBarcode.isEmpty(); }
+
+    public Snapshot snapshot() {
+        return new Snapshot(new ArrayList<>(byBarcode.values()), totalCents, itemCount);
+    }
+
+    private void fire(ChangeType type, Line line) {
+        for (Listener l : listeners) l.onCartChanged(type, line);
+    }
+}
@@ -1,5 +1,6 @@
 package com.stockapp.model;
 
+import javafx.beans.binding.NumberBinding;
 import javafx.beans.property.*;
 
 public class CartItem {
@@ -9,6 +10,9 @@ public class CartItem {
     private final DoubleProperty unitPrice = new SimpleDoubleProperty();
     private final IntegerProperty qty = new SimpleIntegerProperty();
 
+    // ✅ satır tutarı bir kere bağlanır (her render'da yeni property yok)
+    private final NumberBinding lineTotal = unitPrice.multiply(qty);
+
     public CartItem(int productId, String name, String barcode, double unitPrice, int qty) {
         this.productId.set(productId);
         this.name.set(name);
@@ -17,6 +21,10 @@ public class CartItem {
         this.qty.set(qty);
     }
 
+    public CartItem(CartEngine.Line line) {
+        this(line.productId(), line.name(), line.barcode(), line.unitPrice(), line.qty());
+    }
+
     public int getProductId() { return productId.get(); }
     public String getName() { return name.get(); }
     public String getBarcode() { return barcode.get(); }
@@ -27,6 +35,7 @@ public class CartItem {
     public DoubleProperty unitPriceProperty() { return unitPrice; }
     public StringProperty nameProperty() { return name; }
     public StringProperty barcodeProperty() { return barcode; }
+    public NumberBinding lineTotalProperty() { return lineTotal; }
 
     public void incQty(int delta) { qty.set(qty.get() + delta); }
 
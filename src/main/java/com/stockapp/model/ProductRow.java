@@ -0,0 +1,74 @@
+package com.stockapp.model;
+
+import javafx.beans.Observable;
+import javafx.beans.property.*;
+import javafx.util.Callback;
+
+/**
+ * Ürünler tablosu için gözlemlenebilir satır.
+ * Her alan için property bir kere oluşturulur; hücreler doğrudan bunlara bağlanır.
+ * Stok ya da fiyat değişince sadece o hücre yeniden çizilir (table.refresh yok).
+ */
+public class ProductRow {
+
+    /**
+     * Liste extractor'ı: isim/barkod değişince FilteredList satırı yeniden değerlendirir.
+     * Stok ve fiyat bilerek yok -> o değişimler tüm satırı değil tek hücreyi boyar.
+     */
+    public static final Callback<ProductRow, Observable[]> EXTRACTOR =
+            r -> new Observable[]{ r.name, r.barcode };
+
+    private final int id;
+    private final StringProperty name = new SimpleStringProperty(this, "name");
+    private final StringProperty barcode = new SimpleStringProperty(this, "barcode");
+    private final IntegerProperty categoryId = new SimpleIntegerProperty(this, "categoryId");
+    private final StringProperty categoryName = new SimpleStringProperty(this, "categoryName");
+    private final IntegerProperty stock = new SimpleIntegerProperty(this, "stock");
+    private final DoubleProperty price = new SimpleDoubleProperty(this, "price");
+    // ReorderEngine'den: kritik stok rengi stok < bu değer ile hesaplanır
+    private final IntegerProperty reorderPoint = new SimpleIntegerProperty(this, "reorderPoint");
+
+    public ProductRow(Product p) {
+        this.id = p.getId();
+        update(p);
+    }
+
+    /** DB'den gelen güncel ürünü mevcut satıra uygular (sadece değişen alanlar olay üretir). */
+    public void update(Product p) {
+        name.set(p.getName());
+        barcode.set(p.getBarcode());
+        categoryId.set(p.getCategoryId());
+        categoryName.set(p.getCategoryName() == null ? "-" : p.getCategoryName());
+        stock.set(p.getStock());
+        price.set(p.getPrice());
+    }
+
+    /** DAO / dialog'lar için düz Product kopyası. */
+    public Product toProduct() {
+        return new Product(id, getName(), getBarcode(), getCategoryId(), getCategoryName(), getStock(), getPrice());
+    }
+
+    public int getId() { return id; }
+    public String getName() { return name.get(); }
+    public String getBarcode() { return barcode.get(); }
+    public int getCategoryId() { return categoryId.get(); }
+    public String getCategoryName() { return categoryName.get(); }
+    public int getStock() { return stock.get(); }
+    public double getPrice() { return price.get(); }
+
+    public void setName(String v) { name.set(v); }
+    public void setCategoryId(int v) { categoryId.set(v); }
+    public void setCategoryName(String v) { categoryName.set(v == null ? "-" : v); }
+    public void setStock(int v) { stock.set(v); }
+    public void setPrice(double v) { price.set(v); }
+    public int getReorderPoint() { return reorderPoint.get(); }
+    public void setReorderPoint(int v) { reorderPoint.set(v); }
+
+    public StringProperty nameProperty() { return name; }
+    public StringProperty barcodeProperty() { return barcode; }
+    public IntegerProperty categoryIdProperty() { return categoryId; }
+    public StringProperty categoryNameProperty() { return categoryName; }
+    public IntegerProperty stockProperty() { return stock; }
+    public DoubleProperty priceProperty() { return price; }
+    public IntegerProperty reorderPointProperty() { return reorderPoint; }
+}
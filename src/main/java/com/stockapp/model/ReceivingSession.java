@@ -0,0 +1,127 @@
+package com.stockapp.model;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Mal kabul oturumu: okutmalar lokal sayılır, en sonda tek seferde stoka işlenir.
+ * Açık oturum diske yazılır; çökme / bağlantı kopması sayımı kaybettirmez.
+ * Her oturumun bir kimliği vardır: DB aynı kimliği bir kez işler (dosya silinemeden çökülse bile
+ * geri yüklenen oturum stoğu ikinci kez artırmaz).
+ * Stok sayımı da aynı yapıyla (barkod -> adet) çevrimdışı toplanır.
+ * JavaFX'e bağımlı değildir.
+ */
+public class ReceivingSession {
+
+    public record Line(String barcode, int productId, String name, int qty) {}
+
+    private final LinkedHashMap<String, Line> lines = new LinkedHashMap<>();
+    private String id = UUID.randomUUID().toString();
+
+    public String id() { return id; }
+
+    /** Okutma: varsa üstüne ekler. @return satırın yeni hali */
+    public Line add(int productId, String name, String barcode, int qty) {
+        Line old = lines.get(barcode);
+        Line line = new Line(barcode, productId, name, (old == null ? 0 : old.qty()) + qty);
+        lines.put(barcode, line);
+        return line;
+    }
+
+    /** Adedi olduğu gibi yazar (sayımda 0 da geçerli bir sonuçtur). */
+    public Line put(int productId, String name, String barcode, int qty) {
+        Line line = new Line(barcode, productId, name, Math.max(qty, 0));
+        lines.put(barcode, line);
+        return line;
+    }
+
+    /** Adedi SET eder; 0 veya altı satırı siler. @return yeni hali, silindiyse null */
+    public Line setQty(String barcode, int qty) {
+        Line old = lines.get(barcode);
+        if (old == null) return null;
+        if (qty <= 0) {
+            lines.remove(barcode);
+            return null;
+        }
+        Line line = new Line(barcode, old.productId(), old.name(), qty);
+        lines.put(barcode, line);
+        return line;
+    }
+
+    public void remove(String barcode) { lines.remove(barcode); }
+    /** Boşaltır ve yeni oturum başlatır (yeni kimlik). */
+    public void clear() {
+        lines.clear();
+        id = UUID.randomUUID().toString();
+    }
+
+    /** Diğer oturumun satırlarını bunun üstüne ekler (kimlik bununki kalır). */
+    public void merge(ReceivingSession other) {
+        for (Line l : other.lines.values()) add(l.productId(), l.name(), l.barcode(), l.qty());
+    }
+
+    public boolean isEmpty() { return lines.isEmpty(); }
+    public int lineCount() { return lines.size(); }
+
+    public int totalQty() {
+        int sum = 0;
+        for (Line l : lines.values()) sum += l.qty();
+        return sum;
+    }
+
+    public List<Line> lines() {
+        return List.copyOf(lines.values());
+    }
+
+    // =========================
+    // ✅ DİSKE YAZ / OKU
+    // =========================
+
+    public static void save(Path file, List<Line> lines) throws IOException {
+        save(file, null, lines);
+    }
+
+    /**
+     * İlk satır (varsa) "#id \t kimlik", sonra satır başına: barkod \t ürün id \t adet \t ad.
+     * Önce geçici dosyaya yazılır, sonra atomik taşınır.
+     */
+    public static void save(Path file, String id, List<Line> lines) throws IOException {
+        Files.createDirectories(file.getParent());
+
+        List<String> out = new ArrayList<>(lines.size() + 1);
+        if (id != null) out.add("#id\t" + id);
+        for (Line l : lines) {
+            String name = l.name() == null ? "" : l.name().replace('\t', ' ').replace('\n', ' ');
+            out.add(l.barcode() + "\t" + l.productId() + "\t" + l.qty() + "\t" + name);
+        }
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(tmp, out, StandardCharsets.UTF_8);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static ReceivingSession load(Path file) throws IOException {
+        ReceivingSession s = new ReceivingSession();
+        if (!Files.exists(file)) return s;
+
+        for (String row : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            if (row.startsWith("#id\t")) {
+                s.id = row.substring(4);
+                continue;
+            }
+            String[] f = row.split("\t", 4);
+            if (f.length < 3) continue;
+            try {
+                s.add(Integer.parseInt(f[1]), f.length > 3 ? f[3] : "", f[0], Integer.parseInt(f[2]));
+            } catch (NumberFormatException ignored) {}
+        }
+        return s;
+    }
+}
@@ -0,0 +1,448 @@
+package com.stockapp.service;
+
+import com.stockapp.config.AppConfig;
+import com.stockapp.config.DatabaseConfig;
+import com.stockapp.config.DbInitializer;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.postgresql.copy.CopyOut;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Yedekleme / geri yükleme (.stkb arşivi).
+ *
+ * Yedek: her tablo kendi bağlantısında, aynı anda COPY TO STDOUT ile okunur (hepsi aynı export edilmiş
+ * snapshot'ı görür -> tablolar arası tutarlı). Akış 1 MB'lık parçalara bölünür, her parça ayrı sıkıştırılıp
+ * tek dosyaya çerçeve olarak eklenir. Bellekte iş parçacığı başına en fazla bir parça durur (satır sayısından bağımsız).
+ *
+ * Arşiv düzeni (big-endian):
+ *   MAGIC | FORMAT | şema sürümü | createdAt(long) | terminal | tablo sayısı | tablo adları
+ *   çerçeve: tablo(byte) | ham uzunluk | sıkışık uzunluk | CRC32(ham) | deflate verisi   (tablolar karışık sırada)
+ *   bitiş:   -1 | her tablo için satır(long), ham bayt(long), SHA-256(32)
+ * Metinler: uzunluk (unsigned short) + UTF-8.
+ *
+ * Geri yükleme: önce sadece çerçeve başlıkları okunup tablo başına konum listesi çıkarılır, sonra
+ * tablolar FK sırasıyla tek transaction'da COPY FROM STDIN ile yazılır. Checksum tutmazsa hepsi geri alınır.
+ */
+public class BackupService {
+
+    public interface Listener {
+        /** @param fraction 0..1 (tahmini), iş parçacıklarından çağrılır */
+        void onProgress(String message, double fraction);
+    }
+
+    public record Summary(Path file, long rows, long rawBytes, long fileBytes, long millis) {}
+
+    /** @param source yedekte okunacak ilişki (tablo ya da aynı kolonlu view) */
+    private record Table(String name, String columns, String source) {
+        Table(String name, String columns) {
+            this(name, columns, name);
+        }
+    }
+
+    // FK sırası: geri yükleme bu sırayla yazar.
+    // products stoğu v_products'tan: katlanmamış defter artışları dahil gerçek toplam
+    // (kasa emanet kotaları zaten toplamın içinde; geri yüklemede kotalar sıfırlanır, hepsi serbest stok olur)
+    private static final List<Table> TABLES = List.of(
+            new Table("categories", "id, name"),
+            new Table("products", "id, name, barcode, category_id, stock, price", "v_products"),
+            new Table("sales", "id, sale_date, total_amount"),
+            new Table("sale_items", "id, sale_id, product_id, quantity, unit_price, line_total")
+    );
+
+    private static final int MAGIC = 0x53544B42; // "STKB"
+    private static final int FORMAT = 1;
+    private static final int CHUNK_BYTES = 1 << 20;
+    private static final int FRAME_HEADER_BYTES = 1 + 4 + 4 + 4;
+
+    public static String defaultFileName() {
+        return "stockapp-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmm")) + ".stkb";
+    }
+
+    // =========================
+    // ✅ YEDEK
+    // =========================
+
+    public static Summary backup(Path file, Listener listener) {
+        long t0 = System.currentTimeMillis();
+        Path tmp = file.resolveSibling(file.getFileName() + ".part");
+
+        long rows = 0, raw = 0;
+
+        ExecutorService workers = Executors.newFixedThreadPool(TABLES.size(), r -> {
+            Thread t = new Thread(r, "backup-thread");
+            t.setDaemon(true);
+            return t;
+        });
+
+        // snapshot'ı export eden transaction tüm kopyalar bitene kadar açık kalmalı
+        try (Connection coord = DatabaseConfig.openDirectConnection();
+             FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            coord.setAutoCommit(false);
+            String snapshotId;
+            long estimatedRows;
+            try (Statement st = coord.createStatement()) {
+                st.execute("SET TRANSACTION ISOLATION LEVEL REPEATABLE READ, READ ONLY");
+                try (ResultSet rs = st.executeQuery("SELECT pg_export_snapshot()")) {
+                    rs.next();
+                    snapshotId = rs.getString(1);
+                }
+                try (ResultSet rs = st.executeQuery("""
+                        SELECT COALESCE(SUM(GREATEST(reltuples, 0)), 0)::bigint FROM pg_class
+                        WHERE relname IN ('categories', 'products', 'sales', 'sale_items') AND relkind = 'r'
+                     """)) {
+                    rs.next();
+                    estimatedRows = Math.max(1, rs.getLong(1));
+                }
+            }
+
+            writeHeader(out);
+
+            AtomicLong rowsDone = new AtomicLong();
+            List<Future<long[]>> jobs = new ArrayList<>();
+            List<byte[]> digests = new ArrayList<>();
+            for (int i = 0; i < TABLES.size(); i++) digests.add(null);
+
+            for (int i = 0; i < TABLES.size(); i++) {
+                int idx = i;
+                jobs.add(workers.submit(() -> dumpTable(idx, snapshotId, out, digests, rowsDone, estimatedRows, listener)));
+            }
+
+            ByteBuffer trailer = ByteBuffer.allocate(1 + TABLES.size() * (8 + 8 + 32));
+            trailer.put((byte) -1);
+            for (int i = 0; i < TABLES.size(); i++) {
+                long[] r = jobs.get(i).get();
+                rows += r[0];
+                raw += r[1];
+                trailer.putLong(r[0]).putLong(r[1]).put(digests.get(i));
+            }
+            trailer.flip();
+            while (trailer.hasRemaining()) out.write(trailer);
+            out.force(true);
+
+            coord.commit();
+
+        } catch (Exception e) {
+            workers.shutdownNow();
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException ignored) {}
+            throw new RuntimeException("Yedek alınamadı", e);
+        } finally {
+            workers.shutdown();
+        }
+
+        try {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            long size = Files.size(file);
+            listener.onProgress("✅ Yedek tamamlandı", 1.0);
+            return new Summary(file, rows, raw, size, System.currentTimeMillis() - t0);
+        } catch (IOException e) {
+            throw new RuntimeException("Yedek dosyası yazılamadı", e);
+        }
+    }
+
+    private static void writeHeader(FileChannel out) throws IOException {
+        List<byte[]> names = new ArrayList<>();
+        byte[] terminal = AppConfig.terminalId().getBytes(StandardCharsets.UTF_8);
+        int size = 4 + 4 + 4 + 8 + 2 + terminal.length + 1;
+        for (Table t : TABLES) {
+            byte[] b = t.name().getBytes(StandardCharsets.UTF_8);
+            names.add(b);
+            size += 2 + b.length;
+        }
+
+        ByteBuffer h = ByteBuffer.allocate(size);
+        h.putInt(MAGIC).putInt(FORMAT).putInt(DbInitializer.latestVersion()).putLong(System.currentTimeMillis());
+        h.putShort((short) terminal.length).put(terminal);
+        h.put((byte) TABLES.size());
+        for (byte[] b : names) h.putShort((short) b.length).put(b);
+        h.flip();
+        while (h.hasRemaining()) out.write(h);
+    }
+
+    /** @return {satır, ham bayt} */
+    private static long[] dumpTable(int idx, String snapshotId, FileChannel out, List<byte[]> digests,
+                                    AtomicLong rowsDone, long estimatedRows, Listener listener) throws Exception {
+        Table t = TABLES.get(idx);
+
+        try (Connection c = DatabaseConfig.openDirectConnection()) {
+            c.setAutoCommit(false);
+            try (Statement st = c.createStatement()) {
+                st.execute("SET TRANSACTION ISOLATION LEVEL REPEATABLE READ, READ ONLY");
+                st.execute("SET TRANSACTION SNAPSHOT '" + snapshotId + "'");
+            }
+
+            CopyManager copy = c.unwrap(PGConnection.class).getCopyAPI();
+            CopyOut co = copy.copyOut("COPY (SELECT " + t.columns() + " FROM " + t.source() + ") TO STDOUT");
+
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            byte[] chunk = new byte[CHUNK_BYTES];
+            byte[] packed = new byte[CHUNK_BYTES + CHUNK_BYTES / 10 + 64];
+            int len = 0;
+            long rows = 0, raw = 0;
+
+            try {
+                byte[] row;
+                while ((row = co.readFromCopy()) != null) {
+                    if (len + row.length > chunk.length && len > 0) {
+                        writeFrame(out, idx, chunk, len, packed, deflater);
+                        listener.onProgress(t.name() + " yedekleniyor...", Math.min(0.99, rowsDone.get() / (double) estimatedRows));
+                        len = 0;
+                    }
+                    if (row.length > chunk.length) { // tek satır parçadan büyükse parçayı büyüt (nadir)
+                        chunk = Arrays.copyOf(chunk, row.length);
+                        packed = new byte[row.length + row.length / 10 + 64];
+                    }
+                    System.arraycopy(row, 0, chunk, len, row.length);
+                    len += row.length;
+                    sha.update(row);
+                    raw += row.length;
+                    rows++;
+                    rowsDone.incrementAndGet();
+                }
+                if (len > 0) writeFrame(out, idx, chunk, len, packed, deflater);
+            } finally {
+                deflater.end();
+            }
+
+            c.commit();
+            digests.set(idx, sha.digest());
+            return new long[]{rows, raw};
+        }
+    }
+
+    private static void writeFrame(FileChannel out, int idx, byte[] raw, int len, byte[] packed, Deflater deflater)
+            throws IOException {
+        deflater.reset();
+        deflater.setInput(raw, 0, len);
+        deflater.finish();
+        int packedLen = 0;
+        while (!deflater.finished()) {
+            if (packedLen == packed.length) throw new IOException("Sıkıştırma tamponu yetersiz");
+            packedLen += deflater.deflate(packed, packedLen, packed.length - packedLen);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(raw, 0, len);
+
+        ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER_BYTES);
+        header.put((byte) idx).putInt(len).putInt(packedLen).putInt((int) crc.getValue()).flip();
+        ByteBuffer body = ByteBuffer.wrap(packed, 0, packedLen);
+
+        // çerçeve bütün yazılsın: paralel tablolar birbirinin ortasına girmesin
+        synchronized (out) {
+            while (header.hasRemaining()) out.write(header);
+            while (body.hasRemaining()) out.write(body);
+        }
+    }
+
+    // =========================
+    // ✅ GERİ YÜKLEME
+    // =========================
+
+    private record Frame(long offset, int rawLen, int packedLen, int crc) {}
+
+    /**
+     * Mevcut verinin yerine arşivdekini koyar (tek transaction).
+     * Stok defteri ve emanet kotaları arşivde yok: yedekteki stok (bekleyenler katlanmış toplam)
+     * açılış hareketi olarak yeniden yazılır.
+     */
+    public static Summary restore(Path file, Listener listener) {
+        long t0 = System.currentTimeMillis();
+
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            long fileSize = in.size();
+
+            // 1) başlık + çerçeve dizini (sadece başlıklar okunur, veri atlanır)
+            ByteBuffer fixed = readFully(in, 0, 4 + 4 + 4 + 8 + 2);
+            if (fixed.getInt() != MAGIC) throw new IOException("Bu bir yedek dosyası değil");
+            int format = fixed.getInt();
+            if (format != FORMAT) throw new IOException("Desteklenmeyen yedek formatı: " + format);
+            int schema = fixed.getInt();
+            if (schema > DbInitializer.latestVersion()) {
+                throw new IOException("Yedek daha yeni bir uygulama sürümünden (şema " + schema + ")");
+            }
+            fixed.getLong(); // createdAt
+            long pos = fixed.capacity() + Short.toUnsignedInt(fixed.getShort());
+
+            int tableCount = readFully(in, pos, 1).get();
+            pos += 1;
+            List<String> names = new ArrayList<>();
+            for (int i = 0; i < tableCount; i++) {
+                int n = Short.toUnsignedInt(readFully(in, pos, 2).getShort());
+                names.add(StandardCharsets.UTF_8.decode(readFully(in, pos + 2, n)).toString());
+                pos += 2 + n;
+            }
+            if (!names.equals(TABLES.stream().map(Table::name).toList())) {
+                throw new IOException("Yedekteki tablolar beklenenle uyuşmuyor: " + names);
+            }
+
+            List<List<Frame>> frames = new ArrayList<>();
+            for (int i = 0; i < tableCount; i++) frames.add(new ArrayList<>());
+
+            while (true) {
+                ByteBuffer fh = readFully(in, pos, 1);
+                byte idx = fh.get();
+                if (idx == -1) {
+                    pos += 1;
+                    break;
+                }
+                if (idx < 0 || idx >= tableCount) throw new IOException("Bozuk yedek dosyası");
+                ByteBuffer h = readFully(in, pos + 1, FRAME_HEADER_BYTES - 1);
+                Frame f = new Frame(pos + FRAME_HEADER_BYTES, h.getInt(), h.getInt(), h.getInt());
+                frames.get(idx).add(f);
+                pos = f.offset() + f.packedLen();
+            }
+
+            ByteBuffer trailer = readFully(in, pos, tableCount * (8 + 8 + 32));
+            long[] expectedRows = new long[tableCount];
+            byte[][] expectedSha = new byte[tableCount][32];
+            for (int i = 0; i < tableCount; i++) {
+                expectedRows[i] = trailer.getLong();
+                trailer.getLong(); // ham bayt
+                trailer.get(expectedSha[i]);
+            }
+
+            // 2) tek transaction: eskiyi sil, FK sırasıyla yaz, doğrula
+            long rowsTotal = 0, rawTotal = 0, readBytes = 0;
+
+            try (Connection c = DatabaseConfig.openDirectConnection()) {
+                c.setAutoCommit(false);
+                try {
+                    try (Statement st = c.createStatement()) {
+                        // diğer kasaların lokal katalog kopyası eski satırları silsin
+                        st.execute("""
+                            INSERT INTO catalog_tombstones(kind, id)
+                            SELECT 'P', id FROM products
+                            UNION ALL
+                            SELECT 'C', id FROM categories
+                        """);
+                        st.execute("TRUNCATE sale_items, sales, products, categories CASCADE");
+                    }
+
+                    CopyManager copy = c.unwrap(PGConnection.class).getCopyAPI();
+                    Inflater inflater = new Inflater();
+                    byte[] raw = new byte[CHUNK_BYTES];
+
+                    try {
+                        for (int i = 0; i < tableCount; i++) {
+                            Table t = TABLES.get(i);
+                            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+                            long rows = 0;
+
+                            CopyIn ci = copy.copyIn("COPY " + t.name() + "(" + t.columns() + ") FROM STDIN");
+                            try {
+                                for (Frame f : frames.get(i)) {
+                                    if (raw.length < f.rawLen()) raw = new byte[f.rawLen()];
+                                    inflate(inflater, readFully(in, f.offset(), f.packedLen()), raw, f.rawLen());
+
+                                    CRC32 crc = new CRC32();
+                                    crc.update(raw, 0, f.rawLen());
+                                    if ((int) crc.getValue() != f.crc()) throw new IOException("Bozuk yedek parçası (" + t.name() + ")");
+
+                                    sha.update(raw, 0, f.rawLen());
+                                    for (int b = 0; b < f.rawLen(); b++) if (raw[b] == '\n') rows++;
+                                    ci.writeToCopy(raw, 0, f.rawLen());
+
+                                    rawTotal += f.rawLen();
+                                    readBytes += FRAME_HEADER_BYTES + f.packedLen();
+                                    listener.onProgress(t.name() + " geri yükleniyor...", Math.min(0.99, readBytes / (double) fileSize));
+                                }
+                                ci.endCopy();
+                            } finally {
+                                if (ci.isActive()) ci.cancelCopy();
+                            }
+
+                            if (rows != expectedRows[i] || !MessageDigest.isEqual(sha.digest(), expectedSha[i])) {
+                                throw new IOException("Checksum tutmadı: " + t.name());
+                            }
+                            rowsTotal += rows;
+                        }
+                    } finally {
+                        inflater.end();
+                    }
+
+                    try (Statement st = c.createStatement()) {
+                        // seriler yedekteki en büyük id'den devam etsin
+                        for (Table t : TABLES) {
+                            st.execute("SELECT setval(pg_get_serial_sequence('" + t.name() + "', 'id'), "
+                                    + "COALESCE((SELECT MAX(id) FROM " + t.name() + "), 0) + 1, false)");
+                        }
+                    }
+                    // defter: geri yüklenen stok = açılış hareketi (replay tutarlı kalsın)
+                    try (PreparedStatement ps = c.prepareStatement("""
+                            INSERT INTO stock_movements(product_id, delta, reason, terminal_id, applied)
+                            SELECT id, stock, 'OPENING', ?, true FROM products WHERE stock <> 0
+                         """)) {
+                        ps.setString(1, AppConfig.terminalId());
+                        ps.executeUpdate();
+                    }
+
+                    c.commit();
+
+                } catch (Exception e) {
+                    c.rollback();
+                    throw e;
+                }
+            }
+
+            listener.onProgress("✅ Geri yükleme tamamlandı", 1.0);
+            return new Summary(file, rowsTotal, rawTotal, fileSize, System.currentTimeMillis() - t0);
+
+        } catch (Exception e) {
+            throw new RuntimeException("Geri yükleme başarısız", e);
+        }
+    }
+
+    private static ByteBuffer readFully(FileChannel in, long pos, int len) throws IOException {
+        ByteBuffer b = ByteBuffer.allocate(len);
+        while (b.hasRemaining()) {
+            if (in.read(b, pos + b.position()) < 0) throw new IOException("Yedek dosyası eksik (yarım kalmış olabilir)");
+        }
+        return b.flip();
+    }
+
+    private static void inflate(Inflater inflater, ByteBuffer packed, byte[] raw, int rawLen)
+            throws IOException, DataFormatException {
+        inflater.reset();
+        inflater.setInput(packed.array(), 0, packed.limit());
+        int n = 0;
+        while (n < rawLen && !inflater.finished()) {
+            int k = inflater.inflate(raw, n, rawLen - n);
+            if (k == 0 && inflater.needsInput()) break;
+            n += k;
+        }
+        if (n != rawLen) throw new IOException("Bozuk yedek parçası");
+    }
+}
@@ -0,0 +1,277 @@
+package com.stockapp.service;
+
+import com.stockapp.config.AppConfig;
+import com.stockapp.dao.CatalogDAO;
+import com.stockapp.model.Category;
+import com.stockapp.model.Product;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Ürün + kategori kataloğunun lokal kopyası (dataDir()/catalog.snap):
+ * - açılışta dosya belleğe eşlenir (mmap) -> ürünler ekranı ve barkod cache'i milisaniyede dolar
+ * - sync() DB'den sadece watermark sonrası değişenleri çeker (CatalogDAO), belleğe işler,
+ *   dosyayı geçici dosya + atomic move ile baştan yazar (yarım dosya kalmaz)
+ *
+ * Dosya düzeni (big-endian):
+ *   MAGIC | FORMAT | watermark(long) | savedAt(long) | kategori sayısı | ürün sayısı
+ *   kategori: id | ad
+ *   ürün:     id | category_id | stock | price(double) | ad | barkod
+ *   CRC32 (öncesinin tamamı)
+ * Metinler: uzunluk (unsigned short) + UTF-8.
+ */
+public class CatalogSnapshot {
+
+    private static final int MAGIC = 0x53544B43; // "STKC"
+    private static final int FORMAT = 1;
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 4 + 4;
+
+    private static final Path FILE = AppConfig.dataDir().resolve("catalog.snap");
+
+    private static final Map<Integer, Category> CATEGORIES = new HashMap<>();
+    private static final Map<Integer, Product> PRODUCTS = new HashMap<>();
+    private static long watermark = 0;
+    private static volatile boolean loaded = false;
+    private static boolean dirty = false; // son yazma başarısız -> bir sonraki sync'te tekrar yaz
+
+    public static boolean isLoaded() {
+        return loaded;
+    }
+
+    /** Açılışta 1 kez (FX thread'de çağrılabilir, dosya küçük ve eşlenerek okunur). */
+    public static synchronized boolean load() {
+        if (!Files.exists(FILE)) return false;
+        long t0 = System.nanoTime();
+
+        try (FileChannel ch = FileChannel.open(FILE, StandardOpenOption.READ)) {
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            if (buf.limit() < HEADER_BYTES + 4) return false;
+
+            // bozuk / yarım dosya -> yok say, sync baştan yükler
+            CRC32 crc = new CRC32();
+            crc.update(buf.duplicate().limit(buf.limit() - 4));
+            if ((int) crc.getValue() != buf.getInt(buf.limit() - 4)) {
+                System.out.println("SNAPSHOT ❌ checksum tutmadı, yok sayıldı");
+                return false;
+            }
+
+            if (buf.getInt() != MAGIC || buf.getInt() != FORMAT) return false;
+            long wm = buf.getLong();
+            buf.getLong(); // savedAt
+            int catCount = buf.getInt();
+            int prodCount = buf.getInt();
+
+            Map<Integer, Category> cats = new HashMap<>(catCount * 2);
+            for (int i = 0; i < catCount; i++) {
+                int id = buf.getInt();
+                cats.put(id, new Category(id, readString(buf)));
+            }
+
+            Map<Integer, Product> prods = new HashMap<>(prodCount * 2);
+            for (int i = 0; i < prodCount; i++) {
+                int id = buf.getInt();
+                int categoryId = buf.getInt();
+                int stock = buf.getInt();
+                double price = buf.getDouble();
+                String name = readString(buf);
+                String barcode = readString(buf);
+
+                Category cat = cats.get(categoryId);
+                prods.put(id, new Product(id, name, barcode, categoryId, cat == null ? null : cat.getName(), stock, price));
+            }
+
+            CATEGORIES.clear();
+            CATEGORIES.putAll(cats);
+            PRODUCTS.clear();
+            PRODUCTS.putAll(prods);
+            watermark = wm;
+            loaded = true;
+
+            Map<String, Product> cache = ScanPipeline.cache();
+            for (Product p : prods.values()) cache.put(p.getBarcode(), p);
+
+            System.out.printf("SNAPSHOT ✅ %d ürün, %d kategori (%.1f ms)%n",
+                    prodCount, catCount, (System.nanoTime() - t0) / 1_000_000.0);
+            return true;
+
+        } catch (Exception e) {
+            System.out.println("SNAPSHOT ❌ okunamadı: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * DB'den delta çeker, belleğe ve dosyaya işler. Arka plan thread'inden çağır.
+     * @return değişen/silinen kayıt sayısı
+     */
+    public static synchronized int sync() {
+        long t0 = System.nanoTime();
+        CatalogDAO.Delta d = CatalogDAO.since(loaded ? watermark : 0);
+
+        if (d.full()) {
+            CATEGORIES.clear();
+            PRODUCTS.clear();
+        }
+
+        int n = 0;
+        // önce silinenler, sonra güncel satırlar: delta'daki satırlar DB'de şu an var olanlar
+        // (geri yüklemede aynı id hem silinip hem yeniden eklenebilir)
+        for (int id : d.deletedCategories()) {
+            if (CATEGORIES.remove(id) != null) n++;
+        }
+        for (Category c : d.categories()) {
+            Category old = CATEGORIES.put(c.getId(), c);
+            if (old == null || !old.getName().equals(c.getName())) n++;
+        }
+
+        Map<String, Product> cache = ScanPipeline.cache();
+        Map<Integer, Product> removed = new HashMap<>();
+        for (int id : d.deletedProducts()) {
+            Product old = PRODUCTS.remove(id);
+            if (old != null) {
+                cache.remove(old.getBarcode());
+                removed.put(id, old);
+            }
+        }
+        for (Product p : d.products()) {
+            Product old = PRODUCTS.put(p.getId(), p);
+            if (old == null) old = removed.remove(p.getId());
+            if (old != null && !old.getBarcode().equals(p.getBarcode())) cache.remove(old.getBarcode());
+            cache.put(p.getBarcode(), p);
+            if (!same(old, p)) n++;
+        }
+        n += removed.size();
+
+        // kategori adı değiştiyse ürünlerdeki ad da güncellensin
+        if (!d.categories().isEmpty() && !d.full()) {
+            for (Product p : PRODUCTS.values()) {
+                Category c = CATEGORIES.get(p.getCategoryId());
+                if (c != null) p.setCategoryName(c.getName());
+            }
+        }
+
+        // bekleyen stok artışı olan ürünler her delta'da tekrar gelir: gerçekten değişen yoksa dosyaya dokunma
+        boolean rewrite = d.full() || n > 0 || dirty;
+        watermark = d.watermark();
+        loaded = true;
+
+        if (rewrite) {
+            try {
+                save();
+                dirty = false;
+            } catch (IOException e) {
+                dirty = true;
+                // Windows'ta eşlenmiş eski dosya GC'ye kadar kilitli kalabilir: bellek güncel, sonraki sync tekrar yazar
+                System.out.println("SNAPSHOT ❌ yazılamadı: " + e.getMessage());
+            }
+        }
+
+        System.out.printf("SNAPSHOT 🔄 %s: %d kayıt (%.0f ms)%n",
+                d.full() ? "tam" : "delta", n, (System.nanoTime() - t0) / 1_000_000.0);
+        return n;
+    }
+
+    private static boolean same(Product a, Product b) {
+        return a != null
+                && a.getStock() == b.getStock()
+                && a.getPrice() == b.getPrice()
+                && a.getCategoryId() == b.getCategoryId()
+                && a.getName().equals(b.getName())
+                && a.getBarcode().equals(b.getBarcode());
+    }
+
+    /** Yüklü değilse veya ürün yoksa null. */
+    public static synchronized Product product(int id) {
+        return PRODUCTS.get(id);
+    }
+
+    /** id DESC (ProductDAO.findAll ile aynı sıra). */
+    public static synchronized List<Product> products() {
+        List<Product> list = new ArrayList<>(PRODUCTS.values());
+        list.sort(Comparator.comparingInt(Product::getId).reversed());
+        return list;
+    }
+
+    public static synchronized List<Category> categories() {
+        List<Category> list = new ArrayList<>(CATEGORIES.values());
+        list.sort(Comparator.comparing(Category::getName, String.CASE_INSENSITIVE_ORDER));
+        return list;
+    }
+
+    private static void save() throws IOException {
+        List<byte[]> texts = new ArrayList<>();
+        int size = HEADER_BYTES + 4;
+
+        for (Category c : CATEGORIES.values()) {
+            byte[] name = bytes(c.getName());
+            texts.add(name);
+            size += 4 + 2 + name.length;
+        }
+        for (Product p : PRODUCTS.values()) {
+            byte[] name = bytes(p.getName());
+            byte[] barcode = bytes(p.getBarcode());
+            texts.add(name);
+            texts.add(barcode);
+            size += 4 + 4 + 4 + 8 + 2 + name.length + 2 + barcode.length;
+        }
+
+        ByteBuffer buf = ByteBuffer.allocate(size);
+        buf.putInt(MAGIC).putInt(FORMAT).putLong(watermark).putLong(System.currentTimeMillis())
+           .putInt(CATEGORIES.size()).putInt(PRODUCTS.size());
+
+        int t = 0;
+        for (Category c : CATEGORIES.values()) {
+            buf.putInt(c.getId());
+            putString(buf, texts.get(t++));
+        }
+        for (Product p : PRODUCTS.values()) {
+            buf.putInt(p.getId()).putInt(p.getCategoryId()).putInt(p.getStock()).putDouble(p.getPrice());
+            putString(buf, texts.get(t++));
+            putString(buf, texts.get(t++));
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buf.array(), 0, buf.position());
+        buf.putInt((int) crc.getValue());
+        buf.flip();
+
+        Files.createDirectories(FILE.getParent());
+        Path tmp = FILE.resolveSibling(FILE.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buf.hasRemaining()) ch.write(buf);
+            ch.force(true);
+        }
+        Files.move(tmp, FILE, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** Ad en fazla 150, barkod 100 karakter (şema) -> her zaman 0xFFFF bayttan kısa. */
+    private static byte[] bytes(String s) {
+        return (s == null ? "" : s).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void putString(ByteBuffer buf, byte[] b) {
+        buf.putShort((short) b.length).put(b);
+    }
+
+    private static String readString(ByteBuffer buf) {
+        int len = Short.toUnsignedInt(buf.getShort());
+        byte[] b = new byte[len];
+        buf.get(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,122 @@
+package com.stockapp.service;
+
+import com.stockapp.dao.CategoryDAO;
+import com.stockapp.event.DomainEvent;
+import com.stockapp.event.EventBus;
+import com.stockapp.model.Category;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Kategoriler için sürümlü referans önbelleği (tüm ekranlar + ürün satırı eşlemesi).
+ *
+ * - içerik değişmez bir görüntü (Snapshot) olarak volatile alanda durur -> okuma kilitsiz
+ * - ekranlar (all) her açılışta ref_version'dan tek satır okur; sürüm aynıysa liste tekrar çekilmez
+ * - ürün satırı eşlemesi (names) en fazla CHECK_INTERVAL_MS'de bir, arka planda kontrol eder;
+ *   bu kasadaki değişiklikler (CategoryChanged) kontrolü hemen tetikler
+ *
+ * Başka kasadaki ad değişikliği ürün satırlarında en geç CHECK_INTERVAL_MS sonra görünür.
+ */
+public final class CategoryCache {
+
+    private static final long CHECK_INTERVAL_MS = 30_000;
+
+    private record Snapshot(long version, List<Category> sorted, Map<Integer, String> names) {}
+
+    private static volatile Snapshot current;
+    private static volatile long checkedAt = 0;
+    private static volatile boolean stale = false;
+
+    private static final AtomicBoolean REFRESHING = new AtomicBoolean(false);
+
+    static {
+        // değişiklik bu kasadaysa hemen tazele: sonraki ürün sorgusu yeni adı görsün
+        EventBus.subscribe(DomainEvent.CategoryChanged.class, e -> {
+            stale = true;
+            refreshAsync();
+        });
+        EventBus.subscribe(DomainEvent.CatalogInvalidated.class, e -> stale = true);
+    }
+
+    private CategoryCache() {}
+
+    /** Ada göre sıralı, değiştirilemez liste. Sürümü her çağrıda kontrol eder: FX thread'den çağırma. */
+    public static List<Category> all() {
+        return fresh(true).sorted();
+    }
+
+    /**
+     * id -> ad. Satır eşlemesinde sorgu başına bir kez al, satır başına değil.
+     * Sadece ilk yüklemede bekler; sonrasında eldeki görüntüyü döner, sürüm kontrolü arka planda
+     * (satış yolundaki barkod sorgusu fazladan round-trip beklemesin).
+     */
+    public static Map<Integer, String> names() {
+        Snapshot s = current;
+        if (s == null) return fresh(false).names();
+        if (needsCheck()) refreshAsync();
+        return s.names();
+    }
+
+    /** FX thread için: yüklüyse ve tazeyse anında liste, değilse null (arka planda all() çağır). */
+    public static List<Category> cachedIfFresh() {
+        Snapshot s = current;
+        if (s == null || needsCheck()) return null;
+        return s.sorted();
+    }
+
+    private static void refreshAsync() {
+        if (!REFRESHING.compareAndSet(false, true)) return;
+
+        Thread t = new Thread(() -> {
+            try {
+                fresh(false);
+            } catch (Exception ignored) {
+                // bir sonraki erişim tekrar dener
+            } finally {
+                REFRESHING.set(false);
+            }
+        }, "category-cache-thread");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    private static boolean needsCheck() {
+        return stale || System.currentTimeMillis() - checkedAt > CHECK_INTERVAL_MS;
+    }
+
+    private static Snapshot fresh(boolean force) {
+        Snapshot s = current;
+        if (!force && s != null && !needsCheck()) return s;
+
+        synchronized (CategoryCache.class) {
+            s = current;
+            if (!force && s != null && !needsCheck()) return s; // başka thread az önce tazeledi
+
+            // bayrak önce inmeli: kontrol sırasında gelen değişiklik bir sonraki erişimde tekrar baktırır
+            stale = false;
+            try {
+                long v = CategoryDAO.version();
+                if (s == null || v != s.version()) {
+                    s = load(v);
+                    current = s;
+                }
+            } catch (RuntimeException e) {
+                if (s == null) throw e;
+                stale = true; // bağlantı yok: eldeki liste ile devam, sonra tekrar dene
+                return s;
+            }
+            checkedAt = System.currentTimeMillis();
+            return s;
+        }
+    }
+
+    private static Snapshot load(long version) {
+        List<Category> list = List.copyOf(CategoryDAO.findAll());
+        Map<Integer, String> names = new HashMap<>(list.size() * 2);
+        for (Category c : list) names.put(c.getId(), c.getName());
+        return new Snapshot(version, list, Map.copyOf(names));
+    }
+}
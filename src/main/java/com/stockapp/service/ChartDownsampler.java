@@ -0,0 +1,74 @@
+package com.stockapp.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Largest-Triangle-Three-Buckets: seriyi, şeklini (tepe/dip noktalarını) koruyarak en fazla
+ * {@code threshold} noktaya indirir. Seçilen noktalar gerçek veri noktalarıdır, ortalama üretilmez.
+ */
+public final class ChartDownsampler {
+
+    /** Grafikte iki nokta arası en az bu kadar piksel kalsın. */
+    public static final int PIXELS_PER_POINT = 4;
+
+    private ChartDownsampler() {}
+
+    /** Genişliğe sığan nokta sayısı (en az 3). */
+    public static int budgetForWidth(double widthPx) {
+        return Math.max(3, (int) (widthPx / PIXELS_PER_POINT));
+    }
+
+    public static <T> List<T> lttb(List<T> data, int threshold,
+                                   ToDoubleFunction<T> x, ToDoubleFunction<T> y) {
+        int n = data.size();
+        if (threshold >= n || threshold < 3) return data;
+
+        List<T> out = new ArrayList<>(threshold);
+        out.add(data.get(0)); // ilk ve son nokta her zaman kalır
+
+        // ilk/son hariç n-2 nokta threshold-2 kovaya bölünür
+        double every = (double) (n - 2) / (threshold - 2);
+        int a = 0;
+
+        for (int i = 0; i < threshold - 2; i++) {
+            // sonraki kovanın ortalaması üçgenin üçüncü köşesi
+            int nextStart = (int) Math.floor((i + 1) * every) + 1;
+            int nextEnd = Math.min((int) Math.floor((i + 2) * every) + 1, n);
+            double avgX = 0, avgY = 0;
+            for (int j = nextStart; j < nextEnd; j++) {
+                avgX += x.applyAsDouble(data.get(j));
+                avgY += y.applyAsDouble(data.get(j));
+            }
+            int len = nextEnd - nextStart;
+            avgX /= len;
+            avgY /= len;
+
+            int start = (int) Math.floor(i * every) + 1;
+            int end = (int) Math.floor((i + 1) * every) + 1;
+
+            double ax = x.applyAsDouble(data.get(a));
+            double ay = y.applyAsDouble(data.get(a));
+
+            double maxArea = -1;
+            int picked = start;
+            for (int j = start; j < end; j++) {
+                double bx = x.applyAsDouble(data.get(j));
+                double by = y.applyAsDouble(data.get(j));
+                // alanın iki katı; karşılaştırma için yeterli
+                double area = Math.abs((ax - avgX) * (by - ay) - (ax - bx) * (avgY - ay));
+                if (area > maxArea) {
+                    maxArea = area;
+                    picked = j;
+                }
+            }
+
+            out.add(data.get(picked));
+            a = picked;
+        }
+
+        out.add(data.get(n - 1));
+        return out;
+    }
+}
@@ -0,0 +1,62 @@
+package com.stockapp.service;
+
+import com.stockapp.dao.CatalogDAO;
+import com.stockapp.dao.StockLedgerDAO;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stok defterindeki bekleyen artışları periyodik olarak products.stock snapshot'ına katlar.
+ * Böylece v_products'taki "bekleyen" kısmı hep küçük kalır.
+ * Saatte bir de eski katalog silme kayıtlarını budar.
+ */
+public class LedgerCompactor {
+
+    private static final long PERIOD_SECONDS = 60;
+    private static final long PRUNE_INTERVAL_MS = 60 * 60_000L;
+
+    private static long lastPruneMillis = 0; // sadece compact thread'i kullanır
+
+    private static ScheduledExecutorService scheduler;
+
+    public static synchronized void start() {
+        if (scheduler != null) return;
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ledger-compact-thread");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(LedgerCompactor::compactNow, PERIOD_SECONDS, PERIOD_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public static synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    public static int compactNow() {
+        pruneIfDue();
+        try {
+            return StockLedgerDAO.compact();
+        } catch (Exception e) {
+            // bir sonraki turda tekrar denenir; okumalar view üzerinden doğru kalır
+            return 0;
+        }
+    }
+
+    private static void pruneIfDue() {
+        long now = System.currentTimeMillis();
+        if (now - lastPruneMillis < PRUNE_INTERVAL_MS) return;
+        lastPruneMillis = now;
+        try {
+            CatalogDAO.pruneTombstones(CatalogDAO.TOMBSTONE_RETENTION_DAYS);
+        } catch (Exception ignored) {
+            // bir sonraki saatte tekrar denenir
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.stockapp.service;
+
+import com.stockapp.config.AppConfig;
+import com.stockapp.config.DatabaseConfig;
+import com.stockapp.dao.ReportsDAO;
+import com.stockapp.event.DomainEvent;
+import com.stockapp.event.EventBus;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Bugünün canlı satış toplamları (ciro, fiş, adet, ortalama sepet, saatlik dağılım).
+ *
+ * - açılışta DB'den bir kez doldurulur (seed)
+ * - bu kasanın satışları SaleCommitted ile, diğer kasalarınkiler LISTEN/NOTIFY ile eklenir
+ *   (SalesDAO.createSale aynı transaction'da pg_notify yapar -> sadece commit edilenler gelir)
+ * - diğer kasaların satış satırları RemoteSaleCommitted olarak yayınlanır (TrendingTracker)
+ * - gün değişince sıfırlanır; dashboard sorgu atmadan buradan okur
+ *
+ * Dinleyici bağlantısı koparsa yeniden bağlanır ve kaçırılan bildirimler için tekrar seed eder.
+ */
+public class LiveSalesStats {
+
+    public static final String CHANNEL = "stockapp_sales";
+
+    private static final long RECONNECT_DELAY_MS = 5_000;
+    private static final int POLL_TIMEOUT_MS = 10_000;
+    // pg_notify yükü 8000 baytla sınırlı: satır listesi bundan uzunsa kalanı gönderilmez (trend yaklaşık zaten)
+    private static final int MAX_LINES_CHARS = 7_000;
+
+    /** Değişmez görüntü (FX thread'e güvenle verilir). */
+    public record Stats(LocalDate day, long revenueCents, int receipts, long items,
+                        long[] hourlyCents, int[] hourlyReceipts) {
+        public long avgBasketCents() {
+            return receipts == 0 ? 0 : revenueCents / receipts;
+        }
+    }
+
+    private static LocalDate day = LocalDate.now();
+    private static long revenueCents;
+    private static int receipts;
+    private static long items;
+    private static final long[] HOURLY_CENTS = new long[24];
+    private static final int[] HOURLY_RECEIPTS = new int[24];
+
+    // seed'in saydığı fişler: bunların olayı/bildirimi ikinci kez sayılmaz.
+    // id'ler commit sırasıyla gelmez (SERIAL) -> "en büyük id" yetmez, küme tutulur
+    private static final Set<Integer> SEEDED_SALE_IDS = new HashSet<>();
+    // seed sürerken gelenler: seed bitince kümeye göre süzülüp eklenir
+    private static final List<long[]> BEFORE_SEED = new ArrayList<>();
+    private static volatile boolean seeded = false;
+    private static volatile boolean started = false;
+
+    static {
+        EventBus.subscribe(DomainEvent.SaleCommitted.class, e ->
+                apply(e.saleId(), e.totalCents(), e.itemCount()));
+    }
+
+    /** Hazır olunca (StartupOrchestrator) 1 kez: dinleyiciyi açar, sonra seed eder. */
+    public static synchronized void start() {
+        if (started) return;
+        started = true;
+
+        Thread t = new Thread(LiveSalesStats::listenLoop, "sales-listen-thread");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    public static boolean isSeeded() {
+        return seeded;
+    }
+
+    public static synchronized Stats snapshot() {
+        rollDay();
+        return new Stats(day, revenueCents, receipts, items,
+                Arrays.copyOf(HOURLY_CENTS, 24), Arrays.copyOf(HOURLY_RECEIPTS, 24));
+    }
+
+    // =========================
+    // ✅ NOTIFY YÜKÜ
+    // =========================
+
+    /**
+     * pg_notify yükü: saleId \t totalCents \t itemCount \t terminal \t satırlar
+     * satırlar: ürünId:adet:tutarKuruş, virgülle ayrılmış (eski sürümler bu alanı göndermez)
+     */
+    public static String payload(int saleId, long totalCents, int itemCount, List<DomainEvent.SaleLine> lines) {
+        StringBuilder sb = new StringBuilder(64 + lines.size() * 16);
+        sb.append(saleId).append('\t').append(totalCents).append('\t').append(itemCount)
+                .append('\t').append(AppConfig.terminalId()).append('\t');
+
+        int start = sb.length();
+        for (DomainEvent.SaleLine l : lines) {
+            String item = l.productId() + ":" + l.qty() + ":" + l.lineTotalCents();
+            if (sb.length() - start + item.length() + 1 > MAX_LINES_CHARS) break;
+            if (sb.length() > start) sb.append(',');
+            sb.append(item);
+        }
+        return sb.toString();
+    }
+
+    private static void onNotification(String payload) {
+        String[] f = payload.split("\t", 5);
+        if (f.length < 4) return;
+        if (f[3].equals(AppConfig.terminalId())) return; // kendi satışımız SaleCommitted ile geldi
+
+        try {
+            int saleId = Integer.parseInt(f[0]);
+            apply(saleId, Long.parseLong(f[1]), Integer.parseInt(f[2]));
+            if (f.length == 5 && !f[4].isEmpty()) {
+                EventBus.publish(new DomainEvent.RemoteSaleCommitted(saleId, f[3], parseLines(f[4])));
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("LIVE ❗ bozuk bildirim: " + payload);
+        }
+    }
+
+    private static List<DomainEvent.SaleLine> parseLines(String s) {
+        List<DomainEvent.SaleLine> lines = new ArrayList<>();
+        for (String item : s.split(",")) {
+            String[] p = item.split(":", 3);
+            if (p.length < 3) continue;
+            lines.add(new DomainEvent.SaleLine(Integer.parseInt(p[0]), Integer.parseInt(p[1]), Long.parseLong(p[2])));
+        }
+        return lines;
+    }
+
+    // =========================
+    // ✅ TOPLAMLAR
+    // =========================
+
+    private static void apply(int saleId, long totalCents, int itemCount) {
+        synchronized (LiveSalesStats.class) {
+            if (!seeded) {
+                BEFORE_SEED.add(new long[]{saleId, totalCents, itemCount, LocalDateTime.now().getHour()});
+                return;
+            }
+            if (!add(saleId, totalCents, itemCount, LocalDateTime.now().getHour())) return;
+        }
+        EventBus.publish(new DomainEvent.SalesStatsChanged());
+    }
+
+    /** @return sayıldıysa true (seed'de zaten varsa false). Kilit altında çağrılır. */
+    private static boolean add(int saleId, long totalCents, int itemCount, int hour) {
+        if (SEEDED_SALE_IDS.remove(saleId)) return false; // her fiş bir kez gelir: bulunca küme küçülür
+        rollDay();
+
+        revenueCents += totalCents;
+        receipts++;
+        items += itemCount;
+        HOURLY_CENTS[hour] += totalCents;
+        HOURLY_RECEIPTS[hour]++;
+        return true;
+    }
+
+    private static void rollDay() {
+        LocalDate today = LocalDate.now();
+        if (today.equals(day)) return;
+        day = today;
+        SEEDED_SALE_IDS.clear();
+        revenueCents = 0;
+        receipts = 0;
+        items = 0;
+        Arrays.fill(HOURLY_CENTS, 0);
+        Arrays.fill(HOURLY_RECEIPTS, 0);
+    }
+
+    private static void seed() {
+        // yeniden bağlanmada da: sorgu sürerken gelenler bekletilir, sonra süzülür
+        synchronized (LiveSalesStats.class) {
+            seeded = false;
+        }
+
+        LocalDate today = LocalDate.now();
+        var rows = ReportsDAO.getTodayHourly();
+        int seededReceipts;
+
+        synchronized (LiveSalesStats.class) {
+            day = today;
+            revenueCents = 0;
+            receipts = 0;
+            items = 0;
+            Arrays.fill(HOURLY_CENTS, 0);
+            Arrays.fill(HOURLY_RECEIPTS, 0);
+            SEEDED_SALE_IDS.clear();
+
+            for (ReportsDAO.HourlySalesRow r : rows) {
+                revenueCents += r.revenueCents();
+                receipts += r.receipts();
+                items += r.items();
+                HOURLY_CENTS[r.hour()] += r.revenueCents();
+                HOURLY_RECEIPTS[r.hour()] += r.receipts();
+                SEEDED_SALE_IDS.addAll(Arrays.asList(r.saleIds()));
+            }
+
+            for (long[] e : BEFORE_SEED) add((int) e[0], e[1], (int) e[2], (int) e[3]);
+            BEFORE_SEED.clear();
+            seeded = true;
+            seededReceipts = receipts;
+        }
+        EventBus.publish(new DomainEvent.SalesStatsChanged());
+        System.out.println("LIVE ✅ bugün " + seededReceipts + " fiş");
+    }
+
+    // =========================
+    // ✅ LISTEN DÖNGÜSÜ
+    // =========================
+
+    private static void listenLoop() {
+        while (true) {
+            try (Connection c = DatabaseConfig.openDirectConnection()) {
+                try (Statement st = c.createStatement()) {
+                    st.execute("LISTEN " + CHANNEL);
+                }
+                // dinlemeye başladıktan SONRA seed: arada commit edilen satış ya seed'de ya bildirimde
+                seed();
+
+                PGConnection pg = c.unwrap(PGConnection.class);
+                while (true) {
+                    PGNotification[] batch = pg.getNotifications(POLL_TIMEOUT_MS);
+                    if (batch == null) continue;
+                    for (PGNotification n : batch) onNotification(n.getParameter());
+                }
+            } catch (Exception e) {
+                System.out.println("LIVE ❌ dinleyici koptu: " + e.getMessage());
+            }
+
+            try {
+                Thread.sleep(RECONNECT_DELAY_MS);
+            } catch (InterruptedException ie) {
+                return;
+            }
+        }
+    }
+}
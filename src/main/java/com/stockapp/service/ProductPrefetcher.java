@@ -0,0 +1,75 @@
+package com.stockapp.service;
+
+import com.stockapp.dao.ProductDAO;
+import com.stockapp.model.Product;
+
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Soğuk kasada ilk okutmalar DB'ye gitmesin diye:
+ * açılışta ve periyodik olarak en çok satan ürünleri (ve bu saatte satılanları)
+ * tek sorguyla barkod cache'ine doldurur. Tüm kataloğu yüklemez.
+ */
+public class ProductPrefetcher {
+
+    private static final int TOP_N = 500;
+    private static final int HISTORY_DAYS = 30;
+    private static final int HOUR_WINDOW = 1;           // şu anki saat ± 1
+    private static final long PERIOD_MINUTES = 30;
+
+    private static ScheduledExecutorService scheduler;
+
+    /**
+     * Uygulama açılırken 1 kez çağır.
+     * @param prefetched ilk doldurma zaten yapıldıysa (StartupOrchestrator) true -> ilk tur PERIOD sonra
+     */
+    public static synchronized void start(boolean prefetched) {
+        if (scheduler != null) return;
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "prefetch-thread");
+            t.setDaemon(true);
+            return t;
+        });
+        long initialDelay = prefetched ? PERIOD_MINUTES : 0;
+        scheduler.scheduleWithFixedDelay(ProductPrefetcher::prefetchNow, initialDelay, PERIOD_MINUTES, TimeUnit.MINUTES);
+    }
+
+    public static synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /** @return cache'e konan ürün sayısı (hata olursa 0) */
+    public static int prefetchNow() {
+        try {
+            List<Product> top = ProductDAO.findTopSelling(TOP_N, HISTORY_DAYS, currentHours());
+
+            Map<String, Product> cache = ScanPipeline.cache();
+            for (Product p : top) cache.put(p.getBarcode(), p);
+
+            System.out.println("PREFETCH ✅ " + top.size() + " ürün");
+            return top.size();
+
+        } catch (Exception e) {
+            // prefetch sadece hızlandırıcı; hata satışı engellemesin
+            return 0;
+        }
+    }
+
+    private static Integer[] currentHours() {
+        int h = LocalTime.now().getHour();
+        Integer[] hours = new Integer[2 * HOUR_WINDOW + 1];
+        for (int i = -HOUR_WINDOW; i <= HOUR_WINDOW; i++) {
+            hours[i + HOUR_WINDOW] = Math.floorMod(h + i, 24); // gece yarısında sarar
+        }
+        return hours;
+    }
+}
@@ -0,0 +1,83 @@
+package com.stockapp.service;
+
+import com.stockapp.config.AppConfig;
+import com.stockapp.dao.VelocityDAO;
+import com.stockapp.event.DomainEvent;
+import com.stockapp.event.EventBus;
+
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Kritik stok kuralı: sabit "stok < 10" yerine ürünün satış hızından gelen sipariş noktası.
+ *
+ *   kritik = stok <= 0  ya da  stok < sipariş noktası
+ *   sipariş noktası = ceil(günlük hız * REORDER_COVER_DAYS)   (geçmişi olmayan ürün: REORDER_DEFAULT)
+ *
+ * Periyodik olarak VelocityDAO.runIncremental ile yeni satışları işler ve sipariş noktalarını
+ * belleğe alır; satır renkleri buradan sabit sürede okunur.
+ */
+public class ReorderEngine {
+
+    private static final long PERIOD_SECONDS = 5 * 60;
+
+    // a=0.2 -> yaklaşık son 9 günün ağırlıklı ortalaması
+    private static final double ALPHA = 0.2;
+    // 0.8^90 ~ 2e-9: daha eski satışların katkısı yok sayılır (ilk çalıştırmada sınırlı tarama)
+    private static final int HISTORY_DAYS = 90;
+
+    private static final int COVER_DAYS = AppConfig.getInt("REORDER_COVER_DAYS", 7);
+    private static final int DEFAULT_POINT = AppConfig.getInt("REORDER_DEFAULT", 10);
+
+    private static volatile Map<Integer, Integer> points = Map.of();
+    private static ScheduledExecutorService scheduler;
+
+    public static synchronized void start() {
+        if (scheduler != null) return;
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "reorder-thread");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(ReorderEngine::runNow, 0, PERIOD_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public static synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    public static void runNow() {
+        try {
+            int n = VelocityDAO.runIncremental(ALPHA, COVER_DAYS, HISTORY_DAYS);
+            Map<Integer, Integer> fresh = VelocityDAO.getReorderPoints();
+
+            if (!fresh.equals(points)) {
+                points = fresh;
+                EventBus.publish(new DomainEvent.ReorderPointsChanged());
+            }
+            if (n > 0) System.out.println("REORDER ✅ " + n + " ürün güncellendi");
+        } catch (Exception e) {
+            // bir sonraki turda tekrar denenir; eldeki noktalar geçerli kalır
+            System.out.println("REORDER ❌ " + e.getMessage());
+        }
+    }
+
+    public static int defaultPoint() {
+        return DEFAULT_POINT;
+    }
+
+    public static int reorderPoint(int productId) {
+        return points.getOrDefault(productId, DEFAULT_POINT);
+    }
+
+    /** SQL tarafındaki kural ile aynı (ProductDAO.CRITICAL_WHERE). */
+    public static boolean isCritical(int stock, int reorderPoint) {
+        return stock <= 0 || stock < reorderPoint;
+    }
+}
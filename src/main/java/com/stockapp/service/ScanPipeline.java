@@ -0,0 +1,210 @@
+package com.stockapp.service;
+
+import com.stockapp.event.DomainEvent;
+import com.stockapp.event.EventBus;
+import com.stockapp.model.Product;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Barkod okutma hattı:
+ * - her okutma anında kuyruğa girer (UI thread hiç beklemez)
+ * - ürünler arka planda paralel çözülür (cache -> DB)
+ * - sonuçlar okutma SIRASIYLA teslim edilir
+ * - henüz teslim edilmemiş aynı barkod tekrar okutulursa adet o bilete eklenir (coalesce)
+ * - okutma -> sepet satırı gecikmesi ölçülür
+ *
+ * submit / pause / resume ve tüm teslimatlar uiExecutor (FX thread) üzerinde çalışır,
+ * bu yüzden kuyruk için kilit gerekmez.
+ */
+public class ScanPipeline {
+
+    public enum Status { RESOLVED, NOT_FOUND, FAILED }
+
+    public static final class Ticket {
+        private final long seq;
+        private final String barcode;
+        private final long submittedNanos;
+        private final CompletableFuture<Optional<Product>> future;
+        private int qty;
+
+        private Ticket(long seq, String barcode, int qty, CompletableFuture<Optional<Product>> future) {
+            this.seq = seq;
+            this.barcode = barcode;
+            this.qty = qty;
+            this.future = future;
+            this.submittedNanos = System.nanoTime();
+        }
+
+        public long getSeq() { return seq; }
+        public String getBarcode() { return barcode; }
+        public int getQty() { return qty; }
+    }
+
+    public record Result(Ticket ticket, Status status, Product product, Throwable error, long latencyNanos) {
+        public double latencyMillis() { return latencyNanos / 1_000_000.0; }
+    }
+
+    public record Stats(long count, double avgMillis, double maxMillis, double lastMillis) {}
+
+    public interface Listener {
+        /** Yeni bekleyen satır (ürün henüz çözülmedi) */
+        void onPending(Ticket ticket);
+        /** Bekleyen bilete aynı barkod tekrar okutuldu (adet arttı) */
+        void onPendingMerged(Ticket ticket);
+        /** Sıralı teslim */
+        void onResult(Result result);
+    }
+
+    // ✅ sayfa her açıldığında yeni thread havuzu açılmasın: paylaşımlı
+    private static final AtomicInteger THREAD_NO = new AtomicInteger();
+    private static final ExecutorService RESOLVERS = Executors.newFixedThreadPool(4, r -> {
+        Thread t = new Thread(r, "scan-resolve-thread-" + THREAD_NO.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    });
+
+    // ✅ Barkod -> Product cache (paylaşımlı, prefetch buraya doldurur)
+    private static final Map<String, Product> CACHE = new ConcurrentHashMap<>();
+
+    static {
+        // fiyat/ad değişen ya da silinen ürün cache'te bayat kalmasın
+        EventBus.subscribe(DomainEvent.ProductChanged.class, e -> CACHE.remove(e.barcode()));
+    }
+
+    private final Function<String, Optional<Product>> resolver;
+    private final Executor uiExecutor;
+    private final Listener listener;
+
+    private final Deque<Ticket> queue = new ArrayDeque<>();
+    private final Map<String, Ticket> pendingByBarcode = new HashMap<>();
+    private final Map<String, CompletableFuture<Optional<Product>>> inFlight = new ConcurrentHashMap<>();
+
+    private long nextSeq = 1;
+    private boolean paused = false;
+
+    private long count = 0;
+    private long totalNanos = 0;
+    private long maxNanos = 0;
+    private long lastNanos = 0;
+
+    public ScanPipeline(Function<String, Optional<Product>> resolver, Executor uiExecutor, Listener listener) {
+        this.resolver = resolver;
+        this.uiExecutor = uiExecutor;
+        this.listener = listener;
+    }
+
+    public static Map<String, Product> cache() {
+        return CACHE;
+    }
+
+    /** Okutmayı kuyruğa alır. UI thread'den çağrılır ve hiç bloklamaz. */
+    public Ticket submit(String barcode, int qty) {
+        if (qty <= 0) qty = 1;
+
+        // aynı barkod hâlâ bekliyorsa adedi ona ekle (sıra ilk okutmanın yerinde kalır)
+        Ticket pending = pendingByBarcode.get(barcode);
+        if (pending != null) {
+            pending.qty += qty;
+            listener.onPendingMerged(pending);
+            return pending;
+        }
+
+        Ticket t = new Ticket(nextSeq++, barcode, qty, resolveAsync(barcode));
+        queue.addLast(t);
+        pendingByBarcode.put(barcode, t);
+        listener.onPending(t);
+
+        t.future.whenComplete((p, e) -> uiExecutor.execute(this::drain));
+        return t;
+    }
+
+    private CompletableFuture<Optional<Product>> resolveAsync(String barcode) {
+        Product cached = CACHE.get(barcode);
+        if (cached != null) return CompletableFuture.completedFuture(Optional.of(cached));
+
+        // aynı barkod için aynı anda tek DB sorgusu
+        CompletableFuture<Optional<Product>> f = new CompletableFuture<>();
+        CompletableFuture<Optional<Product>> existing = inFlight.putIfAbsent(barcode, f);
+        if (existing != null) return existing;
+
+        // map çağrısının DIŞINDA: sorgu hemen biterse bile remove başka bir map işleminin içinde koşmaz
+        f.whenComplete((p, e) -> inFlight.remove(barcode, f));
+        CompletableFuture.runAsync(() -> {
+            try {
+                Optional<Product> p = resolver.apply(barcode);
+                p.ifPresent(prod -> CACHE.put(barcode, prod));
+                f.complete(p);
+            } catch (Throwable e) {
+                f.completeExceptionally(e);
+            }
+        }, RESOLVERS);
+        return f;
+    }
+
+    /** Teslimatı durdurur (ör. ürün tanıtma dialog'u açıkken). Okutmalar kuyruğa girmeye devam eder. */
+    public void pause() {
+        paused = true;
+    }
+
+    public void resume() {
+        paused = false;
+        drain();
+    }
+
+    /** Baştaki çözülmüş biletleri sırayla teslim eder; ilk çözülmemişte durur. */
+    private void drain() {
+        while (!paused && !queue.isEmpty() && queue.peekFirst().future.isDone()) {
+            Ticket t = queue.pollFirst();
+            pendingByBarcode.remove(t.barcode, t);
+
+            long latency = System.nanoTime() - t.submittedNanos;
+            record(latency);
+
+            Result r;
+            try {
+                Optional<Product> p = t.future.join();
+                r = p.map(prod -> new Result(t, Status.RESOLVED, prod, null, latency))
+                        .orElseGet(() -> new Result(t, Status.NOT_FOUND, null, null, latency));
+            } catch (Exception e) {
+                Throwable cause = (e.getCause() != null) ? e.getCause() : e;
+                r = new Result(t, Status.FAILED, null, cause, latency);
+            }
+
+            listener.onResult(r);
+        }
+    }
+
+    public int pendingCount() {
+        return queue.size();
+    }
+
+    /** Bekleyen tüm biletleri atar (sepet temizlenince). */
+    public void clearPending() {
+        queue.clear();
+        pendingByBarcode.clear();
+    }
+
+    private void record(long latencyNanos) {
+        count++;
+        totalNanos += latencyNanos;
+        lastNanos = latencyNanos;
+        if (latencyNanos > maxNanos) maxNanos = latencyNanos;
+    }
+
+    public Stats getStats() {
+        double avg = (count == 0) ? 0 : (totalNanos / (double) count) / 1_000_000.0;
+        return new Stats(count, avg, maxNanos / 1_000_000.0, lastNanos / 1_000_000.0);
+    }
+}
@@ -0,0 +1,30 @@
+package com.stockapp.service;
+
+import java.util.Locale;
+
+/**
+ * Arama için metin katlama (Türkçe duyarlı):
+ * "İ/I/ı" -> "i", "ç ğ ö ş ü" -> "c g o s u", sonra küçük harf.
+ * Böylece "SUT", "süt" ve "Süt" aynı anahtara düşer.
+ *
+ * ⚠️ DB tarafındaki stockapp_fold() fonksiyonu ile birebir aynı kalmalı.
+ */
+public final class SearchText {
+
+    private static final String FROM = "İIıÇĞÖŞÜÂÎÛçğöşüâîû";
+    private static final String TO   = "iiicgosuaiucgosuaiu";
+
+    private SearchText() {}
+
+    public static String fold(String s) {
+        if (s == null) return "";
+
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            int k = FROM.indexOf(ch);
+            sb.append(k >= 0 ? TO.charAt(k) : ch);
+        }
+        return sb.toString().toLowerCase(Locale.ROOT);
+    }
+}
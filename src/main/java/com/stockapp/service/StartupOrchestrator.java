@@ -0,0 +1,110 @@
+package com.stockapp.service;
+
+import com.stockapp.config.DatabaseConfig;
+import com.stockapp.config.DbInitializer;
+import com.stockapp.dao.ReportsDAO;
+import com.stockapp.event.DomainEvent;
+import com.stockapp.event.EventBus;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Açılışın kritik yolu: pencere hemen çizilir, DB işleri FX thread dışında paralel yürür.
+ *
+ *   POOL ──┬─────────────> FIRST_QUERY ──┐
+ *          └──┐                          ├──> arka plan servisleri + eski fiş temizliği
+ *   SCHEMA ───┴─> CACHES ────────────────┘
+ *
+ * Her adım bitince StartupProgress yayınlanır (üst bardaki hazırlık etiketi).
+ * Bir adımın hatası diğerlerini durdurmaz: devre kesici ve ekranlar kendi hatalarını gösterir.
+ */
+public class StartupOrchestrator {
+
+    private static final String[] STEPS = {"Bağlantı", "Şema", "İlk sorgu", "Önbellek"};
+
+    private static final AtomicBoolean STARTED = new AtomicBoolean(false);
+    private static final AtomicInteger DONE = new AtomicInteger();
+    private static final AtomicBoolean FAILED = new AtomicBoolean(false);
+    private static volatile boolean ready = false;
+
+    public static boolean isReady() {
+        return ready;
+    }
+
+    /** Uygulama açılırken 1 kez (pencere gösterildikten sonra). */
+    public static void start() {
+        if (!STARTED.compareAndSet(false, true)) return;
+
+        ExecutorService exec = Executors.newFixedThreadPool(3, r -> {
+            Thread t = new Thread(r, "startup-thread");
+            t.setDaemon(true);
+            return t;
+        });
+
+        CompletableFuture<Void> pool = step(exec, 0, StartupTimeline.Phase.POOL, DatabaseConfig::initPool);
+        CompletableFuture<Void> schema = step(exec, 1, StartupTimeline.Phase.SCHEMA, DbInitializer::init);
+
+        CompletableFuture<Void> firstQuery = pool.thenComposeAsync(
+                v -> step(exec, 2, StartupTimeline.Phase.FIRST_QUERY, StartupOrchestrator::firstQuery), exec);
+
+        CompletableFuture<Void> caches = CompletableFuture.allOf(pool, schema).thenComposeAsync(
+                v -> step(exec, 3, StartupTimeline.Phase.CACHES, () -> {
+                    CatalogSnapshot.sync();   // lokal kopya: sadece değişenler
+                    ProductPrefetcher.prefetchNow();
+                    TypeaheadService.reload();
+                    TrendingTracker.seed();
+                }), exec);
+
+        CompletableFuture.allOf(firstQuery, caches).thenRunAsync(() -> {
+            try {
+                ready = true;
+                EventBus.publish(new DomainEvent.StartupProgress("Hazır", STEPS.length, STEPS.length, true, FAILED.get()));
+                StartupTimeline.report();
+
+                // periyodik işler ilk doldurmadan sonra başlasın (açılışta havuz yarışı olmasın)
+                ProductPrefetcher.start(true);
+                StockEscrow.start();       // emanet modu (STOCK_ESCROW=true ise)
+                LedgerCompactor.start();   // bekleyen artışları snapshot'a katla
+                LiveSalesStats.start();    // bugünün toplamları + diğer kasalardan NOTIFY
+                ReorderEngine.start();     // satış hızı -> sipariş noktaları (kritik stok)
+
+                // ✅ otomatik temizlik (3 yıldan eski fişler) - en sona, kimseyi bekletmesin
+                ReportsDAO.deleteSalesOlderThanYears(3);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }, exec).whenComplete((v, e) -> exec.shutdown());
+    }
+
+    /** Havuzdan tek round-trip: açılıştaki gerçek ağ gecikmesi. */
+    private static void firstQuery() {
+        // şema göçünü beklemez: göçle paralel ölçülür
+        try (Connection c = DatabaseConfig.getSchemaFreeConnection(DatabaseConfig.Pool.INTERACTIVE);
+             Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery("SELECT 1")) {
+            rs.next();
+        } catch (Exception e) {
+            throw new RuntimeException("İlk sorgu başarısız", e);
+        }
+    }
+
+    private static CompletableFuture<Void> step(ExecutorService exec, int index, StartupTimeline.Phase phase, Runnable work) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                StartupTimeline.time(phase, work);
+            } catch (Exception e) {
+                FAILED.set(true);
+                System.out.println("STARTUP ❌ " + STEPS[index] + ": " + e.getMessage());
+            }
+            EventBus.publish(new DomainEvent.StartupProgress(
+                    STEPS[index], DONE.incrementAndGet(), STEPS.length, false, FAILED.get()));
+        }, exec);
+    }
+}
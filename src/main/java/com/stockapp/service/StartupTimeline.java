@@ -0,0 +1,107 @@
+package com.stockapp.service;
+
+import com.stockapp.config.AppConfig;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Açılış zaman çizelgesi: her aşamanın JVM başlangıcına göre başlangıç/bitiş anı (ms).
+ * Rapor konsola yazılır ve dataDir()/startup-timeline.tsv'ye satır olarak eklenir
+ * (sürümler arası karşılaştırma için: bir açılış = bir satır).
+ */
+public class StartupTimeline {
+
+    public enum Phase {
+        /** JVM başlangıcı -> main() */
+        JVM,
+        /** main() -> Application.start() (FX toolkit ayağa kalkışı) */
+        FX_TOOLKIT,
+        /** main.fxml + ilk sayfa yüklemesi */
+        FXML,
+        /** stage.show() -> ilk pulse */
+        FIRST_PAINT,
+        /** Hikari havuzları (ilk bağlantılar dahil) */
+        POOL,
+        /** şema sürüm kontrolü / göç */
+        SCHEMA,
+        /** havuzdan ilk sorgu (round-trip) */
+        FIRST_QUERY,
+        /** barkod prefetch + arama trie'si */
+        CACHES
+    }
+
+    private record Span(long startMs, long endMs) {}
+
+    private static final Path FILE = AppConfig.dataDir().resolve("startup-timeline.tsv");
+    private static final long JVM_START = ManagementFactory.getRuntimeMXBean().getStartTime();
+
+    private static final Map<Phase, Span> SPANS = new EnumMap<>(Phase.class);
+
+    /** JVM başlangıcından bu yana geçen ms. */
+    public static long now() {
+        return System.currentTimeMillis() - JVM_START;
+    }
+
+    public static synchronized void record(Phase phase, long startMs) {
+        SPANS.put(phase, new Span(startMs, now()));
+    }
+
+    public static void time(Phase phase, Runnable work) {
+        long t0 = now();
+        try {
+            work.run();
+        } finally {
+            record(phase, t0);
+        }
+    }
+
+    /** Aşama kaydedildiyse süresi (ms), yoksa -1. */
+    public static synchronized long duration(Phase phase) {
+        Span s = SPANS.get(phase);
+        return (s == null) ? -1 : s.endMs() - s.startMs();
+    }
+
+    /** Konsola döker ve TSV'ye ekler. Eksik aşamalar boş bırakılır. */
+    public static synchronized void report() {
+        StringBuilder console = new StringBuilder("STARTUP ⏱");
+        StringBuilder row = new StringBuilder()
+                .append(LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)).append('\t')
+                .append(AppConfig.get("APP_VERSION", "dev")).append('\t')
+                .append(AppConfig.terminalId());
+
+        long total = 0;
+        for (Phase p : Phase.values()) {
+            Span s = SPANS.get(p);
+            row.append('\t');
+            if (s == null) continue;
+
+            long d = s.endMs() - s.startMs();
+            row.append(d);
+            console.append(String.format(" %s=%d ms (@%d)", p.name().toLowerCase(), d, s.endMs()));
+            total = Math.max(total, s.endMs());
+        }
+        row.append('\t').append(total).append('\n');
+        System.out.println(console + " | hazır @" + total + " ms");
+
+        try {
+            Files.createDirectories(FILE.getParent());
+            if (Files.notExists(FILE)) {
+                StringBuilder header = new StringBuilder("at\tversion\tterminal");
+                for (Phase p : Phase.values()) header.append('\t').append(p.name().toLowerCase()).append("_ms");
+                header.append("\tready_ms\n");
+                Files.writeString(FILE, header, StandardCharsets.UTF_8);
+            }
+            Files.writeString(FILE, row, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+}
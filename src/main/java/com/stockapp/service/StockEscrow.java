@@ -0,0 +1,153 @@
+package com.stockapp.service;
+
+import com.stockapp.config.AppConfig;
+import com.stockapp.dao.EscrowDAO;
+import com.stockapp.dao.ProductDAO;
+import com.stockapp.model.Product;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Opsiyonel emanet modu (STOCK_ESCROW=true):
+ * Her kasa çok satan ürünler için arka planda stok kotası ayırır,
+ * satışta bu kotadan düşer ve ortak products satırını kilitlemez.
+ * Periyodik olarak kotaları tamamlar, artık sıcak olmayanları iade eder.
+ *
+ * products.stock her zaman gerçek toplam stoktur; kota sadece stock_escrow'da tutulur ve yalnızca
+ * serbest stoktan (toplam - kotalar) alınabildiği için toplam asla negatife düşmez.
+ */
+public class StockEscrow {
+
+    private static final int HOT_PRODUCTS = AppConfig.getInt("ESCROW_HOT_PRODUCTS", 50);
+    private static final int TARGET_QUOTA = AppConfig.getInt("ESCROW_QUOTA", 20);
+    private static final int LOW_WATER = Math.max(1, TARGET_QUOTA / 4);
+    private static final long PERIOD_SECONDS = 60;
+
+    private static volatile boolean enabled = false;
+    private static ScheduledExecutorService scheduler;
+
+    // ✅ product_id -> bu kasada kalan kota (DB'deki stock_escrow satırının aynası)
+    private static final Map<Integer, AtomicInteger> LOCAL = new ConcurrentHashMap<>();
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static String terminalId() {
+        return AppConfig.terminalId();
+    }
+
+    /** Açılışta 1 kez. STOCK_ESCROW kapalıysa hiçbir şey yapmaz. */
+    public static synchronized void start() {
+        if (scheduler != null || !AppConfig.flag("STOCK_ESCROW")) return;
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "escrow-thread");
+            t.setDaemon(true);
+            return t;
+        });
+
+        scheduler.execute(() -> {
+            try {
+                // önceki çalışmadan kalan kotaları devral
+                EscrowDAO.loadQuotas(terminalId()).forEach((id, q) -> quota(id).addAndGet(q));
+                enabled = true;
+            } catch (Exception e) {
+                System.out.println("ESCROW ❗ devre dışı: " + e.getMessage());
+            }
+        });
+        scheduler.scheduleWithFixedDelay(StockEscrow::reconcile, 1, PERIOD_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /** Kapanışta: kotaları bırak (serbest stoğa döner). */
+    public static synchronized void stop() {
+        if (scheduler == null) return;
+        scheduler.shutdownNow();
+        scheduler = null;
+
+        if (!enabled) return;
+        enabled = false;
+        LOCAL.clear();
+        try {
+            EscrowDAO.releaseAll(terminalId());
+        } catch (Exception ignored) {}
+    }
+
+    /**
+     * Lokal aynaya göre kota yetiyor mu (DB yok, hiçbir şey ayırmaz).
+     * @return true ise satış transaction'ında stock_escrow'dan düşmeyi dene
+     */
+    public static boolean hasQuota(int productId, int qty) {
+        return enabled && localQuota(productId) >= qty;
+    }
+
+    /** DB'de kotadan düşüş BAŞARILI olduktan sonra lokal aynayı eşitle. */
+    public static void consumed(int productId, int qty) {
+        AtomicInteger q = LOCAL.get(productId);
+        if (q != null) q.updateAndGet(cur -> Math.max(0, cur - qty));
+    }
+
+    /** Satış geri alındıysa (rollback) lokal kotayı geri koy. */
+    public static void restore(int productId, int qty) {
+        quota(productId).addAndGet(qty);
+    }
+
+    public static int localQuota(int productId) {
+        AtomicInteger q = LOCAL.get(productId);
+        return q == null ? 0 : q.get();
+    }
+
+    private static AtomicInteger quota(int productId) {
+        return LOCAL.computeIfAbsent(productId, k -> new AtomicInteger());
+    }
+
+    /** Kotaları tamamla + sıcak olmayanları iade et. */
+    static void reconcile() {
+        if (!enabled) return;
+
+        try {
+            // lokal ayna sadece ipucu: DB'deki kotalarla eşitle (elle stok set / sayım kotaları bırakmış olabilir)
+            Map<Integer, Integer> db = EscrowDAO.loadQuotas(terminalId());
+            for (Map.Entry<Integer, AtomicInteger> e : LOCAL.entrySet()) {
+                e.getValue().set(db.getOrDefault(e.getKey(), 0));
+            }
+            db.forEach((id, q) -> quota(id).set(q));
+
+            int h = LocalTime.now().getHour();
+            List<Product> hot = ProductDAO.findTopSelling(HOT_PRODUCTS, 7, new Integer[]{h});
+
+            Set<Integer> hotIds = new HashSet<>();
+            Map<Integer, Integer> want = new HashMap<>();
+            for (Product p : hot) {
+                hotIds.add(p.getId());
+                int cur = localQuota(p.getId());
+                if (cur < LOW_WATER) want.put(p.getId(), TARGET_QUOTA - cur);
+            }
+
+            // 1) eksik kotaları tek statement ile doldur
+            EscrowDAO.reserve(terminalId(), want).forEach((id, taken) -> quota(id).addAndGet(taken));
+
+            // 2) artık sıcak olmayanları iade et (önce lokali sıfırla ki yeni satış kullanmasın)
+            List<Integer> cold = new ArrayList<>();
+            for (Map.Entry<Integer, AtomicInteger> e : LOCAL.entrySet()) {
+                if (!hotIds.contains(e.getKey()) && e.getValue().getAndSet(0) > 0) cold.add(e.getKey());
+            }
+            EscrowDAO.release(terminalId(), cold.toArray(new Integer[0]));
+
+        } catch (Exception e) {
+            // bir sonraki turda tekrar denenir; satış yolu products'a düşer
+            System.out.println("ESCROW ⚠️ mutabakat başarısız: " + e.getMessage());
+        }
+    }
+}
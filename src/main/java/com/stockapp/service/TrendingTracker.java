@@ -0,0 +1,256 @@
+package com.stockapp.service;
+
+import com.stockapp.dao.ReportsDAO;
+import com.stockapp.event.DomainEvent;
+import com.stockapp.event.EventBus;
+import com.stockapp.model.Product;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * "Şu an ne satıyor": satışlardan beslenen, bellek sınırlı top-k takibi (DB'ye sorgu yok).
+ *
+ * Her pencere zaman dilimlerinden (pane) oluşan bir halka:
+ *   LAST_HOUR   = 12 x 5 dk  (kayan)
+ *   TODAY       = 1 x gün    (gece yarısı sıfırlanır)
+ *   LAST_7_DAYS = 28 x 6 saat (kayan)
+ * Her pane'de bir space-saving özeti (aday ürünler, en fazla CAPACITY sayaç) ve bir count-min
+ * sketch (adet tahmini) var. Top-k = canlı pane'lerdeki adayların birleşimi, adet = count-min toplamı.
+ * Count-min asla eksik saymaz; hata payı pane başına toplam adet / WIDTH kadardır.
+ *
+ * Açılışta son 7 günün satışlarıyla bir kez doldurulur (seed), sonrası artımlı: bu kasanın satışları
+ * SaleCommitted, diğer kasalarınkiler RemoteSaleCommitted (LiveSalesStats NOTIFY) ile gelir.
+ * Seed bitene kadar gelen olaylar bekletilir; seed'in son 1 saatte gördüğü fişler ikinci kez sayılmaz.
+ */
+public class TrendingTracker {
+
+    public enum Window {
+        LAST_HOUR("Son 1 saat", 12),
+        TODAY("Bugün", 1),
+        LAST_7_DAYS("Son 7 gün", 28);
+
+        private final String label;
+        private final int panes;
+
+        Window(String label, int panes) {
+            this.label = label;
+            this.panes = panes;
+        }
+
+        /** Zamanın düştüğü pane numarası (artan, pencereye göre). */
+        long paneOf(long millis) {
+            return switch (this) {
+                case LAST_HOUR -> millis / (5 * 60_000L);
+                case TODAY -> Instant.ofEpochMilli(millis).atZone(ZONE).toLocalDate().toEpochDay();
+                case LAST_7_DAYS -> {
+                    // 6 saatlik dilimler yerel saate hizalı (00-06-12-18)
+                    long local = millis + ZONE.getRules().getOffset(Instant.ofEpochMilli(millis)).getTotalSeconds() * 1000L;
+                    yield local / (6 * 3_600_000L);
+                }
+            };
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    public record Trend(int productId, String name, long qty) {}
+
+    static final int CAPACITY = 64;     // pane başına aday sayacı
+    static final int DEPTH = 4;         // count-min satır
+    static final int WIDTH = 256;       // count-min sütun (2'nin kuvveti)
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private static final Map<Window, Pane[]> RINGS = new HashMap<>();
+    private static volatile boolean seeded = false;
+
+    private record Sale(int saleId, List<DomainEvent.SaleLine> lines, long atMillis) {}
+
+    // seed sürerken gelen satışlar (seed bitince süzülüp işlenir) ve seed'in saydığı son fişler
+    private static final List<Sale> BEFORE_SEED = new ArrayList<>();
+    private static final Set<Integer> SEEDED_SALE_IDS = new HashSet<>();
+
+    static {
+        for (Window w : Window.values()) RINGS.put(w, new Pane[w.panes]);
+        EventBus.subscribe(DomainEvent.SaleCommitted.class, e -> onSale(e.saleId(), e.lines()));
+        EventBus.subscribe(DomainEvent.RemoteSaleCommitted.class, e -> onSale(e.saleId(), e.lines()));
+    }
+
+    // =========================
+    // ✅ SKETCH'LER
+    // =========================
+
+    /** Space-saving: doluyken yeni ürün en küçük sayacın yerine geçer (count = min + w). */
+    private static final class SpaceSaving {
+        final Map<Integer, long[]> counters = new HashMap<>(); // id -> {count, error}
+
+        void add(int id, long w) {
+            long[] c = counters.get(id);
+            if (c != null) {
+                c[0] += w;
+                return;
+            }
+            if (counters.size() < CAPACITY) {
+                counters.put(id, new long[]{w, 0});
+                return;
+            }
+            int minId = 0;
+            long min = Long.MAX_VALUE;
+            for (Map.Entry<Integer, long[]> e : counters.entrySet()) {
+                if (e.getValue()[0] < min) {
+                    min = e.getValue()[0];
+                    minId = e.getKey();
+                }
+            }
+            counters.remove(minId);
+            counters.put(id, new long[]{min + w, min});
+        }
+    }
+
+    private static final class CountMin {
+        final int[][] table = new int[DEPTH][WIDTH];
+
+        void add(int id, long w) {
+            for (int r = 0; r < DEPTH; r++) table[r][slot(id, r)] += (int) w;
+        }
+
+        long estimate(int id) {
+            long min = Long.MAX_VALUE;
+            for (int r = 0; r < DEPTH; r++) min = Math.min(min, table[r][slot(id, r)]);
+            return min;
+        }
+
+        private static int slot(int id, int row) {
+            // satır başına farklı tohumla karıştır (murmur3 fmix32)
+            int h = id * 0x9E3779B9 + row * 0x85EBCA6B;
+            h ^= h >>> 16;
+            h *= 0x85EBCA6B;
+            h ^= h >>> 13;
+            h *= 0xC2B2AE35;
+            h ^= h >>> 16;
+            return h & (WIDTH - 1);
+        }
+    }
+
+    private static final class Pane {
+        final long id;
+        final SpaceSaving heavy = new SpaceSaving();
+        final CountMin counts = new CountMin();
+
+        Pane(long id) {
+            this.id = id;
+        }
+    }
+
+    // =========================
+    // ✅ YAZMA
+    // =========================
+
+    public static synchronized void record(int productId, long qty, long atMillis) {
+        if (qty <= 0) return;
+        for (Window w : Window.values()) {
+            long paneId = w.paneOf(atMillis);
+            long current = w.paneOf(System.currentTimeMillis());
+            if (paneId <= current - w.panes || paneId > current) continue; // pencere dışında
+
+            Pane[] ring = RINGS.get(w);
+            int slot = (int) Math.floorMod(paneId, (long) ring.length);
+            Pane p = ring[slot];
+            if (p == null || p.id != paneId) {
+                if (p != null && p.id > paneId) continue; // yuva daha yeni bir dilime geçmiş
+                ring[slot] = p = new Pane(paneId);
+            }
+            p.heavy.add(productId, qty);
+            p.counts.add(productId, qty);
+        }
+    }
+
+    private static synchronized void onSale(int saleId, List<DomainEvent.SaleLine> lines) {
+        Sale s = new Sale(saleId, lines, System.currentTimeMillis());
+        if (!seeded) {
+            BEFORE_SEED.add(s);
+            return;
+        }
+        recordSale(s);
+    }
+
+    private static void recordSale(Sale s) {
+        if (SEEDED_SALE_IDS.contains(s.saleId())) return; // seed'de zaten sayıldı
+        for (DomainEvent.SaleLine l : s.lines()) record(l.productId(), l.qty(), s.atMillis());
+    }
+
+    /**
+     * Açılışta 1 kez: son 7 günün satışları (son 1 saat dakika, öncesi saat çözünürlüğünde).
+     * Okunamazsa canlı olaylarla boş başlanır.
+     */
+    public static void seed() {
+        if (seeded) return;
+        LocalDateTime now = LocalDateTime.now();
+        Set<Integer> recentIds = new HashSet<>();
+        int n = 0;
+        try {
+            // satırlar okundukça sketch'lere: 7 günlük sonuç için ara liste yok
+            n = ReportsDAO.forEachProductQtyBucket(now.minusDays(7), now.minusHours(1), now, recentIds, r ->
+                    record(r.productId(), r.qty(), r.at().atZone(ZONE).toInstant().toEpochMilli()));
+        } finally {
+            synchronized (TrendingTracker.class) {
+                // olay, fişi commit edildikten sonra gelir: seed'den 1 saat önceki fişin olayı artık gelmez
+                SEEDED_SALE_IDS.addAll(recentIds);
+                seeded = true;
+                for (Sale s : BEFORE_SEED) recordSale(s);
+                BEFORE_SEED.clear();
+            }
+        }
+        System.out.println("TRENDING ✅ " + n + " satır");
+    }
+
+    // =========================
+    // ✅ OKUMA
+    // =========================
+
+    public static List<Trend> top(Window w, int k) {
+        Map<Integer, Long> est = new HashMap<>();
+
+        synchronized (TrendingTracker.class) {
+            long current = w.paneOf(System.currentTimeMillis());
+            List<Pane> live = new ArrayList<>();
+            Set<Integer> candidates = new HashSet<>();
+            for (Pane p : RINGS.get(w)) {
+                if (p == null || p.id <= current - w.panes || p.id > current) continue;
+                live.add(p);
+                candidates.addAll(p.heavy.counters.keySet());
+            }
+
+            for (int id : candidates) {
+                long sum = 0;
+                for (Pane p : live) sum += p.counts.estimate(id);
+                est.put(id, sum);
+            }
+        }
+
+        List<Map.Entry<Integer, Long>> sorted = new ArrayList<>(est.entrySet());
+        sorted.sort(Map.Entry.<Integer, Long>comparingByValue().reversed()
+                .thenComparing(Map.Entry.comparingByKey()));
+
+        List<Trend> out = new ArrayList<>(Math.min(k, sorted.size()));
+        for (Map.Entry<Integer, Long> e : sorted) {
+            if (out.size() >= k) break;
+            Product p = CatalogSnapshot.product(e.getKey());
+            if (p == null && CatalogSnapshot.isLoaded()) continue; // silinmiş ürün
+            String name = (p != null) ? p.getName() : "Ürün #" + e.getKey();
+            out.add(new Trend(e.getKey(), name, e.getValue()));
+        }
+        return out;
+    }
+}
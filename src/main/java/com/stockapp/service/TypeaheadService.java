@@ -0,0 +1,347 @@
+package com.stockapp.service;
+
+import com.stockapp.dao.ProductDAO;
+import com.stockapp.event.DomainEvent;
+import com.stockapp.event.EventBus;
+import com.stockapp.model.Product;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Global arama kutusu için bellek içi öneri (typeahead):
+ * - katlanmış (SearchText.fold) ürün adı, adın her kelimesi ve barkod bir prefix trie'ye girer
+ * - her düğüm alt ağacındaki en popüler TOP_K ürünü önceden tutar -> sorgu = prefix kadar adım
+ * - popülerlik = son 30 günde satılan adet; satış oldukça artar
+ * - ürün ekleme/değiştirme/silme ve satışlar EventBus üzerinden artımlı işlenir (tam yeniden kurma yok)
+ *
+ * Sorgular ve artımlı güncellemeler tek kilit altında (mikro saniye sürer); tam yeniden kurma
+ * kilit dışında yeni bir Index kurar ve tek volatile atamayla devreye alır.
+ */
+public class TypeaheadService {
+
+    public static final int TOP_K = 8;
+
+    private static final int HISTORY_DAYS = 30;
+    // trie derinliği sınırlı: daha uzun sorgular bu düğümde aday süzerek çözülür (bellek şişmesin)
+    private static final int MAX_DEPTH = 12;
+    private static final long RELOAD_MIN_INTERVAL_MS = 10 * 60_000L;
+
+    public record Suggestion(int productId, String name, String barcode, int popularity) {}
+
+    private static final class Entry {
+        Product product;
+        String[] keys;
+        int popularity;
+    }
+
+    private static final class Node {
+        char[] chars = new char[0];
+        Node[] kids = new Node[0];
+        int[] ids;              // anahtarı tam bu düğümde biten ürünler
+        int[] top = new int[0]; // alt ağacın en popüler TOP_K ürünü (sıralı)
+
+        Node child(char ch) {
+            for (int i = 0; i < chars.length; i++) if (chars[i] == ch) return kids[i];
+            return null;
+        }
+
+        Node childOrCreate(char ch) {
+            Node n = child(ch);
+            if (n != null) return n;
+            chars = Arrays.copyOf(chars, chars.length + 1);
+            kids = Arrays.copyOf(kids, kids.length + 1);
+            chars[chars.length - 1] = ch;
+            return kids[kids.length - 1] = new Node();
+        }
+    }
+
+    /** Trie + ürün kayıtları: tam yeniden kurmada kilit dışında yenisi kurulup tek atamayla devreye alınır. */
+    private static final class Index {
+        final Node root = new Node();
+        final Map<Integer, Entry> entries = new HashMap<>();
+
+        final Comparator<Integer> rank = Comparator
+                .comparingInt((Integer id) -> -entries.get(id).popularity)
+                .thenComparing(id -> entries.get(id).product.getName(), String.CASE_INSENSITIVE_ORDER)
+                .thenComparingInt(id -> id);
+
+        void upsert(Product p) {
+            Entry old = entries.get(p.getId());
+            int pop = (old == null) ? 0 : old.popularity;
+            if (old != null) remove(p.getId());
+            insert(p, pop, true);
+        }
+
+        void remove(int productId) {
+            Entry e = entries.get(productId);
+            if (e == null) return;
+
+            for (String key : e.keys) {
+                List<Node> path = pathOf(key, false);
+                if (path == null) continue;
+                Node leaf = path.get(path.size() - 1);
+                leaf.ids = without(leaf.ids, productId);
+            }
+            entries.remove(productId);
+
+            // silinen id'yi top listelerinden düşür
+            for (String key : e.keys) {
+                List<Node> path = pathOf(key, false);
+                if (path != null) rerank(path);
+            }
+        }
+
+        void addPopularity(int productId, int qty) {
+            Entry e = entries.get(productId);
+            if (e == null || qty == 0) return;
+
+            e.popularity += qty;
+            for (String key : e.keys) rerank(pathOf(key, false));
+        }
+
+        void insert(Product p, int popularity, boolean rerank) {
+            Entry e = new Entry();
+            e.product = p;
+            e.keys = keysOf(p);
+            e.popularity = popularity;
+            entries.put(p.getId(), e);
+
+            for (String key : e.keys) {
+                List<Node> path = pathOf(key, true);
+                Node leaf = path.get(path.size() - 1);
+                leaf.ids = with(leaf.ids, p.getId());
+                if (rerank) rerank(path);
+            }
+        }
+
+        List<Node> pathOf(String key, boolean create) {
+            List<Node> path = new ArrayList<>(MAX_DEPTH + 1);
+            Node n = root;
+            path.add(n);
+
+            int depth = Math.min(key.length(), MAX_DEPTH);
+            for (int i = 0; i < depth; i++) {
+                n = create ? n.childOrCreate(key.charAt(i)) : n.child(key.charAt(i));
+                if (n == null) return null;
+                path.add(n);
+            }
+            return path;
+        }
+
+        /** Yapraktan köke: her düğümün top'u = kendi ids'i + çocukların top'u. */
+        void rerank(List<Node> path) {
+            for (int i = path.size() - 1; i >= 0; i--) rankNode(path.get(i));
+        }
+
+        void rankAll(Node n) {
+            for (Node kid : n.kids) rankAll(kid);
+            rankNode(n);
+        }
+
+        void rankNode(Node n) {
+            // aynı ürün birden çok anahtarla farklı çocuklarda olabilir; silinmiş id'ler de atlanır
+            Set<Integer> seen = new HashSet<>();
+            List<Integer> cand = new ArrayList<>();
+            if (n.ids != null) for (int id : n.ids) if (entries.containsKey(id) && seen.add(id)) cand.add(id);
+            for (Node kid : n.kids) for (int id : kid.top) if (entries.containsKey(id) && seen.add(id)) cand.add(id);
+
+            cand.sort(rank);
+            int size = Math.min(cand.size(), TOP_K);
+            int[] top = new int[size];
+            for (int j = 0; j < size; j++) top[j] = cand.get(j);
+            n.top = top;
+        }
+
+        Suggestion toSuggestion(int id) {
+            Entry e = entries.get(id);
+            return new Suggestion(id, e.product.getName(), e.product.getBarcode(), e.popularity);
+        }
+    }
+
+    private static volatile Index index = new Index();
+    // tam kurulum sürerken gelen artımlı değişiklikler: yeni index devreye girince üstüne tekrar uygulanır
+    private static List<Consumer<Index>> duringBuild = null;
+    private static volatile boolean loaded = false;
+    private static volatile long lastLoadMillis = 0;
+
+    static {
+        EventBus.subscribe(DomainEvent.ProductChanged.class, TypeaheadService::onProductChanged);
+        EventBus.subscribe(DomainEvent.SaleCommitted.class, TypeaheadService::onSaleCommitted);
+        EventBus.subscribe(DomainEvent.CatalogInvalidated.class, e -> {
+            // pencere odağı sık gelir: en fazla 10 dk'da bir tam tazele
+            if (System.currentTimeMillis() - lastLoadMillis > RELOAD_MIN_INTERVAL_MS) reloadAsync();
+        });
+    }
+
+    /** Kataloğu + popülerliği arka planda yükler, hazır olunca trie'yi değiştirir. */
+    public static void reloadAsync() {
+        lastLoadMillis = System.currentTimeMillis();
+        new Thread(() -> {
+            try {
+                if (CatalogSnapshot.isLoaded()) CatalogSnapshot.sync();
+                reload();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }, "typeahead-load-thread").start();
+    }
+
+    /**
+     * Çağıran thread'de yükler (açılışta StartupOrchestrator kullanır).
+     * ✅ Yeni trie kilit DIŞINDA kurulur; suggest() (FX thread) kurulum boyunca beklemez.
+     */
+    public static void reload() {
+        lastLoadMillis = System.currentTimeMillis();
+
+        // lokal katalog kopyası varsa tüm kataloğu tekrar indirme
+        List<Product> all = CatalogSnapshot.isLoaded() ? CatalogSnapshot.products() : ProductDAO.findAll();
+        Map<Integer, Integer> pop = ProductDAO.salesPopularity(HISTORY_DAYS);
+
+        synchronized (TypeaheadService.class) {
+            duringBuild = new ArrayList<>();
+        }
+
+        Index next = new Index();
+        try {
+            for (Product p : all) next.insert(p, pop.getOrDefault(p.getId(), 0), false);
+            next.rankAll(next.root); // toplu kurulumda tek geçiş, ürün başına değil
+        } catch (RuntimeException e) {
+            synchronized (TypeaheadService.class) { duringBuild = null; }
+            throw e;
+        }
+
+        synchronized (TypeaheadService.class) {
+            for (Consumer<Index> change : duringBuild) change.accept(next);
+            duringBuild = null;
+            index = next;
+            loaded = true;
+        }
+        System.out.println("TYPEAHEAD ✅ " + all.size() + " ürün");
+    }
+
+    public static boolean isLoaded() {
+        return loaded;
+    }
+
+    /** Her tuş vuruşunda çağrılabilir. Kilit sadece kısa artımlı güncellemelerle paylaşılır. */
+    public static synchronized List<Suggestion> suggest(String query, int k) {
+        String q = SearchText.fold(query).trim();
+        if (q.isEmpty()) return List.of();
+
+        Index ix = index;
+        Node n = ix.root;
+        int depth = Math.min(q.length(), MAX_DEPTH);
+        for (int i = 0; i < depth && n != null; i++) n = n.child(q.charAt(i));
+        if (n == null) return List.of();
+
+        List<Suggestion> out = new ArrayList<>(k);
+
+        if (q.length() <= MAX_DEPTH) {
+            for (int id : n.top) {
+                if (out.size() >= k) break;
+                out.add(ix.toSuggestion(id));
+            }
+            return out;
+        }
+
+        // uzun sorgu (ör. tam barkod): bu düğümde biten adayları tam anahtarla süz
+        List<Integer> matches = new ArrayList<>();
+        if (n.ids != null) {
+            for (int id : n.ids) {
+                for (String key : ix.entries.get(id).keys) {
+                    if (key.startsWith(q)) { matches.add(id); break; }
+                }
+            }
+        }
+        matches.sort(ix.rank);
+        for (int id : matches) {
+            if (out.size() >= k) break;
+            out.add(ix.toSuggestion(id));
+        }
+        return out;
+    }
+
+    // =========================
+    // ✅ ARTIMLI GÜNCELLEME
+    // =========================
+
+    public static void upsert(Product p) {
+        apply(ix -> ix.upsert(p));
+    }
+
+    public static void remove(int productId) {
+        apply(ix -> ix.remove(productId));
+    }
+
+    public static void addPopularity(int productId, int qty) {
+        if (qty == 0) return;
+        apply(ix -> ix.addPopularity(productId, qty));
+    }
+
+    private static synchronized void apply(Consumer<Index> change) {
+        change.accept(index);
+        if (duringBuild != null) duringBuild.add(change);
+    }
+
+    /** Ad, adın her kelimesinden başlayan son ek ve barkod. */
+    private static String[] keysOf(Product p) {
+        List<String> keys = new ArrayList<>();
+        String name = SearchText.fold(p.getName()).trim();
+
+        if (!name.isEmpty()) {
+            keys.add(name);
+            for (int i = 1; i < name.length(); i++) {
+                if (name.charAt(i - 1) == ' ' && name.charAt(i) != ' ') keys.add(name.substring(i));
+            }
+        }
+        if (p.getBarcode() != null && !p.getBarcode().isBlank()) keys.add(SearchText.fold(p.getBarcode()));
+
+        return keys.stream().distinct().toArray(String[]::new);
+    }
+
+    private static int[] with(int[] arr, int id) {
+        if (arr == null) return new int[]{id};
+        for (int v : arr) if (v == id) return arr;
+        int[] out = Arrays.copyOf(arr, arr.length + 1);
+        out[arr.length] = id;
+        return out;
+    }
+
+    private static int[] without(int[] arr, int id) {
+        if (arr == null) return null;
+        int[] out = Arrays.stream(arr).filter(v -> v != id).toArray();
+        return out.length == 0 ? null : out;
+    }
+
+    // =========================
+    // ✅ OLAYLAR
+    // =========================
+
+    private static void onProductChanged(DomainEvent.ProductChanged e) {
+        if (!loaded) return;
+
+        if (e.kind() == DomainEvent.Kind.DELETED) {
+            remove(e.productId());
+            return;
+        }
+
+        new Thread(() -> {
+            try {
+                ProductDAO.findById(e.productId()).ifPresent(TypeaheadService::upsert);
+            } catch (Exception ignored) {}
+        }, "typeahead-update-thread").start();
+    }
+
+    private static void onSaleCommitted(DomainEvent.SaleCommitted e) {
+        if (!loaded) return;
+        for (DomainEvent.SaleLine l : e.lines()) addPopularity(l.productId(), l.qty());
+    }
+}